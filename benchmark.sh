@@ -0,0 +1,65 @@
+#! /bin/sh
+#
+# Compiles and runs the simulator benchmarks.
+#
+# ./benchmark.sh jmh                       downloads the JMH jars that the
+#                                          microbenchmarks need to lib/jmh
+# ./benchmark.sh micro [JMH options]       JMH microbenchmarks (needs the JMH
+#                                          core and annotation processor jars
+#                                          in lib/jmh)
+# ./benchmark.sh macro [conf-files]        whole-simulation benchmarks of the
+#                                          given (or the default) scenarios
+#
+TARGET=target/benchmark
+CP="$TARGET:lib/*:lib/jmh/*"
+SCENARIOS="conf/rwp-epidemic.cfg conf/haggle3-prophet.cfg conf/reality-bubblerap.cfg"
+MAVEN=https://repo1.maven.org/maven2
+JMH_JARS="org/openjdk/jmh/jmh-core/1.37/jmh-core-1.37.jar
+org/openjdk/jmh/jmh-generator-annprocess/1.37/jmh-generator-annprocess-1.37.jar
+net/sf/jopt-simple/jopt-simple/5.0.4/jopt-simple-5.0.4.jar
+org/apache/commons/commons-math3/3.6.1/commons-math3-3.6.1.jar"
+
+MODE=$1
+if [ $# -gt 0 ]; then
+	shift
+fi
+
+# compiles the simulator and the given benchmark sources
+compile() {
+	mkdir -p $TARGET
+	javac -nowarn -encoding UTF-8 -d $TARGET -cp "$CP" \
+		`find src -name "*.java"` "$@" || exit 1
+}
+
+case "$MODE" in
+	jmh)
+		mkdir -p lib/jmh
+		for jar in $JMH_JARS; do
+			echo "Downloading `basename $jar`"
+			curl -sSf -o lib/jmh/`basename $jar` $MAVEN/$jar || exit 1
+		done
+		;;
+	micro)
+		if [ -z "`ls lib/jmh/*.jar 2> /dev/null`" ]; then
+			echo "JMH jars not found in lib/jmh, run \"$0 jmh\" first" >&2
+			exit 1
+		fi
+		compile `find benchmark/src -name "*.java"`
+		java -cp "$CP" org.openjdk.jmh.Main "$@"
+		;;
+	macro)
+		if [ $# -gt 0 ]; then
+			SCENARIOS="$*"
+		fi
+		compile benchmark/src/benchmark/SimulationBenchmark.java
+		# one JVM per scenario since the simulator has static state
+		for conf in $SCENARIOS; do
+			java -Xmx512M -cp "$CP" benchmark.SimulationBenchmark $conf \
+				benchmark/conf/macro_settings.cfg | grep "^Benchmark"
+		done
+		;;
+	*)
+		echo "Usage: $0 jmh | micro [JMH options] | macro [conf-files]" >&2
+		exit 1
+		;;
+esac
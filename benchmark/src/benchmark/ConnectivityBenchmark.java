@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import interfaces.ConnectivityGrid;
+import interfaces.ConnectivityOptimizer;
+import interfaces.SparseConnectivityGrid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import movement.MovementModel;
+import test.TestSettings;
+import test.TestUtils;
+import core.Coord;
+import core.DTNHost;
+import core.NetworkInterface;
+
+/**
+ * Neighbor queries of the connectivity optimizers: one
+ * {@link ConnectivityOptimizer#getNearInterfaces(NetworkInterface)} call for
+ * every interface in a 1000x1000 world.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConnectivityBenchmark {
+	private static final int WORLD_SIZE = 1000;
+	private static final double RANGE = 10;
+
+	@Param({"100", "1000"})
+	public int nrofHosts;
+
+	/** Optimizer type: {@value ConnectivityOptimizer#DENSE_GRID} or
+	 * {@value ConnectivityOptimizer#SPARSE_GRID} */
+	@Param({ConnectivityOptimizer.DENSE_GRID, ConnectivityOptimizer.SPARSE_GRID})
+	public String type;
+
+	private ConnectivityOptimizer optimizer;
+	private List<NetworkInterface> interfaces;
+
+	@Setup
+	public void setUp() {
+		TestSettings ts = new TestSettings();
+		ts.putSetting(MovementModel.MOVEMENT_MODEL_NS + "." +
+				MovementModel.WORLD_SIZE, WORLD_SIZE + "," + WORLD_SIZE);
+		ConnectivityGrid.reset();
+
+		TestUtils utils = new TestUtils(null, null, ts);
+		utils.setTransmitRange(RANGE);
+		Random rng = new Random(1);
+		double cellSize = 2 * RANGE;
+		if (type.equals(ConnectivityOptimizer.SPARSE_GRID)) {
+			optimizer = new SparseConnectivityGrid((int)cellSize);
+		}
+		else {
+			optimizer = ConnectivityGrid.ConnectivityGridFactory(-1, cellSize);
+		}
+
+		interfaces = new ArrayList<NetworkInterface>();
+		for (int i = 0; i < nrofHosts; i++) {
+			DTNHost h = utils.createHost(new Coord(rng.nextDouble() * WORLD_SIZE,
+					rng.nextDouble() * WORLD_SIZE));
+			NetworkInterface ni = h.getInterfaces().get(0);
+			optimizer.addInterface(ni);
+			interfaces.add(ni);
+		}
+	}
+
+	@Benchmark
+	public void getNearInterfaces(Blackhole bh) {
+		for (int i = 0, n = interfaces.size(); i < n; i++) {
+			bh.consume(optimizer.getNearInterfaces(interfaces.get(i)).size());
+		}
+	}
+}
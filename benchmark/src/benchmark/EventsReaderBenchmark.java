@@ -0,0 +1,51 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import input.ExternalEvent;
+import input.StandardEventsReader;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing of a standard external events file
+ * ({@link StandardEventsReader#readEvents(int)}). Every invocation reads the
+ * whole trace in batches like the external events queue does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EventsReaderBenchmark {
+	/** Events file (relative to the simulator's root directory) */
+	@Param({"data/haggle3/haggle3.txt"})
+	public String eventsFile;
+
+	/** Number of events read at a time */
+	@Param({"500"})
+	public int batchSize;
+
+	@Benchmark
+	public void readEvents(Blackhole bh) {
+		StandardEventsReader reader =
+			new StandardEventsReader(new File(eventsFile));
+		List<ExternalEvent> events;
+		do {
+			events = reader.readEvents(batchSize);
+			bh.consume(events);
+		} while (events.size() > 0);
+		reader.close();
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import routing.MessageRouter;
+import test.TestSettings;
+import test.TestUtils;
+import core.ConnectionListener;
+import core.DTNHost;
+import core.Message;
+import core.MessageListener;
+import core.SimClock;
+
+/**
+ * Message handling: {@link MessageRouter#getFreeBufferSize()} with a full
+ * buffer and {@link Message#replicate()} of a message that has traveled a
+ * few hops.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MessageBenchmark {
+	private static final int MSG_SIZE = 1000;
+	private static final int NROF_HOPS = 5;
+
+	/** Number of messages in the buffer */
+	@Param({"10", "1000"})
+	public int nrofMessages;
+
+	private MessageRouter router;
+	private Message message;
+
+	@Setup
+	public void setUp() {
+		SimClock.reset();
+		TestSettings ts = new TestSettings();
+		ts.putSetting(MessageRouter.B_SIZE_S, "" + nrofMessages * MSG_SIZE);
+		TestUtils utils = new TestUtils(
+				new ArrayList<ConnectionListener>(),
+				new ArrayList<MessageListener>(), ts);
+		DTNHost from = utils.createHost();
+		DTNHost to = utils.createHost();
+		for (int i = 0; i < nrofMessages; i++) {
+			from.createNewMessage(new Message(from, to, "M" + i, MSG_SIZE));
+		}
+		router = from.getRouter();
+
+		message = new Message(from, to, "R", MSG_SIZE);
+		for (int i = 0; i < NROF_HOPS; i++) {
+			message.addNodeOnPath(utils.createHost());
+		}
+		message.addProperty("property", Integer.valueOf(1));
+	}
+
+	@Benchmark
+	public int getFreeBufferSize() {
+		return router.getFreeBufferSize();
+	}
+
+	@Benchmark
+	public Message replicate() {
+		return message.replicate();
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import movement.MovementModel;
+import movement.RandomWaypoint;
+import movement.map.DijkstraPathFinder;
+import movement.map.MapNode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import test.TestSettings;
+import test.TestUtils;
+import core.Coord;
+import core.DTNHost;
+import core.SimClock;
+
+/**
+ * Host movement: {@link DTNHost#move(double)} of random waypoint hosts and
+ * {@link DijkstraPathFinder#getShortestPath(MapNode, MapNode)} on a grid
+ * shaped map.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MovementBenchmark {
+	/** Simulated time of one movement step (seconds) */
+	private static final double STEP = 0.1;
+	/** Distance between neighboring map nodes */
+	private static final double MAP_SPACING = 10;
+
+	@Param({"100"})
+	public int nrofHosts;
+
+	/** Map size (nodes per side) */
+	@Param({"50"})
+	public int mapSize;
+
+	private List<DTNHost> hosts;
+	private DijkstraPathFinder pathFinder;
+	private MapNode[] mapNodes;
+	private Random rng;
+
+	@Setup
+	public void setUp() {
+		SimClock.reset();
+		TestSettings ts = new TestSettings();
+		ts.putSetting(MovementModel.MOVEMENT_MODEL_NS + "." +
+				MovementModel.RNG_SEED, "1");
+		MovementModel.reset();
+		ts.setNameSpace("Group");
+		ts.putSetting("Group." + MovementModel.SPEED, "0.5,1.5");
+		ts.putSetting("Group." + MovementModel.WAIT_TIME, "0,120");
+
+		TestUtils utils = new TestUtils(null, null, ts);
+		RandomWaypoint proto = new RandomWaypoint(ts);
+		hosts = new ArrayList<DTNHost>();
+		for (int i = 0; i < nrofHosts; i++) {
+			hosts.add(utils.createHost(proto, null));
+		}
+
+		mapNodes = createGridMap(mapSize);
+		pathFinder = new DijkstraPathFinder(null);
+		rng = new Random(1);
+	}
+
+	/**
+	 * Creates a square grid of map nodes where each node is connected to
+	 * its horizontal and vertical neighbors
+	 */
+	private static MapNode[] createGridMap(int size) {
+		MapNode[] array = new MapNode[size * size];
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				MapNode n = new MapNode(new Coord(x * MAP_SPACING,
+						y * MAP_SPACING));
+				array[y * size + x] = n;
+				if (x > 0) {
+					n.addNeighbor(array[y * size + x - 1]);
+					array[y * size + x - 1].addNeighbor(n);
+				}
+				if (y > 0) {
+					n.addNeighbor(array[(y - 1) * size + x]);
+					array[(y - 1) * size + x].addNeighbor(n);
+				}
+			}
+		}
+		return array;
+	}
+
+	@Benchmark
+	public void moveHosts() {
+		SimClock.getInstance().advance(STEP);
+		for (int i = 0, n = hosts.size(); i < n; i++) {
+			hosts.get(i).move(STEP);
+		}
+	}
+
+	@Benchmark
+	public void getShortestPath(Blackhole bh) {
+		MapNode from = mapNodes[rng.nextInt(mapNodes.length)];
+		MapNode to = mapNodes[rng.nextInt(mapNodes.length)];
+		bh.consume(pathFinder.getShortestPath(from, to));
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import routing.MessageRouter;
+import routing.ProphetRouter;
+import routing.maxprop.MaxPropDijkstra;
+import routing.maxprop.MeetingProbabilitySet;
+import test.TestSettings;
+import test.TestUtils;
+import core.CBRConnection;
+import core.Connection;
+import core.DTNHost;
+import core.SimClock;
+
+/**
+ * Routing metric updates: MaxProp's path cost calculation
+ * ({@link MaxPropDijkstra#getCosts(Integer, Set)}) and PRoPHET's delivery
+ * predictability updates on new connections.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RoutingBenchmark {
+	/** Number of precomputed random contacts */
+	private static final int NROF_CONTACTS = 10000;
+
+	@Param({"100"})
+	public int nrofHosts;
+
+	/** Number of destinations in a MaxProp cost query */
+	@Param({"10"})
+	public int nrofTargets;
+
+	private MaxPropDijkstra dijkstra;
+	private List<Set<Integer>> targets;
+	private List<DTNHost> hosts;
+	private Connection[] contacts;
+	private DTNHost[] contactHosts;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		Random rng = new Random(1);
+		SimClock.reset();
+
+		/* meeting probabilities of a random contact history */
+		Map<Integer, MeetingProbabilitySet> probs =
+			new HashMap<Integer, MeetingProbabilitySet>();
+		for (int i = 0; i < nrofHosts; i++) {
+			probs.put(i, new MeetingProbabilitySet(
+					MeetingProbabilitySet.INFINITE_SET_SIZE, 1.0));
+		}
+		for (int i = 0; i < NROF_CONTACTS; i++) {
+			int a = rng.nextInt(nrofHosts);
+			int b = rng.nextInt(nrofHosts);
+			if (a != b) {
+				probs.get(a).updateMeetingProbFor(b);
+				probs.get(b).updateMeetingProbFor(a);
+			}
+		}
+		dijkstra = new MaxPropDijkstra(probs);
+		targets = new ArrayList<Set<Integer>>();
+		for (int i = 0; i < nrofHosts; i++) {
+			Set<Integer> t = new HashSet<Integer>();
+			while (t.size() < Math.min(nrofTargets, nrofHosts - 1)) {
+				int target = rng.nextInt(nrofHosts);
+				if (target != i) {
+					t.add(target);
+				}
+			}
+			targets.add(t);
+		}
+
+		/* PRoPHET hosts and the contacts between them */
+		TestSettings ts = new TestSettings();
+		ts.putSetting(MessageRouter.B_SIZE_S, "1000000");
+		ts.putSetting(ProphetRouter.PROPHET_NS + "." +
+				ProphetRouter.SECONDS_IN_UNIT_S, "30");
+		TestUtils utils = new TestUtils(null, null, ts);
+		utils.setMessageRouterProto(new ProphetRouter(ts));
+		hosts = new ArrayList<DTNHost>();
+		for (int i = 0; i < nrofHosts; i++) {
+			hosts.add(utils.createHost());
+		}
+		contacts = new Connection[NROF_CONTACTS];
+		contactHosts = new DTNHost[2 * NROF_CONTACTS];
+		for (int i = 0; i < NROF_CONTACTS; i++) {
+			DTNHost a = hosts.get(rng.nextInt(nrofHosts));
+			DTNHost b = a;
+			while (b == a) {
+				b = hosts.get(rng.nextInt(nrofHosts));
+			}
+			contacts[i] = new CBRConnection(a, a.getInterfaces().get(0),
+					b, b.getInterfaces().get(0), 1);
+			contactHosts[2 * i] = a;
+			contactHosts[2 * i + 1] = b;
+		}
+		next = 0;
+	}
+
+	@Benchmark
+	public void maxPropCosts(Blackhole bh) {
+		int from = next++ % nrofHosts;
+		bh.consume(dijkstra.getCosts(from, targets.get(from)));
+	}
+
+	@Benchmark
+	public void prophetPredUpdates() {
+		int i = next++ % NROF_CONTACTS;
+		SimClock.getInstance().advance(1);
+		contactHosts[2 * i].getRouter().changedConnection(contacts[i]);
+		contactHosts[2 * i + 1].getRouter().changedConnection(contacts[i]);
+	}
+}
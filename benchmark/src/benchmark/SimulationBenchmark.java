@@ -0,0 +1,154 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import input.EventQueueHandler;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+import ui.DTNSimTextUI;
+import core.ConnectionListener;
+import core.DTNHost;
+import core.Message;
+import core.MessageListener;
+import core.Settings;
+import core.SettingsError;
+import core.SimClock;
+
+/**
+ * Whole-simulation benchmark. Runs one scenario headless with the text UI
+ * and reports the simulated seconds per wall clock second, the number of
+ * connection and message events and the amount of memory allocated per
+ * event. Only the simulation run is measured, not the scenario setup or the
+ * movement model warm up.
+ * <P>
+ * Usage: <CODE>SimulationBenchmark conf_file [conf_file...]</CODE>. The
+ * settings files are read like the simulator reads them (later files
+ * override earlier ones) but only the first run index is used. Since the
+ * simulator's static state is reset only between batch runs of the same
+ * JVM, every scenario should be benchmarked in a JVM of its own (see
+ * <CODE>benchmark.sh</CODE>). Scenarios whose external event files are
+ * missing are skipped.
+ * </P>
+ */
+public class SimulationBenchmark extends DTNSimTextUI
+	implements ConnectionListener, MessageListener {
+
+	private long nrofEvents;
+	private double simTime;
+	private double wallTime;
+	private long allocated;
+
+	@Override
+	protected void runSim() {
+		scen.addConnectionListener(this);
+		scen.addMessageListener(this);
+
+		com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean)
+			ManagementFactory.getThreadMXBean();
+		long tid = Thread.currentThread().threadId();
+		double startSimTime = SimClock.getTime();
+		long startAlloc = mx.getThreadAllocatedBytes(tid);
+		long start = System.nanoTime();
+
+		super.runSim();
+
+		this.wallTime = (System.nanoTime() - start) / 1e9;
+		this.allocated = mx.getThreadAllocatedBytes(tid) - startAlloc;
+		this.simTime = SimClock.getTime() - startSimTime;
+	}
+
+	/**
+	 * Prints the results of the run
+	 */
+	private void printResults() {
+		System.out.println(String.format("Benchmark '%s': %.0f simulated s " +
+				"in %.2f s, %.1f sim-s/s, %d events, %.0f events/s, " +
+				"%.0f bytes/event", scen.getName(), simTime, wallTime,
+				simTime / wallTime, nrofEvents, nrofEvents / wallTime,
+				nrofEvents > 0 ? (double)allocated / nrofEvents : 0.0));
+	}
+
+	/**
+	 * Returns the first external events file of the scenario that doesn't
+	 * exist, or null if all of them do
+	 */
+	private static String getMissingEventsFile() {
+		Settings s = new Settings(EventQueueHandler.SETTINGS_NAMESPACE);
+		int nrof = s.contains(EventQueueHandler.NROF_SETTING) ?
+				s.getInt(EventQueueHandler.NROF_SETTING) : 0;
+		for (int i = 1; i <= nrof; i++) {
+			Settings es = new Settings(EventQueueHandler.SETTINGS_NAMESPACE + i);
+			if (es.contains(EventQueueHandler.PATH_SETTING)) {
+				String path = es.getSetting(EventQueueHandler.PATH_SETTING);
+				if (!new File(path).exists()) {
+					return path;
+				}
+			}
+		}
+		return null;
+	}
+
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.err.println("Usage: SimulationBenchmark conf_file " +
+					"[conf_file...]");
+			System.exit(-1);
+		}
+
+		try {
+			Settings.init(args[0]);
+			for (int i = 1; i < args.length; i++) {
+				Settings.addSettings(args[i]);
+			}
+			Settings.setRunIndex(0);
+
+			String missing = getMissingEventsFile();
+			if (missing != null) {
+				System.out.println("Benchmark '" + args[0] + "' skipped: " +
+						"events file " + missing + " not found");
+				return;
+			}
+		} catch (SettingsError er) {
+			System.err.println("Can't start: error in configuration file(s)");
+			System.err.println(er.getMessage());
+			System.exit(-1);
+		}
+
+		SimulationBenchmark b = new SimulationBenchmark();
+		b.start();
+		b.printResults();
+	}
+
+	public void hostsConnected(DTNHost host1, DTNHost host2) {
+		nrofEvents++;
+	}
+
+	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		nrofEvents++;
+	}
+
+	public void newMessage(Message m) {
+		nrofEvents++;
+	}
+
+	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {
+		nrofEvents++;
+	}
+
+	public void messageDeleted(Message m, DTNHost where, boolean dropped) {
+		nrofEvents++;
+	}
+
+	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {
+		nrofEvents++;
+	}
+
+	public void messageTransferred(Message m, DTNHost from, DTNHost to,
+			boolean firstDelivery) {
+		nrofEvents++;
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Delivers the events of {@link PassiveListener}s in a background thread.
+ * The events are delivered in the order they were posted and all the events
+ * are delivered before the simulation clock changes (see
+ * {@link #drain()}), so the listeners see the same simulation time as they
+ * would see with synchronous delivery.
+ */
+public class AsyncDelivery {
+	/**
+	 * Deliver the events of passive listeners asynchronously -setting id
+	 * ({@value}). Boolean. Default is false. Found in the
+	 * {@link World#SETTINGS_NS} namespace.
+	 */
+	public static final String ASYNC_LISTENERS_S = "asyncListeners";
+	/** Maximum number of events waiting for delivery ({@value}) */
+	public static final int QUEUE_SIZE = 4096;
+
+	/* transient: the state of a run is not stored in checkpoints */
+	private static transient Boolean enabled;
+	private static transient BlockingQueue<Runnable> queue;
+	private static transient Thread worker;
+	/** Has an event been posted since the last drain */
+	private static transient boolean pending;
+	/** Error thrown by a listener in the worker thread */
+	private static transient volatile Throwable error;
+
+	static {
+		DTNSim.registerForReset(AsyncDelivery.class.getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * Returns true if the events of passive listeners are delivered
+	 * asynchronously
+	 * @return True if asynchronous delivery is enabled
+	 */
+	public static boolean isEnabled() {
+		if (enabled == null) {
+			Settings s = new Settings(World.SETTINGS_NS);
+			enabled = s.contains(ASYNC_LISTENERS_S) &&
+				s.getBoolean(ASYNC_LISTENERS_S);
+		}
+		return enabled;
+	}
+
+	/**
+	 * Posts an event for delivery in the background thread
+	 * @param event The event
+	 */
+	public static void post(Runnable event) {
+		if (worker == null) {
+			start();
+		}
+		pending = true;
+		try {
+			queue.put(event);
+		} catch (InterruptedException e) {
+			throw new SimError("Interrupted while posting an event", e);
+		}
+	}
+
+	/**
+	 * Waits until all the posted events have been delivered. Returns
+	 * immediately if no events were posted after the last call.
+	 * @throws SimError if a listener threw an exception
+	 */
+	public static void drain() {
+		if (!pending) {
+			return;
+		}
+		pending = false;
+		final Object done = new Object();
+		final boolean[] delivered = new boolean[1];
+		try {
+			queue.put(new Runnable() {
+				public void run() {
+					synchronized (done) {
+						delivered[0] = true;
+						done.notify();
+					}
+				}
+			});
+			synchronized (done) {
+				while (!delivered[0]) {
+					done.wait();
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new SimError("Interrupted while delivering events", e);
+		}
+		if (error != null) {
+			Throwable t = error;
+			error = null;
+			if (t instanceof Error) {
+				throw (Error)t;
+			}
+			throw new SimError("Asynchronous listener failed: " + t,
+					(Exception)t);
+		}
+	}
+
+	private static void start() {
+		queue = new ArrayBlockingQueue<Runnable>(QUEUE_SIZE);
+		final BlockingQueue<Runnable> q = queue;
+		worker = new Thread("AsyncDelivery") {
+			public void run() {
+				while (true) {
+					Runnable event;
+					try {
+						event = q.take();
+					} catch (InterruptedException e) {
+						return;
+					}
+					try {
+						event.run();
+					} catch (Throwable t) {
+						if (error == null) {
+							error = t;
+						}
+					}
+				}
+			}
+		};
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Resets the static fields of the class
+	 */
+	public static void reset() {
+		if (worker != null) {
+			worker.interrupt();
+		}
+		enabled = null;
+		queue = null;
+		worker = null;
+		pending = false;
+		error = null;
+	}
+}
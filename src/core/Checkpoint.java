@@ -0,0 +1,313 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Snapshots of the whole simulation state. A snapshot contains the
+ * scenario (world, hosts with their movement models, routers, interfaces
+ * and applications, event queues and listeners), the reports and the
+ * static state of the classes that are registered for resetting with
+ * {@link DTNSim#registerForReset(String)} or with
+ * {@link #registerStaticState(String)} (e.g., the simulation clock, the
+ * message and address counters and the random number generators). The
+ * state is written with Java serialization to a gzip compressed file, so
+ * all the objects of a simulation must be serializable; fields that only
+ * cache or hold files must be transient and restored when the object is
+ * read. Transient static fields are not stored either.
+ * <P>
+ * Snapshots are written every {@link #INTERVAL_S} simulated seconds and a
+ * run is resumed from a snapshot with the {@link #RESTORE_S} setting.
+ * The settings of the resumed run are read from its own configuration
+ * files, but the objects of the snapshot keep the values they read when
+ * they were created. Only the scenario's end time is read again, so a
+ * resumed run can be extended.
+ * </P>
+ */
+public class Checkpoint {
+	/** Checkpoint settings namespace ({@value}) */
+	public static final String CHECKPOINT_NS = "Checkpoint";
+	/**
+	 * Interval of the snapshots -setting id ({@value}). Simulated seconds
+	 * between two snapshots. Default is 0 (no snapshots).
+	 */
+	public static final String INTERVAL_S = "interval";
+	/**
+	 * Snapshot file name prefix -setting id ({@value}). The simulation time
+	 * of the snapshot and {@link #FILE_SUFFIX} are appended to the prefix.
+	 * Supports value filling. Default is
+	 * {@value #DEF_FILE_PREFIX} + the scenario name.
+	 */
+	public static final String FILE_S = "file";
+	/**
+	 * Snapshot file to resume the simulation from -setting id ({@value}).
+	 * Supports value filling.
+	 */
+	public static final String RESTORE_S = "restore";
+
+	/** Default snapshot file name prefix ({@value}) */
+	public static final String DEF_FILE_PREFIX = "checkpoints/";
+	/** Snapshot file suffix ({@value}) */
+	public static final String FILE_SUFFIX = ".ckpt";
+
+	/** Identifier in the beginning of the snapshot files */
+	private static final int MAGIC = 0x4F4E4543;
+	/** Snapshot format version */
+	private static final int VERSION = 1;
+
+	/** Classes with static state that is not reset between runs */
+	private static List<Class<?>> staticStateList = new ArrayList<Class<?>>();
+
+	private double interval;
+	private double nextTime;
+	private String filePrefix;
+
+	/**
+	 * Creates a checkpoint writer
+	 * @param interval Simulated seconds between the snapshots
+	 * @param filePrefix Prefix of the snapshot file names
+	 */
+	private Checkpoint(double interval, String filePrefix) {
+		this.interval = interval;
+		this.filePrefix = filePrefix;
+		this.nextTime = SimClock.getTime() + interval;
+	}
+
+	/**
+	 * Returns a new checkpoint writer if snapshots are enabled in the
+	 * settings
+	 * @param scen The scenario of the simulation
+	 * @return A new checkpoint writer or null if snapshots are not enabled
+	 */
+	public static Checkpoint createIfEnabled(SimScenario scen) {
+		Settings s = new Settings(CHECKPOINT_NS);
+		if (!s.contains(INTERVAL_S) || s.getDouble(INTERVAL_S) <= 0) {
+			return null;
+		}
+		String prefix = DEF_FILE_PREFIX + scen.getName();
+		if (s.contains(FILE_S)) {
+			prefix = s.valueFillString(s.getSetting(FILE_S));
+		}
+		return new Checkpoint(s.getDouble(INTERVAL_S), prefix);
+	}
+
+	/**
+	 * Returns the snapshot file the settings request the run to be resumed
+	 * from
+	 * @return The snapshot file or null if the run should not be resumed
+	 */
+	public static File getRestoreFile() {
+		Settings s = new Settings(CHECKPOINT_NS);
+		if (!s.contains(RESTORE_S)) {
+			return null;
+		}
+		return new File(s.valueFillString(s.getSetting(RESTORE_S)));
+	}
+
+	/**
+	 * Registers a class whose static (non-final) fields are stored in the
+	 * snapshots. Classes that are registered for resetting are included
+	 * automatically; this is for the classes whose static state persists
+	 * over the batch runs.
+	 * @param className Full name of the class
+	 */
+	public static void registerStaticState(String className) {
+		try {
+			staticStateList.add(Class.forName(className));
+		} catch (ClassNotFoundException e) {
+			throw new SimError("Can't register class " + className +
+					" for checkpoints; class not found");
+		}
+	}
+
+	/**
+	 * Writes a snapshot if the next snapshot is due
+	 * @param reports The reports of the simulation
+	 */
+	public void update(List<? extends Serializable> reports) {
+		if (SimClock.getTime() < nextTime) {
+			return;
+		}
+		write(new File(filePrefix + "_" + SimClock.getIntTime() +
+				FILE_SUFFIX), reports);
+		while (nextTime <= SimClock.getTime()) {
+			nextTime += interval;
+		}
+	}
+
+	/**
+	 * Writes a snapshot of the current simulation state to a file
+	 * @param file The file to write to
+	 * @param reports The reports of the simulation
+	 */
+	public static void write(File file, List<? extends Serializable> reports) {
+		AsyncDelivery.drain();
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (!dir.exists() && !dir.mkdirs()) {
+			throw new SimError("Couldn't create checkpoint directory " + dir);
+		}
+		/* write to a temporary file so a crash can't leave a partial file */
+		File tmp = new File(file.getPath() + ".tmp");
+		ObjectOutputStream out = null;
+		try {
+			out = new ObjectOutputStream(new GZIPOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tmp))));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeDouble(SimClock.getTime());
+			out.writeObject(getStaticState());
+			out.writeObject(new ArrayList<Serializable>(reports));
+			out.close();
+			out = null;
+		} catch (NotSerializableException e) {
+			throw new SimError("Can't write checkpoint: class " +
+					e.getMessage() + " is not serializable", e);
+		} catch (IOException e) {
+			throw new SimError("Can't write checkpoint " + file + ": " +
+					e.getMessage(), e);
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {} // already failed
+				tmp.delete();
+			}
+		}
+		if ((file.exists() && !file.delete()) || !tmp.renameTo(file)) {
+			throw new SimError("Can't write checkpoint " + file);
+		}
+	}
+
+	/**
+	 * Restores the simulation state from a snapshot file. After this, the
+	 * static state (including the scenario instance and the clock) is the
+	 * one of the snapshot.
+	 * @param file The snapshot file
+	 * @return The reports of the restored simulation
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<Serializable> restore(File file) {
+		ObjectInputStream in = null;
+		try {
+			in = new ObjectInputStream(new GZIPInputStream(
+					new BufferedInputStream(new FileInputStream(file))));
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new SimError(file + " is not a checkpoint file of " +
+						"this version");
+			}
+			double time = in.readDouble();
+			Map<String, Map<String, Object>> statics =
+				(Map<String, Map<String, Object>>)in.readObject();
+			List<Serializable> reports = (List<Serializable>)in.readObject();
+			setStaticState(statics);
+			SimClock.getInstance().setTime(time);
+			return reports;
+		} catch (IOException e) {
+			throw new SimError("Can't read checkpoint " + file + ": " +
+					e.getMessage(), e);
+		} catch (ClassNotFoundException e) {
+			throw new SimError("Can't read checkpoint " + file + ": " +
+					"class " + e.getMessage() + " not found", e);
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {} // nothing to do
+			}
+		}
+	}
+
+	/**
+	 * Returns the classes whose static state is stored
+	 */
+	private static List<Class<?>> getStaticStateClasses() {
+		List<Class<?>> classes = new ArrayList<Class<?>>(
+				DTNSim.getResetClasses());
+		for (Class<?> c : staticStateList) {
+			if (!classes.contains(c)) {
+				classes.add(c);
+			}
+		}
+		return classes;
+	}
+
+	/**
+	 * Returns the values of the static non-final and non-transient fields
+	 * of the registered classes by class and field name
+	 */
+	private static HashMap<String, Map<String, Object>> getStaticState() {
+		HashMap<String, Map<String, Object>> state =
+			new HashMap<String, Map<String, Object>>();
+		for (Class<?> c : getStaticStateClasses()) {
+			Map<String, Object> values = new HashMap<String, Object>();
+			for (Field f : getStaticFields(c)) {
+				try {
+					values.put(f.getName(), f.get(null));
+				} catch (IllegalAccessException e) {
+					throw new SimError("Can't read " + c.getName() + "." +
+							f.getName() + " for checkpoint", e);
+				}
+			}
+			state.put(c.getName(), values);
+		}
+		return state;
+	}
+
+	/**
+	 * Sets the static fields of the classes
+	 */
+	private static void setStaticState(Map<String, Map<String, Object>> state)
+		throws ClassNotFoundException {
+		for (Map.Entry<String, Map<String, Object>> e : state.entrySet()) {
+			Class<?> c = Class.forName(e.getKey());
+			Map<String, Object> values = e.getValue();
+			for (Field f : getStaticFields(c)) {
+				if (!values.containsKey(f.getName())) {
+					continue; // a field that didn't exist when written
+				}
+				try {
+					f.set(null, values.get(f.getName()));
+				} catch (IllegalAccessException ex) {
+					throw new SimError("Can't restore " + c.getName() + "." +
+							f.getName() + " from checkpoint", ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the static non-final and non-transient fields of a class
+	 */
+	private static List<Field> getStaticFields(Class<?> c) {
+		List<Field> fields = new ArrayList<Field>();
+		for (Field f : c.getDeclaredFields()) {
+			int mod = f.getModifiers();
+			if (Modifier.isStatic(mod) && !Modifier.isFinal(mod) &&
+					!Modifier.isTransient(mod)) {
+				f.setAccessible(true);
+				fields.add(f);
+			}
+		}
+		return fields;
+	}
+}
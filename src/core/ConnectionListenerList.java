@@ -0,0 +1,173 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package core;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.List;
+
+import core.SelectiveListener.Event;
+
+/**
+ * List of connection listeners that is also a connection listener: every
+ * event is dispatched to the listeners that handle the event type.
+ * @see ListenerList
+ */
+public class ConnectionListenerList extends ListenerList<ConnectionListener>
+		implements InterfaceConnectionListener {
+	private static final long serialVersionUID = 42L;
+
+	private static final ConnectionListener[] NONE =
+		new ConnectionListener[0];
+
+	private transient ConnectionListener[] connected = NONE;
+	private transient ConnectionListener[] disconnected = NONE;
+
+	/**
+	 * Returns a connection listener that dispatches the events to all the
+	 * listeners of a list
+	 * @param listeners The listeners
+	 * @return The list itself if it is a connection listener list, a
+	 * dispatcher that iterates the list otherwise
+	 */
+	public static InterfaceConnectionListener dispatcherFor(
+			List<ConnectionListener> listeners) {
+		if (listeners instanceof ConnectionListenerList) {
+			return (ConnectionListenerList)listeners;
+		}
+		return new ListDispatcher(listeners);
+	}
+
+	@Override
+	protected void updateHandlers() {
+		connected = getHandlers(NONE, Event.HOSTS_CONNECTED);
+		disconnected = getHandlers(NONE, Event.HOSTS_DISCONNECTED);
+	}
+
+	@Override
+	protected ConnectionListener async(final ConnectionListener l) {
+		return new InterfaceConnectionListener() {
+			public void hostsConnected(final DTNHost h1, final DTNHost h2) {
+				AsyncDelivery.post(() -> l.hostsConnected(h1, h2));
+			}
+			public void hostsDisconnected(final DTNHost h1, final DTNHost h2) {
+				AsyncDelivery.post(() -> l.hostsDisconnected(h1, h2));
+			}
+			public void interfacesConnected(final NetworkInterface ni1,
+					final NetworkInterface ni2) {
+				AsyncDelivery.post(() -> connected(l, ni1, ni2));
+			}
+			public void interfacesDisconnected(final NetworkInterface ni1,
+					final NetworkInterface ni2) {
+				AsyncDelivery.post(() -> disconnected(l, ni1, ni2));
+			}
+		};
+	}
+
+	/**
+	 * Informs a listener about a new connection between interfaces
+	 * @param cl The listener
+	 * @param ni1 Interface that initiated the connection
+	 * @param ni2 Interface that was connected to
+	 */
+	static void connected(ConnectionListener cl, NetworkInterface ni1,
+			NetworkInterface ni2) {
+		if (cl instanceof InterfaceConnectionListener) {
+			((InterfaceConnectionListener)cl).interfacesConnected(ni1, ni2);
+		}
+		else {
+			cl.hostsConnected(ni1.getHost(), ni2.getHost());
+		}
+	}
+
+	/**
+	 * Informs a listener about a torn down connection between interfaces
+	 * @param cl The listener
+	 * @param ni1 Interface that initiated the disconnection
+	 * @param ni2 Interface at the other end of the connection
+	 */
+	static void disconnected(ConnectionListener cl, NetworkInterface ni1,
+			NetworkInterface ni2) {
+		if (cl instanceof InterfaceConnectionListener) {
+			((InterfaceConnectionListener)cl).interfacesDisconnected(ni1, ni2);
+		}
+		else {
+			cl.hostsDisconnected(ni1.getHost(), ni2.getHost());
+		}
+	}
+
+	public void hostsConnected(DTNHost host1, DTNHost host2) {
+		for (ConnectionListener cl : connected) {
+			cl.hostsConnected(host1, host2);
+		}
+	}
+
+	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		for (ConnectionListener cl : disconnected) {
+			cl.hostsDisconnected(host1, host2);
+		}
+	}
+
+	public void interfacesConnected(NetworkInterface ni1,
+			NetworkInterface ni2) {
+		for (ConnectionListener cl : connected) {
+			connected(cl, ni1, ni2);
+		}
+	}
+
+	public void interfacesDisconnected(NetworkInterface ni1,
+			NetworkInterface ni2) {
+		for (ConnectionListener cl : disconnected) {
+			disconnected(cl, ni1, ni2);
+		}
+	}
+
+	private void readObject(ObjectInputStream in)
+		throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		updateHandlers();
+	}
+
+	/**
+	 * Dispatcher for plain listener lists (e.g., in unit tests)
+	 */
+	private static class ListDispatcher implements InterfaceConnectionListener,
+			Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private final List<ConnectionListener> listeners;
+
+		private ListDispatcher(List<ConnectionListener> listeners) {
+			this.listeners = listeners;
+		}
+
+		public void hostsConnected(DTNHost host1, DTNHost host2) {
+			for (ConnectionListener cl : listeners) {
+				cl.hostsConnected(host1, host2);
+			}
+		}
+
+		public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+			for (ConnectionListener cl : listeners) {
+				cl.hostsDisconnected(host1, host2);
+			}
+		}
+
+		public void interfacesConnected(NetworkInterface ni1,
+				NetworkInterface ni2) {
+			for (ConnectionListener cl : listeners) {
+				connected(cl, ni1, ni2);
+			}
+		}
+
+		public void interfacesDisconnected(NetworkInterface ni1,
+				NetworkInterface ni2) {
+			for (ConnectionListener cl : listeners) {
+				disconnected(cl, ni1, ni2);
+			}
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Connections created by external (e.g., contact trace) connection events.
+ * The network interfaces of a host pair are resolved on the first event of
+ * the pair and stored, with the pair's current connection, in a table that
+ * is indexed directly by the host addresses. Hence connection up and down
+ * events need no host or interface lookups, and repeated up events of a
+ * connected pair are ignored without asking the interfaces. Creating and
+ * tearing down a connection still go through the connection lists of the
+ * interfaces, which takes time linear in the number of connections of the
+ * hosts: the lists keep the connections in creation order, which the
+ * routers depend on. The table has a row for every host address; the row
+ * of address N has room for the pairs with addresses 0...N-1 and is
+ * allocated when the first such pair is used.
+ */
+public class ConnectionTable implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	private final World world;
+	private final int nrofHosts;
+	/** Pairs of the events without interface id (or null if none yet) */
+	private Pair[][] defaultPairs;
+	/** Pairs of the events with interface id by the id */
+	private HashMap<String, Pair[][]> pairsById;
+
+	/**
+	 * Creates a new connection table for the hosts of a world
+	 * @param world The world
+	 */
+	public ConnectionTable(World world) {
+		this.world = world;
+		this.nrofHosts = world.getHosts().size();
+		this.pairsById = new HashMap<String, Pair[][]>();
+	}
+
+	/**
+	 * Creates or tears down a connection between two hosts. Does the same
+	 * as {@link DTNHost#forceConnection(DTNHost, String, boolean)}.
+	 * @param from Address of the host the (dis)connection is from
+	 * @param to Address of the host the (dis)connection is to
+	 * @param interfaceId Type of the interfaces to (dis)connect, or null
+	 * for the first interfaces of the hosts
+	 * @param up True for creating the connection, false for tearing it down
+	 */
+	public void setConnection(int from, int to, String interfaceId,
+			boolean up) {
+		Pair p = getPair(from, to, interfaceId);
+		NetworkInterface ni = from < to ? p.low : p.high;
+		NetworkInterface no = from < to ? p.high : p.low;
+
+		if (up) {
+			if (p.con != null && p.con.isUp()) {
+				return; /* already connected */
+			}
+			List<Connection> cons = ni.getConnections();
+			int nrofCons = cons.size();
+			ni.createConnection(no);
+			p.con = cons.size() > nrofCons ? cons.get(cons.size() - 1) : null;
+		}
+		else {
+			if (p.con == null || !p.con.isUp() ||
+					!ni.destroyConnection(p.con, no)) {
+				/* not created through the table; search for it */
+				ni.destroyConnection(no);
+			}
+			p.con = null;
+		}
+	}
+
+	/**
+	 * Returns the pair of two hosts, resolving its interfaces if needed
+	 */
+	private Pair getPair(int from, int to, String interfaceId) {
+		if (from < 0 || from >= nrofHosts || to < 0 || to >= nrofHosts) {
+			/* throws the error for the invalid address */
+			world.getNodeByAddress(from);
+			world.getNodeByAddress(to);
+		}
+		assert from != to : "Can't self connect";
+
+		Pair[][] pairs;
+		if (interfaceId == null) {
+			if (defaultPairs == null) {
+				defaultPairs = new Pair[nrofHosts][];
+			}
+			pairs = defaultPairs;
+		}
+		else {
+			pairs = pairsById.get(interfaceId);
+			if (pairs == null) {
+				pairs = new Pair[nrofHosts][];
+				pairsById.put(interfaceId, pairs);
+			}
+		}
+
+		int low = Math.min(from, to);
+		int high = Math.max(from, to);
+		if (pairs[high] == null) {
+			pairs[high] = new Pair[high];
+		}
+		Pair p = pairs[high][low];
+		if (p == null) {
+			p = new Pair(world.getNodeByAddress(low),
+					world.getNodeByAddress(high), interfaceId);
+			pairs[high][low] = p;
+		}
+		return p;
+	}
+
+	/**
+	 * Interfaces and the current connection of a host pair
+	 */
+	private static class Pair implements Serializable {
+		private static final long serialVersionUID = 42L;
+
+		/** Interface of the host with the lower address */
+		private final NetworkInterface low;
+		/** Interface of the host with the higher address */
+		private final NetworkInterface high;
+		/** Connection created through the table (or null) */
+		private Connection con;
+
+		private Pair(DTNHost lowHost, DTNHost highHost, String interfaceId) {
+			if (interfaceId != null) {
+				this.low = lowHost.getInterface(interfaceId);
+				this.high = highHost.getInterface(interfaceId);
+				assert (low != null && high != null) :
+					"Tried to use a nonexisting interfacetype " + interfaceId;
+			}
+			else {
+				this.low = lowHost.getInterface(1);
+				this.high = highHost.getInterface(1);
+				assert (low.getInterfaceType().equals(
+						high.getInterfaceType())) : "Interface types do not " +
+						"match.  Please specify interface type explicitly";
+			}
+		}
+	}
+}
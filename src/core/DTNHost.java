@@ -5,6 +5,10 @@
 package core;
 
 import java.awt.*;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.*;
 import java.util.List;
 
@@ -19,7 +23,8 @@ import routing.community.Duration;
 /**
  * A DTN capable host.
  */
-public class DTNHost implements Comparable<DTNHost> {
+public class DTNHost implements Comparable<DTNHost>, Serializable {
+    private static final long serialVersionUID = 42L;
 
     private static int nextAddress = 0;
     private int address;
@@ -36,6 +41,7 @@ public class DTNHost implements Comparable<DTNHost> {
     private List<MessageListener> msgListeners;
     private List<MovementListener> movListeners;
     private List<NetworkInterface> net;
+    private HostConnectivity connectivity;
     private ModuleCommunicationBus comBus;
 
     // tambahan testing
@@ -89,6 +95,9 @@ public class DTNHost implements Comparable<DTNHost> {
             ni.setHost(this);
             net.add(ni);
         }
+        if (net.size() > 1 && HostConnectivity.isEnabled()) {
+            this.connectivity = new HostConnectivity(net);
+        }
 
         // TODO - think about the names of the interfaces and the nodes
         //this.name = groupId + ((NetworkInterface)net.get(1)).getAddress();
@@ -174,7 +183,7 @@ public class DTNHost implements Comparable<DTNHost> {
      *
      * @param router The router to set
      */
-    private void setRouter(MessageRouter router) {
+    void setRouter(MessageRouter router) {
         router.init(this, msgListeners);
         this.router = router;
     }
@@ -333,6 +342,15 @@ public class DTNHost implements Comparable<DTNHost> {
         return net;
     }
 
+    /**
+     * Returns the shared neighbour query of the host's interfaces
+     * @return The shared query or null if the interfaces query their
+     * connectivity optimizers separately
+     */
+    HostConnectivity getConnectivity() {
+        return connectivity;
+    }
+
     /**
      * Find the network interface based on the index
      */
@@ -404,16 +422,43 @@ public class DTNHost implements Comparable<DTNHost> {
      * @param simulateConnections Should network layer be updated too
      */
     public void update(boolean simulateConnections) {
+        update(simulateConnections, null);
+    }
+
+    /**
+     * Updates node's network layer and router and measures the updates with
+     * a profiler (per interface and router class) if one is given.
+     *
+     * @param simulateConnections Should network layer be updated too
+     * @param profiler The profiler or null if the updates are not measured
+     * @see #update(boolean)
+     */
+    public void update(boolean simulateConnections, SimProfiler profiler) {
         if (!isActive()) {
             return;
         }
 
         if (simulateConnections) {
+            if (connectivity != null) {
+                connectivity.clear();
+            }
             for (NetworkInterface i : net) {
+                if (profiler != null) {
+                    profiler.begin(SimProfiler.INTERFACES, i);
+                }
                 i.update();
+                if (profiler != null) {
+                    profiler.end();
+                }
             }
         }
+        if (profiler != null) {
+            profiler.begin(SimProfiler.ROUTERS, this.router);
+        }
         this.router.update();
+        if (profiler != null) {
+            profiler.end();
+        }
     }
 
     /**
@@ -602,6 +647,23 @@ public class DTNHost implements Comparable<DTNHost> {
         return this.getAddress() - h.getAddress();
     }
 
+    /**
+     * Writes the host with its address first. The address is needed before
+     * the rest of the host is read because the sorted collections that
+     * are read as part of the host (e.g., tree bins of hash maps keyed by
+     * hosts) compare the hosts with {@link #compareTo(DTNHost)}.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.writeInt(this.address);
+        out.defaultWriteObject();
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        this.address = in.readInt();
+        in.defaultReadObject();
+    }
+
     /**
      * Method tambahan untuk menambah Duration ke list
      */
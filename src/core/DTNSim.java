@@ -5,6 +5,7 @@ import ui.DTNSimTextUI;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -114,16 +115,23 @@ public class DTNSim {
 
 		if (cmdSettings != null) {
 			parseCmdSettings(cmdSettings);
-			cmdSettings = null;
 		}
 
 		if (batchMode) {
 			long startTime = System.currentTimeMillis();
-			for (int i = nrofRuns[0]; i < nrofRuns[1]; i++) {
-				print("Run " + (i + 1) + "/" + nrofRuns[1]);
-				Settings.setRunIndex(i);
-				resetForNextRun();
-				new DTNSimTextUI().start();
+			if (WarmupFork.isEnabled()) {
+				String[] runConfFiles = Arrays.copyOfRange(confFiles,
+						firstConfIndex, confFiles.length);
+				new WarmupFork(runConfFiles, cmdSettings).run(nrofRuns[0],
+						nrofRuns[1]);
+			}
+			else {
+				for (int i = nrofRuns[0]; i < nrofRuns[1]; i++) {
+					print("Run " + (i + 1) + "/" + nrofRuns[1]);
+					Settings.setRunIndex(i);
+					resetForNextRun();
+					new DTNSimTextUI().start();
+				}
 			}
 			double duration = (System.currentTimeMillis() - startTime) / 1000.0;
 			print("---\nAll done in " + String.format("%.2f", duration) + "s");
@@ -193,22 +201,51 @@ public class DTNSim {
 		resetList.add(c);
 	}
 
+	/**
+	 * Returns the classes that are registered for resetting
+	 * @return The registered classes
+	 */
+	static List<Class<?>> getResetClasses() {
+		return resetList;
+	}
+
 	/**
 	 * Resets all registered classes.
 	 */
-	private static void resetForNextRun() {
+	static void resetForNextRun() {
 		for (Class<?> c : resetList) {
-			try {
-				Method m = c.getMethod(RESET_METHOD_NAME);
-				m.invoke(null);
-			} catch (Exception e) {
-				System.err.println("Failed to reset class " + c.getName());
-				e.printStackTrace();
-				System.exit(-1);
+			reset(c);
+		}
+	}
+
+	/**
+	 * Resets the registered classes that are subclasses of the given class
+	 * (or the class itself)
+	 * @param superClass The class whose subclasses are reset
+	 */
+	static void resetSubclassesOf(Class<?> superClass) {
+		for (Class<?> c : resetList) {
+			if (superClass.isAssignableFrom(c)) {
+				reset(c);
 			}
 		}
 	}
 
+	/**
+	 * Resets a registered class
+	 * @param c The class to reset
+	 */
+	private static void reset(Class<?> c) {
+		try {
+			Method m = c.getMethod(RESET_METHOD_NAME);
+			m.invoke(null);
+		} catch (Exception e) {
+			System.err.println("Failed to reset class " + c.getName());
+			e.printStackTrace();
+			System.exit(-1);
+		}
+	}
+
 	/**
 	 * Parses the number of runs, and an optional starting run index, from a
 	 * command line argument
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the connection candidates of all the network interfaces of a host
+ * with one spatial query. All the interfaces of a host are at the host's
+ * location, so only the interface with the longest range queries its
+ * connectivity optimizer and the candidates of the other interfaces are
+ * picked from the hosts it found by distance and interface type. The
+ * results of the query are cached until the next update of the host (see
+ * {@link #clear()}).
+ * <P>
+ * The candidates of an interface type are picked from the query results
+ * only if every host that has an interface of the type also has an
+ * interface of the longest range interface's type. Other interfaces query
+ * their own optimizer. If no host queries the optimizer of a type, the
+ * locations of the type's interfaces are not updated in the optimizer at
+ * all (see {@link #isIndexed(NetworkInterface)}).
+ * </P>
+ * <P>
+ * The interfaces get the same candidates as with their own queries, but
+ * the candidates of the shorter range interfaces (and thus their new
+ * connections) may be in a different order.
+ * </P>
+ */
+public class HostConnectivity implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	/**
+	 * Find the connection candidates of a host's interfaces with one query
+	 * -setting id ({@value}). Boolean. Default is false. Found in the
+	 * {@link World#SETTINGS_NS} namespace.
+	 */
+	public static final String SHARED_QUERY_S = "sharedNeighborQuery";
+
+	private static Boolean enabled;
+	/** Can the candidates of a type be picked from the query results of
+	 * another type, by "type>other type" */
+	private static Map<String, Boolean> derivable;
+	/** Does some host query the optimizer of a type, by type */
+	private static Map<String, Boolean> indexed;
+	/** Does every host have at most one interface of a type, by type */
+	private static Map<String, Boolean> unique;
+
+	static {
+		DTNSim.registerForReset(HostConnectivity.class.getCanonicalName());
+		reset();
+	}
+
+	/** The interfaces of the host */
+	private final NetworkInterface[] interfaces;
+	/** The interface with the longest range */
+	private final NetworkInterface widest;
+	/** Are the candidates of the interfaces picked from the query results
+	 * (null until the first update) */
+	private boolean[] derived;
+	/** Are the interfaces' locations updated in their optimizers */
+	private boolean[] locationUpdated;
+	/** Can the host have several interfaces of the widest type */
+	private boolean severalWide;
+
+	/* the cached query results; not stored in checkpoints */
+	private transient boolean valid;
+	/** Interfaces found by the query and their distances */
+	private transient ArrayList<NetworkInterface> near;
+	private transient double[] nearDistances;
+	/** Candidates of the latest {@link #getNearInterfaces(NetworkInterface)}
+	 * call */
+	private transient ArrayList<NetworkInterface> candidates;
+
+	/**
+	 * Creates the shared query for the interfaces of a host
+	 * @param interfaces The interfaces of the host
+	 */
+	public HostConnectivity(List<NetworkInterface> interfaces) {
+		this.interfaces = interfaces.toArray(new NetworkInterface[0]);
+		NetworkInterface w = this.interfaces[0];
+		for (NetworkInterface ni : this.interfaces) {
+			if (ni.getTransmitRange() > w.getTransmitRange()) {
+				w = ni;
+			}
+		}
+		this.widest = w;
+	}
+
+	/**
+	 * Returns true if the hosts with more than one interface should use a
+	 * shared query
+	 * @return True if the shared query is enabled
+	 */
+	public static boolean isEnabled() {
+		if (enabled == null) {
+			Settings s = new Settings(World.SETTINGS_NS);
+			enabled = s.contains(SHARED_QUERY_S) &&
+				s.getBoolean(SHARED_QUERY_S);
+		}
+		return enabled;
+	}
+
+	/**
+	 * Clears the cached query results. Called when the host's interfaces
+	 * are about to be updated.
+	 */
+	public void clear() {
+		this.valid = false;
+	}
+
+	/**
+	 * Returns true if the location of an interface of the host must be
+	 * updated in the interface's connectivity optimizer, i.e., if some host
+	 * queries the optimizer
+	 * @param ni The interface
+	 * @return True if the interface's location should be updated
+	 */
+	public boolean isIndexed(NetworkInterface ni) {
+		if (derived == null) {
+			init();
+		}
+		return locationUpdated[indexOf(ni)];
+	}
+
+	/**
+	 * Returns all interfaces that might be located so that they can be
+	 * connected with the given interface of the host. The returned
+	 * collection is reused by the next call of this method.
+	 * @param ni The interface (of this host) that needs to be connected
+	 * @return A collection of network interfaces within proximity
+	 */
+	public Collection<NetworkInterface> getNearInterfaces(NetworkInterface ni) {
+		if (derived == null) {
+			init();
+		}
+		if (!derived[indexOf(ni)]) {
+			return ni.optimizer.getNearInterfaces(ni);
+		}
+		if (!valid) {
+			query();
+		}
+
+		double range = ni.getTransmitRange();
+		String type = ni.getInterfaceType();
+		String wideType = widest.getInterfaceType();
+		if (type.equals(wideType) && range >= widest.getTransmitRange()) {
+			return near;
+		}
+
+		candidates.clear();
+		if (type.equals(wideType)) {
+			for (int i = 0, n = near.size(); i < n; i++) {
+				if (nearDistances[i] <= range) {
+					candidates.add(near.get(i));
+				}
+			}
+			return candidates;
+		}
+
+		for (int i = 0, n = near.size(); i < n; i++) {
+			NetworkInterface found = near.get(i);
+			/* a host can have several interfaces of the widest type; take
+			 * its interfaces only once */
+			if (nearDistances[i] > range || (severalWide &&
+					found != getInterface(found.getHost(), wideType))) {
+				continue;
+			}
+			List<NetworkInterface> other = found.getHost().getInterfaces();
+			for (int j = 0, m = other.size(); j < m; j++) {
+				NetworkInterface o = other.get(j);
+				if (o.getInterfaceType().equals(type)) {
+					candidates.add(o);
+				}
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Queries the interfaces near the widest interface and caches them
+	 * with their distances to the host
+	 */
+	private void query() {
+		if (near == null) {
+			near = new ArrayList<NetworkInterface>();
+			nearDistances = new double[16];
+			candidates = new ArrayList<NetworkInterface>();
+		}
+		near.clear();
+
+		Coord loc = widest.getHost().getLocation();
+		double range = widest.getTransmitRange();
+		widest.optimizer.updateLocation(widest);
+		for (NetworkInterface o : widest.optimizer.getNearInterfaces(widest)) {
+			double d = loc.distance(o.getHost().getLocation());
+			if (d > range) {
+				continue;
+			}
+			if (near.size() == nearDistances.length) {
+				nearDistances = Arrays.copyOf(nearDistances, near.size() * 2);
+			}
+			nearDistances[near.size()] = d;
+			near.add(o);
+		}
+		this.valid = true;
+	}
+
+	/**
+	 * Checks which interfaces of the host get their candidates from the
+	 * query results. Done at the first update of the host, when all the
+	 * hosts of the world exist.
+	 */
+	private void init() {
+		String wideType = widest.getInterfaceType();
+		this.derived = new boolean[interfaces.length];
+		this.locationUpdated = new boolean[interfaces.length];
+		for (int i = 0; i < interfaces.length; i++) {
+			derived[i] = isDerivable(interfaces[i], wideType);
+			locationUpdated[i] = isTypeIndexed(interfaces[i]);
+		}
+
+		Boolean isUnique = unique.get(wideType);
+		if (isUnique == null) {
+			isUnique = true;
+			for (NetworkInterface o : widest.optimizer.getAllInterfaces()) {
+				if (o != getInterface(o.getHost(), wideType)) {
+					isUnique = false;
+					break;
+				}
+			}
+			unique.put(wideType, isUnique);
+		}
+		this.severalWide = !isUnique;
+	}
+
+	private int indexOf(NetworkInterface ni) {
+		for (int i = 0; i < interfaces.length; i++) {
+			if (interfaces[i] == ni) {
+				return i;
+			}
+		}
+		throw new SimError("Interface " + ni + " is not an interface of " +
+				widest.getHost());
+	}
+
+	/**
+	 * Returns true if the candidates of an interface's type can be picked
+	 * from the query results of another type's interface, i.e., if every
+	 * host that has an interface of the type also has an interface of the
+	 * other type
+	 */
+	private static boolean isDerivable(NetworkInterface ni, String wideType) {
+		String type = ni.getInterfaceType();
+		if (type.equals(wideType)) {
+			return true;
+		}
+		String key = type + ">" + wideType;
+		Boolean result = derivable.get(key);
+		if (result == null) {
+			result = true;
+			for (NetworkInterface o : ni.optimizer.getAllInterfaces()) {
+				if (getInterface(o.getHost(), wideType) == null) {
+					result = false;
+					break;
+				}
+			}
+			derivable.put(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns true if some host queries the optimizer of an interface's
+	 * type, i.e., if some host with an interface of the type has no shared
+	 * query, queries with its interface of the type or can't pick the
+	 * type's candidates from its query results
+	 */
+	private static boolean isTypeIndexed(NetworkInterface ni) {
+		String type = ni.getInterfaceType();
+		Boolean result = indexed.get(type);
+		if (result == null) {
+			result = false;
+			for (NetworkInterface o : ni.optimizer.getAllInterfaces()) {
+				HostConnectivity hc = o.getHost().getConnectivity();
+				if (hc == null) {
+					result = true;
+					break;
+				}
+				String wideType = hc.widest.getInterfaceType();
+				if (type.equals(wideType) || !isDerivable(o, wideType)) {
+					result = true;
+					break;
+				}
+			}
+			indexed.put(type, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the first interface of a type of a host or null if the host
+	 * has no interfaces of the type
+	 */
+	private static NetworkInterface getInterface(DTNHost host, String type) {
+		List<NetworkInterface> interfaces = host.getInterfaces();
+		for (int i = 0, n = interfaces.size(); i < n; i++) {
+			NetworkInterface ni = interfaces.get(i);
+			if (ni.getInterfaceType().equals(type)) {
+				return ni;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Resets the static fields of the class
+	 */
+	public static void reset() {
+		enabled = null;
+		derivable = new HashMap<String, Boolean>();
+		indexed = new HashMap<String, Boolean>();
+		unique = new HashMap<String, Boolean>();
+	}
+}
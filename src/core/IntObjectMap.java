@@ -0,0 +1,276 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Hash map from primitive (non-negative) int keys to objects. Uses open
+ * addressing with linear probing so no entry objects or boxed keys are
+ * created on insertion or lookup. Null values are not supported.
+ * @param <V> Type of the values
+ */
+public class IntObjectMap<V> implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	/** Marker for an unused slot in the key table */
+	private static final int FREE = -1;
+	/** Default initial capacity */
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private int[] keys;
+	private Object[] values;
+	/** Number of entries in the map */
+	private int size;
+	/** Bit mask for mapping hashes to slots (capacity - 1) */
+	private int mask;
+	/** Size at which the tables are grown */
+	private int threshold;
+	/** Count of structural modifications (for fail-fast iteration) */
+	private int modCount;
+	/** Lazily created view of the values */
+	private transient Collection<V> valuesView;
+
+	/**
+	 * Creates a new map with default initial capacity.
+	 */
+	public IntObjectMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new map that can hold the given number of entries without
+	 * resizing.
+	 * @param expectedSize Expected number of entries
+	 */
+	public IntObjectMap(int expectedSize) {
+		int capacity = 2;
+		while (capacity * 3 / 4 < expectedSize) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		this.keys = new int[capacity];
+		Arrays.fill(this.keys, FREE);
+		this.values = new Object[capacity];
+		this.mask = capacity - 1;
+		this.threshold = capacity * 3 / 4;
+	}
+
+	/**
+	 * Returns the slot of the given key or the free slot where the key
+	 * would be placed.
+	 */
+	private int slotOf(int key) {
+		int i = mix(key) & mask;
+		while (keys[i] != FREE && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/**
+	 * Scrambles the key bits so that sequential keys spread over the table
+	 */
+	private static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the value mapped to the key
+	 * @param key The key
+	 * @return The value or null if there is no mapping for the key
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		if (key < 0) {
+			return null;
+		}
+		return (V)values[slotOf(key)];
+	}
+
+	/**
+	 * Returns true if the map contains a mapping for the key
+	 * @param key The key
+	 * @return true if the map contains a mapping for the key
+	 */
+	public boolean containsKey(int key) {
+		return key >= 0 && keys[slotOf(key)] != FREE;
+	}
+
+	/**
+	 * Maps a value to a key
+	 * @param key The key (must be non-negative)
+	 * @param value The value (must not be null)
+	 * @return The previous value mapped to the key or null
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) {
+		if (key < 0 || value == null) {
+			throw new IllegalArgumentException("Invalid key " + key +
+					" or null value");
+		}
+		int i = slotOf(key);
+		V old = (V)values[i];
+		values[i] = value;
+		if (keys[i] == FREE) {
+			keys[i] = key;
+			modCount++;
+			if (++size > threshold) {
+				grow();
+			}
+		}
+		return old;
+	}
+
+	/**
+	 * Removes the mapping of the key
+	 * @param key The key
+	 * @return The value that was mapped to the key or null
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(int key) {
+		if (key < 0) {
+			return null;
+		}
+		int i = slotOf(key);
+		if (keys[i] == FREE) {
+			return null;
+		}
+		V old = (V)values[i];
+		removeSlot(i);
+		return old;
+	}
+
+	/**
+	 * Removes the entry at a slot and shifts the following entries of the
+	 * same probe sequence backwards so that no tombstones are needed.
+	 */
+	private void removeSlot(int i) {
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (keys[j] == FREE) {
+				break;
+			}
+			int home = mix(keys[j]) & mask;
+			/* move entry j to i if its home slot is not in (i, j] */
+			if ((j > i && (home <= i || home > j)) ||
+					(j < i && (home <= i && home > j))) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				i = j;
+			}
+		}
+		keys[i] = FREE;
+		values[i] = null;
+		size--;
+		modCount++;
+	}
+
+	private void grow() {
+		int[] oldKeys = this.keys;
+		Object[] oldValues = this.values;
+		allocate(oldKeys.length << 1);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE) {
+				int slot = slotOf(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of entries in the map
+	 * @return the number of entries in the map
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns true if the map is empty
+	 * @return true if the map is empty
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Removes all entries from the map
+	 */
+	public void clear() {
+		Arrays.fill(keys, FREE);
+		Arrays.fill(values, null);
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Returns a read-only collection view of the values. The view is backed
+	 * by the map and its iterator fails with ConcurrentModificationException
+	 * if the map is modified during iteration.
+	 * @return A collection view of the values
+	 */
+	public Collection<V> values() {
+		if (valuesView == null) {
+			valuesView = new AbstractCollection<V>() {
+				public Iterator<V> iterator() {
+					return new ValueIterator();
+				}
+				public int size() {
+					return size;
+				}
+			};
+		}
+		return valuesView;
+	}
+
+	/**
+	 * Iterator over the values of the map
+	 */
+	private class ValueIterator implements Iterator<V> {
+		private int next;
+		private final int expectedModCount = modCount;
+
+		private ValueIterator() {
+			next = nextUsed(0);
+		}
+
+		private int nextUsed(int from) {
+			while (from < keys.length && keys[from] == FREE) {
+				from++;
+			}
+			return from;
+		}
+
+		public boolean hasNext() {
+			return next < keys.length;
+		}
+
+		@SuppressWarnings("unchecked")
+		public V next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (next >= keys.length) {
+				throw new NoSuchElementException();
+			}
+			int current = next;
+			next = nextUsed(next + 1);
+			return (V)values[current];
+		}
+	}
+}
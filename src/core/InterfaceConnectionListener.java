@@ -0,0 +1,30 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+/**
+ * Connection listener that wants to know also the network interfaces of
+ * the connections. When the interfaces are known, the listener lists
+ * ({@link ConnectionListenerList}) call these methods instead of
+ * {@link #hostsConnected} and {@link #hostsDisconnected}.
+ */
+public interface InterfaceConnectionListener extends ConnectionListener {
+
+	/**
+	 * Method is called when two interfaces are connected.
+	 * @param ni1 Interface that initiated the connection
+	 * @param ni2 Interface that was connected to
+	 */
+	public void interfacesConnected(NetworkInterface ni1,
+			NetworkInterface ni2);
+
+	/**
+	 * Method is called when connection between interfaces is disconnected.
+	 * @param ni1 Interface that initiated the disconnection
+	 * @param ni2 Interface at the other end of the connection
+	 */
+	public void interfacesDisconnected(NetworkInterface ni1,
+			NetworkInterface ni2);
+}
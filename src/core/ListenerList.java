@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+import core.SelectiveListener.Event;
+
+/**
+ * List of listeners that keeps the listeners of every event type in an
+ * array of their own. Listeners that implement {@link SelectiveListener}
+ * are left out of the arrays of the events they don't handle. The
+ * subclasses dispatch the events to the arrays without creating
+ * iterators.
+ * <P>
+ * Listeners that implement {@link PassiveListener} get their events
+ * through {@link AsyncDelivery} if asynchronous delivery is enabled.
+ * Profiled listeners are classified by the listener they wrap; the
+ * profiler then measures the posting of the asynchronous events.
+ * </P>
+ * @param <L> Type of the listeners
+ */
+public abstract class ListenerList<L> extends AbstractList<L>
+		implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	private Object[] listeners = new Object[0];
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public L get(int index) {
+		return (L)listeners[index];
+	}
+
+	@Override
+	public int size() {
+		return listeners.length;
+	}
+
+	@Override
+	public void add(int index, L listener) {
+		if (index < 0 || index > listeners.length) {
+			throw new IndexOutOfBoundsException("Index: " + index);
+		}
+		Object[] added = new Object[listeners.length + 1];
+		System.arraycopy(listeners, 0, added, 0, index);
+		added[index] = listener;
+		System.arraycopy(listeners, index, added, index + 1,
+				listeners.length - index);
+		this.listeners = added;
+		modCount++;
+		updateHandlers();
+	}
+
+	@Override
+	public L remove(int index) {
+		L removed = get(index);
+		Object[] left = new Object[listeners.length - 1];
+		System.arraycopy(listeners, 0, left, 0, index);
+		System.arraycopy(listeners, index + 1, left, index,
+				listeners.length - index - 1);
+		this.listeners = left;
+		modCount++;
+		updateHandlers();
+		return removed;
+	}
+
+	@Override
+	public L set(int index, L listener) {
+		L old = get(index);
+		listeners[index] = listener;
+		updateHandlers();
+		return old;
+	}
+
+	/**
+	 * Updates the per event listener arrays after the listeners changed
+	 */
+	protected abstract void updateHandlers();
+
+	/**
+	 * Returns a listener that delivers the events asynchronously to the
+	 * given listener
+	 * @param listener The listener
+	 * @return The asynchronous listener
+	 */
+	protected abstract L async(L listener);
+
+	/**
+	 * Returns the listeners that handle an event, i.e., all listeners
+	 * except the selective listeners that don't handle it. Passive listeners
+	 * are replaced with their asynchronous versions if asynchronous
+	 * delivery is enabled.
+	 * @param empty An empty array of the listener type
+	 * @param event The event type
+	 * @return The listeners of the event
+	 */
+	@SuppressWarnings("unchecked")
+	protected L[] getHandlers(L[] empty, Event event) {
+		L[] handlers = Arrays.copyOf(empty, listeners.length);
+		boolean async = AsyncDelivery.isEnabled();
+		int nrof = 0;
+		for (Object o : listeners) {
+			L l = (L)o;
+			L target = l;
+			if (l instanceof SimProfiler.ProfiledListener) {
+				target = ((SimProfiler.ProfiledListener<L>)l).getListener();
+			}
+			if (target instanceof SelectiveListener &&
+					!((SelectiveListener)target).handles(event)) {
+				continue;
+			}
+			L asyncTarget = (async && target instanceof PassiveListener) ?
+					async(target) : target;
+			if (asyncTarget != target) {
+				l = (l == target) ? asyncTarget :
+					((SimProfiler.ProfiledListener<L>)l).wrap(asyncTarget);
+			}
+			handlers[nrof++] = l;
+		}
+		return Arrays.copyOf(handlers, nrof);
+	}
+}
@@ -4,6 +4,7 @@
  */
 package core;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -13,7 +14,9 @@ import java.util.Set;
 /**
  * A message that is created at a node or passed between nodes.
  */
-public class Message implements Comparable<Message> {
+public class Message implements Comparable<Message>, Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** Value for infinite TTL of message */
 	public static final int INFINITE_TTL = -1;
 	private DTNHost from;
@@ -28,6 +31,12 @@ public class Message implements Comparable<Message> {
 	private static int nextUniqueId;
 	/** Unique ID of this message */
 	private int uniqueId;
+	/** Interned key of the message identifier (same for all replicates) */
+	private int idKey;
+	/** Interned keys of all message identifiers seen so far */
+	private static Map<String, Integer> idKeys;
+	/** Message identifiers indexed by their interned key */
+	private static List<String> keyIds;
 	/** The time this message was received */
 	private double timeReceived;
 	/** The time when this message was created */
@@ -41,6 +50,10 @@ public class Message implements Comparable<Message> {
 	/** if this message is a response message, this is set to the request msg*/
 	private Message requestMsg;
 	
+	/** Number of copies (spray tokens) this replicate may still hand out
+	 * (used by the Spray and Wait family of routers) */
+	private int copies;
+	
 	/** Container for generic message properties. Note that all values
 	 * stored in the properties should be immutable because only a shallow
 	 * copy of the properties is made when replicating messages */
@@ -63,9 +76,23 @@ public class Message implements Comparable<Message> {
 	 * @param size Size of the message (in bytes)
 	 */
 	public Message(DTNHost from, DTNHost to, String id, int size) {
+		this(from, to, id, internId(id), size);
+	}
+	
+	/**
+	 * Creates a new Message whose identifier has already been interned.
+	 * @param from Who the message is (originally) from
+	 * @param to Who the message is (originally) to
+	 * @param id Message identifier
+	 * @param idKey The interned key of the identifier
+	 * @param size Size of the message (in bytes)
+	 */
+	private Message(DTNHost from, DTNHost to, String id, int idKey, 
+			int size) {
 		this.from = from;
 		this.to = to;
 		this.id = id;
+		this.idKey = idKey;
 		this.size = size;
 		this.path = new ArrayList<DTNHost>();
 		this.uniqueId = nextUniqueId;
@@ -75,6 +102,7 @@ public class Message implements Comparable<Message> {
 		this.initTtl = INFINITE_TTL;
 		this.responseSize = 0;
 		this.requestMsg = null;
+		this.copies = 0;
 		this.properties = null;
 		this.appID = null;
 		
@@ -115,6 +143,17 @@ public class Message implements Comparable<Message> {
 		return this.uniqueId;
 	}
 	
+	/**
+	 * Returns the interned key of this message's ID. The key is a small 
+	 * non-negative integer that is the same for all replicates of the 
+	 * message (i.e., for all messages with the same ID) and can be used 
+	 * instead of the ID string for buffer lookups.
+	 * @return The interned key of the ID
+	 */
+	public int getIdKey() {
+		return this.idKey;
+	}
+	
 	/**
 	 * Returns the size of the message (in bytes)
 	 * @return the size of the message
@@ -262,6 +301,7 @@ public class Message implements Comparable<Message> {
 		this.requestMsg  = m.requestMsg;
 		this.initTtl = m.initTtl;
 		this.appID = m.appID;
+		this.copies = m.copies;
 		
 		if (m.properties != null) {
 			Set<String> keys = m.properties.keySet();
@@ -271,6 +311,24 @@ public class Message implements Comparable<Message> {
 		}
 	}
 	
+	/**
+	 * Returns the number of copies this replicate of the message may still
+	 * hand out (see {@link routing.util.SprayEngine})
+	 * @return The number of copies or 0 if none were given
+	 */
+	public int getCopies() {
+		return this.copies;
+	}
+	
+	/**
+	 * Sets the number of copies this replicate of the message may still
+	 * hand out. Replicates of the message get the same number of copies.
+	 * @param copies The number of copies
+	 */
+	public void setCopies(int copies) {
+		this.copies = copies;
+	}
+	
 	/**
 	 * Adds a generic property for this message. The key can be any string but 
 	 * it should be such that no other class accidently uses the same value.
@@ -326,7 +384,7 @@ public class Message implements Comparable<Message> {
 	 * @return A replicate of the message
 	 */
 	public Message replicate() {
-		Message m = new Message(from, to, id, size);
+		Message m = new Message(from, to, id, idKey, size);
 		m.copyFrom(this);
 		return m;
 	}
@@ -344,6 +402,47 @@ public class Message implements Comparable<Message> {
 	 */
 	public static void reset() {
 		nextUniqueId = 0;
+		idKeys = new HashMap<String, Integer>();
+		keyIds = new ArrayList<String>();
+	}
+	
+	/**
+	 * Returns the interned key for a message ID. If the ID hasn't been seen
+	 * before, a new key is assigned to it.
+	 * @param id The message ID
+	 * @return The interned key of the ID
+	 */
+	public static int internId(String id) {
+		Integer key = idKeys.get(id);
+		if (key == null) {
+			key = keyIds.size();
+			idKeys.put(id, key);
+			keyIds.add(id);
+		}
+		return key;
+	}
+	
+	/**
+	 * Returns the interned key of a message ID without interning it.
+	 * @param id The message ID
+	 * @return The interned key of the ID or -1 if no message with the ID
+	 * has been created
+	 */
+	public static int getKeyForId(String id) {
+		Integer key = idKeys.get(id);
+		return key == null ? -1 : key;
+	}
+	
+	/**
+	 * Returns the message ID that was interned with the given key
+	 * @param idKey The interned key
+	 * @return The message ID or null if no ID has that key
+	 */
+	public static String getIdForKey(int idKey) {
+		if (idKey < 0 || idKey >= keyIds.size()) {
+			return null;
+		}
+		return keyIds.get(idKey);
 	}
 
 	/**
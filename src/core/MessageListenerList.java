@@ -0,0 +1,165 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package core;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.List;
+
+import core.SelectiveListener.Event;
+
+/**
+ * List of message listeners that is also a message listener: every event is
+ * dispatched to the listeners that handle the event type.
+ * @see ListenerList
+ */
+public class MessageListenerList extends ListenerList<MessageListener>
+		implements MessageListener {
+	private static final long serialVersionUID = 42L;
+
+	private static final MessageListener[] NONE = new MessageListener[0];
+
+	private transient MessageListener[] newMessage = NONE;
+	private transient MessageListener[] transferStarted = NONE;
+	private transient MessageListener[] deleted = NONE;
+	private transient MessageListener[] transferAborted = NONE;
+	private transient MessageListener[] transferred = NONE;
+
+	/**
+	 * Returns a message listener that dispatches the events to all the
+	 * listeners of a list
+	 * @param listeners The listeners
+	 * @return The list itself if it is a message listener list, a
+	 * dispatcher that iterates the list otherwise
+	 */
+	public static MessageListener dispatcherFor(
+			List<MessageListener> listeners) {
+		if (listeners instanceof MessageListenerList) {
+			return (MessageListenerList)listeners;
+		}
+		return new ListDispatcher(listeners);
+	}
+
+	@Override
+	protected void updateHandlers() {
+		newMessage = getHandlers(NONE, Event.NEW_MESSAGE);
+		transferStarted = getHandlers(NONE, Event.TRANSFER_STARTED);
+		deleted = getHandlers(NONE, Event.MESSAGE_DELETED);
+		transferAborted = getHandlers(NONE, Event.TRANSFER_ABORTED);
+		transferred = getHandlers(NONE, Event.MESSAGE_TRANSFERRED);
+	}
+
+	@Override
+	protected MessageListener async(final MessageListener l) {
+		return new MessageListener() {
+			public void newMessage(final Message m) {
+				AsyncDelivery.post(() -> l.newMessage(m));
+			}
+			public void messageTransferStarted(final Message m,
+					final DTNHost from, final DTNHost to) {
+				AsyncDelivery.post(() -> l.messageTransferStarted(m, from, to));
+			}
+			public void messageDeleted(final Message m, final DTNHost where,
+					final boolean dropped) {
+				AsyncDelivery.post(() -> l.messageDeleted(m, where, dropped));
+			}
+			public void messageTransferAborted(final Message m,
+					final DTNHost from, final DTNHost to) {
+				AsyncDelivery.post(() -> l.messageTransferAborted(m, from, to));
+			}
+			public void messageTransferred(final Message m, final DTNHost from,
+					final DTNHost to, final boolean firstDelivery) {
+				AsyncDelivery.post(() ->
+					l.messageTransferred(m, from, to, firstDelivery));
+			}
+		};
+	}
+
+	public void newMessage(Message m) {
+		for (MessageListener ml : newMessage) {
+			ml.newMessage(m);
+		}
+	}
+
+	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {
+		for (MessageListener ml : transferStarted) {
+			ml.messageTransferStarted(m, from, to);
+		}
+	}
+
+	public void messageDeleted(Message m, DTNHost where, boolean dropped) {
+		for (MessageListener ml : deleted) {
+			ml.messageDeleted(m, where, dropped);
+		}
+	}
+
+	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {
+		for (MessageListener ml : transferAborted) {
+			ml.messageTransferAborted(m, from, to);
+		}
+	}
+
+	public void messageTransferred(Message m, DTNHost from, DTNHost to,
+			boolean firstDelivery) {
+		for (MessageListener ml : transferred) {
+			ml.messageTransferred(m, from, to, firstDelivery);
+		}
+	}
+
+	private void readObject(ObjectInputStream in)
+		throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		updateHandlers();
+	}
+
+	/**
+	 * Dispatcher for plain listener lists (e.g., in unit tests)
+	 */
+	private static class ListDispatcher implements MessageListener,
+			Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private final List<MessageListener> listeners;
+
+		private ListDispatcher(List<MessageListener> listeners) {
+			this.listeners = listeners;
+		}
+
+		public void newMessage(Message m) {
+			for (MessageListener ml : listeners) {
+				ml.newMessage(m);
+			}
+		}
+
+		public void messageTransferStarted(Message m, DTNHost from,
+				DTNHost to) {
+			for (MessageListener ml : listeners) {
+				ml.messageTransferStarted(m, from, to);
+			}
+		}
+
+		public void messageDeleted(Message m, DTNHost where,
+				boolean dropped) {
+			for (MessageListener ml : listeners) {
+				ml.messageDeleted(m, where, dropped);
+			}
+		}
+
+		public void messageTransferAborted(Message m, DTNHost from,
+				DTNHost to) {
+			for (MessageListener ml : listeners) {
+				ml.messageTransferAborted(m, from, to);
+			}
+		}
+
+		public void messageTransferred(Message m, DTNHost from, DTNHost to,
+				boolean firstDelivery) {
+			for (MessageListener ml : listeners) {
+				ml.messageTransferred(m, from, to, firstDelivery);
+			}
+		}
+	}
+}
@@ -4,31 +4,121 @@
  */
 package core;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 
 /**
  * Intermodule communication bus. Works as a blackboard where modules can
  * post data, subscribe to data changes and also poll for data values.
  * This is fairly similar to Message class' property interface, but these
  * values are shared for a node instead of message.
+ * <P>
+ * Every value name is resolved once to a {@link Key} that has a global
+ * slot index; the values and the listeners are stored in arrays by the
+ * slot. Double and integer values are stored as primitives, so the
+ * {@link Key} versions of {@link #getDouble(Key, double)},
+ * {@link #getInt(Key, int)}, {@link #setDouble(Key, double)} and
+ * {@link #setInt(Key, int)} are plain array accesses. Modules that use
+ * a value often should resolve its key once with {@link #getKey(String)}.
+ * The String versions of the methods resolve the key on every call.
+ * </P>
  */
-public class ModuleCommunicationBus {
-	/** Initial capacity for the listener lists (instead of 10) */
-	private static int INIT_CAPACITY = 3;
-	/** The values in the blackboard (or null if none)*/
-	private HashMap<String, Object> values;
-	/** Subscribed listeners (or null if none)*/
-	private HashMap<String, List<ModuleCommunicationListener>> listeners;
+public class ModuleCommunicationBus implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	/** Slot type: no value */
+	private static final byte NONE = 0;
+	/** Slot type: double value (stored as primitive) */
+	private static final byte DOUBLE = 1;
+	/** Slot type: integer value (stored as primitive) */
+	private static final byte INT = 2;
+	/** Slot type: any other object */
+	private static final byte OBJECT = 3;
+	/** Listener array of slots without listeners */
+	private static final ModuleCommunicationListener[] NO_LISTENERS =
+		new ModuleCommunicationListener[0];
+
+	/** All the resolved keys by name */
+	private static final HashMap<String, Key> keys = new HashMap<String, Key>();
+	/** Number of resolved keys */
+	private static int nrofKeys = 0;
+
+	/* the slot arrays are serialized by key name since the slots of the
+	   keys depend on the order the keys are resolved in */
+	/** Types of the values in the slots (or null if no values) */
+	private transient byte[] types;
+	/** Double values by slot */
+	private transient double[] doubles;
+	/** Integer values by slot */
+	private transient int[] ints;
+	/** Other values by slot */
+	private transient Object[] objects;
+	/** Subscribed listeners by slot (or null if none) */
+	private transient ModuleCommunicationListener[][] listeners;
+
+	/**
+	 * Name of a value in the communication bus, resolved to a slot index.
+	 * Keys are created with {@link ModuleCommunicationBus#getKey(String)}
+	 * and the same name always resolves to the same key.
+	 */
+	public static final class Key implements Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private final String name;
+		private final int slot;
+
+		private Key(String name, int slot) {
+			this.name = name;
+			this.slot = slot;
+		}
+
+		/**
+		 * Returns the name of the value
+		 * @return the name of the value
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		@Override
+		public String toString() {
+			return this.name;
+		}
+
+		/**
+		 * Resolves a deserialized key to the key of the same name
+		 */
+		private Object readResolve() {
+			return getKey(this.name);
+		}
+	}
 	
 	/**
 	 * Constructor.
 	 */
 	public ModuleCommunicationBus() {
-		this.values = null; /* use lazy creation  */
+		this.types = null; /* use lazy creation  */
 		this.listeners = null;
 	}
+
+	/**
+	 * Returns the key for a value name. The key is created the first time
+	 * a name is used.
+	 * @param name Name of the value
+	 * @return The key of the value
+	 */
+	public static synchronized Key getKey(String name) {
+		Key key = keys.get(name);
+		if (key == null) {
+			key = new Key(name, nrofKeys++);
+			keys.put(name, key);
+		}
+		return key;
+	}
 	
 	/**
 	 * Adds a new property for this node. The key can be any string but 
@@ -40,7 +130,18 @@ public class ModuleCommunicationBus {
 	 * @throws SimError if there is already a value for the given key
 	 */
 	public void addProperty(String key, Object value) throws SimError {
-		if (this.values != null && this.values.containsKey(key)) {
+		addProperty(getKey(key), value);
+	}
+
+	/**
+	 * Adds a new property for this node.
+	 * @param key The key which is used to lookup the value
+	 * @param value The value to store
+	 * @throws SimError if there is already a value for the given key
+	 * @see #addProperty(String, Object)
+	 */
+	public void addProperty(Key key, Object value) throws SimError {
+		if (typeOf(key) != NONE) {
 			/* check to prevent accidental name space collisions */
 			throw new SimError("A value for the key " + key + 
 					" already exists");
@@ -56,10 +157,26 @@ public class ModuleCommunicationBus {
 	 * @return The stored object or null if it isn't found
 	 */
 	public Object getProperty(String key) {
-		if (this.values == null) {
+		return getProperty(getKey(key));
+	}
+
+	/**
+	 * Returns an object that was stored using the given key. Double and
+	 * integer values are returned as Double and Integer objects.
+	 * @param key The key used to lookup the object
+	 * @return The stored object or null if it isn't found
+	 */
+	public Object getProperty(Key key) {
+		switch (typeOf(key)) {
+		case DOUBLE:
+			return this.doubles[key.slot];
+		case INT:
+			return this.ints[key.slot];
+		case OBJECT:
+			return this.objects[key.slot];
+		default:
 			return null;
 		}
-		return this.values.get(key);
 	}
 	
 	/**
@@ -70,13 +187,37 @@ public class ModuleCommunicationBus {
 	 * @param value The new value to store
 	 */
 	public void updateProperty(String key, Object value) throws SimError {
-		if (this.values == null) {
-			/* lazy creation to prevent performance overhead for classes
-			   that don't use the property feature  */
-			this.values = new HashMap<String, Object>();
+		updateProperty(getKey(key), value);
+	}
+
+	/**
+	 * Updates a value for an existing property. Double and Integer objects
+	 * are stored as primitive values.
+	 * @param key The key which is used to lookup the value
+	 * @param value The new value to store
+	 * @see #updateProperty(String, Object)
+	 */
+	public void updateProperty(Key key, Object value) throws SimError {
+		ensureSlot(key.slot);
+		if (value instanceof Double d) {
+			this.types[key.slot] = DOUBLE;
+			this.doubles[key.slot] = d;
+		}
+		else if (value instanceof Integer i) {
+			this.types[key.slot] = INT;
+			this.ints[key.slot] = i;
+		}
+		else if (value != null) {
+			this.types[key.slot] = OBJECT;
+			this.objects[key.slot] = value;
+		}
+		else {
+			this.types[key.slot] = NONE;
+		}
+		if (this.types[key.slot] != OBJECT) {
+			this.objects[key.slot] = null; /* don't keep replaced objects */
 		}		
 
-		this.values.put(key, value);
 		notifyListeners(key, value);
 	}
 
@@ -88,19 +229,60 @@ public class ModuleCommunicationBus {
 	 * @throws SimError if the value with the given key was not a Double
 	 */
 	public double updateDouble(String key, double delta) throws SimError {
-		double current;
-		try {
-			current = (Double)getProperty(key);
-			updateProperty(key, current + delta);
+		return updateDouble(getKey(key), delta);
+	}
+
+	/**
+	 * Changes the double value with given key with the value delta
+	 * @param key The key of variable to update
+	 * @param delta Value added to the old value
+	 * @return The new value
+	 * @throws SimError if the value with the given key was not a double
+	 */
+	public double updateDouble(Key key, double delta) throws SimError {
+		byte type = typeOf(key);
+		if (type == NONE) {
+			throw new SimError("No value for key " + key);
 		}
-		catch (ClassCastException cce) {
+		else if (type != DOUBLE) {
 			throw new SimError("No Double value for key " + key);
 		}
-		catch (NullPointerException npe) {
-			throw new SimError("No value for key " + key);
+
+		double value = this.doubles[key.slot] + delta;
+		setDouble(key, value);
+		return value;
+	}
+
+	/**
+	 * Sets a double value to the communication bus
+	 * @param key The key of the variable
+	 * @param value The new value
+	 */
+	public void setDouble(Key key, double value) {
+		ensureSlot(key.slot);
+		this.types[key.slot] = DOUBLE;
+		this.doubles[key.slot] = value;
+		this.objects[key.slot] = null;
+
+		if (hasListeners(key)) {
+			notifyListeners(key, value);
 		}
+	}
 
-		return current + delta;
+	/**
+	 * Sets an integer value to the communication bus
+	 * @param key The key of the variable
+	 * @param value The new value
+	 */
+	public void setInt(Key key, int value) {
+		ensureSlot(key.slot);
+		this.types[key.slot] = INT;
+		this.ints[key.slot] = value;
+		this.objects[key.slot] = null;
+
+		if (hasListeners(key)) {
+			notifyListeners(key, value);
+		}
 	}
 	
 	/**
@@ -111,16 +293,25 @@ public class ModuleCommunicationBus {
 	 * @throws SimError if the value with the given key was not a Double
 	 */
 	public double getDouble(String key, double naValue) throws SimError {
-		Object value = this.getProperty(key);
-		if (value == null) {
-			return naValue;
-		}
-		try {
-			return (Double)value;
+		return getDouble(getKey(key), naValue);
+	}
+
+	/**
+	 * Returns a double value from the communication bus.
+	 * @param key The key of the variable
+	 * @param naValue The value to return if there is no value for the key
+	 * @return The value of the key, or the naValue if they key was not found
+	 * @throws SimError if the value with the given key was not a double
+	 */
+	public double getDouble(Key key, double naValue) throws SimError {
+		byte type = typeOf(key);
+		if (type == DOUBLE) {
+			return this.doubles[key.slot];
 		}
-		catch (ClassCastException cce) {
-			throw new SimError("No Double value for key " + key);
+		else if (type == NONE) {
+			return naValue;
 		}
+		throw new SimError("No Double value for key " + key);
 	}
 	
 	/**
@@ -131,16 +322,25 @@ public class ModuleCommunicationBus {
 	 * @throws SimError if the value with the given key was not an Integer
 	 */
 	public int getInt(String key, int naValue) throws SimError {
-		Object value = this.getProperty(key);
-		if (value == null) {
-			return naValue;
-		}
-		try {
-			return (Integer)value;
+		return getInt(getKey(key), naValue);
+	}
+
+	/**
+	 * Returns an integer value from the communication bus.
+	 * @param key The key of the variable
+	 * @param naValue The value to return if there is no value for the key
+	 * @return The value of the key, or the naValue if they key was not found
+	 * @throws SimError if the value with the given key was not an integer
+	 */
+	public int getInt(Key key, int naValue) throws SimError {
+		byte type = typeOf(key);
+		if (type == INT) {
+			return this.ints[key.slot];
 		}
-		catch (ClassCastException cce) {
-			throw new SimError("No Integer value for key " + key);
+		else if (type == NONE) {
+			return naValue;
 		}
+		throw new SimError("No Integer value for key " + key);
 	}
 	
 	/**
@@ -149,20 +349,30 @@ public class ModuleCommunicationBus {
 	 * @param module The module to subscribe.
 	 */
 	public void subscribe(String key, ModuleCommunicationListener module) {
-		if (this.listeners == null) {
-			/* first listener for the whole node */
-			this.listeners = 
-				new HashMap<String, List<ModuleCommunicationListener>>();
+		subscribe(getKey(key), module);
+	}
+
+	/**
+	 * Subscribes a module to changes of a certain value.
+	 * @param key The key of the value whose changes the module is interested of
+	 * @param module The module to subscribe.
+	 */
+	public void subscribe(Key key, ModuleCommunicationListener module) {
+		if (this.listeners == null || key.slot >= this.listeners.length) {
+			int size = Math.max(key.slot + 1, nrofKeys);
+			this.listeners = this.listeners == null ?
+					new ModuleCommunicationListener[size][] :
+					Arrays.copyOf(this.listeners, size);
 		}
 		
-		List<ModuleCommunicationListener> list = this.listeners.get(key);
+		/* copy on write; notifying iterates a stable array */
+		ModuleCommunicationListener[] list = this.listeners[key.slot];
 		if (list == null) {
-			/* first listener for this key */
-			list = new ArrayList<ModuleCommunicationListener>(INIT_CAPACITY);
-			this.listeners.put(key, list);
+			list = NO_LISTENERS;
 		}
-		
-		list.add(module);
+		list = Arrays.copyOf(list, list.length + 1);
+		list[list.length - 1] = module;
+		this.listeners[key.slot] = list;
 	}
 	
 	/**
@@ -171,47 +381,181 @@ public class ModuleCommunicationBus {
 	 * @param module The module to whose subscription is removed
 	 */
 	public void unsubscribe(String key, ModuleCommunicationListener module) {
-		List<ModuleCommunicationListener> list;
-		
-		if (this.listeners == null) {
-			return; /* no subscriptions */
-		}
+		unsubscribe(getKey(key), module);
+	}
 		
-		list = this.listeners.get(key);
-		if (list == null) {
+	/**
+	 * Removes a notification subscription
+	 * @param key The key for which the subscription should be removed
+	 * @param module The module to whose subscription is removed
+	 */
+	public void unsubscribe(Key key, ModuleCommunicationListener module) {
+		if (!hasListeners(key)) {
 			return; /* no subscriptions for the key */
 		}
 		
-		list.remove(module);
+		ModuleCommunicationListener[] list = this.listeners[key.slot];
+		for (int i = 0; i < list.length; i++) {
+			if (list[i].equals(module)) {
+				ModuleCommunicationListener[] newList =
+					new ModuleCommunicationListener[list.length - 1];
+				System.arraycopy(list, 0, newList, 0, i);
+				System.arraycopy(list, i + 1, newList, i, newList.length - i);
+				this.listeners[key.slot] = newList;
+				return;
+			}
+		}
 	}
 	
+	/**
+	 * Returns the type of the value in a key's slot
+	 */
+	private byte typeOf(Key key) {
+		if (this.types == null || key.slot >= this.types.length) {
+			return NONE;
+		}
+		return this.types[key.slot];
+	}
+
+	/**
+	 * Makes sure the value arrays have room for the given slot
+	 */
+	private void ensureSlot(int slot) {
+		if (this.types != null && slot < this.types.length) {
+			return;
+		}
+		/* lazy creation to prevent performance overhead for classes
+		   that don't use the property feature  */
+		int size = Math.max(slot + 1, nrofKeys);
+		if (this.types == null) {
+			this.types = new byte[size];
+			this.doubles = new double[size];
+			this.ints = new int[size];
+			this.objects = new Object[size];
+		}
+		else {
+			this.types = Arrays.copyOf(this.types, size);
+			this.doubles = Arrays.copyOf(this.doubles, size);
+			this.ints = Arrays.copyOf(this.ints, size);
+			this.objects = Arrays.copyOf(this.objects, size);
+		}
+	}
+
+	/**
+	 * Writes the values and the listeners with the names of their keys
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		String[] names = new String[nrofKeys];
+		synchronized (ModuleCommunicationBus.class) {
+			for (Key key : keys.values()) {
+				if (key.slot < names.length) {
+					names[key.slot] = key.name;
+				}
+			}
+		}
+
+		int nrofSlots = Math.max(types == null ? 0 : types.length,
+				listeners == null ? 0 : listeners.length);
+		for (int slot = 0; slot < nrofSlots; slot++) {
+			byte type = types == null || slot >= types.length ?
+					NONE : types[slot];
+			ModuleCommunicationListener[] list =
+				listeners == null || slot >= listeners.length ?
+						null : listeners[slot];
+			if (type == NONE && list == null) {
+				continue;
+			}
+			out.writeObject(names[slot]);
+			out.writeByte(type);
+			if (type == DOUBLE) {
+				out.writeDouble(doubles[slot]);
+			}
+			else if (type == INT) {
+				out.writeInt(ints[slot]);
+			}
+			else if (type == OBJECT) {
+				out.writeObject(objects[slot]);
+			}
+			out.writeObject(list);
+		}
+		out.writeObject(null); // end of slots
+	}
+
+	private void readObject(ObjectInputStream in)
+		throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		String name;
+		while ((name = (String)in.readObject()) != null) {
+			Key key = getKey(name);
+			byte type = in.readByte();
+			if (type != NONE) {
+				ensureSlot(key.slot);
+				types[key.slot] = type;
+			}
+			if (type == DOUBLE) {
+				doubles[key.slot] = in.readDouble();
+			}
+			else if (type == INT) {
+				ints[key.slot] = in.readInt();
+			}
+			else if (type == OBJECT) {
+				objects[key.slot] = in.readObject();
+			}
+			ModuleCommunicationListener[] list =
+				(ModuleCommunicationListener[])in.readObject();
+			if (list != null) {
+				if (listeners == null || key.slot >= listeners.length) {
+					int size = Math.max(key.slot + 1, nrofKeys);
+					listeners = listeners == null ?
+							new ModuleCommunicationListener[size][] :
+							Arrays.copyOf(listeners, size);
+				}
+				listeners[key.slot] = list;
+			}
+		}
+	}
+
+	/**
+	 * Returns true if there are listeners for the given key
+	 */
+	private boolean hasListeners(Key key) {
+		return this.listeners != null && key.slot < this.listeners.length &&
+			this.listeners[key.slot] != null &&
+			this.listeners[key.slot].length > 0;
+	}
 	
 	/**
 	 * Notifies all listeners that have subscribed to the given key 
 	 * @param key The key which got new value
 	 * @param newValue The new value for the key
 	 */
-	private void notifyListeners(String key, Object newValue) {
-		List<ModuleCommunicationListener> list;
-		
-		if (this.listeners == null) {
-			return;
-		}
-		list = this.listeners.get(key);
-		
-		if (list == null) {
+	private void notifyListeners(Key key, Object newValue) {
+		if (!hasListeners(key)) {
 			return;
 		}
 		
-		for (ModuleCommunicationListener mcl : list) {
-			mcl.moduleValueChanged(key, newValue);
+		for (ModuleCommunicationListener mcl : this.listeners[key.slot]) {
+			mcl.moduleValueChanged(key.name, newValue);
 		}
 	}
 	
 	
 	@Override
 	public String toString() {
-		return "ComBus with mapping: " + (this.values != null ? 
-				this.values.toString() : "n/a");
+		if (this.types == null) {
+			return "ComBus with mapping: n/a";
+		}
+
+		StringBuilder sb = new StringBuilder("{");
+		synchronized (ModuleCommunicationBus.class) {
+			for (Key key : keys.values()) {
+				if (typeOf(key) != NONE) {
+					sb.append(sb.length() > 1 ? ", " : "");
+					sb.append(key.name + "=" + getProperty(key));
+				}
+			}
+		}
+		return "ComBus with mapping: " + sb.append("}");
 	}
 }
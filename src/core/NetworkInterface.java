@@ -4,17 +4,20 @@
  */
 package core;
 
-import interfaces.ConnectivityGrid;
 import interfaces.ConnectivityOptimizer;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Random;
 
 /**
  * Network interface of a DTNHost. Takes care of connectivity among hosts.
  */
-abstract public class NetworkInterface implements ModuleCommunicationListener {
+abstract public class NetworkInterface implements ModuleCommunicationListener, Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** transmit range -setting id ({@value})*/
 	public static final String TRANSMIT_RANGE_S = "transmitRange";
 	/** transmit speed -setting id ({@value})*/
@@ -31,6 +34,15 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	/** {@link ModuleCommunicationBus} identifier for the "transmission speed" 
     variable. Value type: integer */
 	public static final String SPEED_ID = "Network.speed";
+	/** Resolved {@link ModuleCommunicationBus} key of {@link #SCAN_INTERVAL_ID} */
+	public static final ModuleCommunicationBus.Key SCAN_INTERVAL_KEY =
+		ModuleCommunicationBus.getKey(SCAN_INTERVAL_ID);
+	/** Resolved {@link ModuleCommunicationBus} key of {@link #RANGE_ID} */
+	public static final ModuleCommunicationBus.Key RANGE_KEY =
+		ModuleCommunicationBus.getKey(RANGE_ID);
+	/** Resolved {@link ModuleCommunicationBus} key of {@link #SPEED_ID} */
+	public static final ModuleCommunicationBus.Key SPEED_KEY =
+		ModuleCommunicationBus.getKey(SPEED_ID);
 	
 	private static final int CON_UP = 1;
 	private static final int CON_DOWN = 2;
@@ -41,6 +53,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	protected String interfacetype;
 	protected List<Connection> connections; // connected hosts
 	private List<ConnectionListener> cListeners = null; // list of listeners
+	private InterfaceConnectionListener cEvents = null; // dispatcher
 	private int address; // network interface address
 	protected double transmitRange;
 	protected int transmitSpeed;
@@ -99,6 +112,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		this.address = getNextNetAddress();
 		this.host = ni.host;
 		this.cListeners = ni.cListeners;
+		this.cEvents = ni.cEvents;
 		this.interfacetype = ni.interfacetype;
 		this.transmitRange = ni.transmitRange;
 		this.transmitSpeed = ni.transmitSpeed;
@@ -120,15 +134,41 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	public void setHost(DTNHost host) {
 		this.host = host;
 		ModuleCommunicationBus comBus = host.getComBus();
-		comBus.subscribe(SCAN_INTERVAL_ID, this);
-		comBus.subscribe(RANGE_ID, this);
-		comBus.subscribe(SPEED_ID, this);
+		comBus.subscribe(SCAN_INTERVAL_KEY, this);
+		comBus.subscribe(RANGE_KEY, this);
+		comBus.subscribe(SPEED_KEY, this);
 		
-		optimizer = ConnectivityGrid.ConnectivityGridFactory(
+		optimizer = ConnectivityOptimizer.getOptimizer(
 				this.interfacetype.hashCode(), transmitRange);
 		optimizer.addInterface(this);		
 	}
 
+	/**
+	 * Returns all interfaces that might be located so that they can be
+	 * connected with this interface. Uses the shared query of the host's
+	 * interfaces if the host has one (see {@link HostConnectivity}).
+	 * @return A collection of network interfaces within proximity
+	 */
+	protected Collection<NetworkInterface> getNearInterfaces() {
+		HostConnectivity shared = host.getConnectivity();
+		if (shared != null) {
+			return shared.getNearInterfaces(this);
+		}
+		return optimizer.getNearInterfaces(this);
+	}
+
+	/**
+	 * Updates the location of this interface in its connectivity optimizer.
+	 * The update is skipped if the host's shared query finds the candidates
+	 * of all the interfaces of this type without the optimizer.
+	 */
+	protected void updateLocation() {
+		HostConnectivity shared = host.getConnectivity();
+		if (shared == null || shared.isIndexed(this)) {
+			optimizer.updateLocation(this);
+		}
+	}
+
 	/**
 	 * For checking what interface type this interface is
 	 */
@@ -142,6 +182,8 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	 */
 	public void setClisteners(List<ConnectionListener> cListeners) {
 		this.cListeners = cListeners;
+		this.cEvents = cListeners == null ? null :
+			ConnectionListenerList.dispatcherFor(cListeners);
 	}
 
 	/**
@@ -228,7 +270,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	protected void connect(Connection con, NetworkInterface anotherInterface) {
 
 		this.connections.add(con);
-		notifyConnectionListeners(CON_UP, anotherInterface.getHost());
+		notifyConnectionListeners(CON_UP, anotherInterface);
 
 		// set up bidirectional connection
 		anotherInterface.getConnections().add(con);
@@ -246,7 +288,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	protected void disconnect(Connection con, 
 			NetworkInterface anotherInterface) {
 		con.setUpState(false);
-		notifyConnectionListeners(CON_DOWN, anotherInterface.getHost());
+		notifyConnectionListeners(CON_DOWN, anotherInterface);
 
 		// tear down bidirectional connection
 		if (!anotherInterface.getConnections().remove(con)) {
@@ -312,23 +354,22 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	/**
 	 * Notifies all the connection listeners about a change in connections.
 	 * @param type Type of the change (e.g. {@link #CON_DOWN} )
-	 * @param otherHost The other host on the other end of the connection.
+	 * @param otherInterface The interface on the other end of the connection.
 	 */
-	private void notifyConnectionListeners(int type, DTNHost otherHost) {
-		if (this.cListeners == null) {
+	private void notifyConnectionListeners(int type,
+			NetworkInterface otherInterface) {
+		if (this.cEvents == null) {
 			return;
 		}
-		for (ConnectionListener cl : this.cListeners) {
-			switch (type) {
-			case CON_UP:
-				cl.hostsConnected(this.host, otherHost);
-				break;
-			case CON_DOWN:
-				cl.hostsDisconnected(this.host, otherHost);
-				break;
-			default:
-				assert false : type;	// invalid type code
-			}
+		switch (type) {
+		case CON_UP:
+			cEvents.interfacesConnected(this, otherInterface);
+			break;
+		case CON_DOWN:
+			cEvents.interfacesDisconnected(this, otherInterface);
+			break;
+		default:
+			assert false : type;	// invalid type code
 		}
 	}
 	
@@ -376,6 +417,26 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		// the connection didn't exist, do nothing
 	}
 
+	/**
+	 * Disconnects a specific connection of this interface. Unlike
+	 * {@link #destroyConnection(NetworkInterface)}, doesn't need to check the
+	 * other ends of the connections, but the connection is still searched
+	 * from the connection list.
+	 * @param con The connection to tear down
+	 * @param anotherInterface The other host's network interface in the
+	 * connection
+	 * @return True if the connection was found and torn down
+	 */
+	public boolean destroyConnection(Connection con,
+			NetworkInterface anotherInterface) {
+		int index = this.connections.indexOf(con);
+		if (index < 0) {
+			return false;
+		}
+		removeConnectionByIndex(index, anotherInterface);
+		return true;
+	}
+
 	/**
 	 * Removes a connection by its position (index) in the connections array
 	 * of the interface
@@ -387,7 +448,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		Connection con = this.connections.get(index);
 		DTNHost anotherNode = anotherInterface.getHost();
 		con.setUpState(false);
-		notifyConnectionListeners(CON_DOWN, anotherNode);
+		notifyConnectionListeners(CON_DOWN, anotherInterface);
 
 		// tear down bidirectional connection
 		if (!anotherInterface.getConnections().remove(con)) {
@@ -0,0 +1,17 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package core;
+
+/**
+ * Marker interface for event listeners that only record the events and have
+ * no side effects on the simulation. Such listeners may get their message
+ * and connection events asynchronously in a background thread if
+ * {@link AsyncDelivery} is enabled, so they must not read any state that
+ * the simulation changes during the same simulation time instant (except
+ * the event's own parameters and the simulation time).
+ */
+public interface PassiveListener {
+
+}
@@ -0,0 +1,24 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package core;
+
+/**
+ * Update listener that only needs to sample the world at some interval.
+ * The listener tells the simulation time of the next update it needs and
+ * the world skips its {@link #updated(java.util.List)} calls before that
+ * time (see {@link UpdateListenerList}). The listener is called on the
+ * first update at or after the requested time.
+ */
+public interface SampledUpdateListener extends UpdateListener {
+
+	/**
+	 * Returns the simulation time of the next update the listener needs.
+	 * Called after every {@link #updated(java.util.List)} call and when the
+	 * listener is registered.
+	 * @return The time of the next needed update
+	 */
+	public double getNextUpdateTime();
+
+}
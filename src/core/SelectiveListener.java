@@ -0,0 +1,41 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+/**
+ * Message, connection or update listener that tells which of its events it
+ * handles. The listener lists ({@link ListenerList}) dispatch only the
+ * handled events to the listener. Listeners that don't implement this
+ * interface get all the events.
+ */
+public interface SelectiveListener {
+	/** Message, connection and update event types */
+	public enum Event {
+		/** {@link MessageListener#newMessage(Message)} */
+		NEW_MESSAGE,
+		/** {@link MessageListener#messageTransferStarted} */
+		TRANSFER_STARTED,
+		/** {@link MessageListener#messageDeleted} */
+		MESSAGE_DELETED,
+		/** {@link MessageListener#messageTransferAborted} */
+		TRANSFER_ABORTED,
+		/** {@link MessageListener#messageTransferred} */
+		MESSAGE_TRANSFERRED,
+		/** {@link ConnectionListener#hostsConnected} */
+		HOSTS_CONNECTED,
+		/** {@link ConnectionListener#hostsDisconnected} */
+		HOSTS_DISCONNECTED,
+		/** {@link UpdateListener#updated} */
+		UPDATED
+	}
+
+	/**
+	 * Returns true if the listener handles events of the given type. The
+	 * answer must not change while the listener is in a listener list.
+	 * @param event The event type
+	 * @return True if the events should be dispatched to the listener
+	 */
+	public boolean handles(Event event);
+}
@@ -9,6 +9,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.Serializable;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
@@ -28,13 +29,30 @@ import java.util.*;
  * {@link #setRunIndex(int)}). In file paths directory separator should always
  * be forward slash ("/").
  * </P>
+ * <p>
+ * The settings are parsed only once into a {@link SettingsTable} and all
+ * lookups are made from an immutable snapshot of that table for the current
+ * run index. Typed values (numbers and CSV values) are cached in the
+ * snapshot, so repeated requests of the same setting are cheap.
+ * </P>
  */
-public class Settings {
+public class Settings implements Serializable {
+	private static final long serialVersionUID = 42L;
 
 	/**
-	 * properties object where the setting files are read into
+	 * properties object where the setting files are read into. Should be
+	 * modified only using {@link #addSetting(String, String)} and
+	 * {@link #addSettings(String)} so that the parsed settings are updated.
 	 */
 	protected static Properties props;
+	/**
+	 * pre-parsed settings of the properties object
+	 */
+	private static SettingsTable table = null;
+	/**
+	 * snapshot of the settings table for the current run index
+	 */
+	private static SettingsTable.Snapshot snapshot = null;
 	/**
 	 * file name of the default settings file ({@value})
 	 */
@@ -109,6 +127,46 @@ public class Settings {
 		writtenSettings.clear();
 	}
 
+	/**
+	 * Returns the run index the settings are currently resolved with
+	 *
+	 * @return The current run index (or a negative value if run indexing is
+	 * disabled)
+	 */
+	public static int getRunIndex() {
+		return runIndex;
+	}
+
+	/**
+	 * Returns the snapshot of settings for the current run index. The
+	 * settings table is (re)built if the settings have changed since the last
+	 * call and the snapshot is derived from the table if run index changed.
+	 *
+	 * @return The snapshot for the current run index
+	 */
+	private static SettingsTable.Snapshot getSnapshot() {
+		if (props == null) {
+			init(null);
+		}
+		if (table == null || !table.isFor(props)) {
+			table = new SettingsTable(props);
+			snapshot = null;
+		}
+		if (snapshot == null || snapshot.getTable() != table
+			|| snapshot.getRunIndex() != runIndex) {
+			snapshot = table.forRun(runIndex);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Discards the parsed settings after the properties have been modified
+	 */
+	private static void invalidateTable() {
+		table = null;
+		snapshot = null;
+	}
+
 	/**
 	 * Checks that the given integer array contains a valid range. I.e., the
 	 * length of the array must be two and
@@ -157,7 +215,7 @@ public class Settings {
 			return null;
 		}
 
-		if (props.getProperty(getFullPropertyName(setting, false)) != null) {
+		if (getSnapshot().get(this.namespace, setting) != null) {
 			return getFullPropertyName(setting, false);
 		} // not found from primary, but Settings contains -> must be from 2ndary
 		else {
@@ -234,6 +292,7 @@ public class Settings {
 		} catch (IOException e) {
 			throw new SettingsError(e);
 		}
+		invalidateTable();
 
 		outFile = props.getProperty(SETTING_OUTPUT_S);
 		if (outFile != null) {
@@ -258,6 +317,7 @@ public class Settings {
 	 */
 	public static void addSetting(String name, String value) {
 		props.put(name, value);
+		invalidateTable();
 	}
 
 	/**
@@ -274,6 +334,7 @@ public class Settings {
 		} catch (IOException e) {
 			throw new SettingsError(e);
 		}
+		invalidateTable();
 	}
 
 	/**
@@ -300,16 +361,7 @@ public class Settings {
 	 * @return True if the setting exists, false if not
 	 */
 	public boolean contains(String name) {
-		try {
-			String value = getSetting(name);
-			if (value == null) {
-				return false;
-			} else {
-				return value.trim().length() > 0;
-			}
-		} catch (SettingsError e) {
-			return false; // didn't find the setting
-		}
+		return getEntry(name) != null;
 	}
 
 	/**
@@ -341,69 +393,48 @@ public class Settings {
 	 *                       namespaces
 	 */
 	public String getSetting(String name) {
-		String fullPropName;
-		if (props == null) {
-			init(null);
-		}
-		fullPropName = getFullPropertyName(name, false);
-		String value = props.getProperty(fullPropName);
+		return getExistingEntry(name).getValue();
+	}
 
-		if (value != null) { // found value, check if run setting can be parsed
-			value = parseRunSetting(value.trim());
-		}
+	/**
+	 * Returns the snapshot entry of a setting. The entry is first looked from
+	 * the namespace that is set (if any) and then from the secondary namespace
+	 * (if any).
+	 *
+	 * @param name Name of the setting to get
+	 * @return The entry of the setting or null if the setting is not found
+	 * from either one of the namespaces
+	 */
+	private SettingsTable.Entry getEntry(String name) {
+		SettingsTable.Snapshot snap = getSnapshot();
+		SettingsTable.Entry entry = snap.get(this.namespace, name);
 
-		if ((value == null || value.length() == 0)
-			&& this.secondaryNamespace != null) {
+		if (entry == null && this.secondaryNamespace != null) {
 			// try secondary namespace if the value wasn't found from primary
-			fullPropName = getFullPropertyName(name, true);
-			value = props.getProperty(fullPropName);
-
-			if (value != null) {
-				value = parseRunSetting(value.trim());
-			}
+			entry = snap.get(this.secondaryNamespace, name);
 		}
 
-		if (value == null || value.length() == 0) {
-			throw new SettingsError("Can't find setting "
-				+ getPropertyNamesString(name));
+		if (entry != null && out != null) {
+			outputSetting(entry.getKey() + " = " + entry.getValue());
 		}
-
-		outputSetting(fullPropName + " = " + value);
-		return value;
+		return entry;
 	}
 
 	/**
-	 * Parses run-specific settings from a String value
+	 * Returns the snapshot entry of a setting that must exist.
 	 *
-	 * @param value The String to parse
-	 * @return The runIndex % arrayLength'th value of the run array
+	 * @param name Name of the setting to get
+	 * @return The entry of the setting
+	 * @throws SettingsError if the setting is not found from either one of
+	 *                       the namespaces
 	 */
-	private static String parseRunSetting(String value) {
-		final String RUN_ARRAY_START = "[";
-		final String RUN_ARRAY_END = "]";
-		final String RUN_ARRAY_DELIM = ",";
-		final String COMMENT_PREFIX = "#";
-		final int MIN_LENGTH = 3; // minimum run is one value. e.g. "[v]"
-
-		if (!value.startsWith(RUN_ARRAY_START)
-			|| !value.endsWith(RUN_ARRAY_END)
-			|| runIndex < 0
-			|| value.length() < MIN_LENGTH) {
-			if (!(value.startsWith(RUN_ARRAY_START) && value.contains(COMMENT_PREFIX))) {
-				return value.split(COMMENT_PREFIX)[0].trim();
-			}
-			// continue to parse as array
+	private SettingsTable.Entry getExistingEntry(String name) {
+		SettingsTable.Entry entry = getEntry(name);
+		if (entry == null) {
+			throw new SettingsError("Can't find setting "
+				+ getPropertyNamesString(name));
 		}
-
-		// exclude comments and trim the extra spaces
-		value = value.split(COMMENT_PREFIX)[0].trim();
-
-		value = value.substring(1, value.length() - 1); // remove brackets
-		String[] valueArr = value.split(RUN_ARRAY_DELIM);
-		int arrIndex = runIndex % valueArr.length;
-		value = valueArr[arrIndex].trim();
-
-		return value;
+		return entry;
 	}
 
 	/**
@@ -431,7 +462,7 @@ public class Settings {
 	 * @return Value of the setting as a double
 	 */
 	public double getDouble(String name) {
-		return parseDouble(getSetting(name), name);
+		return getExistingEntry(name).getDouble(name);
 	}
 
 	/**
@@ -444,7 +475,7 @@ public class Settings {
 	 * @throws SettingsError if the value wasn't a numeric value (or the suffix
 	 *                       wasn't recognized)
 	 */
-	private double parseDouble(String value, String setting) {
+	static double parseDouble(String value, String setting) {
 		double number;
 		int multiplier = 1;
 
@@ -478,16 +509,7 @@ public class Settings {
 	 * @throws SettingsError if something went wrong with reading
 	 */
 	public String[] getCsvSetting(String name) {
-		ArrayList<String> values = new ArrayList<String>();
-		String csv = getSetting(name);
-		Scanner s = new Scanner(csv);
-		s.useDelimiter(",");
-
-		while (s.hasNext()) {
-			values.add(s.next().trim());
-		}
-
-		return values.toArray(new String[0]);
+		return getExistingEntry(name).getCsv().clone();
 	}
 
 	/**
@@ -503,14 +525,24 @@ public class Settings {
 	 */
 	public String[] getCsvSetting(String name, int expectedCount) {
 		String[] values = getCsvSetting(name);
+		assertCsvCount(values.length, name, expectedCount);
+		return values;
+	}
 
-		if (values.length != expectedCount) {
-			throw new SettingsError("Read unexpected amount (" + values.length
+	/**
+	 * Checks that the amount of comma separated values is the expected one
+	 *
+	 * @param count         Number of values read
+	 * @param name          Name of the setting (for error messages)
+	 * @param expectedCount how many values are expected
+	 * @throws SettingsError if the count wasn't the expected count
+	 */
+	private void assertCsvCount(int count, String name, int expectedCount) {
+		if (count != expectedCount) {
+			throw new SettingsError("Read unexpected amount (" + count
 				+ ") of comma separated values for setting '"
 				+ name + "' (expected " + expectedCount + ")");
 		}
-
-		return values;
 	}
 
 	/**
@@ -523,7 +555,9 @@ public class Settings {
 	 * @see #getCsvSetting(String, int)
 	 */
 	public double[] getCsvDoubles(String name, int expectedCount) {
-		return parseDoubles(getCsvSetting(name, expectedCount), name);
+		double[] values = getExistingEntry(name).getCsvDoubles(name);
+		assertCsvCount(values.length, name, expectedCount);
+		return values.clone();
 	}
 
 	/**
@@ -534,22 +568,7 @@ public class Settings {
 	 * @see #getCsvSetting(String)
 	 */
 	public double[] getCsvDoubles(String name) {
-		return parseDoubles(getCsvSetting(name), name);
-	}
-
-	/**
-	 * Parses a double array out of a String array
-	 *
-	 * @param strings The array of strings containin double values
-	 * @param name    Name of the setting
-	 * @return Array of double values parsed from the string values
-	 */
-	private double[] parseDoubles(String[] strings, String name) {
-		double[] values = new double[strings.length];
-		for (int i = 0; i < values.length; i++) {
-			values[i] = parseDouble(strings[i], name);
-		}
-		return values;
+		return getExistingEntry(name).getCsvDoubles(name).clone();
 	}
 
 	/**
@@ -561,7 +580,9 @@ public class Settings {
 	 * @see #getCsvSetting(String, int)
 	 */
 	public int[] getCsvInts(String name, int expectedCount) {
-		return convertToInts(getCsvDoubles(name, expectedCount), name);
+		double[] values = getExistingEntry(name).getCsvDoubles(name);
+		assertCsvCount(values.length, name, expectedCount);
+		return convertToInts(values, name);
 	}
 
 	/**
@@ -572,7 +593,7 @@ public class Settings {
 	 * @see #getCsvSetting(String, int)
 	 */
 	public int[] getCsvInts(String name) {
-		return convertToInts(getCsvDoubles(name), name);
+		return convertToInts(getExistingEntry(name).getCsvDoubles(name), name);
 	}
 
 	/**
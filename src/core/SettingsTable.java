@@ -0,0 +1,292 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Scanner;
+
+/**
+ * Pre-parsed view of the settings read from the setting file(s). All values
+ * are trimmed, stripped from comments and split into run arrays once when
+ * the table is created. Run-index specific {@link Snapshot}s are derived
+ * from the table without re-reading or re-parsing the settings files.
+ * Settings uses the snapshot of the current run index for all lookups.
+ */
+final class SettingsTable {
+	/** Start of a run array ({@value}) */
+	private static final String RUN_ARRAY_START = "[";
+	/** End of a run array ({@value}) */
+	private static final String RUN_ARRAY_END = "]";
+	/** Delimiter of run array values ({@value}) */
+	private static final String RUN_ARRAY_DELIM = ";";
+	/** Delimiter of run array values if no {@link #RUN_ARRAY_DELIM} is
+	 * used in the array ({@value}) */
+	private static final String RUN_ARRAY_ALT_DELIM = ",";
+	/** Prefix of comments in setting values ({@value}) */
+	private static final String COMMENT_PREFIX = "#";
+	/** Minimum length of a run array, one value, e.g. "[v]" */
+	private static final int MIN_LENGTH = 3;
+
+	/** The properties this table was created from */
+	private final Properties source;
+	/** Comment-stripped setting values by full setting name */
+	private final Map<String, String> values;
+	/** Run array values of the settings that define a run array */
+	private final Map<String, String[]> runArrays;
+	/** Snapshots derived from this table by run index */
+	private final Map<Integer, Snapshot> snapshots;
+
+	/**
+	 * Creates a new table from properties
+	 * @param props The properties to parse
+	 */
+	SettingsTable(Properties props) {
+		this.source = props;
+		this.values = new HashMap<String, String>();
+		this.runArrays = new HashMap<String, String[]>();
+		this.snapshots = new HashMap<Integer, Snapshot>();
+
+		for (String key : props.stringPropertyNames()) {
+			String value = stripComment(props.getProperty(key).trim());
+			values.put(key, value);
+			String[] runArray = parseRunArray(value);
+			if (runArray != null) {
+				runArrays.put(key, runArray);
+			}
+		}
+	}
+
+	/**
+	 * Returns true if this table was created from the given properties
+	 * @param props The properties to check
+	 * @return true if this table was created from the given properties
+	 */
+	boolean isFor(Properties props) {
+		return this.source == props;
+	}
+
+	/**
+	 * Returns a snapshot of the setting values for a run index. Snapshots
+	 * are created only once per run index.
+	 * @param runIndex The run index or a negative value if run arrays should
+	 * be returned as normal values
+	 * @return The snapshot for the run index
+	 */
+	Snapshot forRun(int runIndex) {
+		Integer index = runIndex < 0 ? -1 : runIndex;
+		Snapshot s = snapshots.get(index);
+		if (s == null) {
+			s = new Snapshot(runIndex);
+			snapshots.put(index, s);
+		}
+		return s;
+	}
+
+	/**
+	 * Removes a trailing comment from a setting value
+	 */
+	private static String stripComment(String value) {
+		int commentStart = value.indexOf(COMMENT_PREFIX);
+		if (commentStart < 0) {
+			return value;
+		}
+		return value.substring(0, commentStart).trim();
+	}
+
+	/**
+	 * Parses the values of a run array setting value
+	 * @param value The (comment-stripped) setting value
+	 * @return The values of the run array or null if the value isn't a run
+	 * array
+	 */
+	private static String[] parseRunArray(String value) {
+		if (!value.startsWith(RUN_ARRAY_START) ||
+				!value.endsWith(RUN_ARRAY_END) ||
+				value.length() < MIN_LENGTH) {
+			return null;
+		}
+
+		value = value.substring(1, value.length() - 1); // remove brackets
+		String[] valueArr = value.split(value.contains(RUN_ARRAY_DELIM) ?
+				RUN_ARRAY_DELIM : RUN_ARRAY_ALT_DELIM);
+		if (valueArr.length == 0) {
+			return null;
+		}
+		for (int i = 0; i < valueArr.length; i++) {
+			valueArr[i] = valueArr[i].trim();
+		}
+		return valueArr;
+	}
+
+	/**
+	 * Immutable set of resolved setting values for one run index. Values
+	 * can be looked up with a namespace and setting name pair without
+	 * building the full setting name, and the typed values parsed from
+	 * them are cached in the {@link Entry} objects.
+	 */
+	final class Snapshot {
+		private final int runIndex;
+		/** Entries by namespace and setting name */
+		private final Map<String, Map<String, Entry>> entries;
+
+		private Snapshot(int runIndex) {
+			this.runIndex = runIndex;
+			this.entries = new HashMap<String, Map<String, Entry>>();
+
+			for (Map.Entry<String, String> e : values.entrySet()) {
+				String key = e.getKey();
+				String value = e.getValue();
+				String[] runArray = runArrays.get(key);
+				if (runArray != null && runIndex >= 0) {
+					value = runArray[runIndex % runArray.length];
+				}
+				if (value.length() == 0) {
+					continue; // empty values are handled as missing values
+				}
+
+				/* register the entry for every possible namespace split */
+				Entry entry = new Entry(key, value);
+				register(null, key, entry);
+				for (int i = key.indexOf('.'); i >= 0;
+						i = key.indexOf('.', i + 1)) {
+					register(key.substring(0, i), key.substring(i + 1), entry);
+				}
+			}
+		}
+
+		private void register(String namespace, String name, Entry entry) {
+			Map<String, Entry> nsEntries = entries.get(namespace);
+			if (nsEntries == null) {
+				nsEntries = new HashMap<String, Entry>();
+				entries.put(namespace, nsEntries);
+			}
+			nsEntries.put(name, entry);
+		}
+
+		/**
+		 * Returns the run index of this snapshot
+		 * @return the run index of this snapshot
+		 */
+		int getRunIndex() {
+			return this.runIndex;
+		}
+
+		/**
+		 * Returns the table this snapshot was derived from
+		 * @return the table this snapshot was derived from
+		 */
+		SettingsTable getTable() {
+			return SettingsTable.this;
+		}
+
+		/**
+		 * Returns the entry for a setting
+		 * @param namespace Namespace of the setting or null for none
+		 * @param name Name of the setting
+		 * @return The entry or null if there's no (non-empty) value for the
+		 * setting
+		 */
+		Entry get(String namespace, String name) {
+			Map<String, Entry> nsEntries = entries.get(namespace);
+			if (nsEntries == null) {
+				return null;
+			}
+			return nsEntries.get(name);
+		}
+	}
+
+	/**
+	 * Resolved value of one setting. Caches the typed values parsed from
+	 * the setting value.
+	 */
+	static final class Entry {
+		/** Full name of the setting */
+		private final String key;
+		/** Resolved value of the setting */
+		private final String value;
+		private volatile Double doubleValue;
+		private volatile String[] csvValues;
+		private volatile double[] csvDoubles;
+
+		private Entry(String key, String value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		/**
+		 * Returns the full name of the setting
+		 * @return the full name of the setting
+		 */
+		String getKey() {
+			return this.key;
+		}
+
+		/**
+		 * Returns the setting value
+		 * @return the setting value
+		 */
+		String getValue() {
+			return this.value;
+		}
+
+		/**
+		 * Returns the value parsed as a double
+		 * @param name Name of the setting (for error messages)
+		 * @return the value parsed as a double
+		 * @throws SettingsError if the value wasn't a numeric value
+		 */
+		double getDouble(String name) {
+			Double d = this.doubleValue;
+			if (d == null) {
+				d = Settings.parseDouble(value, name);
+				this.doubleValue = d;
+			}
+			return d;
+		}
+
+		/**
+		 * Returns the comma separated values of the setting. The returned
+		 * array is shared and must not be modified.
+		 * @return the comma separated values of the setting
+		 */
+		String[] getCsv() {
+			String[] csv = this.csvValues;
+			if (csv == null) {
+				ArrayList<String> list = new ArrayList<String>();
+				Scanner s = new Scanner(value);
+				s.useDelimiter(",");
+				while (s.hasNext()) {
+					list.add(s.next().trim());
+				}
+				csv = list.toArray(new String[0]);
+				this.csvValues = csv;
+			}
+			return csv;
+		}
+
+		/**
+		 * Returns the comma separated values of the setting parsed as
+		 * doubles. The returned array is shared and must not be modified.
+		 * @param name Name of the setting (for error messages)
+		 * @return the comma separated values as doubles
+		 * @throws SettingsError if some value wasn't a numeric value
+		 */
+		double[] getCsvDoubles(String name) {
+			double[] doubles = this.csvDoubles;
+			if (doubles == null) {
+				String[] csv = getCsv();
+				doubles = new double[csv.length];
+				for (int i = 0; i < csv.length; i++) {
+					doubles[i] = Settings.parseDouble(csv[i], name);
+				}
+				this.csvDoubles = doubles;
+			}
+			return doubles;
+		}
+	}
+}
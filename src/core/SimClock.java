@@ -4,11 +4,15 @@
  */
 package core;
 
+import java.io.Serializable;
+
 
 /**
  * Wall clock for checking the simulation time.
  */
-public class SimClock {
+public class SimClock implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	private static double clockTime = 0.0;
 	private static SimClock clock = null;
 	
@@ -47,18 +51,22 @@ public class SimClock {
 	}
 	
 	/**
-	 * Advances the time by n seconds
+	 * Advances the time by n seconds. Waits for the asynchronously
+	 * delivered events of the current time first.
 	 * @param time Nrof seconds to increase the time
 	 */
 	public void advance(double time) {
+		AsyncDelivery.drain();
 		clockTime += time;
 	}
 	
 	/**
-	 * Sets the time of the clock.
+	 * Sets the time of the clock. Waits for the asynchronously delivered
+	 * events of the current time first.
 	 * @param time the time to set
 	 */
 	public void setTime(double time) {
+		AsyncDelivery.drain();
 		clockTime = time;
 	}
 	
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event of a section measured by the
+ * {@link SimProfiler}. The class is loaded only when the profiler's JFR
+ * events are enabled.
+ */
+@Name("one.SimulationSection")
+@Label("Simulation Section")
+@Category("ONE Simulator")
+@StackTrace(false)
+class SimProfileEvent extends Event {
+	@Label("Phase")
+	String phase;
+
+	@Label("Class")
+	String owner;
+
+	@Label("Allocated")
+	@DataAmount
+	long allocated;
+
+	/**
+	 * Creates and starts a new event for a section
+	 * @param s The section
+	 * @return The event
+	 */
+	static Object begin(SimProfiler.Section s) {
+		SimProfileEvent e = new SimProfileEvent();
+		e.phase = s.getPhase();
+		e.owner = s.getOwner().getName();
+		e.begin();
+		return e;
+	}
+
+	/**
+	 * Ends and commits an event created with
+	 * {@link #begin(SimProfiler.Section)}
+	 * @param event The event
+	 * @param allocated Bytes allocated during the section
+	 */
+	static void end(Object event, long allocated) {
+		SimProfileEvent e = (SimProfileEvent)event;
+		e.allocated = allocated;
+		e.commit();
+	}
+}
@@ -0,0 +1,591 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Built-in profiler of the simulation. Measures the wall clock time and the
+ * number of allocated bytes of the simulation phases (external event
+ * processing, host movement, interface and router updates and the update,
+ * message and connection listeners) per class of the object doing the work
+ * (e.g., the router class of a router update). Phases may be nested (e.g.,
+ * a message listener is called during a router update); the time and the
+ * allocations of a nested section are excluded from the "self" values of
+ * the enclosing section.
+ * <P>
+ * The profiler is created only when it is enabled with the
+ * {@link #ENABLED_S} setting, so the cost of a disabled profiler is a null
+ * check in the world's update loop. The results can be written with
+ * {@link report.SimulationProfileReport} and, optionally, emitted as Java
+ * Flight Recorder events (see {@link #JFR_EVENTS_S}).
+ * </P>
+ */
+public class SimProfiler implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	/** Profiler settings namespace ({@value}) */
+	public static final String PROFILER_NS = "Profiler";
+	/**
+	 * Is the profiler enabled -setting id ({@value}). Boolean. Default is
+	 * false.
+	 */
+	public static final String ENABLED_S = "enabled";
+	/**
+	 * Should every profiled section also be emitted as a Java Flight Recorder
+	 * event -setting id ({@value}). Boolean. Default is false. The events
+	 * (<CODE>one.SimulationSection</CODE>) are recorded only when a flight
+	 * recording is running. Creating the events adds some allocations to the
+	 * profiled sections.
+	 */
+	public static final String JFR_EVENTS_S = "jfrEvents";
+
+	/** External event processing phase */
+	public static final String EVENTS = "events";
+	/** Host movement phase */
+	public static final String MOVEMENT = "movement";
+	/** Network interface update phase */
+	public static final String INTERFACES = "interfaces";
+	/** Router update phase */
+	public static final String ROUTERS = "routers";
+	/** Update listener phase */
+	public static final String UPDATE_LISTENERS = "updateListeners";
+	/** Message listener phase */
+	public static final String MESSAGE_LISTENERS = "messageListeners";
+	/** Connection listener phase */
+	public static final String CONNECTION_LISTENERS = "connectionListeners";
+
+	/** Initial depth of the section stack */
+	private static final int INIT_DEPTH = 8;
+
+	private transient ThreadMXBean threadMx;
+	private final boolean measureAllocations;
+	private final boolean jfrEvents;
+
+	/** Sections by phase and by owner class */
+	private Map<String, Map<Class<?>, Section>> phases;
+	/** Sections in the order they were created */
+	private List<Section> sections;
+
+	/* stack of the sections that are running */
+	private Section[] stack;
+	private long[] startNanos;
+	private long[] startBytes;
+	private long[] childNanos;
+	private long[] childBytes;
+	private transient Object[] events;
+	private int depth;
+
+	/** Wall clock time (nanoseconds) of the first profiled section */
+	private transient long runStart;
+
+	/**
+	 * Creates a new profiler
+	 * @param jfrEvents Should the sections be emitted as JFR events too
+	 */
+	public SimProfiler(boolean jfrEvents) {
+		this.threadMx = ManagementFactory.getThreadMXBean();
+		this.measureAllocations = isAllocationMeasurable(threadMx);
+		this.jfrEvents = jfrEvents;
+		this.phases = new HashMap<String, Map<Class<?>, Section>>();
+		this.sections = new ArrayList<Section>();
+
+		this.stack = new Section[INIT_DEPTH];
+		this.startNanos = new long[INIT_DEPTH];
+		this.startBytes = new long[INIT_DEPTH];
+		this.childNanos = new long[INIT_DEPTH];
+		this.childBytes = new long[INIT_DEPTH];
+		this.events = new Object[INIT_DEPTH];
+		this.depth = 0;
+		this.runStart = -1;
+	}
+
+	/**
+	 * Returns a new profiler if profiling is enabled in the settings
+	 * @return A new profiler or null if profiling is not enabled
+	 */
+	public static SimProfiler createIfEnabled() {
+		Settings s = new Settings(PROFILER_NS);
+		if (!s.contains(ENABLED_S) || !s.getBoolean(ENABLED_S)) {
+			return null;
+		}
+		boolean jfr = s.contains(JFR_EVENTS_S) && s.getBoolean(JFR_EVENTS_S);
+		return new SimProfiler(jfr);
+	}
+
+	/**
+	 * Checks whether the thread allocation counters are available (and
+	 * enables them if they are supported but not enabled)
+	 */
+	private static boolean isAllocationMeasurable(ThreadMXBean mx) {
+		if (!(mx instanceof com.sun.management.ThreadMXBean)) {
+			return false;
+		}
+		com.sun.management.ThreadMXBean smx =
+			(com.sun.management.ThreadMXBean)mx;
+		if (!smx.isThreadAllocatedMemorySupported()) {
+			return false;
+		}
+		if (!smx.isThreadAllocatedMemoryEnabled()) {
+			smx.setThreadAllocatedMemoryEnabled(true);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of bytes the current thread has allocated
+	 */
+	@SuppressWarnings("deprecation")
+	private long allocatedBytes() {
+		if (!measureAllocations) {
+			return 0;
+		}
+		return ((com.sun.management.ThreadMXBean)threadMx).
+			getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Returns the section of a phase and an owner class. The section is
+	 * created if it doesn't exist yet.
+	 * @param phase Name of the phase
+	 * @param owner Class of the object whose work is measured
+	 * @return The section
+	 */
+	public Section getSection(String phase, Class<?> owner) {
+		Map<Class<?>, Section> owners = phases.get(phase);
+		if (owners == null) {
+			owners = new HashMap<Class<?>, Section>();
+			phases.put(phase, owners);
+		}
+		Section s = owners.get(owner);
+		if (s == null) {
+			s = new Section(phase, owner);
+			owners.put(owner, s);
+			sections.add(s);
+		}
+		return s;
+	}
+
+	/**
+	 * Starts measuring a section. Every call must be followed by a call to
+	 * {@link #end()} (after the calls of any nested sections).
+	 * @param phase Name of the phase
+	 * @param owner The object whose work is measured; the section is
+	 * selected by the object's class
+	 */
+	public void begin(String phase, Object owner) {
+		begin(getSection(phase, owner.getClass()));
+	}
+
+	/**
+	 * Starts measuring a section.
+	 * @param s The section
+	 * @see #begin(String, Object)
+	 */
+	public void begin(Section s) {
+		if (depth == stack.length) {
+			grow();
+		}
+		stack[depth] = s;
+		childNanos[depth] = 0;
+		childBytes[depth] = 0;
+		if (jfrEvents) {
+			events[depth] = SimProfileEvent.begin(s);
+		}
+		startBytes[depth] = allocatedBytes();
+		long now = System.nanoTime();
+		if (runStart < 0) {
+			runStart = now;
+		}
+		startNanos[depth] = now;
+		depth++;
+	}
+
+	/**
+	 * Ends measuring the latest started section
+	 */
+	public void end() {
+		long nanos = System.nanoTime();
+		long bytes = allocatedBytes();
+		assert depth > 0 : "No profiled section running";
+		depth--;
+		nanos -= startNanos[depth];
+		bytes -= startBytes[depth];
+
+		Section s = stack[depth];
+		s.calls++;
+		s.nanos += nanos;
+		s.selfNanos += nanos - childNanos[depth];
+		s.selfBytes += bytes - childBytes[depth];
+		stack[depth] = null;
+
+		if (depth > 0) {
+			childNanos[depth - 1] += nanos;
+			childBytes[depth - 1] += bytes;
+		}
+		if (jfrEvents) {
+			SimProfileEvent.end(events[depth], bytes);
+			events[depth] = null;
+		}
+	}
+
+	/**
+	 * Doubles the size of the section stack
+	 */
+	private void grow() {
+		int size = stack.length * 2;
+		stack = Arrays.copyOf(stack, size);
+		startNanos = Arrays.copyOf(startNanos, size);
+		startBytes = Arrays.copyOf(startBytes, size);
+		childNanos = Arrays.copyOf(childNanos, size);
+		childBytes = Arrays.copyOf(childBytes, size);
+		events = Arrays.copyOf(events, size);
+	}
+
+	/**
+	 * Returns all sections that have been measured
+	 * @return The sections in the order they were first used
+	 */
+	public Collection<Section> getSections() {
+		return this.sections;
+	}
+
+	/**
+	 * Returns the wall clock time from the start of the first profiled
+	 * section until now
+	 * @return The time in nanoseconds (0 if nothing has been profiled)
+	 */
+	public long getRunNanos() {
+		return runStart < 0 ? 0 : System.nanoTime() - runStart;
+	}
+
+	/**
+	 * Returns true if the allocations are measured (i.e., the JVM supports
+	 * per thread allocation counters)
+	 * @return true if the allocations are measured
+	 */
+	public boolean isMeasuringAllocations() {
+		return this.measureAllocations;
+	}
+
+	/**
+	 * Wraps a connection listener so that its calls are profiled
+	 * @param cl The listener
+	 * @return The profiled listener
+	 */
+	public ConnectionListener profile(ConnectionListener cl) {
+		return new ProfiledConnectionListener(this, cl);
+	}
+
+	/**
+	 * Wraps a message listener so that its calls are profiled
+	 * @param ml The listener
+	 * @return The profiled listener
+	 */
+	public MessageListener profile(MessageListener ml) {
+		return new ProfiledMessageListener(this, ml);
+	}
+
+	/**
+	 * Wraps an update listener so that its calls are profiled
+	 * @param ul The listener
+	 * @return The profiled listener
+	 */
+	public UpdateListener profile(UpdateListener ul) {
+		if (ul instanceof SampledUpdateListener) {
+			return new ProfiledSampledUpdateListener(this,
+					(SampledUpdateListener)ul);
+		}
+		return new ProfiledUpdateListener(this, ul);
+	}
+
+	/**
+	 * Stores the elapsed run time instead of the start time, which is
+	 * specific to the JVM
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeLong(runStart < 0 ? -1 : getRunNanos());
+	}
+
+	private void readObject(ObjectInputStream in)
+		throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		long runNanos = in.readLong();
+		this.runStart = runNanos < 0 ? -1 : System.nanoTime() - runNanos;
+		this.threadMx = ManagementFactory.getThreadMXBean();
+		this.events = new Object[stack.length];
+	}
+
+	/**
+	 * Measurements of one phase of one class
+	 */
+	public static class Section implements Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private final String phase;
+		private final Class<?> owner;
+		private long calls;
+		private long nanos;
+		private long selfNanos;
+		private long selfBytes;
+
+		private Section(String phase, Class<?> owner) {
+			this.phase = phase;
+			this.owner = owner;
+		}
+
+		/** @return Name of the phase */
+		public String getPhase() {
+			return phase;
+		}
+
+		/** @return The class whose work was measured */
+		public Class<?> getOwner() {
+			return owner;
+		}
+
+		/** @return Number of times the section was run */
+		public long getCalls() {
+			return calls;
+		}
+
+		/** @return Total wall clock time (nanoseconds) */
+		public long getNanos() {
+			return nanos;
+		}
+
+		/** @return Wall clock time without nested sections (nanoseconds) */
+		public long getSelfNanos() {
+			return selfNanos;
+		}
+
+		/** @return Allocated bytes without nested sections */
+		public long getSelfBytes() {
+			return selfBytes;
+		}
+	}
+
+	/**
+	 * Listener whose calls are profiled. The listener lists classify the
+	 * listener (as selective or passive) by the listener it wraps.
+	 * @param <L> Type of the listener
+	 * @see ListenerList
+	 */
+	interface ProfiledListener<L> {
+		/**
+		 * Returns the listener whose calls are profiled
+		 * @return The wrapped listener
+		 */
+		L getListener();
+
+		/**
+		 * Returns a listener whose calls are profiled in the same section
+		 * as the calls of this listener (e.g., the asynchronous version of
+		 * the wrapped listener)
+		 * @param listener The listener to wrap
+		 * @return The profiled listener
+		 */
+		L wrap(L listener);
+	}
+
+	/**
+	 * Connection listener whose calls are profiled
+	 */
+	private static class ProfiledConnectionListener
+		implements InterfaceConnectionListener,
+		ProfiledListener<ConnectionListener>, Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private final SimProfiler profiler;
+		private final ConnectionListener cl;
+		private final Section s;
+
+		public ProfiledConnectionListener(SimProfiler profiler,
+				ConnectionListener cl) {
+			this(profiler, cl,
+				profiler.getSection(CONNECTION_LISTENERS, cl.getClass()));
+		}
+
+		private ProfiledConnectionListener(SimProfiler profiler,
+				ConnectionListener cl, Section s) {
+			this.profiler = profiler;
+			this.cl = cl;
+			this.s = s;
+		}
+
+		public ConnectionListener getListener() {
+			return cl;
+		}
+
+		public ConnectionListener wrap(ConnectionListener listener) {
+			return new ProfiledConnectionListener(profiler, listener, s);
+		}
+
+		public void hostsConnected(DTNHost host1, DTNHost host2) {
+			profiler.begin(s);
+			cl.hostsConnected(host1, host2);
+			profiler.end();
+		}
+
+		public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+			profiler.begin(s);
+			cl.hostsDisconnected(host1, host2);
+			profiler.end();
+		}
+
+		public void interfacesConnected(NetworkInterface ni1,
+				NetworkInterface ni2) {
+			profiler.begin(s);
+			ConnectionListenerList.connected(cl, ni1, ni2);
+			profiler.end();
+		}
+
+		public void interfacesDisconnected(NetworkInterface ni1,
+				NetworkInterface ni2) {
+			profiler.begin(s);
+			ConnectionListenerList.disconnected(cl, ni1, ni2);
+			profiler.end();
+		}
+	}
+
+	/**
+	 * Message listener whose calls are profiled
+	 */
+	private static class ProfiledMessageListener
+		implements MessageListener, ProfiledListener<MessageListener>,
+		Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private final SimProfiler profiler;
+		private final MessageListener ml;
+		private final Section s;
+
+		public ProfiledMessageListener(SimProfiler profiler,
+				MessageListener ml) {
+			this(profiler, ml,
+				profiler.getSection(MESSAGE_LISTENERS, ml.getClass()));
+		}
+
+		private ProfiledMessageListener(SimProfiler profiler,
+				MessageListener ml, Section s) {
+			this.profiler = profiler;
+			this.ml = ml;
+			this.s = s;
+		}
+
+		public MessageListener getListener() {
+			return ml;
+		}
+
+		public MessageListener wrap(MessageListener listener) {
+			return new ProfiledMessageListener(profiler, listener, s);
+		}
+
+		public void newMessage(Message m) {
+			profiler.begin(s);
+			ml.newMessage(m);
+			profiler.end();
+		}
+
+		public void messageTransferStarted(Message m, DTNHost from,
+				DTNHost to) {
+			profiler.begin(s);
+			ml.messageTransferStarted(m, from, to);
+			profiler.end();
+		}
+
+		public void messageDeleted(Message m, DTNHost where, boolean dropped) {
+			profiler.begin(s);
+			ml.messageDeleted(m, where, dropped);
+			profiler.end();
+		}
+
+		public void messageTransferAborted(Message m, DTNHost from,
+				DTNHost to) {
+			profiler.begin(s);
+			ml.messageTransferAborted(m, from, to);
+			profiler.end();
+		}
+
+		public void messageTransferred(Message m, DTNHost from, DTNHost to,
+				boolean firstDelivery) {
+			profiler.begin(s);
+			ml.messageTransferred(m, from, to, firstDelivery);
+			profiler.end();
+		}
+	}
+
+	/**
+	 * Update listener whose calls are profiled
+	 */
+	private static class ProfiledUpdateListener
+		implements UpdateListener, ProfiledListener<UpdateListener>,
+		Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private final SimProfiler profiler;
+		private final UpdateListener ul;
+		private final Section s;
+
+		public ProfiledUpdateListener(SimProfiler profiler, UpdateListener ul) {
+			this(profiler, ul,
+				profiler.getSection(UPDATE_LISTENERS, ul.getClass()));
+		}
+
+		private ProfiledUpdateListener(SimProfiler profiler,
+				UpdateListener ul, Section s) {
+			this.profiler = profiler;
+			this.ul = ul;
+			this.s = s;
+		}
+
+		public UpdateListener getListener() {
+			return ul;
+		}
+
+		public UpdateListener wrap(UpdateListener listener) {
+			return new ProfiledUpdateListener(profiler, listener, s);
+		}
+
+		public void updated(List<DTNHost> hosts) {
+			profiler.begin(s);
+			ul.updated(hosts);
+			profiler.end();
+		}
+	}
+
+	/**
+	 * Sampled update listener whose calls are profiled. The next update
+	 * time is asked from the wrapped listener without profiling.
+	 */
+	private static class ProfiledSampledUpdateListener
+		extends ProfiledUpdateListener implements SampledUpdateListener {
+		private static final long serialVersionUID = 42L;
+
+		private final SampledUpdateListener sul;
+
+		public ProfiledSampledUpdateListener(SimProfiler profiler,
+				SampledUpdateListener sul) {
+			super(profiler, sul);
+			this.sul = sul;
+		}
+
+		public double getNextUpdateTime() {
+			return sul.getNextUpdateTime();
+		}
+	}
+}
@@ -4,9 +4,12 @@
  */
 package core;
 
+import input.ContactTraceQueue;
+import input.ContactTraceRecorder;
 import input.EventQueue;
 import input.EventQueueHandler;
 
+import java.io.File;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -39,6 +42,26 @@ public class SimScenario implements Serializable {
 	public static final String UP_INT_S = "updateInterval";
 	/** simulate connections -setting id ({@value})*/
 	public static final String SIM_CON_S = "simulateConnections";
+	/** contact trace file -setting id ({@value}). Path of the file where
+	 * the contacts (connection events) of the scenario are recorded to or
+	 * replayed from. Supports value filling. */
+	public static final String CONTACT_TRACE_S = "contactTrace";
+	/** contact trace mode -setting id ({@value}). One of
+	 * {@link #TRACE_AUTO}, {@link #TRACE_RECORD}, {@link #TRACE_REPLAY} or
+	 * {@link #TRACE_VERIFY}. Default is {@link #TRACE_AUTO}. */
+	public static final String CONTACT_TRACE_MODE_S = "contactTraceMode";
+	/** contact trace mode: replay if the trace exists, otherwise record
+	 * ({@value}) */
+	public static final String TRACE_AUTO = "auto";
+	/** contact trace mode: simulate movement and connectivity and record the
+	 * contacts ({@value}) */
+	public static final String TRACE_RECORD = "record";
+	/** contact trace mode: replay the contacts without simulating movement
+	 * or connectivity ({@value}) */
+	public static final String TRACE_REPLAY = "replay";
+	/** contact trace mode: simulate movement and connectivity and check that
+	 * the contacts are the same as in the trace ({@value}) */
+	public static final String TRACE_VERIFY = "verify";
 
 	/** namespace for interface type settings ({@value}) */
 	public static final String INTTYPE_NS = "Interface";
@@ -108,6 +131,15 @@ public class SimScenario implements Serializable {
 	private boolean simulateConnections;
 	/** Map used for host movement (if any) */
 	private SimMap simMap;
+	/** Contact trace recorder or verifier (or null if not used) */
+	private ContactTraceRecorder contactTraceRecorder;
+	/** Number of connection events that matched the verified contact trace
+	 * (or -1 if no trace has been verified) */
+	private long nrofVerifiedEvents = -1;
+	/** Are the contacts replayed from a contact trace */
+	private boolean replayContacts;
+	/** Profiler of the simulation (or null if profiling is not enabled) */
+	private SimProfiler profiler;
 
 	/** Global connection event listeners */
 	private List<ConnectionListener> connectionListeners;
@@ -148,12 +180,13 @@ public class SimScenario implements Serializable {
 		this.simMap = null;
 		this.maxHostRange = 1;
 
-		this.connectionListeners = new ArrayList<ConnectionListener>();
-		this.messageListeners = new ArrayList<MessageListener>();
+		this.connectionListeners = new ConnectionListenerList();
+		this.messageListeners = new MessageListenerList();
 		this.movementListeners = new ArrayList<MovementListener>();
-		this.updateListeners = new ArrayList<UpdateListener>();
+		this.updateListeners = new UpdateListenerList();
 		this.appListeners = new ArrayList<ApplicationListener>();
 		this.eqHandler = new EventQueueHandler();
+		this.profiler = SimProfiler.createIfEnabled();
 
 		/* TODO: check size from movement models */
 		s.setNameSpace(MovementModel.MOVEMENT_MODEL_NS);
@@ -162,12 +195,142 @@ public class SimScenario implements Serializable {
 		this.worldSizeY = worldSize[1];
 		
 		createHosts();
+		initContactTrace();
 		
 		this.world = new World(hosts, worldSizeX, worldSizeY, updateInterval, 
 				updateListeners, simulateConnections, 
 				eqHandler.getEventQueues());
+		if (replayContacts) {
+			world.setSimulateMovement(false);
+		}
+		world.setProfiler(profiler);
+	}
+
+	/**
+	 * Sets up recording, replaying or verification of the contact trace
+	 * if a contact trace file is defined
+	 */
+	private void initContactTrace() {
+		Settings s = new Settings(SCENARIO_NS);
+		this.replayContacts = false;
+		if (!s.contains(CONTACT_TRACE_S)) {
+			return;
+		}
+
+		File file = new File(s.valueFillString(s.getSetting(CONTACT_TRACE_S)));
+		String mode = TRACE_AUTO;
+		if (s.contains(CONTACT_TRACE_MODE_S)) {
+			mode = s.getSetting(CONTACT_TRACE_MODE_S);
+		}
+		if (mode.equals(TRACE_AUTO)) {
+			mode = file.exists() ? TRACE_REPLAY : TRACE_RECORD;
+		}
+
+		if (mode.equals(TRACE_REPLAY)) {
+			/* contacts come from the trace; no movement or connectivity */
+			eqHandler.getEventQueues().add(
+					new ContactTraceQueue(file, hosts.size()));
+			this.simulateConnections = false;
+			this.replayContacts = true;
+		}
+		else if (mode.equals(TRACE_RECORD) || mode.equals(TRACE_VERIFY)) {
+			this.contactTraceRecorder = new ContactTraceRecorder(file, hosts,
+					mode.equals(TRACE_VERIFY));
+			addConnectionListener(contactTraceRecorder);
+		}
+		else {
+			throw new SettingsError("Unknown " + SCENARIO_NS + "." +
+					CONTACT_TRACE_MODE_S + " value \"" + mode + "\"");
+		}
+	}
+
+	/**
+	 * Runs maintenance jobs that are needed at the end of the simulation,
+	 * e.g., finishes the contact trace recording or verification
+	 */
+	public void done() {
+		if (contactTraceRecorder == null) {
+			return;
+		}
+		contactTraceRecorder.done();
+		if (contactTraceRecorder.isVerified()) {
+			this.nrofVerifiedEvents = contactTraceRecorder.getNrofEvents();
+		}
+		contactTraceRecorder = null;
+	}
+
+	/**
+	 * Returns the number of connection events that matched the contact
+	 * trace in the verify mode. Known after {@link #done()}.
+	 * @return The number of verified events or -1 if no trace was verified
+	 */
+	public long getNrofVerifiedEvents() {
+		return this.nrofVerifiedEvents;
 	}
 	
+	/**
+	 * Reads the settings that may differ from the ones the scenario was
+	 * created with when a simulation is resumed from a snapshot (the end
+	 * time of the simulation)
+	 * @see Checkpoint
+	 */
+	public void readResumeSettings() {
+		Settings s = new Settings(SCENARIO_NS);
+		this.endTime = s.getDouble(END_TIME_S);
+		ensurePositiveValue(endTime, END_TIME_S);
+	}
+
+	/**
+	 * Prepares a scenario restored from a shared warm-up snapshot for a run
+	 * with the current settings: reads the name and the end time of the
+	 * scenario again and replaces the routers of the hosts with new ones
+	 * created from the current router settings of the host groups. The
+	 * routers must not have any messages or connections yet and they must
+	 * not be subscribed to the communication buses of the hosts.
+	 * @see WarmupFork
+	 */
+	public void fork() {
+		for (DTNHost host : hosts) {
+			if (host.getRouter() instanceof ModuleCommunicationListener) {
+				throw new SimError("Can't fork the routers of the warm-up: " +
+						host.getRouter().getClass().getName() + " uses the " +
+						"communication bus of the hosts");
+			}
+		}
+
+		Settings s = new Settings(SCENARIO_NS);
+		this.name = s.valueFillString(s.getSetting(NAME_S));
+		readResumeSettings();
+		if (s.getInt(NROF_GROUPS_S) != nrofGroups) {
+			throw new SettingsError("Can't fork: the warm-up has " +
+					nrofGroups + " host groups");
+		}
+
+		/* static state of the old routers (e.g., oracles) */
+		DTNSim.resetSubclassesOf(MessageRouter.class);
+		int hostIndex = 0;
+		for (int i=1; i<=nrofGroups; i++) {
+			Settings gs = new Settings(GROUP_NS+i);
+			gs.setSecondaryNamespace(GROUP_NS);
+			int nrofHosts = gs.getInt(NROF_HOSTS_S);
+			if (hostIndex + nrofHosts > hosts.size()) {
+				throw new SettingsError("Can't fork: the warm-up has only " +
+						hosts.size() + " hosts");
+			}
+			MessageRouter mRouterProto =
+				(MessageRouter)gs.createIntializedObject(ROUTING_PACKAGE +
+						gs.getSetting(ROUTER_S));
+			addApplications(gs, mRouterProto);
+			for (int j=0; j<nrofHosts; j++) {
+				hosts.get(hostIndex++).setRouter(mRouterProto.replicate());
+			}
+		}
+		if (hostIndex != hosts.size()) {
+			throw new SettingsError("Can't fork: the warm-up has " +
+					hosts.size() + " hosts");
+		}
+	}
+
 	/**
 	 * Returns the SimScenario instance and creates one if it doesn't exist yet
 	 */
@@ -266,18 +429,35 @@ public class SimScenario implements Serializable {
 	}
 
 	/**
-	 * Adds a new connection listener for all nodes
+	 * Returns the profiler of the simulation
+	 * @return The profiler or null if profiling is not enabled
+	 * @see SimProfiler#ENABLED_S
+	 */
+	public SimProfiler getProfiler() {
+		return this.profiler;
+	}
+
+	/**
+	 * Adds a new connection listener for all nodes (wrapped in a profiling
+	 * listener if profiling is enabled)
 	 * @param cl The listener
 	 */
 	public void addConnectionListener(ConnectionListener cl){
+		if (profiler != null) {
+			cl = profiler.profile(cl);
+		}
 		this.connectionListeners.add(cl);
 	}
 
 	/**
-	 * Adds a new message listener for all nodes
+	 * Adds a new message listener for all nodes (wrapped in a profiling
+	 * listener if profiling is enabled)
 	 * @param ml The listener
 	 */
 	public void addMessageListener(MessageListener ml){
+		if (profiler != null) {
+			ml = profiler.profile(ml);
+		}
 		this.messageListeners.add(ml);
 	}
 
@@ -290,10 +470,14 @@ public class SimScenario implements Serializable {
 	}
 
 	/**
-	 * Adds a new update listener for the world
+	 * Adds a new update listener for the world (wrapped in a profiling
+	 * listener if profiling is enabled)
 	 * @param ul The listener
 	 */
 	public void addUpdateListener(UpdateListener ul) {
+		if (profiler != null) {
+			ul = profiler.profile(ul);
+		}
 		this.updateListeners.add(ul);
 	}
 
@@ -335,7 +519,6 @@ public class SimScenario implements Serializable {
 			String gid = s.getSetting(GROUP_ID_S);
 			int nrofHosts = s.getInt(NROF_HOSTS_S);
 			int nrofInterfaces = s.getInt(NROF_INTERF_S);
-			int appCount;
 
 			// creates prototypes of MessageRouter and MovementModel
 			MovementModel mmProto = 
@@ -361,34 +544,7 @@ public class SimScenario implements Serializable {
 			}
 
 			// setup applications
-			if (s.contains(APPCOUNT_S)) {
-				appCount = s.getInt(APPCOUNT_S);
-			} else {
-				appCount = 0;
-			}
-			for (int j=1; j<=appCount; j++) {
-				String appname = null;
-				Application protoApp = null;
-				try {
-					// Get name of the application for this group
-					appname = s.getSetting(GAPPNAME_S+j);
-					// Get settings for the given application
-					Settings t = new Settings(appname);
-					// Load an instance of the application
-					protoApp = (Application)t.createIntializedObject(
-							APP_PACKAGE + t.getSetting(APPTYPE_S));
-					// Set application listeners
-					protoApp.setAppListeners(this.appListeners);
-					// Set the proto application in proto router
-					//mRouterProto.setApplication(protoApp);
-					mRouterProto.addApplication(protoApp);
-				} catch (SettingsError se) {
-					// Failed to create an application for this group
-					System.err.println("Failed to setup an application: " + se);
-					System.err.println("Caught at " + se.getStackTrace()[0]);
-					System.exit(-1);
-				}
-			}
+			addApplications(s, mRouterProto);
 
 			if (mmProto instanceof MapBasedMovement) {
 				this.simMap = ((MapBasedMovement)mmProto).getMap();
@@ -408,6 +564,43 @@ public class SimScenario implements Serializable {
 		}
 	}
 
+	/**
+	 * Adds the applications of a host group to a router prototype
+	 * @param s The settings of the group
+	 * @param mRouterProto The router prototype
+	 */
+	private void addApplications(Settings s, MessageRouter mRouterProto) {
+		int appCount;
+		if (s.contains(APPCOUNT_S)) {
+			appCount = s.getInt(APPCOUNT_S);
+		} else {
+			appCount = 0;
+		}
+		for (int j=1; j<=appCount; j++) {
+			String appname = null;
+			Application protoApp = null;
+			try {
+				// Get name of the application for this group
+				appname = s.getSetting(GAPPNAME_S+j);
+				// Get settings for the given application
+				Settings t = new Settings(appname);
+				// Load an instance of the application
+				protoApp = (Application)t.createIntializedObject(
+						APP_PACKAGE + t.getSetting(APPTYPE_S));
+				// Set application listeners
+				protoApp.setAppListeners(this.appListeners);
+				// Set the proto application in proto router
+				//mRouterProto.setApplication(protoApp);
+				mRouterProto.addApplication(protoApp);
+			} catch (SettingsError se) {
+				// Failed to create an application for this group
+				System.err.println("Failed to setup an application: " + se);
+				System.err.println("Caught at " + se.getStackTrace()[0]);
+				System.exit(-1);
+			}
+		}
+	}
+
 	/**
 	 * Returns the list of nodes for this scenario.
 	 * @return the list of nodes for this scenario.
@@ -0,0 +1,108 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package core;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.List;
+
+import core.SelectiveListener.Event;
+
+/**
+ * List of update listeners that is also an update listener: every update
+ * is dispatched to the listeners that handle updates and, for
+ * {@link SampledUpdateListener}s, only when their next update is due.
+ * @see ListenerList
+ */
+public class UpdateListenerList extends ListenerList<UpdateListener>
+		implements UpdateListener {
+	private static final long serialVersionUID = 42L;
+
+	private static final UpdateListener[] NONE = new UpdateListener[0];
+
+	private transient UpdateListener[] updated = NONE;
+	/** Time of the next update of the listeners of {@link #updated} */
+	private transient double[] nextUpdates = new double[0];
+
+	/**
+	 * Returns an update listener that dispatches the updates to all the
+	 * listeners of a list
+	 * @param listeners The listeners
+	 * @return The list itself if it is an update listener list, a
+	 * dispatcher that iterates the list otherwise
+	 */
+	public static UpdateListener dispatcherFor(List<UpdateListener> listeners) {
+		if (listeners instanceof UpdateListenerList) {
+			return (UpdateListenerList)listeners;
+		}
+		return new ListDispatcher(listeners);
+	}
+
+	@Override
+	protected void updateHandlers() {
+		updated = getHandlers(NONE, Event.UPDATED);
+		nextUpdates = new double[updated.length];
+		for (int i = 0; i < updated.length; i++) {
+			nextUpdates[i] = getNextUpdateTime(updated[i]);
+		}
+	}
+
+	/**
+	 * Update listeners read the state of the hosts, so they are always
+	 * called synchronously
+	 */
+	@Override
+	protected UpdateListener async(UpdateListener listener) {
+		return listener;
+	}
+
+	public void updated(List<DTNHost> hosts) {
+		double time = SimClock.getTime();
+		for (int i = 0; i < updated.length; i++) {
+			if (time < nextUpdates[i]) {
+				continue;
+			}
+			updated[i].updated(hosts);
+			nextUpdates[i] = getNextUpdateTime(updated[i]);
+		}
+	}
+
+	/**
+	 * Returns the time of the next update a listener needs
+	 */
+	private static double getNextUpdateTime(UpdateListener ul) {
+		if (ul instanceof SampledUpdateListener) {
+			return ((SampledUpdateListener)ul).getNextUpdateTime();
+		}
+		return Double.NEGATIVE_INFINITY;
+	}
+
+	private void readObject(ObjectInputStream in)
+		throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		updateHandlers();
+	}
+
+	/**
+	 * Dispatcher for plain listener lists (e.g., in unit tests)
+	 */
+	private static class ListDispatcher implements UpdateListener,
+			Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private final List<UpdateListener> listeners;
+
+		private ListDispatcher(List<UpdateListener> listeners) {
+			this.listeners = listeners;
+		}
+
+		public void updated(List<DTNHost> hosts) {
+			for (UpdateListener ul : listeners) {
+				ul.updated(hosts);
+			}
+		}
+	}
+}
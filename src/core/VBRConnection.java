@@ -11,6 +11,8 @@ import routing.MessageRouter;
  * is updated every round from the end point transmission speeds
  */
 public class VBRConnection extends Connection {
+	private static final long serialVersionUID = 42L;
+
 	private int msgsize;
 	private int msgsent;
 	private int currentspeed = 0;
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import ui.DTNSimTextUI;
+import ui.DTNSimUI;
+
+/**
+ * Batch runs that share one movement warm-up. The world and the hosts are
+ * created and the movement model warm-up is simulated once, with the
+ * settings of the first run, and stored as a {@link Checkpoint} snapshot.
+ * Every run of the batch then forks from a copy of the snapshot: the
+ * routers of the hosts and the reports are created from the run's own
+ * settings and the scenario name and end time are read again (see
+ * {@link SimScenario#fork()}). All other settings (e.g., movement, groups
+ * and event generators) are the ones of the first run.
+ * <P>
+ * Every run is simulated in a new Java process that only restores the
+ * snapshot and simulates the run. The static state of the simulator
+ * classes is not all stored in the snapshot, so a run that followed the
+ * warm-up or another run in the same process could produce different
+ * results. {@link #NROF_PROCESSES_S} processes are run at a time.
+ * </P>
+ */
+public class WarmupFork {
+	/** Warm-up fork settings namespace ({@value}) */
+	public static final String FORK_NS = "Fork";
+	/**
+	 * Fork the batch runs from a shared warm-up -setting id ({@value}).
+	 * Boolean. Default is false.
+	 */
+	public static final String ENABLED_S = "enabled";
+	/**
+	 * Number of runs to simulate in parallel -setting id ({@value}).
+	 * Default is 1 (runs are simulated one after another).
+	 */
+	public static final String NROF_PROCESSES_S = "nrofProcesses";
+	/**
+	 * Warm-up snapshot to fork the runs from -setting id ({@value}).
+	 * If not set, the warm-up is simulated and stored in a temporary file.
+	 * Supports value filling.
+	 */
+	public static final String SNAPSHOT_S = "snapshot";
+
+	private final String[] confFiles;
+	private final String cmdSettings;
+
+	/**
+	 * Creates a warm-up fork for batch runs
+	 * @param confFiles The configuration files of the runs
+	 * @param cmdSettings The settings given in the command line or null
+	 */
+	public WarmupFork(String[] confFiles, String cmdSettings) {
+		this.confFiles = confFiles;
+		this.cmdSettings = cmdSettings;
+	}
+
+	/**
+	 * Returns true if the batch runs should be forked from a shared warm-up
+	 * @return True if the runs should be forked
+	 */
+	public static boolean isEnabled() {
+		Settings s = new Settings(FORK_NS);
+		return (s.contains(ENABLED_S) && s.getBoolean(ENABLED_S)) ||
+			s.contains(SNAPSHOT_S);
+	}
+
+	/**
+	 * Returns the warm-up snapshot the settings request the run to be
+	 * forked from
+	 * @return The snapshot file or null if the run should not be forked
+	 */
+	public static File getSnapshotFile() {
+		Settings s = new Settings(FORK_NS);
+		if (!s.contains(SNAPSHOT_S)) {
+			return null;
+		}
+		return new File(s.valueFillString(s.getSetting(SNAPSHOT_S)));
+	}
+
+	/**
+	 * Simulates the runs of a batch
+	 * @param firstRun Index of the first run
+	 * @param endRun Index of the last run + 1
+	 */
+	public void run(int firstRun, int endRun) {
+		File snapshot = getSnapshotFile();
+		if (snapshot != null && endRun - firstRun == 1) {
+			/* a single run from an existing snapshot: nothing has been
+			 * simulated in this process yet */
+			DTNSim.print("Run " + (firstRun + 1) + "/" + endRun);
+			Settings.setRunIndex(firstRun);
+			DTNSim.resetForNextRun();
+			new DTNSimTextUI().start();
+			return;
+		}
+
+		if (snapshot == null) {
+			Settings.setRunIndex(firstRun);
+			DTNSim.resetForNextRun();
+			try {
+				snapshot = File.createTempFile("warmup", Checkpoint.FILE_SUFFIX);
+			} catch (IOException e) {
+				throw new SimError("Can't create warm-up snapshot file: " +
+						e.getMessage(), e);
+			}
+			snapshot.deleteOnExit();
+			writeWarmup(snapshot);
+			Settings.addSetting(FORK_NS + "." + SNAPSHOT_S,
+					snapshot.getAbsolutePath());
+		}
+
+		Settings s = new Settings(FORK_NS);
+		int nrofProcesses = s.contains(NROF_PROCESSES_S) ?
+				s.getInt(NROF_PROCESSES_S) : 1;
+		if (nrofProcesses < 1) {
+			throw new SettingsError(FORK_NS + "." + NROF_PROCESSES_S +
+					" must be at least 1");
+		}
+		runProcesses(snapshot, firstRun, endRun, nrofProcesses);
+	}
+
+	/**
+	 * Creates the scenario, simulates the movement warm-up and writes the
+	 * state to a snapshot file
+	 * @param file The snapshot file
+	 */
+	private void writeWarmup(File file) {
+		DTNSim.print("Simulating the shared warm-up");
+		try {
+			SimScenario scen = SimScenario.getInstance();
+			Settings s = new Settings();
+			double warmupTime = 0;
+			if (s.contains(DTNSimUI.MM_WARMUP_S)) {
+				warmupTime = s.getDouble(DTNSimUI.MM_WARMUP_S);
+				if (warmupTime > 0) {
+					SimClock.getInstance().setTime(-warmupTime);
+				}
+			}
+			scen.getWorld().warmupMovementModel(warmupTime);
+			Checkpoint.write(file, new ArrayList<Serializable>());
+		}
+		catch (SettingsError se) {
+			System.err.println("Can't start: error in configuration file(s)");
+			System.err.println(se.getMessage());
+			System.exit(-1);
+		}
+		catch (SimError er) {
+			System.err.println("Can't start: " + er.getMessage());
+			System.err.println("Caught at " + er.getStackTrace()[0]);
+			System.exit(-1);
+		}
+	}
+
+	/**
+	 * Simulates the runs in separate Java processes
+	 * @param snapshot The warm-up snapshot file
+	 * @param firstRun Index of the first run
+	 * @param endRun Index of the last run + 1
+	 * @param nrofProcesses Maximum number of processes at a time
+	 */
+	private void runProcesses(File snapshot, int firstRun, int endRun,
+			int nrofProcesses) {
+		LinkedList<Process> running = new LinkedList<Process>();
+		int nrofFailed = 0;
+		for (int i = firstRun; i < endRun; i++) {
+			if (running.size() == nrofProcesses) {
+				nrofFailed += waitFor(running.removeFirst());
+			}
+			ProcessBuilder pb = new ProcessBuilder(getCommand(snapshot, i));
+			pb.inheritIO();
+			try {
+				running.add(pb.start());
+			} catch (IOException e) {
+				System.err.println("Can't start process for run " + (i + 1) +
+						": " + e.getMessage());
+				System.exit(-1);
+			}
+		}
+		while (!running.isEmpty()) {
+			nrofFailed += waitFor(running.removeFirst());
+		}
+		if (nrofFailed > 0) {
+			System.err.println(nrofFailed + " of the forked runs failed");
+			System.exit(-1);
+		}
+	}
+
+	/**
+	 * Waits for a process to finish
+	 * @return 0 if the process succeeded, 1 if it failed
+	 */
+	private int waitFor(Process p) {
+		try {
+			return p.waitFor() == 0 ? 0 : 1;
+		} catch (InterruptedException e) {
+			p.destroy();
+			return 1;
+		}
+	}
+
+	/**
+	 * Returns the command line of a Java process that simulates one run
+	 * @param snapshot The warm-up snapshot file
+	 * @param run Index of the run
+	 */
+	private List<String> getCommand(File snapshot, int run) {
+		List<String> cmd = new ArrayList<String>();
+		cmd.add(System.getProperty("java.home") + File.separator + "bin" +
+				File.separator + "java");
+		cmd.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+		cmd.add("-cp");
+		cmd.add(System.getProperty("java.class.path"));
+		cmd.add(DTNSim.class.getName());
+		cmd.add(DTNSim.BATCH_MODE_FLAG);
+		cmd.add((run + 1) + DTNSim.RANGE_DELIMETER + (run + 1));
+		cmd.add(DTNSim.SETTING_DEF_FLAG);
+		String forkSettings = FORK_NS + "." + SNAPSHOT_S + "=" +
+			snapshot.getAbsolutePath() + DTNSim.CMD_SETTING_DELIMITER +
+			FORK_NS + "." + NROF_PROCESSES_S + "=1";
+		cmd.add(cmdSettings == null ? forkSettings :
+			cmdSettings + DTNSim.CMD_SETTING_DELIMITER + forkSettings);
+		for (String conf : confFiles) {
+			cmd.add(conf);
+		}
+		return cmd;
+	}
+}
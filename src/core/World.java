@@ -9,6 +9,7 @@ import input.ExternalEvent;
 import input.ScheduledUpdatesQueue;
 import interfaces.ConnectivityGrid;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -18,7 +19,9 @@ import java.util.Random;
  * World contains all the nodes and is responsible for updating their
  * location and connections.
  */
-public class World {
+public class World implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** namespace of optimization settings ({@value})*/
 	public static final String SETTINGS_NS = "Optimization";
 	/**
@@ -37,6 +40,16 @@ public class World {
 	 * Default is @link {@link #DEF_RANDOMIZE_UPDATES}.
 	 */
 	public static final String RANDOMIZE_UPDATES_S = "randomizeUpdateOrder";
+	/**
+	 * Spatial index used for finding the interfaces that may be in range
+	 * -setting id ({@value}). Either {@value interfaces.ConnectivityOptimizer#DENSE_GRID}
+	 * (default; a cell for every part of the world, see
+	 * {@link ConnectivityGrid}) or
+	 * {@value interfaces.ConnectivityOptimizer#SPARSE_GRID} (only the cells
+	 * that have interfaces, see {@link interfaces.SparseConnectivityGrid};
+	 * better for large worlds with short radio ranges).
+	 */
+	public static final String SPATIAL_INDEX_S = "spatialIndex";
 	/** default value for cell size multiplier ({@value}) */
 	public static final int DEF_CON_CELL_SIZE_MULT = 5;
 	/** should the update order of nodes be randomized -setting's default value
@@ -53,17 +66,24 @@ public class World {
 	/** list of nodes; nodes are indexed by their network address */
 	private List<DTNHost> hosts;
 	private boolean simulateConnections;
+	/** Should hosts be moved (false when the contacts come from a trace) */
+	private boolean simulateMovement;
 	/** nodes in the order they should be updated (if the order should be 
 	 * randomized; null value means that the order should not be randomized) */
 	private ArrayList<DTNHost> updateOrder;
 	/** is cancellation of simulation requested from UI */
 	private boolean isCancelled;
-	private List<UpdateListener> updateListeners;
+	/** Dispatches the updates to the update listeners */
+	private UpdateListener updateEvents;
 	/** Queue of scheduled update requests */
 	private ScheduledUpdatesQueue scheduledUpdates;
 
 	/** single ConnectivityCell's size is biggest radio range times this */
 	private int conCellSizeMult;
+	/** Connections of external connection events (or null if none yet) */
+	private ConnectionTable connectionTable;
+	/** Profiler of the updates (or null if profiling is not enabled) */
+	private SimProfiler profiler;
 
 	/**
 	 * Constructor.
@@ -75,8 +95,9 @@ public class World {
 		this.sizeX = sizeX;
 		this.sizeY = sizeY;
 		this.updateInterval = updateInterval;
-		this.updateListeners = updateListeners;
+		this.updateEvents = UpdateListenerList.dispatcherFor(updateListeners);
 		this.simulateConnections = simulateConnections;
+		this.simulateMovement = true;
 		this.eventQueues = eventQueues;
 		
 		this.simClock = SimClock.getInstance();
@@ -129,6 +150,10 @@ public class World {
 		if (time <= 0) {
 			return;
 		}
+		if (!simulateMovement) {
+			simClock.setTime(0);
+			return;
+		}
 
 		while(SimClock.getTime() < -updateInterval) {
 			moveHosts(updateInterval);
@@ -175,20 +200,32 @@ public class World {
 		while (this.nextQueueEventTime <= runUntil) {
 			simClock.setTime(this.nextQueueEventTime);
 			ExternalEvent ee = this.nextEventQueue.nextEvent();
-			ee.processEvent(this);
+			if (profiler != null) {
+				profiler.begin(SimProfiler.EVENTS, ee);
+				ee.processEvent(this);
+				profiler.end();
+			}
+			else {
+				ee.processEvent(this);
+			}
 			updateHosts(); // update all hosts after every event
 			setNextEventQueue();
 		}
 
-		moveHosts(this.updateInterval);
+		if (profiler != null) {
+			profiler.begin(SimProfiler.MOVEMENT, this);
+			moveHosts(this.updateInterval);
+			profiler.end();
+		}
+		else {
+			moveHosts(this.updateInterval);
+		}
 		simClock.setTime(runUntil);
 
 		updateHosts();
 
 		/* inform all update listeners */
-		for (UpdateListener ul : this.updateListeners) {
-			ul.updated(this.hosts);
-		}
+		this.updateEvents.updated(this.hosts);
 	}
 
 	/**
@@ -202,7 +239,7 @@ public class World {
 				if (this.isCancelled) {
 					break;
 				}
-				hosts.get(i).update(simulateConnections);
+				updateHost(hosts.get(i));
 			}
 		}
 		else { // update order randomizing is on
@@ -214,22 +251,55 @@ public class World {
 				if (this.isCancelled) {
 					break;
 				}
-				this.updateOrder.get(i).update(simulateConnections);
+				updateHost(this.updateOrder.get(i));
 			}			
 		}
 	}
 
+	/**
+	 * Updates a host (through the profiler if profiling is enabled)
+	 * @param host The host to update
+	 */
+	private void updateHost(DTNHost host) {
+		if (profiler != null) {
+			host.update(simulateConnections, profiler);
+		}
+		else {
+			host.update(simulateConnections);
+		}
+	}
+
 	/**
 	 * Moves all hosts in the world for a given amount of time
 	 * @param timeIncrement The time how long all nodes should move
 	 */
 	private void moveHosts(double timeIncrement) {
+		if (!simulateMovement) {
+			return;
+		}
 		for (int i=0,n = hosts.size(); i<n; i++) {
 			DTNHost host = hosts.get(i);
 			host.move(timeIncrement);			
 		}		
 	}
 
+	/**
+	 * Sets whether the hosts are moved. When movement is off, the hosts stay
+	 * in their initial locations and the movement models are not used.
+	 * @param simulateMovement Should the hosts be moved
+	 */
+	public void setSimulateMovement(boolean simulateMovement) {
+		this.simulateMovement = simulateMovement;
+	}
+
+	/**
+	 * Sets the profiler that measures the updates
+	 * @param profiler The profiler or null to disable profiling
+	 */
+	public void setProfiler(SimProfiler profiler) {
+		this.profiler = profiler;
+	}
+
 	/**
 	 * Asynchronously cancels the currently running simulation
 	 */
@@ -279,6 +349,18 @@ public class World {
 		return node; 
 	}
 
+	/**
+	 * Returns the table of connections created by external connection
+	 * events
+	 * @return The connection table of this world
+	 */
+	public ConnectionTable getConnectionTable() {
+		if (this.connectionTable == null) {
+			this.connectionTable = new ConnectionTable(this);
+		}
+		return this.connectionTable;
+	}
+
 	/**
 	 * Schedules an update request to all nodes to happen at the specified 
 	 * simulation time.
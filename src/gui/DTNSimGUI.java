@@ -29,11 +29,26 @@ import core.SimClock;
  *
  */
 public class DTNSimGUI extends DTNSimUI {
+	/** How often a new frame is taken for the view at most (milliseconds) */
+	public static final int FRAME_INTERVAL = 40;
+
 	private MainWindow main;
 	private PlayField field;
 	private GUIControls guiControls;
 	private EventLogPanel eventLogPanel;
 	private InfoPanel infoPanel;
+	/** Has the simulation advanced enough since the latest frame */
+	private boolean framePending;
+	/** Real time when the latest frame was taken */
+	private long lastFrameTime;
+	/** Simulation time of the latest frame */
+	private volatile double frameSimTime;
+	/** Updates the view from the latest frame */
+	private final Runnable viewUpdater = new Runnable() {
+		public void run() {
+			updateView();
+		}
+	};
 	
 	private void startGUI() {
 		try {
@@ -60,6 +75,7 @@ public class DTNSimGUI extends DTNSimUI {
 	 */
 	private void initGUI() {	
 		this.field = new PlayField(world);
+		this.frameSimTime = SimClock.getTime();
 		
 		this.field.addMouseListener(new PlayfieldMouseHandler());
 		this.field.addMouseWheelListener(new PlayfieldMouseHandler());
@@ -184,28 +200,47 @@ public class DTNSimGUI extends DTNSimUI {
 	}
 	
     /**
-     * Updates the GUI
+     * Updates the GUI. Called by the simulation thread between world
+     * updates: the state of the hosts is copied to a new frame here and
+     * the view is drawn from the frame in the event dispatch thread.
      */
     public void update(boolean forcedUpdate) {
     	double guiUpdateInterval = guiControls.getUpdateInterval(); 		
     	
     	// update only if long enough simTime has passed (and not forced)
-		if (!forcedUpdate && guiUpdateInterval > (SimClock.getTime()
-				- this.lastUpdate)) {
-			return;
+		boolean due = forcedUpdate || guiUpdateInterval <= (SimClock.getTime()
+				- this.lastUpdate);
+		if (due) {
+			this.lastUpdate = SimClock.getTime();
+			this.framePending = true;
 		}
-    	
-		try {
-			// run update in EDT, TODO: optimize threading
-			SwingUtilities.invokeAndWait(new Runnable() {
-			    public void run() {
-					updateView();
-			    }
-			});
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		} catch (InvocationTargetException e) {
-			e.printStackTrace();
+
+		// take at most one frame per FRAME_INTERVAL; a skipped frame is
+		// taken at a later call (also when paused)
+		long now = System.currentTimeMillis();
+		if ((framePending || field.isFrameRequested()) &&
+				(forcedUpdate || now - lastFrameTime >= FRAME_INTERVAL)) {
+			this.framePending = false;
+			this.lastFrameTime = now;
+			this.frameSimTime = SimClock.getTime();
+			field.updateFrame();
+
+			if (forcedUpdate) {
+				try {
+					SwingUtilities.invokeAndWait(viewUpdater);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				} catch (InvocationTargetException e) {
+					e.printStackTrace();
+				}
+			}
+			else {
+				SwingUtilities.invokeLater(viewUpdater);
+			}
+		}
+
+		if (!due) {
+			return;
 		}
 		
     	// wait a while if we don't want to run simulation at full speed
@@ -216,13 +251,11 @@ public class DTNSimGUI extends DTNSimUI {
     }
     
     /**
-     * Updates playfield and sim time field
+     * Updates playfield and sim time field from the latest frame
      *
      */
     private void updateView() {
-    	double simTime = SimClock.getTime();
-    	this.lastUpdate = simTime;
-    	guiControls.setSimTime(simTime); //update time to control panel
+    	guiControls.setSimTime(frameSimTime); //update time to control panel
 
     	this.field.updateField();
     }
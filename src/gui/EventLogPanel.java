@@ -4,19 +4,24 @@
  */
 package gui;
 
+import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.Component;
 import java.awt.Font;
-import java.awt.GridLayout;
-import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.Vector;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
+import javax.swing.AbstractListModel;
 import javax.swing.BorderFactory;
-import javax.swing.BoxLayout;
-import javax.swing.JButton;
-import javax.swing.JLabel;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.JList;
 import javax.swing.JPanel;
+import javax.swing.ListSelectionModel;
 import javax.swing.Timer;
 
 import core.ConnectionListener;
@@ -27,37 +32,47 @@ import core.Settings;
 import core.SimClock;
 
 /**
- * Event log panel where log entries are displayed.
+ * Event log panel where log entries are displayed. The simulation thread
+ * only adds the events to an {@link EventRing}; the log view reads the ring
+ * periodically in Swing's EDT and filters the events with the current
+ * "show" selections and the regular expression. The view is a list that
+ * renders only the visible entries, so long logs are cheap to show.
+ * Clicking an entry focuses on the first host of the event and shows the
+ * message of the event (if any) in the info panel.
  */
-public class EventLogPanel extends JPanel 
-	implements ConnectionListener, MessageListener, ActionListener {
+public class EventLogPanel extends JPanel
+	implements ConnectionListener, MessageListener {
 
 	private static final String PANEL_TITLE = "Event log";
 	/** format of a single log entry */
-	private static final String ENTRY_FORMAT = "% 9.1f: %s "; 
+	private static final String ENTRY_FORMAT = "% 9.1f: %s ";
 	private static final int FONT_SIZE = 12;
 	private static final String FONT_TYPE = "monospaced";
-	private static final Color LOG_BUTTON_BG = Color.WHITE;
 	private static final String HOST_DELIM = "<->";
 	private static final Color HIGHLIGHT_BG_COLOR = Color.GREEN;
 
-	// constants used for button property  
-	private static final String HOST_PROP = "host";
-	private static final String MSG_PROP = "message";
-
 	/** How often the log is updated (milliseconds) */
 	public static final int LOG_UP_INTERVAL = 500;
-	
-	/** Regular expression to filter log entries (changed trough Settings) */ 
+	/** Default number of events kept in the event ring */
+	public static final int DEF_RING_SIZE = 4096;
+
+	/** Regular expression to filter log entries (changed trough Settings) */
 	private String regExp = null;
 	/** how many events to show in log (changed trough Settings) */
 	private int maxNrofEvents = 30;
-	
+
 	private Font font;	// font used in log entries
 	private DTNSimGUI gui;
-	private Vector<JPanel> eventPanes;
-	private GridLayout layout;
-	
+	/** Events added by the simulation thread */
+	private EventRing<LogEntry> events;
+	/** Entries that are shown in the list (accessed only in EDT) */
+	private EventListModel listModel;
+	private JList<LogEntry> list;
+	/** Sequence number of the ring when the view was last updated */
+	private long viewedHead = -1;
+	/** Show selections when the view was last updated */
+	private int viewedFilter = -1;
+
 	private EventLogControlPanel controls;
 	private EventLogControl conUpCheck;
 	private EventLogControl conDownCheck;
@@ -68,36 +83,44 @@ public class EventLogPanel extends JPanel
 	private EventLogControl msgDeliveredCheck;
 	private EventLogControl msgDropCheck;
 	private EventLogControl msgAbortCheck;
-	
+	/** All the controls in the order of their filter bits */
+	private List<EventLogControl> allChecks;
+
 	/**
 	 * Creates a new log panel
-	 * @param gui The where this log belongs to (for callbacks) 
+	 * @param gui The where this log belongs to (for callbacks)
 	 */
 	public EventLogPanel(DTNSimGUI gui) {
 		this.gui = gui;
 		String title = PANEL_TITLE;
 		Settings s = new Settings("GUI.EventLogPanel");
-		
+		int ringSize = DEF_RING_SIZE;
+
 		if (s.contains("nrofEvents")) {
 			this.maxNrofEvents = s.getInt("nrofEvents");
 		}
 		if (s.contains("REfilter")) {
 			this.regExp = s.getSetting("REfilter");
 		}
-		
-		layout = new GridLayout(maxNrofEvents,1);
+		if (s.contains("ringSize")) {
+			ringSize = s.getInt("ringSize");
+		}
 
-		this.setLayout(layout);
+		this.setLayout(new BorderLayout());
 		if (this.regExp != null) {
 			title += " - RE-filter: " + regExp;
 		}
 		this.setBorder(BorderFactory.createTitledBorder(
 				getBorder(), title));
-		
-		this.eventPanes = new Vector<JPanel>(maxNrofEvents);
+
+		this.events = new EventRing<LogEntry>(
+				Math.max(ringSize, maxNrofEvents));
 		this.font = new Font(FONT_TYPE,Font.PLAIN, FONT_SIZE);
 		this.controls = createControls();
-		
+		this.listModel = new EventListModel();
+		this.list = createList();
+		this.add(list, BorderLayout.CENTER);
+
 		// set log view to update every LOG_UP_INTERVAL milliseconds
 		// also ensures that the update is done in Swing's EDT
 		ActionListener taskPerformer = new ActionListener() {
@@ -126,9 +149,57 @@ public class EventLogPanel extends JPanel
 		msgRemoveCheck = c.addControl("removed");
 		msgDropCheck = c.addControl("dropped");
 		msgAbortCheck = c.addControl("aborted");
+
+		allChecks = new ArrayList<EventLogControl>();
+		allChecks.add(conUpCheck);
+		allChecks.add(conDownCheck);
+		allChecks.add(msgCreateCheck);
+		allChecks.add(msgTransferStartCheck);
+		allChecks.add(msgRelayCheck);
+		allChecks.add(msgDeliveredCheck);
+		allChecks.add(msgRemoveCheck);
+		allChecks.add(msgDropCheck);
+		allChecks.add(msgAbortCheck);
 		return c;
 	}
-	
+
+	/**
+	 * Creates the list that shows the log entries
+	 * @return The list
+	 */
+	private JList<LogEntry> createList() {
+		final JList<LogEntry> l = new JList<LogEntry>(listModel);
+		l.setFont(font);
+		l.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		l.setVisibleRowCount(maxNrofEvents);
+		// fixed height so that the list doesn't need to render all entries
+		l.setFixedCellHeight(l.getFontMetrics(font).getHeight() + 2);
+		l.setCellRenderer(new DefaultListCellRenderer() {
+			@Override
+			public Component getListCellRendererComponent(JList<?> lst,
+					Object value, int index, boolean isSelected,
+					boolean cellHasFocus) {
+				LogEntry e = (LogEntry)value;
+				super.getListCellRendererComponent(lst, e.getText(), index,
+						isSelected, cellHasFocus);
+				if (e.highlight && !isSelected) {
+					setBackground(HIGHLIGHT_BG_COLOR);
+				}
+				return this;
+			}
+		});
+		l.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				int index = l.locationToIndex(e.getPoint());
+				if (index >= 0) {
+					entryClicked(listModel.getElementAt(index));
+				}
+			}
+		});
+		return l;
+	}
+
 	/**
 	 * Returns the control panel that this log uses
 	 * @return The control panel
@@ -136,82 +207,77 @@ public class EventLogPanel extends JPanel
 	public EventLogControlPanel getControls() {
 		return this.controls;
 	}
-	
+
 	/**
-	 * Adds a new event to the event log panel
-	 * @param description Textual description of the event
-	 * @param host1 Host that caused the event or null if there was not any
-	 * @param host2 Another host that was involved in the event (or null)
-	 * @param message Message that was involved in the event (or null)
-	 * @param highlight If true, the log entry is highlighted
+	 * Updates the log view if new events have been added or the show
+	 * selections have changed since the last update
 	 */
-	private void addEvent(String description, DTNHost host1,
-			DTNHost host2, Message message, boolean highlight) {
-		JPanel eventPane = new JPanel();
-		eventPane.setLayout(new BoxLayout(eventPane,BoxLayout.LINE_AXIS));
-		
-		String text = String.format(ENTRY_FORMAT, 
-				SimClock.getTime(),description);
-		JLabel label = new JLabel(text);
-		label.setFont(font);
-		eventPane.add(label);
-		
-		if (host1 != null) {
-			addInfoButton(eventPane,host1,HOST_PROP);
-		}
-		if (host2 != null) {
-			JLabel betweenLabel = new JLabel(HOST_DELIM);
-			betweenLabel.setFont(font);
-			eventPane.add(betweenLabel);
-			addInfoButton(eventPane,host2,HOST_PROP);
-		}
-		if (message != null) {
-			addInfoButton(eventPane, message, MSG_PROP);
+	private void updateLogView() {
+		long head = events.getHead();
+		int filter = getFilter();
+		if (head == viewedHead && filter == viewedFilter) {
+			return;
 		}
 
-		if (highlight) {
-			eventPane.setBackground(HIGHLIGHT_BG_COLOR);
+		List<LogEntry> all = new ArrayList<LogEntry>(
+				(int)Math.min(head, events.getCapacity()));
+		events.read(0, all);
+		List<LogEntry> shown = new ArrayList<LogEntry>(maxNrofEvents);
+		// pick the latest maxNrofEvents entries that pass the filter
+		for (int i = all.size() - 1; i >= 0 &&
+				shown.size() < maxNrofEvents; i--) {
+			LogEntry e = all.get(i);
+			if ((filter & (1 << e.type)) != 0 && matchesRegExp(e)) {
+				shown.add(e);
+			}
 		}
-		
-		eventPanes.add(eventPane);
-		
-		// if the log is full, remove oldest entries first
-		if (this.eventPanes.size() > maxNrofEvents) {
-			eventPanes.remove(0);
+		Collections.reverse(shown);
+
+		listModel.setEntries(shown);
+		if (head != viewedHead && !shown.isEmpty()) {
+			list.ensureIndexIsVisible(shown.size() - 1);
 		}
+		viewedHead = head;
+		viewedFilter = filter;
 	}
-	
+
 	/**
-	 * Updates the log view
+	 * Returns the current show selections as a bit mask where the bit
+	 * of every shown event type is set
+	 * @return The filter bit mask
 	 */
-	private void updateLogView() {
-		//TODO Optimization: Check if update is really necessary
-		this.removeAll();
-		for (int i=0; i< this.eventPanes.size(); i++) {
-			this.add(eventPanes.get(i));
+	private int getFilter() {
+		int filter = 0;
+		for (int i = 0; i < allChecks.size(); i++) {
+			if (allChecks.get(i).showEvent()) {
+				filter |= 1 << i;
+			}
 		}
-		revalidate();
+		return filter;
 	}
-	
-	
+
 	/**
-	 * Adds a new button to a log entry panel and attaches a client 
-	 * property into it
-	 * @param panel Panel where to add the button
-	 * @param o Client property object to add
-	 * @param clientProp Client property key to use for the object
+	 * Returns true if the description of the entry matches the regular
+	 * expression filter (or there is no filter)
 	 */
-	private void addInfoButton(JPanel panel, Object o, String clientProp) {
-		JButton hButton;
-		hButton = new JButton(o.toString());
-		hButton.putClientProperty(clientProp, o);
-		hButton.addActionListener(this);
-		hButton.setFont(font);
-		hButton.setMargin(new Insets(0,0,0,0));
-		hButton.setBackground(LOG_BUTTON_BG);
-		panel.add(hButton);
+	private boolean matchesRegExp(LogEntry e) {
+		return regExp == null || e.getDescription().matches(regExp);
 	}
-	
+
+	/**
+	 * Focuses on the first host of a clicked entry and shows the entry's
+	 * message (if any) in the info panel
+	 * @param e The clicked entry
+	 */
+	private void entryClicked(LogEntry e) {
+		if (e.host1 != null) {
+			gui.setFocus(e.host1);
+		}
+		if (e.message != null) {
+			gui.getInfoPanel().showInfo(e.message);
+		}
+	}
+
 	/**
 	 * Processes a log event
 	 * @param check EventLogControls used to check if this entry type should
@@ -219,35 +285,28 @@ public class EventLogPanel extends JPanel
 	 * @param name Text description of the event
 	 * @param host1 First host involved in the event (if any, can be null)
 	 * @param host2 Second host involved in the event (if any, can be null)
-	 * @param message The message involved in the event (if any, can be null) 
+	 * @param message The message involved in the event (if any, can be null)
 	 */
 	private void processEvent(EventLogControl check, final String name,
 			final DTNHost host1, final DTNHost host2, final Message message) {
-		String descString;	// String format description of the event
-		
-		if (!check.showEvent()) {
-			return; // if event's "show" is not checked, won't pause either 
-		}
-		
-		descString = name + " " + 
-			(host1!=null ? host1 : "") + 
-			(host2!= null ? (HOST_DELIM + host2) : "") + 
-			(message!=null ? " " + message : "");
-		
-		if (regExp != null && !descString.matches(regExp)){
-			return;	// description doesn't match defined regular expression
-		}
-		
-		if (check.pauseOnEvent()) {
+		boolean pause = false;
+		LogEntry entry = new LogEntry(allChecks.indexOf(check),
+				SimClock.getTime(), name, host1, host2, message);
+
+		// if event's "show" is not checked, won't pause either
+		if (check.showEvent() && check.pauseOnEvent() &&
+				matchesRegExp(entry)) {
+			pause = true;
 			gui.setPaused(true);
 			if (host1 != null) {
 				gui.setFocus(host1);
 			}
 		}
-		
-      	addEvent(name, host1, host2, message, check.pauseOnEvent());	
+
+		entry.highlight = pause;
+		events.add(entry);
 	}
-	
+
 	// Implementations of ConnectionListener and MessageListener interfaces
 	public void hostsConnected(DTNHost host1, DTNHost host2) {
 		processEvent(conUpCheck, "Connection UP", host1, host2, null);
@@ -297,26 +356,93 @@ public class EventLogPanel extends JPanel
 	// end of message interface implementations
 	
 	
+	public String toString() {
+		return this.getClass().getSimpleName() + " with " +
+			this.listModel.getSize() + " events";
+	}
+
 	/**
-	 * Action listener for log entry (host & message) buttons
+	 * Log entry of one event. Entries are created by the simulation thread
+	 * and read by the EDT.
 	 */
-	public void actionPerformed(ActionEvent e) {
-		JButton source = (JButton)e.getSource();
-		
-		if (source.getClientProperty(HOST_PROP) != null) {
-			// button was a host button -> focus it on GUI
-			gui.setFocus((DTNHost)source.getClientProperty(HOST_PROP));
+	private static class LogEntry {
+		/** Index of the event type's control (filter bit) */
+		private final int type;
+		private final double time;
+		private final String name;
+		private final DTNHost host1;
+		private final DTNHost host2;
+		private final Message message;
+		/** Was the event paused upon; set before adding to the ring */
+		private boolean highlight;
+		/* lazily created texts */
+		private String description;
+		private String text;
+
+		private LogEntry(int type, double time, String name, DTNHost host1,
+				DTNHost host2, Message message) {
+			this.type = type;
+			this.time = time;
+			this.name = name;
+			this.host1 = host1;
+			this.host2 = host2;
+			this.message = message;
+		}
+
+		/**
+		 * Returns the description that the regular expression filter is
+		 * matched against
+		 */
+		private String getDescription() {
+			if (description == null) {
+				description = name + " " +
+					(host1!=null ? host1 : "") +
+					(host2!= null ? (HOST_DELIM + host2) : "") +
+					(message!=null ? " " + message : "");
+			}
+			return description;
 		}
-		else if (source.getClientProperty(MSG_PROP) != null) {
-			// was a message button -> show information about the message
-			Message m = (Message)source.getClientProperty(MSG_PROP);
-			gui.getInfoPanel().showInfo(m);
+
+		/**
+		 * Returns the text shown in the log view
+		 */
+		private String getText() {
+			if (text == null) {
+				text = String.format(ENTRY_FORMAT, time, name) +
+					(host1!=null ? host1 : "") +
+					(host2!= null ? (HOST_DELIM + host2) : "") +
+					(message!=null ? " " + message : "");
+			}
+			return text;
 		}
 	}
-	
-	public String toString() {
-		return this.getClass().getSimpleName() + " with " + 
-			this.eventPanes.size() + " events";
+
+	/**
+	 * List model of the shown log entries
+	 */
+	private static class EventListModel extends AbstractListModel<LogEntry> {
+		private static final long serialVersionUID = 42L;
+
+		private List<LogEntry> entries = new ArrayList<LogEntry>();
+
+		private void setEntries(List<LogEntry> entries) {
+			int oldSize = this.entries.size();
+			this.entries = entries;
+			if (oldSize > 0) {
+				fireIntervalRemoved(this, 0, oldSize - 1);
+			}
+			if (!entries.isEmpty()) {
+				fireIntervalAdded(this, 0, entries.size() - 1);
+			}
+		}
+
+		public int getSize() {
+			return entries.size();
+		}
+
+		public LogEntry getElementAt(int index) {
+			return entries.get(index);
+		}
 	}
-	
+
 }
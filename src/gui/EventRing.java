@@ -0,0 +1,95 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package gui;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed size ring of events that is filled by one thread (the simulation
+ * thread) and read by others (Swing's EDT) without locking. When the ring
+ * is full, new events overwrite the oldest ones. Every event gets a
+ * running sequence number; readers keep track of the next sequence they
+ * want to read and never block the writer. Events that are overwritten
+ * while being read are skipped.
+ * @param <E> Type of the events
+ */
+public class EventRing<E> {
+	private final AtomicReferenceArray<E> events;
+	/** Sequence numbers of the events in the slots (-1 while writing) */
+	private final AtomicLongArray sequences;
+	private final int mask;
+	/** Sequence number of the next event to add */
+	private final AtomicLong head;
+
+	/**
+	 * Creates a new ring
+	 * @param capacity Minimum number of events the ring holds (rounded up
+	 * to the next power of two)
+	 */
+	public EventRing(int capacity) {
+		int size = capacity <= 1 ? 1 :
+			Integer.highestOneBit(capacity - 1) << 1;
+		this.events = new AtomicReferenceArray<E>(size);
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, -1);
+		}
+		this.mask = size - 1;
+		this.head = new AtomicLong();
+	}
+
+	/**
+	 * Adds an event to the ring. Must be called only from one thread.
+	 * @param event The event to add
+	 */
+	public void add(E event) {
+		long seq = head.get();
+		int slot = (int)seq & mask;
+		sequences.set(slot, -1);
+		events.set(slot, event);
+		sequences.set(slot, seq);
+		head.lazySet(seq + 1);
+	}
+
+	/**
+	 * Returns the sequence number the next added event will get, i.e., the
+	 * total number of events added so far
+	 * @return The sequence number of the next event
+	 */
+	public long getHead() {
+		return head.get();
+	}
+
+	/**
+	 * Returns the number of events the ring holds at most
+	 * @return the capacity of the ring
+	 */
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * Reads events from the ring to a list in the order they were added
+	 * @param from Sequence number of the first event to read. Events that
+	 * have already been overwritten are skipped.
+	 * @param to The list where the events are added
+	 * @return Sequence number of the next event to read
+	 */
+	public long read(long from, List<? super E> to) {
+		long end = head.get();
+		long seq = Math.max(from, end - getCapacity());
+		for (; seq < end; seq++) {
+			int slot = (int)seq & mask;
+			E event = events.get(slot);
+			if (sequences.get(slot) == seq) {
+				to.add(event);
+			}
+		}
+		return end;
+	}
+}
@@ -51,6 +51,7 @@ public class SimMenuBar extends JMenuBar implements ActionListener {
 	private JCheckBoxMenuItem enableNodeConnections;
 	private JCheckBoxMenuItem enableMapGraphic;
 	private JCheckBoxMenuItem enableNodePathTrace;
+	private JCheckBoxMenuItem enableLevelOfDetail;
 	private JCheckBoxMenuItem autoClearOverlay;
 	private JMenuItem clearOverlay;
 	private JMenuItem about;
@@ -79,6 +80,8 @@ public class SimMenuBar extends JMenuBar implements ActionListener {
 				"Show node's connections", true);
 		enableMapGraphic = createCheckItem(pfMenu,"Show map graphic",true);
 		enableNodePathTrace = createCheckItem(pfMenu,"Show node path trace",false);
+		enableLevelOfDetail = createCheckItem(pfMenu,
+				"Show dense nodes as heatmap", true);
 		autoClearOverlay = createCheckItem(pfMenu, "Autoclear overlay",true);
 		clearOverlay = createMenuItem(pfMenu,"Clear overlays now");
 		about = createMenuItem(help,"about");
@@ -126,6 +129,9 @@ public class SimMenuBar extends JMenuBar implements ActionListener {
 		else if (source == this.enableNodePathTrace) {
 			field.setShowNodePathTrace(enableNodePathTrace.isSelected());
 		}
+		else if (source == this.enableLevelOfDetail) {
+			field.setLevelOfDetail(enableLevelOfDetail.isSelected());
+		}
 		else if (source == this.autoClearOverlay) {
 			field.setAutoClearOverlay(autoClearOverlay.isSelected());
 		}
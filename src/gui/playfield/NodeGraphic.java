@@ -8,14 +8,18 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.Ellipse2D;
 import java.util.ArrayList;
+import java.util.List;
 
+import movement.Path;
 import core.Connection;
 import core.Coord;
 import core.DTNHost;
 import core.NetworkInterface;
 
 /**
- * Visualization of a DTN Node
+ * Visualization of a DTN Node. The graphic is a snapshot of the node's
+ * state when the graphic was created, so it can be drawn by one thread
+ * while another one keeps updating the node.
  *
  */
 public class NodeGraphic extends PlayFieldGraphic {
@@ -31,10 +35,75 @@ public class NodeGraphic extends PlayFieldGraphic {
 	private static Color msgColor2 = Color.GREEN;
 	private static Color msgColor3 = Color.RED;
 
-	private DTNHost node;
+	private final String name;
+	private final Coord loc;
+	/** Transmit ranges of the interfaces (empty if the node is not active) */
+	private final double[] ranges;
+	/** Locations of the nodes at the other ends of the connections */
+	private final Coord[] conLocs;
+	private final int nrofMessages;
+	private final Color pathColor;
+	/** The paths the node has moved along or null if not copied */
+	private final List<Path> paths;
 
-	public NodeGraphic(DTNHost node) {	
-		this.node = node;
+	/**
+	 * Creates a snapshot of a node without its path history
+	 * @param node The node
+	 */
+	public NodeGraphic(DTNHost node) {
+		this(node, false);
+	}
+
+	/**
+	 * Creates a snapshot of a node. Must be called by the thread that
+	 * updates the node.
+	 * @param node The node
+	 * @param withPaths If true, the node's path history is copied too
+	 */
+	public NodeGraphic(DTNHost node, boolean withPaths) {
+		this.name = node.toString();
+		this.loc = node.getLocation().clone();
+
+		List<NetworkInterface> interfaces = node.getInterfaces();
+		this.ranges = new double[node.isActive() ? interfaces.size() : 0];
+		for (int i = 0; i < ranges.length; i++) {
+			ranges[i] = interfaces.get(i).getTransmitRange();
+		}
+
+		List<Connection> conList = node.getConnections();
+		this.conLocs = new Coord[conList.size()];
+		for (int i = 0; i < conLocs.length; i++) {
+			conLocs[i] = conList.get(i).getOtherNode(node).getLocation().clone();
+		}
+
+		this.nrofMessages = node.getNrofMessages();
+		this.pathColor = node.getPathColor();
+		this.paths = withPaths ?
+				new ArrayList<Path>(node.getPathHistory()) : null;
+	}
+
+	/**
+	 * Returns the location of the node
+	 * @return The location of the node
+	 */
+	public Coord getLocation() {
+		return this.loc;
+	}
+
+	/**
+	 * Returns the paths the node had moved along
+	 * @return The path history or null if it was not copied
+	 */
+	List<Path> getPaths() {
+		return this.paths;
+	}
+
+	/**
+	 * Returns the color of the node's path traces
+	 * @return The path color
+	 */
+	Color getPathColor() {
+		return this.pathColor;
 	}
 
 	@Override
@@ -48,13 +117,8 @@ public class NodeGraphic extends PlayFieldGraphic {
 	 * @param g2 The graphic context to draw to
 	 */
 	private void drawHost(Graphics2D g2) {
-		Coord loc = node.getLocation();
-
-		if (drawCoverage && node.isActive()) {
-			ArrayList<NetworkInterface> interfaces = new ArrayList<NetworkInterface>();
-			interfaces.addAll(node.getInterfaces());
-			for (NetworkInterface ni : interfaces) {
-				double range = ni.getTransmitRange();
+		if (drawCoverage) {
+			for (double range : ranges) {
 				Ellipse2D.Double coverage;
 
 				coverage = new Ellipse2D.Double(scale(loc.getX()-range),
@@ -68,13 +132,8 @@ public class NodeGraphic extends PlayFieldGraphic {
 
 		if (drawConnections) {
 			g2.setColor(conColor);
-			Coord c1 = node.getLocation();
-			ArrayList<Connection> conList = new ArrayList<Connection>();
-			// create a copy to prevent concurrent modification exceptions
-			conList.addAll(node.getConnections());
-			for (Connection c : conList) {
-				Coord c2 = c.getOtherNode(node).getLocation();
-
+			Coord c1 = loc;
+			for (Coord c2 : conLocs) {
 				g2.drawLine(scale(c1.getX()), scale(c1.getY()),
 						scale(c2.getX()), scale(c2.getY()));
 			}
@@ -86,7 +145,7 @@ public class NodeGraphic extends PlayFieldGraphic {
 		if (drawNodeName) {
 			g2.setColor(hostNameColor);
 			// Draw node's address next to it
-			g2.drawString(node.toString(), scale(loc.getX()),
+			g2.drawString(name, scale(loc.getX()),
 					scale(loc.getY()));
 		}
 	}
@@ -121,9 +180,6 @@ public class NodeGraphic extends PlayFieldGraphic {
 	 * @param g2 The graphic context to draw to
 	 */
 	private void drawMessages(Graphics2D g2) {
-		int nrofMessages = node.getNrofMessages();
-		Coord loc = node.getLocation();
-
 		drawBar(g2,loc, nrofMessages % 10, 1);
 		drawBar(g2,loc, nrofMessages / 10, 2);
 	}
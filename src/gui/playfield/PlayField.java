@@ -8,6 +8,7 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
@@ -27,8 +28,19 @@ import core.World;
 
 /**
  * The canvas where node graphics and message visualizations are drawn.
+ * The hosts are drawn from the latest frame, i.e., snapshots of the hosts
+ * taken by the simulation thread (see {@link #updateFrame()}), so the
+ * field can be painted while the simulation is running.
  */
 public class PlayField extends JPanel {
+	/** Graphical area (pixels^2) per node below which the nodes are drawn
+	 * as a density heatmap when level of detail rendering is enabled */
+	public static final int MIN_AREA_PER_NODE = 400;
+	/** Size of the density heatmap cells (pixels) */
+	public static final int HEATMAP_CELL_SIZE = 8;
+	/** Color of the most dense heatmap cells */
+	private static final Color HEATMAP_COLOR = new Color(255, 64, 0);
+
 	private World w;
 	private Color bgColor = Color.WHITE;
 
@@ -36,7 +48,13 @@ public class PlayField extends JPanel {
 	private boolean autoClearOverlay;    // automatically clear overlay graphics
 	private MapGraphic mapGraphic;
 	private boolean showMapGraphic;
-	private boolean showNodePathTrace;
+	private volatile boolean showNodePathTrace;
+	private boolean levelOfDetail;
+	/** Snapshots of the hosts to draw */
+	private volatile NodeGraphic[] frame;
+	/** Does the next frame need to be taken even if the simulation has
+	 * not advanced */
+	private volatile boolean frameRequested;
 	private ScaleReferenceGraphic refGraphic;
 
 	private BufferedImage underlayImage;
@@ -61,7 +79,9 @@ public class PlayField extends JPanel {
 		this.underlayImage = null;
 		this.imageTransform = null;
 		this.showNodePathTrace = false;
+		this.levelOfDetail = true;
 		this.autoClearOverlay = true;
+		updateFrame();
 	}
 
 	/**
@@ -71,6 +91,32 @@ public class PlayField extends JPanel {
 		this.repaint();
 	}
 
+	/**
+	 * Takes snapshots of the hosts to be drawn as the new frame and
+	 * schedules the play field to be drawn. Must be called by the thread
+	 * that updates the world (or when the world is not being updated).
+	 */
+	public void updateFrame() {
+		List<DTNHost> hosts = w.getHosts();
+		boolean withPaths = this.showNodePathTrace;
+		NodeGraphic[] f = new NodeGraphic[hosts.size()];
+		for (int i = 0; i < f.length; i++) {
+			f[i] = new NodeGraphic(hosts.get(i), withPaths);
+		}
+		this.frameRequested = false;
+		this.frame = f;
+		this.repaint();
+	}
+
+	/**
+	 * Returns true if the drawing options have changed so that a new frame
+	 * should be taken even if the simulation has not advanced
+	 * @return True if a new frame is requested
+	 */
+	public boolean isFrameRequested() {
+		return this.frameRequested;
+	}
+
 	/**
 	 * Sets an image to show under the host graphics
 	 *
@@ -167,28 +213,136 @@ public class PlayField extends JPanel {
 			mapGraphic.draw(g2);
 		}
 
-		// draw hosts
-		for (DTNHost h : w.getHosts()) {
-			new NodeGraphic(h).draw(g2); // TODO: Optimization..?
+		NodeGraphic[] hosts = this.frame;
+		Rectangle clip = g2.getClipBounds();
+		if (clip == null) {
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
+		}
+
+		if (levelOfDetail && (long)countVisible(hosts, clip) *
+				MIN_AREA_PER_NODE > (long)clip.width * clip.height) {
+			drawDensity(g2, hosts, clip);
+		} else {
+			drawHosts(g2, hosts, clip);
+		}
+
+		if (showNodePathTrace) {
+			drawPaths(g2, hosts);
+		}
+
+		// draw overlay graphics
+		for (int i = 0, n = overlayGraphics.size(); i < n; i++) {
+			overlayGraphics.get(i).draw(g2);
+		}
+
+		// draw reference scale
+		this.refGraphic.draw(g2);
+	}
+
+	/**
+	 * Returns true if a host is inside the area being drawn
+	 * @param h The host
+	 * @param clip The area being drawn (in graphics space)
+	 * @param margin How far (in pixels) outside the area a host is still
+	 * considered visible
+	 */
+	private boolean isVisible(NodeGraphic h, Rectangle clip, int margin) {
+		Coord loc = h.getLocation();
+		int x = PlayFieldGraphic.scale(loc.getX());
+		int y = PlayFieldGraphic.scale(loc.getY());
+		return x >= clip.x - margin && x <= clip.x + clip.width + margin &&
+			y >= clip.y - margin && y <= clip.y + clip.height + margin;
+	}
+
+	/**
+	 * Returns the number of hosts inside the area being drawn
+	 */
+	private int countVisible(NodeGraphic[] hosts, Rectangle clip) {
+		int count = 0;
+		for (NodeGraphic h : hosts) {
+			if (isVisible(h, clip, 0)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Draws the hosts that are (close to) the area being drawn
+	 */
+	private void drawHosts(Graphics2D g2, NodeGraphic[] hosts,
+			Rectangle clip) {
+		/* radio ranges, connections and names extend outside the hosts'
+		 * locations; use half of the view as a margin */
+		int margin = Math.max(clip.width, clip.height) / 2;
+
+		for (NodeGraphic h : hosts) {
+			if (isVisible(h, clip, margin)) {
+				h.draw(g2);
+			}
+		}
+	}
+
+	/**
+	 * Draws the hosts in the area being drawn as a density heatmap where
+	 * the color of a cell tells how many hosts there are in it
+	 */
+	private void drawDensity(Graphics2D g2, NodeGraphic[] hosts,
+			Rectangle clip) {
+		int cols = clip.width / HEATMAP_CELL_SIZE + 1;
+		int rows = clip.height / HEATMAP_CELL_SIZE + 1;
+		int[] counts = new int[cols * rows];
+		int max = 0;
+
+		for (NodeGraphic h : hosts) {
+			if (!isVisible(h, clip, 0)) {
+				continue;
+			}
+			Coord loc = h.getLocation();
+			int col = (PlayFieldGraphic.scale(loc.getX()) - clip.x) /
+				HEATMAP_CELL_SIZE;
+			int row = (PlayFieldGraphic.scale(loc.getY()) - clip.y) /
+				HEATMAP_CELL_SIZE;
+			int count = ++counts[row * cols + col];
+			max = Math.max(max, count);
 		}
 
-		// flag and draw paths
-		for (DTNHost h : w.getHosts()) {
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				int count = counts[row * cols + col];
+				if (count == 0) {
+					continue;
+				}
+				int alpha = 64 + (191 * count) / max;
+				g2.setColor(new Color(HEATMAP_COLOR.getRed(),
+						HEATMAP_COLOR.getGreen(), HEATMAP_COLOR.getBlue(),
+						alpha));
+				g2.fillRect(clip.x + col * HEATMAP_CELL_SIZE,
+						clip.y + row * HEATMAP_CELL_SIZE,
+						HEATMAP_CELL_SIZE, HEATMAP_CELL_SIZE);
+			}
+		}
+	}
+
+	/**
+	 * Draws the path traces of the hosts
+	 */
+	private void drawPaths(Graphics2D g2, NodeGraphic[] hosts) {
+		for (NodeGraphic h : hosts) {
+			if (h.getPaths() == null) {
+				continue; // frame taken before path traces were enabled
+			}
 			// make it so that the last path is drawn as a tailing path, relative to DTNHost location
-			Iterator<Path> it = new ArrayList<>(h.getPathHistory()).iterator();
+			Iterator<Path> it = h.getPaths().iterator();
 			while (it.hasNext()) {
 				Path path = it.next();
 				if (it.hasNext() && path.hasbeenFullyPainted()) {
-					if (showNodePathTrace) {
-						new PathGraphic(path, h.getPathColor()).draw(g2);
-					}
+					new PathGraphic(path, h.getPathColor()).draw(g2);
 				} else {
 					Path tailingPath = new Path();
 					tailingPath.addWaypoint(h.getLocation()); // start from the host
 					tailingPath.addWaypoint(path.getFirstWaypoint().clone());
-					if (showNodePathTrace) {
-						new PathGraphic(tailingPath, h.getPathColor()).draw(g2);
-					}
+					new PathGraphic(tailingPath, h.getPathColor()).draw(g2);
 					// host is at the last waypoint of the path, flag it as fully painted
 					if (coordIsClose(h.getLocation(), path.getLastWaypoint())) {
 						path.fullyPainted();
@@ -196,14 +350,6 @@ public class PlayField extends JPanel {
 				}
 			}
 		}
-
-		// draw overlay graphics
-		for (int i = 0, n = overlayGraphics.size(); i < n; i++) {
-			overlayGraphics.get(i).draw(g2);
-		}
-
-		// draw reference scale
-		this.refGraphic.draw(g2);
 	}
 
 	/**
@@ -302,5 +448,17 @@ public class PlayField extends JPanel {
 
 	public void setShowNodePathTrace(boolean selected) {
 		this.showNodePathTrace = selected;
+		this.frameRequested = true;
+	}
+
+	/**
+	 * Enables/disables level of detail rendering. If enabled, hosts are
+	 * drawn as a density heatmap when they are too close to each other to
+	 * be told apart (e.g., when zoomed out).
+	 *
+	 * @param enabled True if level of detail rendering should be used
+	 */
+	public void setLevelOfDetail(boolean enabled) {
+		this.levelOfDetail = enabled;
 	}
 }
@@ -0,0 +1,310 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package input;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import core.SettingsError;
+import core.SimError;
+
+/**
+ * Reader for binary external movement files. The binary files contain the
+ * same data as the text files read by {@link ExternalMovementReader} but
+ * sorted by time and in a compact form that is streamed through a memory
+ * mapped buffer without any parsing. Binary files can be created from the
+ * text files with {@link #storeToBinaryFile(String, String)} or from the
+ * command line:<BR>
+ * <CODE>java input.BinaryMovementReader textFile binaryFile</CODE>
+ * <P>
+ * File layout (all values big-endian):<BR>
+ * <CODE>int magic, int version, double minTime, double maxTime,
+ * double minX, double maxX, double minY, double maxY, int nrofIds,
+ * nrofIds * (int length, length * byte utf8Id), int nrofSteps,
+ * nrofSteps * (double time, int count, count * int idIndex,
+ * count * double x, count * double y)</CODE>
+ * </P>
+ * Coordinates are stored as read from the text file, i.e., not normalized.
+ */
+public class BinaryMovementReader implements MovementStepReader {
+	/** Extension of binary external movement files */
+	public static final String BINARY_EXT = ".binem";
+	/** Identifier at the start of binary movement files */
+	private static final int MAGIC = 0x4f4e454d;
+	/** Version of the file layout */
+	private static final int VERSION = 1;
+
+	private MappedByteBuffer buf;
+	private String[] ids;
+	private int stepsLeft;
+	private double lastTimeStamp = -1;
+	private double minTime;
+	private double maxTime;
+	private double minX;
+	private double maxX;
+	private double minY;
+	private double maxY;
+	private boolean normalize;
+
+	private int[] stepIds;
+	private double[] stepXs;
+	private double[] stepYs;
+
+	/**
+	 * Constructor. Creates a new reader that reads the data from a binary
+	 * file.
+	 * @param inFilePath Path to the file where the data is read
+	 * @throws SettingsError if the file wasn't found
+	 * @throws SimError if the file couldn't be read or isn't a valid binary
+	 * movement file
+	 */
+	public BinaryMovementReader(String inFilePath) {
+		this.normalize = true;
+		File inFile = new File(inFilePath);
+		if (!inFile.isFile()) {
+			throw new SettingsError("Couldn't find external movement input " +
+					"file " + inFile);
+		}
+
+		try (FileChannel ch = FileChannel.open(inFile.toPath(),
+				StandardOpenOption.READ)) {
+			if (ch.size() > Integer.MAX_VALUE) {
+				throw new SimError("Binary movement file " + inFile +
+						" is too large to be mapped");
+			}
+			/* the mapping stays valid after the channel is closed */
+			buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
+
+		try {
+			if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+				throw new SimError("Invalid binary input file for external " +
+						"movement: " + inFile.getAbsolutePath());
+			}
+			minTime = buf.getDouble();
+			maxTime = buf.getDouble();
+			minX = buf.getDouble();
+			maxX = buf.getDouble();
+			minY = buf.getDouble();
+			maxY = buf.getDouble();
+
+			ids = new String[buf.getInt()];
+			for (int i = 0; i < ids.length; i++) {
+				byte[] idBytes = new byte[buf.getInt()];
+				buf.get(idBytes);
+				ids[i] = new String(idBytes, StandardCharsets.UTF_8);
+			}
+			stepsLeft = buf.getInt();
+		} catch (BufferUnderflowException e) {
+			throw new SimError("Truncated binary movement file " +
+					inFile.getAbsolutePath(), e);
+		}
+
+		this.stepIds = new int[0];
+		this.stepXs = new double[0];
+		this.stepYs = new double[0];
+	}
+
+	/**
+	 * Returns true if the given file name ends with the binary movement file
+	 * extension
+	 * @param fileName The name of the file
+	 * @return true if the file name ends with {@link #BINARY_EXT}
+	 */
+	public static boolean isBinaryMovementFile(String fileName) {
+		return fileName.endsWith(BINARY_EXT);
+	}
+
+	public void setNormalize(boolean normalize) {
+		this.normalize = normalize;
+	}
+
+	public int readNextStep() {
+		if (stepsLeft == 0) {
+			return 0;
+		}
+		stepsLeft--;
+
+		double time = buf.getDouble();
+		int count = buf.getInt();
+		if (stepIds.length < count) {
+			stepIds = new int[count];
+			stepXs = new double[count];
+			stepYs = new double[count];
+		}
+
+		buf.asIntBuffer().get(stepIds, 0, count);
+		buf.position(buf.position() + 4 * count);
+		buf.asDoubleBuffer().get(stepXs, 0, count);
+		buf.position(buf.position() + 8 * count);
+		buf.asDoubleBuffer().get(stepYs, 0, count);
+		buf.position(buf.position() + 8 * count);
+
+		if (normalize) {
+			time -= minTime;
+			for (int i = 0; i < count; i++) {
+				stepXs[i] -= minX;
+				stepYs[i] -= minY;
+			}
+		}
+		lastTimeStamp = time;
+
+		return count;
+	}
+
+	public int[] getStepIds() {
+		return this.stepIds;
+	}
+
+	public double[] getStepXs() {
+		return this.stepXs;
+	}
+
+	public double[] getStepYs() {
+		return this.stepYs;
+	}
+
+	public String getId(int idIndex) {
+		return ids[idIndex];
+	}
+
+	/**
+	 * Returns the number of different node IDs in the file
+	 * @return the number of different node IDs
+	 */
+	public int getNrofIds() {
+		return ids.length;
+	}
+
+	public double getLastTimeStamp() {
+		return lastTimeStamp;
+	}
+
+	public double getMinTime() {
+		return minTime;
+	}
+
+	public double getMaxTime() {
+		return maxTime;
+	}
+
+	public double getMinX() {
+		return minX;
+	}
+
+	public double getMaxX() {
+		return maxX;
+	}
+
+	public double getMinY() {
+		return minY;
+	}
+
+	public double getMaxY() {
+		return maxY;
+	}
+
+	/**
+	 * Converts a text external movement file to a binary movement file.
+	 * The text file is read twice: first to count the time instances and
+	 * ids and then to stream the locations to the binary file, so the
+	 * conversion doesn't keep the trace in memory.
+	 * @param textFile Path of the text file to read
+	 * @param binFile Path of the binary file to write
+	 * @throws IOException if the binary file couldn't be written
+	 * @throws SettingsError if the text file couldn't be read or it isn't
+	 * sorted by time
+	 */
+	public static void storeToBinaryFile(String textFile, String binFile)
+			throws IOException {
+		ExternalMovementReader reader = new ExternalMovementReader(textFile);
+		reader.setNormalize(false);
+
+		int nrofSteps = 0;
+		int nrofIds = 0;
+		double lastTime = Double.NEGATIVE_INFINITY;
+		for (int count = reader.readNextStep(); count > 0;
+				count = reader.readNextStep()) {
+			if (reader.getLastTimeStamp() < lastTime) {
+				throw new SettingsError("External movement file " + textFile +
+						" is not sorted by time (time " +
+						reader.getLastTimeStamp() + " after " + lastTime + ")");
+			}
+			lastTime = reader.getLastTimeStamp();
+			int[] ids = reader.getStepIds();
+			for (int i = 0; i < count; i++) {
+				nrofIds = Math.max(nrofIds, ids[i] + 1);
+			}
+			nrofSteps++;
+		}
+
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(binFile)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeDouble(reader.getMinTime());
+			out.writeDouble(reader.getMaxTime());
+			out.writeDouble(reader.getMinX());
+			out.writeDouble(reader.getMaxX());
+			out.writeDouble(reader.getMinY());
+			out.writeDouble(reader.getMaxY());
+
+			out.writeInt(nrofIds);
+			for (int i = 0; i < nrofIds; i++) {
+				byte[] idBytes = reader.getId(i).getBytes(
+						StandardCharsets.UTF_8);
+				out.writeInt(idBytes.length);
+				out.write(idBytes);
+			}
+
+			/* the second reader gives the ids the same indexes (in the
+			 * order of their first appearance) */
+			ExternalMovementReader steps = new ExternalMovementReader(textFile);
+			steps.setNormalize(false);
+			out.writeInt(nrofSteps);
+			for (int count = steps.readNextStep(); count > 0;
+					count = steps.readNextStep()) {
+				out.writeDouble(steps.getLastTimeStamp());
+				out.writeInt(count);
+				int[] ids = steps.getStepIds();
+				double[] xs = steps.getStepXs();
+				double[] ys = steps.getStepYs();
+				for (int i = 0; i < count; i++) {
+					out.writeInt(ids[i]);
+				}
+				for (int i = 0; i < count; i++) {
+					out.writeDouble(xs[i]);
+				}
+				for (int i = 0; i < count; i++) {
+					out.writeDouble(ys[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Converts a text movement file to a binary file.
+	 * @param args Path of the text file and path of the binary file
+	 * @throws IOException if the binary file couldn't be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.out.println("Usage: BinaryMovementReader textFile " +
+					"binaryFile" + BINARY_EXT);
+			System.exit(1);
+		}
+		storeToBinaryFile(args[0], args[1]);
+	}
+}
@@ -4,7 +4,6 @@
  */
 package input;
 
-import core.DTNHost;
 import core.World;
 
 /**
@@ -38,12 +37,34 @@ public class ConnectionEvent extends ExternalEvent {
 		this.interfaceId = interf;
 	}
 	
+	/**
+	 * Returns the address of the node the (dis)connection is from
+	 * @return the address of the node the (dis)connection is from
+	 */
+	public int getFromAddr() {
+		return this.fromAddr;
+	}
+	
+	/**
+	 * Returns the address of the node the (dis)connection is to
+	 * @return the address of the node the (dis)connection is to
+	 */
+	public int getToAddr() {
+		return this.toAddr;
+	}
+	
+	/**
+	 * Returns true if this is a "connection up" event
+	 * @return true if this is a "connection up" event
+	 */
+	public boolean isUp() {
+		return this.isUp;
+	}
+	
 	@Override
 	public void processEvent(World world) {
-		DTNHost from = world.getNodeByAddress(this.fromAddr);
-		DTNHost to = world.getNodeByAddress(this.toAddr);
-		
-		from.forceConnection(to, interfaceId, this.isUp);
+		world.getConnectionTable().setConnection(this.fromAddr, this.toAddr,
+				this.interfaceId, this.isUp);
 	}
 	
 	@Override
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+
+import core.ConnectionTable;
+import core.SimError;
+import core.World;
+
+/**
+ * Event queue that replays a contact trace recorded by
+ * {@link ContactTraceRecorder}. All connection events that happen at the
+ * same time are returned as a single external event, so the world updates
+ * the hosts once per contact time instead of once per connection event.
+ * The returned event object is reused and is valid only until the next
+ * call of {@link #nextEvent()}.
+ */
+public class ContactTraceQueue implements EventQueue {
+	private static final long serialVersionUID = 42L;
+
+	private static final int INIT_BATCH_SIZE = 64;
+	private final File file;
+	private transient ContactTraceReader reader;
+	/** Number of records read from the trace (for restoring the reader) */
+	private long nrofRecordsRead;
+	private final ContactBatch batch;
+
+	/**
+	 * Creates a new queue that replays a contact trace
+	 * @param file The contact trace file
+	 * @param nrofHosts Number of hosts in the scenario
+	 * @throws SimError if the trace was recorded with a different number of
+	 * hosts or can't be read
+	 */
+	public ContactTraceQueue(File file, int nrofHosts) {
+		this.file = file;
+		this.reader = new ContactTraceReader(file);
+		if (reader.getNrofHosts() != nrofHosts) {
+			throw new SimError("Contact trace " + file + " has " +
+					reader.getNrofHosts() + " hosts instead of " + nrofHosts);
+		}
+		String[] types = new String[reader.getNrofInterfaceTypes()];
+		for (int i = 0; i < types.length; i++) {
+			types[i] = reader.getInterfaceType(i);
+		}
+		this.batch = new ContactBatch(types);
+		nextRecord();
+	}
+
+	/**
+	 * Moves the reader to the next record of the trace
+	 * @return True if there was a record, false if the trace ended
+	 */
+	private boolean nextRecord() {
+		nrofRecordsRead++;
+		return reader.next();
+	}
+
+	public ExternalEvent nextEvent() {
+		if (!reader.hasEvent()) {
+			return new ExternalEvent(Double.MAX_VALUE);
+		}
+		double time = reader.getTime();
+		batch.clear(time);
+		do {
+			batch.add(reader.getFrom(), reader.getTo(),
+					reader.getInterfaceIndex(), reader.isUp());
+		} while (nextRecord() && reader.getTime() == time);
+		return batch;
+	}
+
+	public double nextEventsTime() {
+		return reader.hasEvent() ? reader.getTime() : Double.MAX_VALUE;
+	}
+
+	/**
+	 * Reads the queue and reopens the trace at the record it was at
+	 */
+	private void readObject(ObjectInputStream in)
+		throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.reader = new ContactTraceReader(file);
+		for (long i = 0; i < nrofRecordsRead; i++) {
+			reader.next();
+		}
+	}
+
+	/**
+	 * Connection events that happen at the same time
+	 */
+	private static class ContactBatch extends ExternalEvent {
+		private static final long serialVersionUID = 42L;
+
+		private final String[] interfaceTypes;
+		private int size;
+		private int[] from;
+		private int[] to;
+		private int[] types;
+		private boolean[] up;
+
+		private ContactBatch(String[] interfaceTypes) {
+			super(0);
+			this.interfaceTypes = interfaceTypes;
+			this.from = new int[INIT_BATCH_SIZE];
+			this.to = new int[INIT_BATCH_SIZE];
+			this.types = new int[INIT_BATCH_SIZE];
+			this.up = new boolean[INIT_BATCH_SIZE];
+		}
+
+		private void clear(double time) {
+			this.time = time;
+			this.size = 0;
+		}
+
+		private void add(int from, int to, int type, boolean up) {
+			if (size == this.from.length) {
+				int capacity = size * 2;
+				this.from = Arrays.copyOf(this.from, capacity);
+				this.to = Arrays.copyOf(this.to, capacity);
+				this.types = Arrays.copyOf(this.types, capacity);
+				this.up = Arrays.copyOf(this.up, capacity);
+			}
+			this.from[size] = from;
+			this.to[size] = to;
+			this.types[size] = type;
+			this.up[size] = up;
+			size++;
+		}
+
+		@Override
+		public void processEvent(World world) {
+			ConnectionTable table = world.getConnectionTable();
+			for (int i = 0; i < size; i++) {
+				table.setConnection(from[i], to[i], interfaceTypes[types[i]],
+						up[i]);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "CONTACTS @" + this.time + " " + size + " events";
+		}
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import core.SimError;
+
+/**
+ * Reader for binary contact trace files written by
+ * {@link ContactTraceRecorder}. The reader is positioned on one connection
+ * event at a time; {@link #next()} moves it to the next event.
+ */
+public class ContactTraceReader {
+	private final File file;
+	private DataInputStream in;
+	private int nrofHosts;
+	private String[] interfaceTypes;
+
+	/* the current event */
+	private double time;
+	private int from;
+	private int to;
+	private byte flags;
+	private boolean hasEvent;
+
+	/**
+	 * Opens a contact trace file and reads its header. The reader is not
+	 * positioned on any event before the first call of {@link #next()}.
+	 * @param file The file to read
+	 * @throws SimError if the file can't be read or is not a contact trace
+	 */
+	public ContactTraceReader(File file) {
+		this.file = file;
+		try {
+			this.in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(file)));
+			if (in.readInt() != ContactTraceRecorder.MAGIC) {
+				throw new SimError(file + " is not a contact trace file");
+			}
+			int version = in.readInt();
+			if (version != ContactTraceRecorder.VERSION) {
+				throw new SimError("Unsupported contact trace version " +
+						version + " in " + file);
+			}
+			this.nrofHosts = in.readInt();
+			this.interfaceTypes = new String[in.readShort()];
+			for (int i = 0; i < interfaceTypes.length; i++) {
+				interfaceTypes[i] = in.readUTF();
+			}
+		} catch (IOException e) {
+			throw new SimError("Can't read contact trace " + file, e);
+		}
+	}
+
+	/**
+	 * Moves to the next connection event
+	 * @return true if there was a next event, false if all events have
+	 * been read
+	 * @throws SimError if the file ends before the end of trace mark
+	 */
+	public boolean next() {
+		if (in == null) {
+			return false;
+		}
+		try {
+			time = in.readDouble();
+			from = in.readInt();
+			if (from == ContactTraceRecorder.END_OF_TRACE) {
+				close();
+				return false;
+			}
+			to = in.readInt();
+			flags = in.readByte();
+			hasEvent = true;
+			return true;
+		} catch (EOFException e) {
+			close();
+			throw new SimError("Contact trace " + file + " is truncated");
+		} catch (IOException e) {
+			throw new SimError("Can't read contact trace " + file, e);
+		}
+	}
+
+	/**
+	 * Closes the file. Called automatically after the last event.
+	 */
+	public void close() {
+		hasEvent = false;
+		if (in == null) {
+			return;
+		}
+		try {
+			in.close();
+		} catch (IOException e) {
+			// nothing to do; all data was read
+		}
+		in = null;
+	}
+
+	/**
+	 * Returns true if the reader is positioned on an event
+	 * @return true if the reader is positioned on an event
+	 */
+	public boolean hasEvent() {
+		return this.hasEvent;
+	}
+
+	/**
+	 * Returns the number of hosts in the scenario the trace was recorded in
+	 * @return the number of hosts
+	 */
+	public int getNrofHosts() {
+		return this.nrofHosts;
+	}
+
+	/**
+	 * Returns the time of the current event
+	 * @return the time of the current event
+	 */
+	public double getTime() {
+		return this.time;
+	}
+
+	/**
+	 * Returns the address of the host that initiated the current event
+	 * @return the address of the initiating host
+	 */
+	public int getFrom() {
+		return this.from;
+	}
+
+	/**
+	 * Returns the address of the other host of the current event
+	 * @return the address of the other host
+	 */
+	public int getTo() {
+		return this.to;
+	}
+
+	/**
+	 * Returns true if the current event is a connection up event
+	 * @return true for connection up, false for connection down
+	 */
+	public boolean isUp() {
+		return (flags & ContactTraceRecorder.UP_FLAG) != 0;
+	}
+
+	/**
+	 * Returns the index of the current event's interface type
+	 * @return the index of the interface type
+	 * @see #getInterfaceType(int)
+	 */
+	public int getInterfaceIndex() {
+		return (flags & 0xFF) >>> 1;
+	}
+
+	/**
+	 * Returns an interface type by its index in the trace
+	 * @param index Index of the interface type
+	 * @return The interface type
+	 */
+	public String getInterfaceType(int index) {
+		return this.interfaceTypes[index];
+	}
+
+	/**
+	 * Returns the number of interface types in the trace
+	 * @return the number of interface types
+	 */
+	public int getNrofInterfaceTypes() {
+		return this.interfaceTypes.length;
+	}
+}
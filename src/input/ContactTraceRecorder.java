@@ -0,0 +1,267 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import core.DTNHost;
+import core.InterfaceConnectionListener;
+import core.NetworkInterface;
+import core.SimClock;
+import core.SimError;
+
+/**
+ * <P>
+ * Records the connection up and down events of a simulation run to a binary
+ * contact trace file that {@link ContactTraceQueue} can replay without
+ * simulating movement and connectivity. Alternatively, in verification mode,
+ * compares the connection events of a run to an existing trace and throws
+ * a {@link SimError} on the first event that differs from the trace.
+ * </P>
+ * <P>
+ * The trace starts with a header (magic number, format version, number of
+ * hosts and the interface types) followed by the events. Every event is the
+ * event time (double), the addresses of the initiating and the other host
+ * (ints) and a flags byte with the up/down state in the lowest bit and
+ * the index of the interface type in the other bits. The last event is
+ * followed by an end of trace mark, so that truncated traces are detected.
+ * </P>
+ */
+public class ContactTraceRecorder implements InterfaceConnectionListener {
+	/** Magic number at the start of contact trace files */
+	public static final int MAGIC = 0x4354524B; // "CTRK"
+	/** Version of the contact trace file format */
+	public static final int VERSION = 1;
+	/** Host address value that marks the end of the trace */
+	public static final int END_OF_TRACE = -1;
+	/** Flag of connection up events */
+	public static final int UP_FLAG = 1;
+	/** Maximum number of interface types in a trace */
+	public static final int MAX_INTERFACE_TYPES = 127;
+
+	private final File file;
+	/** Is the trace verified instead of recorded */
+	private final boolean verify;
+	/** Has the verification found a difference */
+	private boolean failed;
+	/** Interface types of the scenario, the index is written to the trace */
+	private final List<String> interfaceTypes;
+	/** Output of a recording run (null when verifying) */
+	private DataOutputStream out;
+	/** Trace of a verification run (null when recording) */
+	private ContactTraceReader reader;
+	private long nrofEvents;
+
+	/**
+	 * Creates a recorder that records to a file or verifies against it
+	 * @param file The contact trace file
+	 * @param hosts All hosts of the scenario
+	 * @param verify If true, the file is read and the connection events are
+	 * compared to it. If false, the file is (over)written.
+	 * @throws SimError if the file can't be opened or, when verifying, the
+	 * trace was recorded with different hosts or interfaces
+	 */
+	public ContactTraceRecorder(File file, List<DTNHost> hosts,
+			boolean verify) {
+		this.file = file;
+		this.verify = verify;
+		this.interfaceTypes = new ArrayList<String>();
+		for (DTNHost h : hosts) {
+			for (NetworkInterface ni : h.getInterfaces()) {
+				if (!interfaceTypes.contains(ni.getInterfaceType())) {
+					interfaceTypes.add(ni.getInterfaceType());
+				}
+			}
+		}
+		if (interfaceTypes.size() > MAX_INTERFACE_TYPES) {
+			throw new SimError("Too many interface types (" +
+					interfaceTypes.size() + ") for a contact trace");
+		}
+
+		if (verify) {
+			this.reader = new ContactTraceReader(file);
+			checkHeader(hosts.size());
+			reader.next();
+		}
+		else {
+			openForWriting(hosts.size());
+		}
+	}
+
+	/**
+	 * Opens the trace file and writes the header
+	 */
+	private void openForWriting(int nrofHosts) {
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (dir != null && !dir.exists()) {
+			dir.mkdirs();
+		}
+		try {
+			this.out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file)));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(nrofHosts);
+			out.writeShort(interfaceTypes.size());
+			for (String type : interfaceTypes) {
+				out.writeUTF(type);
+			}
+		} catch (IOException e) {
+			throw new SimError("Can't write contact trace " + file, e);
+		}
+	}
+
+	/**
+	 * Checks that the trace to verify against matches this scenario
+	 */
+	private void checkHeader(int nrofHosts) {
+		if (reader.getNrofHosts() != nrofHosts) {
+			throw new SimError("Contact trace " + file + " has " +
+					reader.getNrofHosts() + " hosts instead of " + nrofHosts);
+		}
+		for (int i = 0; i < reader.getNrofInterfaceTypes(); i++) {
+			if (!interfaceTypes.contains(reader.getInterfaceType(i))) {
+				throw new SimError("Contact trace " + file + " has unknown " +
+						"interface type " + reader.getInterfaceType(i));
+			}
+		}
+	}
+
+	public void interfacesConnected(NetworkInterface ni1,
+			NetworkInterface ni2) {
+		event(ni1.getHost(), ni2.getHost(), ni1.getInterfaceType(), true);
+	}
+
+	public void interfacesDisconnected(NetworkInterface ni1,
+			NetworkInterface ni2) {
+		event(ni1.getHost(), ni2.getHost(), ni1.getInterfaceType(), false);
+	}
+
+	/**
+	 * Records or verifies a connection event of hosts whose interface isn't
+	 * known. The event is recorded for the first interface of the host that
+	 * initiated it, so this should be used only for hosts with one
+	 * interface.
+	 */
+	public void hostsConnected(DTNHost host1, DTNHost host2) {
+		event(host1, host2, getInterfaceType(host1), true);
+	}
+
+	/**
+	 * Records or verifies a disconnection event of hosts whose interface
+	 * isn't known.
+	 * @see #hostsConnected(DTNHost, DTNHost)
+	 */
+	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		event(host1, host2, getInterfaceType(host1), false);
+	}
+
+	/**
+	 * Records or verifies a connection event
+	 */
+	private void event(DTNHost from, DTNHost to, String interfaceType,
+			boolean up) {
+		double time = SimClock.getTime();
+		int type = interfaceTypes.indexOf(interfaceType);
+		int flags = (type << 1) | (up ? UP_FLAG : 0);
+		nrofEvents++;
+
+		if (out != null) {
+			try {
+				out.writeDouble(time);
+				out.writeInt(from.getAddress());
+				out.writeInt(to.getAddress());
+				out.writeByte(flags);
+			} catch (IOException e) {
+				throw new SimError("Can't write contact trace " + file, e);
+			}
+		}
+		else if (reader != null) {
+			if (!reader.hasEvent() || reader.getTime() != time ||
+					reader.getFrom() != from.getAddress() ||
+					reader.getTo() != to.getAddress() || reader.isUp() != up ||
+					!reader.getInterfaceType(reader.getInterfaceIndex()).equals(
+							interfaceTypes.get(type))) {
+				String msg = "Connection event " + nrofEvents + " (" +
+					(up ? "up " : "down ") + from + "-" + to + " @ " + time +
+					") differs from contact trace " + file + ": " + expected();
+				reader.close();
+				reader = null; // verification ends at the first difference
+				failed = true;
+				throw new SimError(msg);
+			}
+			reader.next();
+		}
+	}
+
+	/**
+	 * Returns a description of the expected event when verifying
+	 */
+	private String expected() {
+		if (!reader.hasEvent()) {
+			return "the trace has no more events";
+		}
+		return "expected " + (reader.isUp() ? "up " : "down ") +
+			reader.getFrom() + "-" + reader.getTo() + " @ " + reader.getTime();
+	}
+
+	/**
+	 * Returns the type of the first interface of a host
+	 */
+	private String getInterfaceType(DTNHost host) {
+		return host.getInterfaces().get(0).getInterfaceType();
+	}
+
+	/**
+	 * Finishes recording or verification. When recording, writes the end
+	 * of trace mark and closes the file. When verifying, checks that the
+	 * trace has no more events before the current simulation time.
+	 * @throws SimError if the verification fails or the file can't be written
+	 */
+	public void done() {
+		if (out != null) {
+			try {
+				out.writeDouble(SimClock.getTime());
+				out.writeInt(END_OF_TRACE);
+				out.close();
+			} catch (IOException e) {
+				throw new SimError("Can't write contact trace " + file, e);
+			}
+			out = null;
+		}
+		else if (reader != null) {
+			if (reader.hasEvent() && reader.getTime() <= SimClock.getTime()) {
+				failed = true;
+				throw new SimError("Contact trace " + file + " has events " +
+						"that didn't happen in the simulation: " + expected());
+			}
+			reader.close();
+			reader = null;
+		}
+	}
+
+	/**
+	 * Returns true if the recorder verifies a trace and no differences have
+	 * been found
+	 * @return true if the events so far match the trace
+	 */
+	public boolean isVerified() {
+		return this.verify && !this.failed;
+	}
+
+	/**
+	 * Returns the number of events recorded or verified so far
+	 * @return the number of events
+	 */
+	public long getNrofEvents() {
+		return this.nrofEvents;
+	}
+}
@@ -31,6 +31,7 @@ import core.SimClock;
  * @author teemuk
  */
 public class DTN2Events implements EventQueue {
+	private static final long serialVersionUID = 42L;
 	
 	private Queue<ExternalEvent>	events;
 	
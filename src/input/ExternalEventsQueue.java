@@ -5,6 +5,8 @@
 package input;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,6 +17,8 @@ import core.Settings;
  * the events and preloading only a proper amount of them.
  */
 public class ExternalEventsQueue implements EventQueue {
+	private static final long serialVersionUID = 42L;
+
 	/** ExternalEvents namespace ({@value})*/
 	public static final String SETTINGS_NAMESPACE = "ExternalEvents";
 	/** number of event to preload -setting id ({@value})*/
@@ -26,7 +30,9 @@ public class ExternalEventsQueue implements EventQueue {
 	public static final int DEFAULT_NROF_PRELOAD = 500;
 	
 	private File eventsFile;
-	private ExternalEventsReader reader;
+	private transient ExternalEventsReader reader;
+	/** Number of events read from the file (for restoring the reader) */
+	private long nrofEventsRead;
 	private int nextEventIndex;
 	private int nrofPreload;
 	private List<ExternalEvent> queue;
@@ -76,18 +82,23 @@ public class ExternalEventsQueue implements EventQueue {
 	
 	private void init(String eeFilePath) {
 		this.eventsFile = new File(eeFilePath);
-		
+		openReader();
+		this.queue = readEvents(nrofPreload);
+		this.nextEventIndex = 0;
+	}
+	
+	/**
+	 * Opens the events reader for the events file
+	 */
+	private void openReader() {
 		if (BinaryEventsReader.isBinaryEeFile(eventsFile)) {
 			this.reader = new BinaryEventsReader(eventsFile);
 		}
 		else {
 			this.reader = new StandardEventsReader(eventsFile);
 		}
-		
-		this.queue = readEvents(nrofPreload);
-		this.nextEventIndex = 0;
 	}
-	
+
 	/**
 	 * Returns next event's time or Double.MAX_VALUE if there are no 
 	 * events left 
@@ -151,6 +162,7 @@ public class ExternalEventsQueue implements EventQueue {
 		}
 		
 		List<ExternalEvent> events = reader.readEvents(nrof);
+		nrofEventsRead += events.size();
 		
 		if (nrof > 0 && events.size() == 0) {
 			reader.close();
@@ -159,5 +171,27 @@ public class ExternalEventsQueue implements EventQueue {
 				
 		return events;
 	}
-	
+
+	/**
+	 * Reads the queue and reopens the events file after the events that
+	 * were already read
+	 */
+	private void readObject(ObjectInputStream in)
+		throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (allEventsRead) {
+			return;
+		}
+		openReader();
+		long toSkip = nrofEventsRead;
+		while (toSkip > 0) {
+			int nrof = (int)Math.min(toSkip, nrofPreload);
+			int read = reader.readEvents(nrof).size();
+			if (read == 0) {
+				throw new IOException("Events file " + eventsFile +
+						" has less events than were read before");
+			}
+			toSkip -= read;
+		}
+	}
 }
@@ -4,11 +4,16 @@
  */
 package input;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
 
 import core.Coord;
 import core.SettingsError;
@@ -34,12 +39,18 @@ import core.Tuple;
  * All lines must be sorted by time. Sampling interval (time difference between
  * two time instances) must be same for the whole file.
  * </P>
+ * <P>
+ * Text files can be converted to the faster binary format with
+ * {@link BinaryMovementReader#storeToBinaryFile(String, String)}.
+ * </P>
  */
-public class ExternalMovementReader {
+public class ExternalMovementReader implements MovementStepReader {
 	/* Prefix for comment lines (lines starting with this are ignored) */
 	public static final String COMMENT_PREFIX = "#";
-	private Scanner scanner;
+	private BufferedReader reader;
+	private String inFileName;
 	private double lastTimeStamp = -1;
+	/** the first unprocessed data line or null if all lines are read */
 	private String lastLine;
 	private double minTime;
 	private double maxTime;
@@ -49,6 +60,19 @@ public class ExternalMovementReader {
 	private double maxY;
 	private boolean normalize;
 
+	/** ID indexes by external ID (for {@link #readNextStep()}) */
+	private Map<String, Integer> idIndexes;
+	/** external IDs by ID index */
+	private List<String> ids;
+	private int[] stepIds;
+	private double[] stepXs;
+	private double[] stepYs;
+	
+	/* values parsed from the latest line */
+	private double lineTime;
+	private String lineId;
+	private double lineX;
+	private double lineY;
 		
 	/**
 	 * Constructor. Creates a new reader that reads the data from a file.
@@ -57,29 +81,36 @@ public class ExternalMovementReader {
 	 */
 	public ExternalMovementReader(String inFilePath) {
 		this.normalize = true;
+		this.inFileName = inFilePath;
+		this.idIndexes = new HashMap<String, Integer>();
+		this.ids = new ArrayList<String>();
+		this.stepIds = new int[0];
+		this.stepXs = new double[0];
+		this.stepYs = new double[0];
+		
 		File inFile = new File(inFilePath);
 		try {
-			scanner = new Scanner(inFile);
+			reader = new BufferedReader(new FileReader(inFile));
 		} catch (FileNotFoundException e) {
 			throw new SettingsError("Couldn't find external movement input " +
 					"file " + inFile);
 		}
 		
-		String offsets = scanner.nextLine();
+		String offsets = nextLine();
 	
 		try {
-			Scanner lineScan = new Scanner(offsets);
-			minTime = lineScan.nextDouble();
-			maxTime = lineScan.nextDouble();
-			minX = lineScan.nextDouble();
-			maxX = lineScan.nextDouble();
-			minY = lineScan.nextDouble();
-			maxY = lineScan.nextDouble();
+			String[] values = offsets.trim().split("\\s+");
+			minTime = Double.parseDouble(values[0]);
+			maxTime = Double.parseDouble(values[1]);
+			minX = Double.parseDouble(values[2]);
+			maxX = Double.parseDouble(values[3]);
+			minY = Double.parseDouble(values[4]);
+			maxY = Double.parseDouble(values[5]);
 		} catch (Exception e) {
 			throw new SettingsError("Invalid offset line '" + offsets + "'");
 		}
 		
-		lastLine = scanner.nextLine();
+		lastLine = nextDataLine();
 	}
 	
 	/**
@@ -101,58 +132,123 @@ public class ExternalMovementReader {
 		ArrayList<Tuple<String, Coord>> moves = 
 			new ArrayList<Tuple<String, Coord>>();
 		
-		if (!scanner.hasNextLine()) {
+		if (lastLine == null) {
 			return moves;
 		}
 		
-		Scanner lineScan = new Scanner(lastLine);
-		double time = lineScan.nextDouble();
-		String id = lineScan.next();
-		double x = lineScan.nextDouble();
-		double y = lineScan.nextDouble();
+		parseLine(lastLine);
+		lastTimeStamp = lineTime;
 		
-		if (normalize) {
-			time -= minTime;
-			x -= minX;
-			y -= minY;
+		while (lastLine != null && lineTime == lastTimeStamp) {
+			moves.add(new Tuple<String, Coord>(lineId, 
+					new Coord(lineX, lineY)));
+			lastLine = nextDataLine();
+			if (lastLine != null) {
+				parseLine(lastLine);
+			}
 		}
 		
-		lastTimeStamp = time;
+		return moves;
+	}
+	
+	/**
+	 * Reads the locations of the next time instance. See
+	 * {@link MovementStepReader#readNextStep()}.
+	 * @return Number of locations read or 0 if there were no more locations
+	 * @throws SettingsError if an invalid line was read
+	 */
+	public int readNextStep() {
+		List<Tuple<String, Coord>> moves = readNextMovements();
+		int count = moves.size();
+		if (stepIds.length < count) {
+			stepIds = Arrays.copyOf(stepIds, count);
+			stepXs = Arrays.copyOf(stepXs, count);
+			stepYs = Arrays.copyOf(stepYs, count);
+		}
 		
-		while (scanner.hasNextLine() && lastTimeStamp == time) {
-			lastLine = scanner.nextLine();
-			
-			if (lastLine.trim().length() == 0 || 
-					(lastLine.startsWith(COMMENT_PREFIX))) {
-				continue; /* skip empty and comment lines */
-			}
-						
-			// add previous line's tuple
-			moves.add(new Tuple<String, Coord>(id, new Coord(x,y)));		
-
-			lineScan = new Scanner(lastLine);
-			
-			try {
-				time = lineScan.nextDouble();
-				id = lineScan.next();
-				x = lineScan.nextDouble();
-				y = lineScan.nextDouble();
-			} catch (Exception e) {
-				throw new SettingsError("Invalid line '" + lastLine + "'");
-			}
-			
-			if (normalize) {
-				time -= minTime;
-				x -= minX;
-				y -= minY;
+		for (int i = 0; i < count; i++) {
+			Tuple<String, Coord> t = moves.get(i);
+			Integer index = idIndexes.get(t.getKey());
+			if (index == null) {
+				index = ids.size();
+				idIndexes.put(t.getKey(), index);
+				ids.add(t.getKey());
 			}
+			stepIds[i] = index;
+			stepXs[i] = t.getValue().getX();
+			stepYs[i] = t.getValue().getY();
 		}
 		
-		if (!scanner.hasNextLine()) {	// add the last tuple of the file
-			moves.add(new Tuple<String, Coord>(id, new Coord(x,y)));
+		return count;
+	}
+	
+	public int[] getStepIds() {
+		return this.stepIds;
+	}
+	
+	public double[] getStepXs() {
+		return this.stepXs;
+	}
+	
+	public double[] getStepYs() {
+		return this.stepYs;
+	}
+	
+	public String getId(int idIndex) {
+		return ids.get(idIndex);
+	}
+	
+	/**
+	 * Parses a data line to the line value fields
+	 * @param line The line to parse
+	 * @throws SettingsError if the line was invalid
+	 */
+	private void parseLine(String line) {
+		try {
+			String[] values = line.trim().split("\\s+");
+			lineTime = Double.parseDouble(values[0]);
+			lineId = values[1];
+			lineX = Double.parseDouble(values[2]);
+			lineY = Double.parseDouble(values[3]);
+		} catch (Exception e) {
+			throw new SettingsError("Invalid line '" + line + "'");
 		}
 		
-		return moves;
+		if (normalize) {
+			lineTime -= minTime;
+			lineX -= minX;
+			lineY -= minY;
+		}
+	}
+	
+	/**
+	 * Returns the next line that isn't empty or a comment line
+	 * @return The next data line or null if there are no more lines
+	 */
+	private String nextDataLine() {
+		String line = nextLine();
+		while (line != null && (line.trim().length() == 0 || 
+				line.startsWith(COMMENT_PREFIX))) {
+			line = nextLine(); /* skip empty and comment lines */
+		}
+		return line;
+	}
+	
+	/**
+	 * Returns the next line of the file
+	 * @return The next line or null if there are no more lines
+	 */
+	private String nextLine() {
+		try {
+			String line = reader.readLine();
+			if (line == null) {
+				reader.close();
+			}
+			return line;
+		} catch (IOException e) {
+			throw new SettingsError("Couldn't read external movement input " +
+					"file " + inFileName, e);
+		}
 	}
 	
 	/**
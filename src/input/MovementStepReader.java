@@ -0,0 +1,98 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package input;
+
+/**
+ * Interface for readers of external movement data that deliver the node
+ * locations of one time instance at a time as primitive arrays. External
+ * node IDs are mapped to non-negative ID indexes by the reader; the same
+ * external ID always gets the same index.
+ */
+public interface MovementStepReader {
+
+	/**
+	 * Reads the locations of the next time instance. The results are
+	 * available from {@link #getStepIds()}, {@link #getStepXs()} and
+	 * {@link #getStepYs()} until the next call of this method.
+	 * @return Number of locations read or 0 if there were no more locations
+	 */
+	public int readNextStep();
+
+	/**
+	 * Returns the ID indexes of the nodes of the last read time instance.
+	 * The array is reused by the reader and can be longer than the number
+	 * of locations read.
+	 * @return The ID indexes
+	 */
+	public int[] getStepIds();
+
+	/**
+	 * Returns the x coordinates of the last read time instance
+	 * @return The x coordinates (see {@link #getStepIds()})
+	 */
+	public double[] getStepXs();
+
+	/**
+	 * Returns the y coordinates of the last read time instance
+	 * @return The y coordinates (see {@link #getStepIds()})
+	 */
+	public double[] getStepYs();
+
+	/**
+	 * Returns the external ID of an ID index
+	 * @param idIndex The ID index
+	 * @return The external ID
+	 */
+	public String getId(int idIndex);
+
+	/**
+	 * Returns the time stamp of the last read time instance
+	 * @return The time stamp
+	 */
+	public double getLastTimeStamp();
+
+	/**
+	 * Sets normalizing of read values on/off. If on, read values are
+	 * decremented by the minimum values of the offsets.
+	 * @param normalize If true, normalizing is on (false -> off).
+	 */
+	public void setNormalize(boolean normalize);
+
+	/**
+	 * Returns offset minTime
+	 * @return the minTime
+	 */
+	public double getMinTime();
+
+	/**
+	 * Returns offset maxTime
+	 * @return the maxTime
+	 */
+	public double getMaxTime();
+
+	/**
+	 * Returns offset minX
+	 * @return the minX
+	 */
+	public double getMinX();
+
+	/**
+	 * Returns offset maxX
+	 * @return the maxX
+	 */
+	public double getMaxX();
+
+	/**
+	 * Returns offset minY
+	 * @return the minY
+	 */
+	public double getMinY();
+
+	/**
+	 * Returns offset maxY
+	 * @return the maxY
+	 */
+	public double getMaxY();
+}
@@ -23,6 +23,8 @@ import core.SettingsError;
  * @see MessageEventGenerator
  */
 public class OneFromEachMessageGenerator extends MessageEventGenerator {
+	private static final long serialVersionUID = 42L;
+
 	private List<Integer> fromIds;
 	
 	public OneFromEachMessageGenerator(Settings s) {
@@ -13,6 +13,8 @@ import java.util.List;
  * are merged to a single update.
  */
 public class ScheduledUpdatesQueue implements EventQueue {
+	private static final long serialVersionUID = 42L;
+
 	/** Time of the event (simulated seconds) */
 	private ExternalEvent nextEvent;
 	private List<ExternalEvent> updates;
@@ -9,6 +9,7 @@ import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import core.SimError;
@@ -61,6 +62,15 @@ public class StandardEventsReader implements ExternalEventsReader {
 	/** Message identifier to use to refer to all messages ({@value}) */ 
 	public static final String ALL_MESSAGES_ID = "*";
 	
+	/** Pattern of empty and comment lines */
+	private static final Pattern SKIP_PATTERN = Pattern.compile("(#.*)|(^\\s*$)");
+	/** Pattern of the separators of the fields */
+	private static final Pattern FIELD_SEPARATOR = Pattern.compile("\\s+");
+	/** Pattern of host IDs (optional non-numeric part and the address) */
+	private static final Pattern HOST_ID_PATTERN = Pattern.compile("\\D*(\\d+)");
+	/** Pattern of integer fields */
+	private static final Pattern INT_PATTERN = Pattern.compile("[-+]?\\d+");
+	
 	private Scanner scanner;
 	
 	public StandardEventsReader(File eventsFile){
@@ -75,16 +85,16 @@ public class StandardEventsReader implements ExternalEventsReader {
 	public List<ExternalEvent> readEvents(int nrof) {
 		ArrayList<ExternalEvent> events = new ArrayList<ExternalEvent>(nrof);
 		int eventsRead = 0;
-		// skip empty and comment lines
-		Pattern skipPattern = Pattern.compile("(#.*)|(^\\s*$)");
 
 		while (eventsRead < nrof && scanner.hasNextLine()) {
 			String line = scanner.nextLine();
-			Scanner lineScan = new Scanner(line);
-			if (skipPattern.matcher(line).matches()) {
+			if (SKIP_PATTERN.matcher(line).matches()) {
 				// skip empty and comment lines
 				continue;
 			}
+			/* splitting is much cheaper than a Scanner for every line */
+			String[] fields = FIELD_SEPARATOR.split(line.trim());
+			int field = 0;
 			
 			double time;
 			String action;
@@ -93,32 +103,32 @@ public class StandardEventsReader implements ExternalEventsReader {
 			int host2Addr;
 					
 			try {
-				time = lineScan.nextDouble();
-				action = lineScan.next();		
+				time = Double.parseDouble(fields[field++]);
+				action = fields[field++];
 			
 				if (action.equals(DROP)) {
-					msgId = lineScan.next();
-					hostAddr = getHostAddress(lineScan.next());
+					msgId = fields[field++];
+					hostAddr = getHostAddress(fields[field++]);
 					events.add(new MessageDeleteEvent(hostAddr, msgId,
 							time, true));
 				}
 				else if (action.equals(REMOVE)) {
-					msgId = lineScan.next();
-					hostAddr = getHostAddress(lineScan.next());
+					msgId = fields[field++];
+					hostAddr = getHostAddress(fields[field++]);
 					events.add(new MessageDeleteEvent(hostAddr, msgId,
 							time, false));
 				}
 				else if (action.equals(CONNECTION)) {
 					String connEventType;
 					boolean isUp;
-					hostAddr = getHostAddress(lineScan.next());
-					host2Addr = getHostAddress(lineScan.next());
-					connEventType = lineScan.next();
+					hostAddr = getHostAddress(fields[field++]);
+					host2Addr = getHostAddress(fields[field++]);
+					connEventType = fields[field++];
 					
 					String interfaceId = null;
-					if (lineScan.hasNext()) {
-						interfaceId = lineScan.next();
-					}	
+					if (field < fields.length) {
+						interfaceId = fields[field++];
+					}
 					
 					if (connEventType.equalsIgnoreCase(CONNECTION_UP)) {
 						isUp = true;
@@ -137,16 +147,17 @@ public class StandardEventsReader implements ExternalEventsReader {
 					events.add(ce);
 				}
 				else {
-					msgId = lineScan.next();
-					hostAddr = getHostAddress(lineScan.next());
+					msgId = fields[field++];
+					hostAddr = getHostAddress(fields[field++]);
 				
-					host2Addr = getHostAddress(lineScan.next());
+					host2Addr = getHostAddress(fields[field++]);
 				
 					if (action.equals(CREATE)){
-						int size = lineScan.nextInt();
+						int size = Integer.parseInt(fields[field++]);
 						int respSize = 0;
-						if (lineScan.hasNextInt()) {
-							respSize = lineScan.nextInt();
+						if (field < fields.length &&
+								INT_PATTERN.matcher(fields[field]).matches()) {
+							respSize = Integer.parseInt(fields[field++]);
 						}
 						events.add(new MessageCreateEvent(hostAddr, host2Addr,
 								msgId, size, respSize, time));
@@ -170,10 +181,6 @@ public class StandardEventsReader implements ExternalEventsReader {
 								msgId, time, stage));
 					}						
 				}
-				// discard the newline in the end
-				if (lineScan.hasNextLine()) {
-					lineScan.nextLine(); // TODO: test
-				}
 				eventsRead++;
 			} catch (Exception e) {
 				throw new SimError("Can't parse external event " + 
@@ -192,19 +199,12 @@ public class StandardEventsReader implements ExternalEventsReader {
 	 * @throws SimError if no address could be parsed from the id
 	 */
 	private int getHostAddress(String hostId) {
-		String addressPart = "";
-		if (hostId.matches("^\\d+$")) {
-			addressPart = hostId; // host id is only the address
-		}
-		else if (hostId.matches("^\\D+\\d+$")) {
-			String [] parts = hostId.split("\\D");
-			addressPart = parts[parts.length-1]; // last occurence is the addr
-		}
-		else {
+		Matcher m = HOST_ID_PATTERN.matcher(hostId);
+		if (!m.matches()) {
 			throw new SimError("Invalid host ID '" + hostId + "'");
 		}
 		
-		return Integer.parseInt(addressPart);
+		return Integer.parseInt(m.group(1)); // the numeric part is the addr
 	}
 	
 	public void close() {
@@ -93,14 +93,12 @@ public class WKTMapReader extends WKTReader {
 	public void addPaths(Reader input, int nodeType) throws IOException {
 		this.nodeType = nodeType;
 		String type;
-		String contents;
 		
 		init(input);
 		
 		while((type = nextType()) != null) {
 			if (type.equals(LINESTRING)) {
-				contents = readNestedContents();
-				updateMap(parseLineString(contents));
+				updateMap(readLineString());
 			}
 			else if (type.equals(MULTILINESTRING)) {
 				for (List<Coord> list : parseMultilinestring()) {
@@ -12,7 +12,6 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
 
 import core.Coord;
 
@@ -21,6 +20,8 @@ import core.Coord;
  * <A HREF="http://en.wikipedia.org/wiki/Well-known_text">Wikipedia</A> for
  * WKT syntax details. For example, <A HREF="http://openjump.org/">Open JUMP</A> 
  * GIS program can save compatible data from many other formats.<BR>
+ * Coordinate data is parsed directly from the character stream without
+ * creating intermediate strings of the nested contents.
  */
 public class WKTReader {
 	/** known WKT type LINESTRING */
@@ -34,6 +35,10 @@ public class WKTReader {
 	private boolean done;
 	/** reader for the data */
 	private BufferedReader reader;
+	/** buffer for the characters of the number that is being read */
+	private final StringBuilder numberBuf = new StringBuilder();
+	/** the character that ended the last number read (or -1 for EOF) */
+	private int lastChar;
 	
 	/**
 	 * Read point data from a file
@@ -84,7 +89,7 @@ public class WKTReader {
 		
 		while((type = nextType()) != null) {
 			if (type.equals(LINESTRING)) {
-				lines.add(parseLineString(readNestedContents()));
+				lines.add(readLineString());
 			}
 			else {
 				// known type but not interesting -> skip
@@ -178,14 +183,16 @@ public class WKTReader {
 	protected List<List<Coord>> parseMultilinestring() 
 			throws IOException {
 		List<List<Coord>> list = new ArrayList<List<Coord>>();
-		String multiContents = readNestedContents(reader);
-		StringReader r2 = new StringReader(multiContents);
-		String lineString = readNestedContents(r2);
+		int c;
 		
-		while (lineString.length() > 0) {
-			list.add(parseLineString(lineString));
-			lineString = readNestedContents(r2);
-		}
+		skipUntil(reader, '(');
+		do {
+			c = skipAllWhitespace(reader);
+			if (c == '(') {
+				list.add(readCoordTuples(reader));
+				c = skipAllWhitespace(reader);
+			}
+		} while (c == ',');
 		
 		return list;
 	}
@@ -196,20 +203,84 @@ public class WKTReader {
 	 * @throws IOException if couldn't parse coordinate values
 	 */
 	protected Coord parsePoint() throws IOException {
-		String coords = readNestedContents(reader);
-		Scanner s = new Scanner(coords);
 		double x,y;
 		
-		try {
-			x = s.nextDouble();
-			y = s.nextDouble();
-		} catch (RuntimeException e) {
-			throw new IOException("Bad coordinate values: '" + coords + "'");
+		skipUntil(reader, '(');
+		x = readNumber(reader);
+		y = readNumber(reader);
+		if (lastChar != ')') {
+			skipUntil(reader, ')');
 		}
 		
 		return new Coord(x,y);
 	}
 	
+	/**
+	 * Parses the coordinates of a "LINESTRING" from the intialized reader
+	 * @return List of coordinates parsed from the linestring
+	 * @throws IOException if couldn't parse coordinate values
+	 */
+	protected List<Coord> readLineString() throws IOException {
+		skipUntil(reader, '(');
+		return readCoordTuples(reader);
+	}
+	
+	/**
+	 * Reads comma separated coordinate tuples from a reader until a closing
+	 * parenthesis or end of stream. Values after the first two values of a
+	 * tuple (e.g., Z coordinates) are ignored.
+	 * @param r Reader to read the tuples from
+	 * @return List of coordinates that were read
+	 * @throws IOException if couldn't parse coordinate values
+	 */
+	protected List<Coord> readCoordTuples(Reader r) throws IOException {
+		List<Coord> coords = new ArrayList<Coord>();
+		int c;
+		
+		do {
+			double x = readNumber(r);
+			double y = readNumber(r);
+			coords.add(new Coord(x,y));
+			
+			c = lastChar;
+			while (c != -1 && c != ',' && c != ')') {
+				c = r.read();
+			}
+		} while (c == ',');
+		
+		return coords;
+	}
+	
+	/**
+	 * Reads a number from a reader. Leading whitespace is skipped and the 
+	 * number ends at whitespace, comma, parenthesis or end of stream. The 
+	 * character that ended the number is stored in {@link #lastChar}.
+	 * @param r Reader to read the number from
+	 * @return The number that was read
+	 * @throws IOException if no valid number could be read
+	 */
+	private double readNumber(Reader r) throws IOException {
+		int c;
+		do {
+			c = r.read();
+		} while (c != -1 && Character.isWhitespace(c));
+		
+		numberBuf.setLength(0);
+		while (c != -1 && !Character.isWhitespace(c) && c != ',' && 
+				c != '(' && c != ')') {
+			numberBuf.append((char)c);
+			c = r.read();
+		}
+		lastChar = c;
+		
+		try {
+			return Double.parseDouble(numberBuf.toString());
+		} catch (NumberFormatException e) {
+			throw new IOException("Bad coordinate value: '" + numberBuf + 
+					"'");
+		}
+	}
+	
 	/**
 	 * Reads and skips all characters until character "until" is read or 
 	 * end of stream is reached. Also the expected character is discarded.
@@ -287,25 +358,11 @@ public class WKTReader {
 	 * @return List of coordinates parsed from the linestring
 	 */
 	protected List<Coord> parseLineString(String line) {
-		List<Coord> coords = new ArrayList<Coord>(); 
-		Scanner lineScan;
-		Scanner tupleScan;
-		double x,y;
-		Coord c;
-		
-		lineScan = new Scanner(line);
-		lineScan.useDelimiter(",");
-			
-		while (lineScan.hasNext()) {			
-			tupleScan = new Scanner(lineScan.next());
-			x = Double.parseDouble(tupleScan.next());
-			y = Double.parseDouble(tupleScan.next());
-			c = new Coord(x,y);
-						
-			coords.add(c);
+		try {
+			return readCoordTuples(new StringReader(line));
+		} catch (IOException e) {
+			throw new NumberFormatException(e.getMessage());
 		}
-		
-		return coords;
 	}
 	
 	/**
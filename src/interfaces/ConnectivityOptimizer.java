@@ -4,15 +4,73 @@
  */
 package interfaces;
 
+import java.io.Serializable;
 import java.util.Collection;
 
+import core.DTNSim;
 import core.NetworkInterface;
+import core.Settings;
+import core.SettingsError;
+import core.World;
 
 /**
  * A superclass for schemes for optimizing the location of possible contacts
  * with network interfaces of a specific range
  */
-abstract public class ConnectivityOptimizer {
+abstract public class ConnectivityOptimizer implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	/** Value of the {@link World#SPATIAL_INDEX_S} setting for
+	 * {@link ConnectivityGrid} ({@value}) */
+	public static final String DENSE_GRID = "grid";
+	/** Value of the {@link World#SPATIAL_INDEX_S} setting for
+	 * {@link SparseConnectivityGrid} ({@value}) */
+	public static final String SPARSE_GRID = "sparse";
+
+	/** Is the sparse grid used instead of the dense one */
+	private static boolean useSparseGrid;
+
+	static {
+		DTNSim.registerForReset(ConnectivityOptimizer.class.getCanonicalName());
+		reset();
+	}
+
+	public static void reset() {
+		Settings s = new Settings(World.SETTINGS_NS);
+		String index = DENSE_GRID;
+		if (s.contains(World.SPATIAL_INDEX_S)) {
+			index = s.getSetting(World.SPATIAL_INDEX_S);
+		}
+
+		if (index.equals(SPARSE_GRID)) {
+			useSparseGrid = true;
+		}
+		else if (index.equals(DENSE_GRID)) {
+			useSparseGrid = false;
+		}
+		else {
+			throw new SettingsError("Unknown value '" + index + "' for " +
+					World.SETTINGS_NS + "." + World.SPATIAL_INDEX_S);
+		}
+	}
+
+	/**
+	 * Returns the connectivity optimizer (of the type selected with the
+	 * {@link World#SPATIAL_INDEX_S} setting) for a group of interfaces
+	 * @param key A hash value that separates different interfaces from each
+	 * other
+	 * @param cellSize Cell's edge's length (must be larger than the largest
+	 * 	radio coverage's diameter)
+	 * @return The optimizer for the interfaces with the key
+	 */
+	public static ConnectivityOptimizer getOptimizer(int key,
+			double cellSize) {
+		if (useSparseGrid) {
+			return SparseConnectivityGrid.SparseConnectivityGridFactory(key,
+					cellSize);
+		}
+		return ConnectivityGrid.ConnectivityGridFactory(key, cellSize);
+	}
 
 	/**
 	 * Adds a network interface to the optimizer (unless it is already present)
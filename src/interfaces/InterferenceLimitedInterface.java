@@ -19,6 +19,8 @@ import core.VBRConnection;
  * transmissions. The configured transmit speed is the maximum obtainable speed.
  */
 public class InterferenceLimitedInterface extends NetworkInterface {
+	private static final long serialVersionUID = 42L;
+
 	protected int currentTransmitSpeed;
 	protected int numberOfTransmissions;
 
@@ -79,7 +81,7 @@ public class InterferenceLimitedInterface extends NetworkInterface {
 	 */
 	public void update() {
 		// First break the old ones
-		optimizer.updateLocation(this);
+		updateLocation();
 		for (int i=0; i<this.connections.size(); ) {
 			Connection con = this.connections.get(i);
 			NetworkInterface anotherInterface = con.getOtherInterface(this);
@@ -95,8 +97,7 @@ public class InterferenceLimitedInterface extends NetworkInterface {
 			}
 		}
 		// Then find new possible connections
-		Collection<NetworkInterface> interfaces = 
-			optimizer.getNearInterfaces(this);
+		Collection<NetworkInterface> interfaces = getNearInterfaces();
 		for (NetworkInterface i : interfaces) 
 			connect(i);
 
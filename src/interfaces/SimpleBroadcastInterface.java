@@ -17,6 +17,8 @@ import core.Settings;
  * one transmission can be on at a time.
  */
 public class SimpleBroadcastInterface extends NetworkInterface {
+	private static final long serialVersionUID = 42L;
+
 	/**
 	 * Reads the interface settings from the Settings file
 	 *  
@@ -67,7 +69,7 @@ public class SimpleBroadcastInterface extends NetworkInterface {
 	 */
 	public void update() {
 		// First break the old ones
-		optimizer.updateLocation(this);
+		updateLocation();
 		for (int i=0; i<this.connections.size(); ) {
 			Connection con = this.connections.get(i);
 			NetworkInterface anotherInterface = con.getOtherInterface(this);
@@ -84,8 +86,7 @@ public class SimpleBroadcastInterface extends NetworkInterface {
 			}
 		}
 		// Then find new possible connections
-		Collection<NetworkInterface> interfaces =
-			optimizer.getNearInterfaces(this);
+		Collection<NetworkInterface> interfaces = getNearInterfaces();
 		for (NetworkInterface i : interfaces) {
 			connect(i);
 		}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package interfaces;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+
+import core.Coord;
+import core.DTNSim;
+import core.NetworkInterface;
+
+/**
+ * <P>
+ * Sparse variant of the {@link ConnectivityGrid}. The world is divided into
+ * cells the same way, but only the cells that have interfaces in them are
+ * stored, in an open addressing hash table keyed by the cell's row and
+ * column. Memory use depends on the number of interfaces instead of the
+ * size of the world, which suits large worlds with short radio ranges.
+ * </P>
+ * <P>
+ * Neighbor queries don't allocate anything: the collection returned by
+ * {@link #getNearInterfaces(NetworkInterface)} is reused and is valid only
+ * until the next query. The interfaces are returned in the same order as
+ * the dense grid returns them. Negative coordinates are supported.
+ * </P>
+ */
+public class SparseConnectivityGrid extends ConnectivityOptimizer {
+	private static final long serialVersionUID = 42L;
+
+	/** Initial size of the hash table (must be a power of two) */
+	private static final int INIT_CAPACITY = 64;
+
+	/** Hash table of the non-empty cells (null for free slots) */
+	private GridCell[] table;
+	private int mask;
+	/** Number of cells in the table */
+	private int size;
+	/** Empty cells waiting for reuse */
+	private ArrayList<GridCell> freeCells;
+	private HashMap<NetworkInterface,GridCell> ginterfaces;
+	/** Result of the latest neighbor query */
+	private ArrayList<NetworkInterface> nearInterfaces;
+	private int cellSize;
+
+	static HashMap<Integer,SparseConnectivityGrid> gridobjects;
+
+	static {
+		DTNSim.registerForReset(SparseConnectivityGrid.class.getCanonicalName());
+		reset();
+	}
+
+	public static void reset() {
+		gridobjects = new HashMap<Integer,SparseConnectivityGrid>();
+	}
+
+	/**
+	 * Creates a new sparse connectivity grid
+	 * @param cellSize Cell's edge's length (must be larger than the largest
+	 * 	radio coverage's diameter)
+	 */
+	public SparseConnectivityGrid(int cellSize) {
+		this.cellSize = cellSize;
+		this.table = new GridCell[INIT_CAPACITY];
+		this.mask = INIT_CAPACITY - 1;
+		this.size = 0;
+		this.freeCells = new ArrayList<GridCell>();
+		this.ginterfaces = new HashMap<NetworkInterface,GridCell>();
+		this.nearInterfaces = new ArrayList<NetworkInterface>();
+	}
+
+	/**
+	 * Returns a sparse connectivity grid object based on a hash value
+	 * @param key A hash value that separates different interfaces from each other
+	 * @param cellSize  Cell's edge's length (must be larger than the largest
+	 * 	radio coverage's diameter)
+	 * @return The connectivity grid object for a specific interface
+	 */
+	public static SparseConnectivityGrid SparseConnectivityGridFactory(
+			int key, double cellSize) {
+		SparseConnectivityGrid grid = gridobjects.get(key);
+		if (grid == null) {
+			grid = new SparseConnectivityGrid((int)Math.ceil(cellSize));
+			gridobjects.put(key, grid);
+		}
+		return grid;
+	}
+
+	/**
+	 * Adds a network interface to the grid
+	 * @param ni The new network interface
+	 */
+	public void addInterface(NetworkInterface ni) {
+		GridCell c = getOrCreateCell(cellKey(ni.getLocation()));
+		c.interfaces.add(ni);
+		ginterfaces.put(ni, c);
+	}
+
+	/**
+	 * Removes a network interface from the grid
+	 * @param ni The interface to be removed
+	 */
+	public void removeInterface(NetworkInterface ni) {
+		GridCell c = ginterfaces.remove(ni);
+		if (c != null) {
+			c.interfaces.remove(ni);
+			releaseIfEmpty(c);
+		}
+	}
+
+	/**
+	 * Adds interfaces to the grid
+	 * @param interfaces Collection of interfaces to add
+	 */
+	public void addInterfaces(Collection<NetworkInterface> interfaces) {
+		for (NetworkInterface n : interfaces) {
+			addInterface(n);
+		}
+	}
+
+	/**
+	 * Checks and updates (if necessary) interface's position in the grid
+	 * @param ni The interface to update
+	 */
+	public void updateLocation(NetworkInterface ni) {
+		GridCell oldCell = ginterfaces.get(ni);
+		long key = cellKey(ni.getLocation());
+
+		if (oldCell.key != key) {
+			GridCell newCell = getOrCreateCell(key);
+			newCell.interfaces.add(ni);
+			boolean removeOk = oldCell.interfaces.remove(ni);
+			assert removeOk : "interface " + ni +
+				" not found from cell with " + oldCell.interfaces;
+			releaseIfEmpty(oldCell);
+			ginterfaces.put(ni, newCell);
+		}
+	}
+
+	/**
+	 * Returns all interfaces that use the same technology and channel
+	 */
+	public Collection<NetworkInterface> getAllInterfaces() {
+		return ginterfaces.keySet();
+	}
+
+	/**
+	 * Returns all interfaces using the same technology and channel that are
+	 * in neighboring cells. The returned collection is reused by the next
+	 * call of this method.
+	 */
+	public Collection<NetworkInterface> getNearInterfaces(
+			NetworkInterface netinterf) {
+		nearInterfaces.clear();
+
+		if (ginterfaces.containsKey(netinterf)) {
+			Coord c = netinterf.getLocation();
+			int row = (int)Math.floor(c.getY() / cellSize);
+			int col = (int)Math.floor(c.getX() / cellSize);
+			for (int r = row - 1; r <= row + 1; r++) {
+				for (int cl = col - 1; cl <= col + 1; cl++) {
+					GridCell cell = getCell(cellKey(r, cl));
+					if (cell == null) {
+						continue;
+					}
+					ArrayList<NetworkInterface> list = cell.interfaces;
+					for (int i = 0, n = list.size(); i < n; i++) {
+						nearInterfaces.add(list.get(i));
+					}
+				}
+			}
+		}
+		return nearInterfaces;
+	}
+
+	/**
+	 * Returns the number of non-empty cells
+	 * @return the number of non-empty cells
+	 */
+	public int getNrofCells() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the key of the cell that has the given coordinates
+	 */
+	private long cellKey(Coord c) {
+		return cellKey((int)Math.floor(c.getY() / cellSize),
+				(int)Math.floor(c.getX() / cellSize));
+	}
+
+	/**
+	 * Returns the key of the cell at the given row and column
+	 */
+	private static long cellKey(int row, int col) {
+		return ((long)row << 32) | (col & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns the hash table slot where a key's search starts
+	 */
+	private int slotOf(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32)) & mask;
+	}
+
+	/**
+	 * Returns the cell with the given key or null if there is no such cell
+	 */
+	private GridCell getCell(long key) {
+		for (int i = slotOf(key); table[i] != null; i = (i + 1) & mask) {
+			if (table[i].key == key) {
+				return table[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the cell with the given key, creating it if needed
+	 */
+	private GridCell getOrCreateCell(long key) {
+		int i = slotOf(key);
+		for (; table[i] != null; i = (i + 1) & mask) {
+			if (table[i].key == key) {
+				return table[i];
+			}
+		}
+
+		GridCell c = freeCells.isEmpty() ? new GridCell() :
+			freeCells.remove(freeCells.size() - 1);
+		c.key = key;
+		table[i] = c;
+		if (++size * 2 > table.length) {
+			rehash(table.length * 2);
+		}
+		return c;
+	}
+
+	/**
+	 * Removes a cell from the hash table if it has no interfaces
+	 */
+	private void releaseIfEmpty(GridCell c) {
+		if (!c.interfaces.isEmpty()) {
+			return;
+		}
+
+		int i = slotOf(c.key);
+		while (table[i] != c) {
+			i = (i + 1) & mask;
+		}
+		/* backward shift deletion keeps the probe sequences unbroken */
+		table[i] = null;
+		for (int j = (i + 1) & mask; table[j] != null; j = (j + 1) & mask) {
+			int home = slotOf(table[j].key);
+			boolean inPlace = i <= j ? (i < home && home <= j) :
+				(i < home || home <= j);
+			if (!inPlace) {
+				table[i] = table[j];
+				table[j] = null;
+				i = j;
+			}
+		}
+		size--;
+		freeCells.add(c);
+	}
+
+	/**
+	 * Moves the cells to a new hash table of the given size
+	 */
+	private void rehash(int capacity) {
+		GridCell[] old = this.table;
+		this.table = new GridCell[capacity];
+		this.mask = capacity - 1;
+		for (GridCell c : old) {
+			if (c != null) {
+				int i = slotOf(c.key);
+				while (table[i] != null) {
+					i = (i + 1) & mask;
+				}
+				table[i] = c;
+			}
+		}
+	}
+
+	/**
+	 * Returns a string representation of the grid
+	 * @return a string representation of the grid
+	 */
+	public String toString() {
+		return getClass().getSimpleName() + " with " + this.size +
+			" cells, cell size=" + this.cellSize;
+	}
+
+	/**
+	 * A single non-empty cell of the grid
+	 */
+	private static class GridCell implements Serializable {
+		private static final long serialVersionUID = 42L;
+
+		// how large array is initially chosen
+		private static final int EXPECTED_INTERFACE_COUNT = 5;
+		private final ArrayList<NetworkInterface> interfaces;
+		/** Row and column of the cell */
+		private long key;
+
+		private GridCell() {
+			this.interfaces = new ArrayList<NetworkInterface>(
+					EXPECTED_INTERFACE_COUNT);
+		}
+
+		public String toString() {
+			return getClass().getSimpleName() + " with " +
+				this.interfaces.size() + " interfaces :" + this.interfaces;
+		}
+	}
+}
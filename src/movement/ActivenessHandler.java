@@ -4,6 +4,7 @@
  */
 package movement;
 
+import java.io.Serializable;
 import java.util.LinkedList;
 import java.util.Queue;
 
@@ -15,7 +16,9 @@ import core.SimClock;
  * Object of this class tell the movement models when a node belonging
  * to a certain group is active and when not.
  */
-public class ActivenessHandler {
+public class ActivenessHandler implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** 
 	 * Active times -setting id ({@value}).<BR>
 	 * Syntax: <CODE>start, end</CODE><BR>
@@ -97,7 +100,9 @@ public class ActivenessHandler {
 	/**
 	 * Class for handling time ranges
 	 */
-	private class TimeRange {
+	private class TimeRange implements Serializable {
+		private static final long serialVersionUID = 42L;
+
 		private double start;
 		private double end;
 		
@@ -4,12 +4,12 @@
  */
 package movement;
 
+import input.BinaryMovementReader;
 import input.ExternalMovementReader;
+import input.MovementStepReader;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
 import java.util.Queue;
 
 import core.Coord;
@@ -19,9 +19,15 @@ import core.SimClock;
 import core.Tuple;
 
 /**
- * Movement model that uses external data of node locations.
+ * Movement model that uses external data of node locations. The locations
+ * are read either from a text file (see {@link ExternalMovementReader}) or,
+ * if the file name ends with {@link BinaryMovementReader#BINARY_EXT}, from
+ * a binary movement file (see {@link BinaryMovementReader}). Nodes move
+ * with constant speed between the sampled locations.
  */
 public class ExternalMovement extends MovementModel {
+	private static final long serialVersionUID = 42L;
+
 	/** Namespace for settings */
 	public static final String EXTERNAL_MOVEMENT_NS = "ExternalMovement";
 	/** external locations file's path -setting id ({@value})*/
@@ -31,13 +37,19 @@ public class ExternalMovement extends MovementModel {
 	
 	/** default initial location for excess nodes */
 	private static final Coord DEF_INIT_LOC = new Coord(0,0);
-	private static ExternalMovementReader reader;
+	private static MovementStepReader reader;
 	private static String inputFileName;
 	
-	/** mapping of external id to movement model */
-	private static Map<String, ExternalMovement> idMapping;
-	/** initial locations for nodes */
-	private static List<Tuple<String, Coord>> initLocations;
+	/** mapping of reader's ID index to movement model */
+	private static ExternalMovement[] idMapping;
+	/** ID indexes of the initial locations for nodes */
+	private static int[] initIds;
+	/** x coordinates of the initial locations */
+	private static double[] initXs;
+	/** y coordinates of the initial locations */
+	private static double[] initYs;
+	/** index of the next initial location to give out */
+	private static int nextInitLocation;
 	/** time of the very first location data */
 	private static double initTime;
 	/** sampling interval (seconds) of the location data */
@@ -58,6 +70,8 @@ public class ExternalMovement extends MovementModel {
 	private double latestPathStartTime;
 	/** the last location of path waypoint */
 	private Coord latestLocation;
+	/** time of the last location sample of this node */
+	private double latestSampleTime;
 	/** the path currently under construction */
 	private Path latestPath;
 	
@@ -79,11 +93,19 @@ public class ExternalMovement extends MovementModel {
 		if (idMapping == null) {
 			// run these the first time object is created or after reset call
 			Settings s = new Settings(EXTERNAL_MOVEMENT_NS);
-			idMapping = new HashMap<String, ExternalMovement>();
+			idMapping = new ExternalMovement[0];
 			inputFileName = s.getSetting(MOVEMENT_FILE_S);
-			reader = new ExternalMovementReader(inputFileName);
+			if (BinaryMovementReader.isBinaryMovementFile(inputFileName)) {
+				reader = new BinaryMovementReader(inputFileName);
+			} else {
+				reader = new ExternalMovementReader(inputFileName);
+			}
 			
-			initLocations = reader.readNextMovements();
+			int count = reader.readNextStep();
+			initIds = Arrays.copyOf(reader.getStepIds(), count);
+			initXs = Arrays.copyOf(reader.getStepXs(), count);
+			initYs = Arrays.copyOf(reader.getStepYs(), count);
+			nextInitLocation = 0;
 			initTime = reader.getLastTimeStamp();
 			samplingInterval = -1;
 			lastPreloadTime = -1;
@@ -109,14 +131,20 @@ public class ExternalMovement extends MovementModel {
 		pathQueue = new LinkedList<Tuple<Double, Path>>();
 		latestPath = null;
 		
-		if (initLocations.size() > 0) { // we have location data left
+		if (nextInitLocation < initIds.length) { // we have location data left
 			// gets a new location from the list
-			Tuple<String, Coord> initLoc = initLocations.remove(0); 
-			this.intialLocation = this.latestLocation = initLoc.getValue();
-			this.latestPathStartTime = initTime;
+			int i = nextInitLocation++;
+			this.intialLocation = this.latestLocation = 
+				new Coord(initXs[i], initYs[i]);
+			this.latestPathStartTime = this.latestSampleTime = initTime;
 			
 			// puts the new model to model map for later updates
-			idMapping.put(initLoc.getKey(), this);
+			int idIndex = initIds[i];
+			if (idIndex >= idMapping.length) {
+				idMapping = Arrays.copyOf(idMapping, 
+						Math.max(idIndex + 1, idMapping.length * 2));
+			}
+			idMapping[idIndex] = this;
 			isActive = true;
 		}
 		else {
@@ -135,10 +163,10 @@ public class ExternalMovement extends MovementModel {
 			lastPreloadTime = readMorePaths();
 		}
 		
-		if (lastPreloadTime != Double.NaN && SimClock.getTime() >= 
+		if (!Double.isNaN(lastPreloadTime) && SimClock.getTime() >= 
 				lastPreloadTime - (samplingInterval * MIN_AHEAD_INTERVALS) ) {
 			for (int i=0; i < nrofPreload && 
-					lastPreloadTime != Double.NaN; i++) {
+					!Double.isNaN(lastPreloadTime); i++) {
 				lastPreloadTime = readMorePaths();
 			}
 		}
@@ -157,14 +185,22 @@ public class ExternalMovement extends MovementModel {
 	/**
 	 * Adds a new location with a time to this model's move pattern. If the
 	 * node stayed stationary during the update, the current path is put to the
-	 * queue and a new path is started once the node starts moving.
-	 * @param loc The location
+	 * queue and a new path is started once the node starts moving. The speed
+	 * of the node is set so that it arrives to the location at the given
+	 * time, i.e., the location is linearly interpolated between the samples
+	 * even if some samples are missing from the data.
+	 * @param x The x coordinate of the location
+	 * @param y The y coordinate of the location
 	 * @param time When should the node be there
 	 */
-	private void addLocation(Coord loc, double time) {
+	private void addLocation(double x, double y, double time) {
 		assert samplingInterval > 0 : "Non-positive sampling interval!";
 		
-		if (loc.equals(latestLocation)) { // node didn't move
+		double interval = time - this.latestSampleTime;
+		this.latestSampleTime = time;
+		
+		if (x == latestLocation.getX() && y == latestLocation.getY()) {
+			// node didn't move
 			if (latestPath != null) {
 				// constructing path -> end constructing and put it in the queue
 				pathQueue.add(new Tuple<Double, Path>
@@ -180,7 +216,12 @@ public class ExternalMovement extends MovementModel {
 			latestPath = new Path();			
 		}
 			
-		double speed = loc.distance(this.latestLocation) / samplingInterval;		
+		if (interval <= 0) {
+			interval = samplingInterval;
+		}
+		
+		Coord loc = new Coord(x, y);
+		double speed = loc.distance(this.latestLocation) / interval;
 		latestPath.addWaypoint(loc, speed);
 
 		this.latestLocation = loc;
@@ -243,22 +284,26 @@ public class ExternalMovement extends MovementModel {
 	 * were read.
 	 */
 	private static double readMorePaths() {
-		List<Tuple<String, Coord>> list = reader.readNextMovements();
+		int count = reader.readNextStep();
 		double time = reader.getLastTimeStamp();
 		
 		if (samplingInterval == -1) {
 			samplingInterval = time - initTime;
 		}
 		
-		for (Tuple<String, Coord> t : list) {
-			ExternalMovement em = idMapping.get(t.getKey());
+		int[] ids = reader.getStepIds();
+		double[] xs = reader.getStepXs();
+		double[] ys = reader.getStepYs();
+		for (int i = 0; i < count; i++) {
+			ExternalMovement em = ids[i] < idMapping.length ? 
+					idMapping[ids[i]] : null;
 			if (em != null) { // skip unknown IDs, i.e. IDs not mentioned in...
 				// ...init phase or if there are more IDs than nodes
-				em.addLocation(t.getValue(), time);
+				em.addLocation(xs[i], ys[i], time);
 			}
 		}
 		
-		if (list.size() > 0) {
+		if (count > 0) {
 			return time;
 		}
 		else {
@@ -271,6 +316,7 @@ public class ExternalMovement extends MovementModel {
 	 */
 	public static void reset() {
 		idMapping = null;
+		reader = null;
 	}
 
 }
@@ -15,6 +15,7 @@ import core.Settings;
  * @author narwa
  */
 public class GridCrowdMovement extends MovementModel {
+	private static final long serialVersionUID = 42L;
 
 	/**
 	 * how many waypoints should there be per path
@@ -10,6 +10,8 @@ import core.Settings;
  * @see <a href="https://ieeexplore.ieee.org/document/5750071">On the Levy-Walk Nature of Human Mobility</a>
  */
 public class LevyWalkDraft extends MovementModel {
+	private static final long serialVersionUID = 42L;
+
 	/**
 	 * Lévy distribution alpha parameter
 	 */
@@ -14,6 +14,8 @@ import movement.Path;
  * formation (i.e., in a line). 
  */
 public class LinearFormation extends MovementModel {
+	private static final long serialVersionUID = 42L;
+
 	/** Name space of the settings (append to group name space) */
 	public static final String LINEAR_FORMATION_NS = "LinearFormation.";
 	/** Per node group setting for defining the start coordinates of 
@@ -19,6 +19,7 @@ import java.util.Vector;
 
 import movement.map.MapNode;
 import movement.map.SimMap;
+import movement.map.SimMapCache;
 import core.Coord;
 import core.Settings;
 import core.SettingsError;
@@ -29,6 +30,8 @@ import core.SimError;
  * roads of a SimMap. 
  */
 public class MapBasedMovement extends MovementModel implements SwitchableMovement {
+	private static final long serialVersionUID = 42L;
+
 	/** sim map for the model */
 	private SimMap map = null;
 	/** node where the last path ended or node next to initial placement */
@@ -45,6 +48,13 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 	public static final String NROF_FILES_S = "nrofMapFiles";
 	/** map file -setting id ({@value})*/
 	public static final String FILE_S = "mapFile";
+	/** 
+	 * Use on-disk map cache -setting id ({@value}). Boolean valued. If true,
+	 * the compiled map is stored in a binary cache file next to the first
+	 * map file and subsequent runs load the map from the cache instead of
+	 * parsing the WKT files (see {@link SimMapCache}). Default = false.
+	 */
+	public static final String MAP_CACHE_S = "useMapCache";
 	
 	/** 
 	 * Per node group setting for selecting map node types that are OK for
@@ -54,6 +64,13 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 	 * considered OK.
 	 */
 	public static final String MAP_SELECT_S = "okMaps";
+
+	/** Are the paths of the read maps set bidirectional */
+	private static final boolean BIDIRECTIONAL_PATHS = true;
+	/** Are the read maps mirrored (y' = -y) */
+	private static final boolean MIRROR_MAP = true;
+	/** Are the read maps moved so that their upper left corner is at origo */
+	private static final boolean TRANSLATE_MAP = true;
 	
 	/** the indexes of the OK map files or null if all maps are OK */
 	private int [] okMapNodeTypes;
@@ -265,7 +282,7 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 	private SimMap readMap() {
 		SimMap simMap;
 		Settings settings = new Settings(MAP_BASE_MOVEMENT_NS);
-		WKTMapReader r = new WKTMapReader(true);
+		WKTMapReader r = new WKTMapReader(BIDIRECTIONAL_PATHS);
 		
 		if (cachedMap == null) {
 			cachedMapFiles = new ArrayList<String>(); // no cache present
@@ -283,13 +300,34 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 			}
 		}
 
+		boolean useDiskCache = settings.contains(MAP_CACHE_S) && 
+			settings.getBoolean(MAP_CACHE_S);
+		long cacheKey = 0;
+		File cacheFile = null;
+		simMap = null;
+
 		try {
 			int nrofMapFiles = settings.getInt(NROF_FILES_S);
 
 			for (int i = 1; i <= nrofMapFiles; i++ ) {
-				String pathFile = settings.getSetting(FILE_S + i);
-				cachedMapFiles.add(pathFile);
-				r.addPaths(new File(pathFile), i);
+				cachedMapFiles.add(settings.getSetting(FILE_S + i));
+			}
+			
+			if (useDiskCache) {
+				cacheKey = SimMapCache.computeKey(cachedMapFiles,
+						BIDIRECTIONAL_PATHS, MIRROR_MAP, TRANSLATE_MAP);
+				cacheFile = SimMapCache.getCacheFile(cachedMapFiles, cacheKey);
+				simMap = SimMapCache.load(cacheFile, cacheKey, nrofMapFiles);
+			}
+			
+			if (simMap == null) {
+				for (int i = 1; i <= nrofMapFiles; i++ ) {
+					r.addPaths(new File(cachedMapFiles.get(i-1)), i);
+				}
+				simMap = compileMap(r);
+				if (useDiskCache) {
+					SimMapCache.save(simMap, cacheFile, cacheKey, nrofMapFiles);
+				}
 			}
 			
 			nrofMapFilesRead = nrofMapFiles;
@@ -297,18 +335,32 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 			throw new SimError(e.toString(),e);
 		}
 
-		simMap = r.getMap();
-		checkMapConnectedness(simMap.getNodes());
-		// mirrors the map (y' = -y) and moves its upper left corner to origo
-		simMap.mirror();
-		Coord offset = simMap.getMinBound().clone();		
-		simMap.translate(-offset.getX(), -offset.getY());
 		checkCoordValidity(simMap.getNodes());
 		
 		cachedMap = simMap;
 		return simMap;
 	}
 	
+	/**
+	 * Creates a sim map from the read map data, checks it, mirrors the map
+	 * and moves its upper left corner to origo.
+	 * @param r The reader where the map data was read to
+	 * @return The compiled map
+	 */
+	private SimMap compileMap(WKTMapReader r) {
+		SimMap simMap = r.getMap();
+		checkMapConnectedness(simMap.getNodes());
+		// mirrors the map (y' = -y) and moves its upper left corner to origo
+		if (MIRROR_MAP) {
+			simMap.mirror();
+		}
+		if (TRANSLATE_MAP) {
+			Coord offset = simMap.getMinBound().clone();		
+			simMap.translate(-offset.getX(), -offset.getY());
+		}
+		return simMap;
+	}
+	
 	/**
 	 * Checks that all map nodes can be reached from all other map nodes
 	 * @param nodes The list of nodes to check
@@ -326,13 +378,14 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 		
 		firstNode = nodes.get(0);
 		
+		/* nodes are marked visited when they're queued so that the queue
+		 * never needs to be searched */
 		visited.add(firstNode);
-		unvisited.addAll(firstNode.getNeighbors());
+		unvisited.add(firstNode);
 		
 		while ((next = unvisited.poll()) != null) {
-			visited.add(next);
 			for (MapNode n: next.getNeighbors()) {
-				if (!visited.contains(n) && ! unvisited.contains(n)) {
+				if (visited.add(n)) {
 					unvisited.add(n);
 				}
 			}
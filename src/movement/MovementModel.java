@@ -5,6 +5,7 @@
 package movement;
 
 import java.awt.*;
+import java.io.Serializable;
 import java.util.Random;
 
 import core.Coord;
@@ -24,7 +25,9 @@ import core.SimError;
  * {@link #getInitialLocation()} and {@link #getPath()} are worthwhile to 
  * override.</P>
  */
-public abstract class MovementModel {
+public abstract class MovementModel implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** node's speed CSV (min, max) -setting id ({@value})*/
 	public static final String SPEED = "speed";
 	/** node's wait time CSV (min, max) -setting id ({@value})*/
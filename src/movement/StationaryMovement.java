@@ -12,6 +12,8 @@ import core.Settings;
  * Might be useful for simulations with only external connection events. 
  */
 public class StationaryMovement extends MovementModel {
+	private static final long serialVersionUID = 42L;
+
 	/** Per node group setting for setting the location ({@value}) */
 	public static final String LOCATION_S = "nodeLocation";
 	private Coord loc; /** The location of the nodes */
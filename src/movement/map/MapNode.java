@@ -4,6 +4,7 @@
  */
 package movement.map;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Vector;
 
@@ -14,7 +15,9 @@ import core.SettingsError;
  * A node in a SimMap. Node has a location, 0-n neighbors that it is
  * connected to and possibly a type identifier.
  */
-public class MapNode implements Comparable<MapNode> {
+public class MapNode implements Comparable<MapNode>, Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** Smallest valid type of a node: {@value}*/
 	public static final int MIN_TYPE = 1;
 	/** Biggest valid type of a node: {@value} */
@@ -22,7 +25,9 @@ public class MapNode implements Comparable<MapNode> {
 	
 	
 	private Coord location;
-	private Vector<MapNode> neighbors;
+	/* written by the SimMap of the node to keep the serialization of
+	   large maps from recursing through the whole graph */
+	transient Vector<MapNode> neighbors;
 	// bit mask of map node's types or 0 if no type's are defined
 	private int type;
 	
@@ -77,6 +82,22 @@ public class MapNode implements Comparable<MapNode> {
 		return false;
 	}
 	
+	/**
+	 * Returns the bit mask of this node's types
+	 * @return the bit mask of this node's types (0 if no types are defined)
+	 */
+	int getTypeMask() {
+		return this.type;
+	}
+	
+	/**
+	 * Sets the bit mask of this node's types
+	 * @param typeMask The bit mask
+	 */
+	void setTypeMask(int typeMask) {
+		this.type = typeMask;
+	}
+	
 	/**
 	 * Converts type integer to a bit mask for setting & checking type
 	 * @param type The type to convert
@@ -4,10 +4,16 @@
  */
 package movement.map;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Vector;
 
 import core.Coord;
 
@@ -37,6 +43,25 @@ public class SimMap implements Serializable {
 		setBounds();
 	}
 	
+	/**
+	 * Creates a map of already processed (e.g., mirrored and translated)
+	 * map nodes. Used when restoring a map from {@link SimMapCache}.
+	 * @param nodes The map nodes in the order they are returned by 
+	 * {@link #getNodes()}
+	 * @param offset The offset caused by the translations of the map
+	 * @param isMirrored Is the map data mirrored
+	 */
+	SimMap(List<MapNode> nodes, Coord offset, boolean isMirrored) {
+		this.offset = offset;
+		this.nodes = new ArrayList<MapNode>(nodes);
+		this.nodesMap = new HashMap<Coord, MapNode>(nodes.size() * 2);
+		for (MapNode n : nodes) {
+			this.nodesMap.put(n.getLocation(), n);
+		}
+		this.isMirrored = isMirrored;
+		setBounds();
+	}
+	
 	/**
 	 * Returns all the map nodes in a list
 	 * @return all the map nodes in a list
@@ -164,4 +189,33 @@ public class SimMap implements Serializable {
 	public String toString() {
 		return this.nodes.toString();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Writes the map with the neighbors of the nodes as node indexes
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		Map<MapNode, Integer> indexes = new IdentityHashMap<MapNode, Integer>();
+		for (int i = 0; i < nodes.size(); i++) {
+			indexes.put(nodes.get(i), i);
+		}
+		for (MapNode node : nodes) {
+			out.writeInt(node.neighbors.size());
+			for (MapNode n : node.neighbors) {
+				out.writeInt(indexes.get(n));
+			}
+		}
+	}
+
+	private void readObject(ObjectInputStream in)
+		throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		for (MapNode node : nodes) {
+			int nrof = in.readInt();
+			node.neighbors = new Vector<MapNode>(nrof);
+			for (int i = 0; i < nrof; i++) {
+				node.neighbors.add(nodes.get(in.readInt()));
+			}
+		}
+	}
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement.map;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import core.Coord;
+
+/**
+ * On-disk cache of compiled maps. A compiled map is a map that has been read
+ * from the WKT files, checked for connectedness, mirrored and translated,
+ * i.e., it's ready to be used by the movement models. Cache files are
+ * written next to the first map file and their name contains the cache key.
+ * The key is computed from the contents and the order of the map files and
+ * from the options the map is compiled with (bidirectional paths, mirroring
+ * and translation) so any change in the map data or in the compilation
+ * results in a new cache file.
+ * <P>
+ * Cache file layout (all values big-endian):<BR>
+ * <CODE>int magic, int version, long key, int nrofMapFiles,
+ * double offsetX, double offsetY, byte isMirrored, int nrofNodes,
+ * nrofNodes * (double x, double y, int typeMask),
+ * (nrofNodes + 1) * int neighborStart, nrofEdges * int neighborIndex</CODE>
+ * </P>
+ */
+public final class SimMapCache {
+	/** Suffix of the cache files ({@value}) */
+	public static final String CACHE_FILE_SUFFIX = ".simmap";
+	/** Identifier at the start of cache files */
+	private static final int MAGIC = 0x4f4e4d50;
+	/** Version of the cache file layout */
+	private static final int VERSION = 1;
+
+	private SimMapCache() {}
+
+	/**
+	 * Computes the cache key for a set of map files and compile options
+	 * @param mapFiles Paths of the map files in the order they're read
+	 * @param bidirectional Are the paths of the map set bidirectional
+	 * @param mirrored Is the map mirrored after reading
+	 * @param translated Is the map moved so that its upper left corner is
+	 * at origo
+	 * @return The cache key
+	 * @throws IOException if some map file couldn't be read
+	 */
+	public static long computeKey(List<String> mapFiles,
+			boolean bidirectional, boolean mirrored, boolean translated)
+			throws IOException {
+		long key = VERSION;
+		CRC32 crc = new CRC32();
+
+		key = key * 1000003 ^ ((bidirectional ? 1 : 0) | (mirrored ? 2 : 0) |
+				(translated ? 4 : 0));
+
+		for (String path : mapFiles) {
+			crc.reset();
+			try (FileChannel ch = FileChannel.open(new File(path).toPath(),
+					StandardOpenOption.READ)) {
+				crc.update(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+				key = key * 1000003 ^ ((crc.getValue() << 32) | ch.size());
+			}
+		}
+
+		return key;
+	}
+
+	/**
+	 * Returns the cache file for a set of map files and a cache key
+	 * @param mapFiles Paths of the map files in the order they're read
+	 * @param key The cache key (see
+	 * {@link #computeKey(List, boolean, boolean, boolean)})
+	 * @return The cache file
+	 */
+	public static File getCacheFile(List<String> mapFiles, long key) {
+		return new File(mapFiles.get(0) + "." + Long.toHexString(key) +
+				CACHE_FILE_SUFFIX);
+	}
+
+	/**
+	 * Loads a compiled map from a cache file using memory mapping
+	 * @param cacheFile The cache file
+	 * @param key The expected cache key
+	 * @param nrofMapFiles The expected number of map files
+	 * @return The loaded map or null if the cache file doesn't exist or
+	 * doesn't match the key
+	 * @throws IOException if the cache file couldn't be read
+	 */
+	public static SimMap load(File cacheFile, long key, int nrofMapFiles)
+			throws IOException {
+		if (!cacheFile.isFile()) {
+			return null;
+		}
+
+		try (FileChannel ch = FileChannel.open(cacheFile.toPath(),
+				StandardOpenOption.READ)) {
+			MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0,
+					ch.size());
+			if (buf.getInt() != MAGIC || buf.getInt() != VERSION ||
+					buf.getLong() != key || buf.getInt() != nrofMapFiles) {
+				return null; // stale or foreign cache file
+			}
+
+			Coord offset = new Coord(buf.getDouble(), buf.getDouble());
+			boolean isMirrored = buf.get() != 0;
+			int nrofNodes = buf.getInt();
+
+			List<MapNode> nodes = new ArrayList<MapNode>(nrofNodes);
+			for (int i = 0; i < nrofNodes; i++) {
+				MapNode n = new MapNode(new Coord(buf.getDouble(),
+						buf.getDouble()));
+				n.setTypeMask(buf.getInt());
+				nodes.add(n);
+			}
+
+			int[] neighborStart = new int[nrofNodes + 1];
+			buf.asIntBuffer().get(neighborStart);
+			buf.position(buf.position() + 4 * neighborStart.length);
+			for (int i = 0; i < nrofNodes; i++) {
+				List<MapNode> neighbors = nodes.get(i).getNeighbors();
+				for (int j = neighborStart[i]; j < neighborStart[i+1]; j++) {
+					neighbors.add(nodes.get(buf.getInt()));
+				}
+			}
+
+			return new SimMap(nodes, offset, isMirrored);
+		}
+	}
+
+	/**
+	 * Saves a compiled map to a cache file. The file is first written to
+	 * a temporary file that is then renamed so that concurrent runs never
+	 * see partially written cache files.
+	 * @param map The map to save
+	 * @param cacheFile The cache file
+	 * @param key The cache key
+	 * @param nrofMapFiles Number of map files the map was read from
+	 * @throws IOException if the cache file couldn't be written
+	 */
+	public static void save(SimMap map, File cacheFile, long key,
+			int nrofMapFiles) throws IOException {
+		List<MapNode> nodes = map.getNodes();
+		Map<MapNode, Integer> indexes = new IdentityHashMap<MapNode, Integer>();
+		for (int i = 0; i < nodes.size(); i++) {
+			indexes.put(nodes.get(i), i);
+		}
+
+		File tmpFile = File.createTempFile(cacheFile.getName(), ".tmp",
+				cacheFile.getAbsoluteFile().getParentFile());
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(key);
+			out.writeInt(nrofMapFiles);
+			out.writeDouble(map.getOffset().getX());
+			out.writeDouble(map.getOffset().getY());
+			out.writeByte(map.isMirrored() ? 1 : 0);
+			out.writeInt(nodes.size());
+
+			for (MapNode n : nodes) {
+				out.writeDouble(n.getLocation().getX());
+				out.writeDouble(n.getLocation().getY());
+				out.writeInt(n.getTypeMask());
+			}
+
+			int start = 0;
+			out.writeInt(start);
+			for (MapNode n : nodes) {
+				start += n.getNeighbors().size();
+				out.writeInt(start);
+			}
+			for (MapNode n : nodes) {
+				for (MapNode neighbor : n.getNeighbors()) {
+					out.writeInt(indexes.get(neighbor));
+				}
+			}
+		} catch (IOException e) {
+			tmpFile.delete();
+			throw e;
+		}
+
+		Files.move(tmpFile.toPath(), cacheFile.toPath(),
+				StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -6,6 +6,7 @@ import reinforcement.utils.IndexValue;
 import reinforcement.utils.Matrix;
 import reinforcement.utils.Vec;
 
+import java.io.Serializable;
 import java.util.*;
 
 /**
@@ -14,7 +15,9 @@ import java.util.*;
  *         Q is known as the quality of state-action combination, note that it
  *         is different from utility of a state
  */
-public class QModel {
+public class QModel implements Serializable {
+    private static final long serialVersionUID = 42L;
+
     /**
      * Q value for (state_id, action_id) pair
      * Q is known as the quality of state-action combination, note that it is
@@ -21,9 +21,12 @@ import core.Message;
 import core.MessageListener;
 import core.Settings;
 import core.SimClock;
-import core.UpdateListener;
+import core.SampledUpdateListener;
+
+public class BufferOccupancyReport extends Report
+	implements SampledUpdateListener {
+	private static final long serialVersionUID = 42L;
 
-public class BufferOccupancyReport extends Report implements UpdateListener {
 	/**
 	 * Record occupancy every nth second -setting id ({@value}). 
 	 * Defines the interval how often (seconds) a new snapshot of buffer
@@ -78,6 +81,14 @@ public class BufferOccupancyReport extends Report implements UpdateListener {
 		*/
 	}
 	
+	/**
+	 * Returns the time of the next snapshot
+	 * @return The time of the next snapshot
+	 */
+	public double getNextUpdateTime() {
+		return lastRecord + interval;
+	}
+	
 	/**
 	 * Prints a snapshot of the average buffer occupancy
 	 * @param hosts The list of hosts in the simulation
@@ -24,6 +24,8 @@ import routing.community.CentralityDetectionEngine;
  */
 public class CentralityDetectionReport extends Report
 {
+	private static final long serialVersionUID = 42L;
+
 	public CentralityDetectionReport()
 	{
 		init();
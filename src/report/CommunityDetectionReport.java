@@ -23,6 +23,7 @@ import routing.community.CommunityDetectionEngine;
  * @author PJ Dillon, University of Pittsburgh
  */
 public class CommunityDetectionReport extends Report {
+	private static final long serialVersionUID = 42L;
 
 	public CommunityDetectionReport() {
 		init();
@@ -7,13 +7,17 @@ package report;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.SelectiveListener;
 
 /**
  * Reports information about all created messages. Messages created during
  * the warm up period are ignored.
  * For output syntax, see {@link #HEADER}.
  */
-public class CreatedMessagesReport extends Report implements MessageListener {
+public class CreatedMessagesReport extends Report
+		implements MessageListener, SelectiveListener {
+	private static final long serialVersionUID = 42L;
+
 	public static String HEADER = "# time  ID  size  fromHost  toHost  TTL  " + 
 		"isResponse";
 
@@ -49,6 +53,10 @@ public class CreatedMessagesReport extends Report implements MessageListener {
 	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {}
 	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {}
 
+	public boolean handles(Event event) {
+		return event == Event.NEW_MESSAGE;
+	}
+
 	@Override
 	public void done() {
 		super.done();
@@ -9,13 +9,17 @@ import java.util.List;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.SelectiveListener;
 
 /**
  * Report information about all delivered messages. Messages created during
  * the warm up period are ignored.
  * For output syntax, see {@link #HEADER}.
  */
-public class DeliveredMessagesReport extends Report implements MessageListener {
+public class DeliveredMessagesReport extends Report
+		implements MessageListener, SelectiveListener {
+	private static final long serialVersionUID = 42L;
+
 	public static String HEADER = "# time  ID  size  hopcount  deliveryTime  " +
 		"fromHost  toHost  remainingTtl  isResponse  path";
 
@@ -72,6 +76,11 @@ public class DeliveredMessagesReport extends Report implements MessageListener {
 	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {}
 	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {}
 
+	public boolean handles(Event event) {
+		return event == Event.NEW_MESSAGE ||
+			event == Event.MESSAGE_TRANSFERRED;
+	}
+
 	@Override
 	public void done() {
 		super.done();
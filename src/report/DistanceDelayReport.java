@@ -4,12 +4,14 @@
  */
 package report;
 
+import java.io.Serializable;
 import java.util.HashMap;
 
 import core.Coord;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.SelectiveListener;
 
 /**
  * Report for how far apart the nodes were when the message
@@ -17,7 +19,10 @@ import core.MessageListener;
  * Only messages created after the warm up period are counted.
  * If message is not delivered, its delivery time & hop count are reported as -1
  */
-public class DistanceDelayReport extends Report implements MessageListener {
+public class DistanceDelayReport extends Report
+		implements MessageListener, SelectiveListener {
+	private static final long serialVersionUID = 42L;
+
 	/** Syntax of the report lines */
 	public static final String SYNTAX = 
 		"distance at msg send, delivery time, hop count, MSG_ID";
@@ -96,6 +101,11 @@ public class DistanceDelayReport extends Report implements MessageListener {
 	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {}
 	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {}
 
+	public boolean handles(Event event) {
+		return event == Event.NEW_MESSAGE ||
+			event == Event.MESSAGE_TRANSFERRED;
+	}
+
 	public void done() {
 		// report rest of the messages as 'not delivered' (time == -1)
 		for (String id : creationInfos.keySet()) {
@@ -109,7 +119,9 @@ public class DistanceDelayReport extends Report implements MessageListener {
  	/**
 	 * Private class that encapsulates time and location related information
 	 */
-	private class InfoTuple {
+	private class InfoTuple implements Serializable {
+		private static final long serialVersionUID = 42L;
+
 		private double time;
 		private Coord loc1;
 		private Coord loc2;
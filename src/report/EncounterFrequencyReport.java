@@ -20,6 +20,8 @@ import routing.community.FrequencyDecisionEngine;
  * @author jarkom
  */
 public class EncounterFrequencyReport extends Report{
+    private static final long serialVersionUID = 42L;
+
     public EncounterFrequencyReport(){
         init();
     }
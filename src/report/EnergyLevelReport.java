@@ -10,14 +10,20 @@ import java.util.List;
 import core.DTNHost;
 import core.Settings;
 import core.SimError;
-import core.UpdateListener;
+import core.SampledUpdateListener;
+import routing.EnergyAwareRouter;
+import routing.util.EnergyModel;
 
 /**
  * Node energy level report. Reports the energy level of all (or only some) 
  * nodes every configurable-amount-of seconds. Writes reports only after
- * the warmup period.
+ * the warmup period. The levels are read from the energy model of
+ * {@link EnergyAwareRouter}.
  */
-public class EnergyLevelReport extends Report implements UpdateListener {
+public class EnergyLevelReport extends Report
+	implements SampledUpdateListener {
+	private static final long serialVersionUID = 42L;
+
 	/** Reporting granularity -setting id ({@value}). 
 	 * Defines the interval how often (seconds) a new snapshot of energy levels
 	 * is created */
@@ -70,23 +76,32 @@ public class EnergyLevelReport extends Report implements UpdateListener {
 		}
 	}
 	
+	/**
+	 * Returns the time of the next snapshot
+	 * @return The time of the next snapshot
+	 */
+	public double getNextUpdateTime() {
+		return lastUpdate + granularity;
+	}
+	
 	/**
 	 * Creates a snapshot of energy levels 
 	 * @param hosts The list of hosts in the world
 	 */
 	private void createSnapshot(List<DTNHost> hosts) {
-		write ("[" + (int)getSimTime() + "]"); /* simulation time stamp */
+		double simTime = getSimTime();
+		EnergyModel model = EnergyAwareRouter.getEnergyModel();
+		write ("[" + (int)simTime + "]"); /* simulation time stamp */
 		for (DTNHost h : hosts) {
 			if (this.reportedNodes != null && 
 				!this.reportedNodes.contains(h.getAddress())) {
 				continue; /* node not in the list */
 			}
-			Double value = (Double)h.getComBus().
-				getProperty(routing.EnergyAwareRouter.ENERGY_VALUE_ID);
-			if (value == null) {
+			if (!model.isRegistered(h.getAddress())) {
 				throw new SimError("Host " + h + 
 						" is not using an energy aware router");
 			}
+			double value = model.getEnergy(h.getAddress(), simTime);
 			
 			write(h.toString() + " " +  format(value));
 		}
@@ -20,6 +20,8 @@ import routing.community.FrequencyDecisionEngine;
  * @author jarkom
  */
 public class FrequencyEncounterPerNode extends Report{
+    private static final long serialVersionUID = 42L;
+
     public FrequencyEncounterPerNode(){
         init();
     }
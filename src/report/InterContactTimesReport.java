@@ -12,6 +12,7 @@ import core.DTNHost;
  * The syntax of the report file is the same as in {@link ContactTimesReport}.
  */
 public class InterContactTimesReport extends ContactTimesReport {
+	private static final long serialVersionUID = 42L;
 	
 	@Override
 	public void hostsConnected(DTNHost host1, DTNHost host2) {
@@ -20,6 +20,7 @@ import java.util.Map;
  * @author Afra Rian Yudianto, Sanata Dharma University
  */
 public class LatencyPerContactReport extends Report implements MessageListener, ConnectionListener {
+    private static final long serialVersionUID = 42L;
 
     public static final String TOTAL_CONTACT_INTERVAL = "perTotalContact";
     public static final int DEFAULT_CONTACT_COUNT = 500;
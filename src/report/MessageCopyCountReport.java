@@ -10,25 +10,34 @@ import core.DTNHost;
 import core.Message;
 import core.MessageListener;
 import core.Settings;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
+ * Reports the total number of message copies (transfers) after every
+ * {@link #totalContact_Interval} contacts. The total is kept as a running
+ * count that the message listener callbacks update, and the samples are
+ * written in contact order.
  *
  * @author Afra Rian
  */
 public class MessageCopyCountReport extends Report implements ConnectionListener, MessageListener {
+    private static final long serialVersionUID = 42L;
 
     public static final String totalContact_Interval = "perTotalContact";
     public static final int DEFAULT_CONTACT_COUNT = 500;
+    /** Initial size of the sample arrays */
+    private static final int INIT_SAMPLES = 64;
     private int lastRecord;
     private int interval;
     private int totalContact;
     private double msgCreated;
-//    private int totalHops;
-//    private Map<Message, Integer> copyMsg;
-    private Map<Message, CopyCountPerHopHelper> nrofHops;
-    private Map<Integer, Double> nrofAverageHops;
+    /** Number of message copies so far */
+    private double totalCopies;
+    /** Contact counts of the samples */
+    private int[] sampleContacts;
+    /** Total copies at the samples */
+    private double[] sampleCopies;
+    private int nrofSamples;
 
     public MessageCopyCountReport() {
         init();
@@ -44,28 +53,28 @@ public class MessageCopyCountReport extends Report implements ConnectionListener
     @Override
     public void init() {
         super.init();
-//        this.totalHops = 0;
         this.interval = 0;
         this.msgCreated = 0;
         this.totalContact = 0;
         this.lastRecord = 0;
-        this.nrofHops = new HashMap<>();
-        this.nrofAverageHops = new HashMap<>();
-//        this.copyMsg = new HashMap<Message, Integer>();
+        this.totalCopies = 0;
+        this.sampleContacts = new int[INIT_SAMPLES];
+        this.sampleCopies = new double[INIT_SAMPLES];
+        this.nrofSamples = 0;
     }
 
     @Override
     public void hostsConnected(DTNHost host1, DTNHost host2) {
         totalContact++;
         if (totalContact - lastRecord >= interval) {
-            double totalCopy = 0 ;
-            for (Map.Entry<Message, CopyCountPerHopHelper> entry : nrofHops.entrySet()) {
-                CopyCountPerHopHelper value = entry.getValue();
-                totalCopy += value.copyMsg;
+            if (nrofSamples == sampleContacts.length) {
+                sampleContacts = Arrays.copyOf(sampleContacts, nrofSamples * 2);
+                sampleCopies = Arrays.copyOf(sampleCopies, nrofSamples * 2);
             }
-            nrofAverageHops.put(totalContact, totalCopy);
+            sampleContacts[nrofSamples] = totalContact;
+            sampleCopies[nrofSamples] = totalCopies;
+            nrofSamples++;
             lastRecord = totalContact;
-//            write(totalContact + " ,total hops " + totalHops + " total M " + totalMsg);
         }
     }
 
@@ -75,21 +84,10 @@ public class MessageCopyCountReport extends Report implements ConnectionListener
 
     @Override
     public void done() {
-        String printLn = "Contact\tCopyMsg\n";
-        for (Map.Entry<Integer, Double> entry : nrofAverageHops.entrySet()) {
-            Integer key = entry.getKey();
-            Double value = entry.getValue();
-            printLn += key + "\t" + value + "\n";
+        write("Contact\tCopyMsg");
+        for (int i = 0; i < nrofSamples; i++) {
+            write(sampleContacts[i] + "\t" + sampleCopies[i]);
         }
-        write(printLn);
-
-//        String printLn = "Contact\tAverageNrofHops\n";
-//        for (Map.Entry<Message, Integer> entry : copyMsg.entrySet()) {
-//            Message key = entry.getKey();
-//            Integer value = entry.getValue();
-//            printLn += key + "\t" + value + "\n";
-//        }
-//        write(printLn);
         super.done();
     }
 
@@ -112,16 +110,7 @@ public class MessageCopyCountReport extends Report implements ConnectionListener
 
     @Override
     public void messageTransferred(Message m, DTNHost from, DTNHost to, boolean firstDelivery) {
-        CopyCountPerHopHelper cp = null;
-        if (nrofHops.containsKey(m)) {
-            cp = nrofHops.get(m);
-            int hop = cp.hopCount;
-            int copy = cp.copyMsg;
-            nrofHops.put(m, new CopyCountPerHopHelper(hop + m.getHopCount(), copy + 1));
-        } else {
-            nrofHops.put(m, new CopyCountPerHopHelper(m.getHopCount(), 1));
-        }
-//        write(m + " has " + m.getHopCount() + " from " + from);
+        this.totalCopies++;
     }
 
 }
@@ -10,13 +10,17 @@ import java.util.List;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.SelectiveListener;
 
 /**
  * Reports delivered messages' delays (one line per delivered message)
  * and cumulative delivery probability sorted by message delays.
  * Ignores the messages that were created during the warm up period.
  */
-public class MessageDelayReport extends Report implements MessageListener {
+public class MessageDelayReport extends Report
+		implements MessageListener, SelectiveListener {
+	private static final long serialVersionUID = 42L;
+
 	public static final String HEADER =
 	    "# messageDelay  cumulativeProbability";
 	/** all message delays */
@@ -78,4 +82,9 @@ public class MessageDelayReport extends Report implements MessageListener {
 	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {}
 	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {}
 
+	public boolean handles(Event event) {
+		return event == Event.NEW_MESSAGE ||
+			event == Event.MESSAGE_TRANSFERRED;
+	}
+
 }
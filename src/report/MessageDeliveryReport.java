@@ -7,6 +7,7 @@ package report;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.SelectiveListener;
 
 /**
  * Report for of amount of messages delivered vs. time. A new report line
@@ -14,7 +15,10 @@ import core.MessageListener;
  * Messages created during the warm up period are ignored.
  * For output syntax, see {@link #HEADER}.
  */
-public class MessageDeliveryReport extends Report implements MessageListener {
+public class MessageDeliveryReport extends Report
+		implements MessageListener, SelectiveListener {
+	private static final long serialVersionUID = 42L;
+
 	public static String HEADER="# time  created  delivered  delivered/created";
 	private int created;
 	private int delivered;
@@ -65,6 +69,11 @@ public class MessageDeliveryReport extends Report implements MessageListener {
 	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {}
 	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {}
 
+	public boolean handles(Event event) {
+		return event == Event.NEW_MESSAGE ||
+			event == Event.MESSAGE_TRANSFERRED;
+	}
+
 	@Override
 	public void done() {
 		super.done();
@@ -10,12 +10,16 @@ import java.util.Vector;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.SelectiveListener;
 
 /**
  * Creates a graphviz compatible graph of messages that were passed.
  * Messages created during the warm up period are ignored.
  */
-public class MessageGraphvizReport extends Report implements MessageListener {
+public class MessageGraphvizReport extends Report
+		implements MessageListener, SelectiveListener {
+	private static final long serialVersionUID = 42L;
+
 	/** Name of the graphviz report ({@value})*/
 	public static final String GRAPH_NAME = "msggraph";
 	private Vector<Message> deliveredMessages;
@@ -51,6 +55,11 @@ public class MessageGraphvizReport extends Report implements MessageListener {
 	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {}
 	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {}
 
+	public boolean handles(Event event) {
+		return event == Event.NEW_MESSAGE ||
+			event == Event.MESSAGE_TRANSFERRED;
+	}
+
 	@Override
 	public void done() {
 		write("/* scenario " + getScenarioName() + "\n" +
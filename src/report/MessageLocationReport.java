@@ -10,14 +10,17 @@ import java.util.List;
 import core.DTNHost;
 import core.Message;
 import core.Settings;
-import core.UpdateListener;
+import core.SampledUpdateListener;
 
 
 /**
  * Message location report. Reports the location (coordinates) of messages.
  * The messages that are reported and the reporting interval can be configured.
  */
-public class MessageLocationReport extends Report implements UpdateListener {
+public class MessageLocationReport extends Report
+	implements SampledUpdateListener {
+	private static final long serialVersionUID = 42L;
+
 	/** Reporting granularity -setting id ({@value}). 
 	 * Defines the interval how often (seconds) a new snapshot of message 
 	 * locations is created */
@@ -63,6 +66,14 @@ public class MessageLocationReport extends Report implements UpdateListener {
 		}
 	}
 	
+	/**
+	 * Returns the time of the next snapshot
+	 * @return The time of the next snapshot
+	 */
+	public double getNextUpdateTime() {
+		return lastUpdate + granularity;
+	}
+	
 	/**
 	 * Creates a snapshot of message locations 
 	 * @param hosts The list of hosts in the world
@@ -7,13 +7,17 @@ package report;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.SelectiveListener;
 
 /**
  * Reports delivered messages
  * report: 
  *  message_id creation_time deliver_time (duplicate)
  */
-public class MessageReport extends Report implements MessageListener {
+public class MessageReport extends Report
+		implements MessageListener, SelectiveListener {
+	private static final long serialVersionUID = 42L;
+
 	public static final String HEADER =
 	    "# messages: ID, start time, end time";
 	/** all message delays */
@@ -58,4 +62,8 @@ public class MessageReport extends Report implements MessageListener {
 	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {}
 	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {}
 
+	public boolean handles(Event event) {
+		return event == Event.MESSAGE_TRANSFERRED;
+	}
+
 }
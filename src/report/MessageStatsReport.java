@@ -12,6 +12,7 @@ import java.util.Map;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.PassiveListener;
 
 /**
  * Report for generating different kind of total statistics about message
@@ -20,8 +21,13 @@ import core.MessageListener;
  * <P><strong>Note:</strong> if some statistics could not be created (e.g.
  * overhead ratio if no messages were delivered) "NaN" is reported for
  * double values and zero for integer median(s).
+ * <P>The report is a {@link PassiveListener}, so it may get its events
+ * asynchronously (see {@link core.AsyncDelivery}).</P>
  */
-public class MessageStatsReport extends Report implements MessageListener {
+public class MessageStatsReport extends Report implements MessageListener,
+		PassiveListener {
+	private static final long serialVersionUID = 42L;
+
 	private Map<String, Double> creationTimes;
 	private List<Double> latencies;
 	private List<Integer> hopCounts;
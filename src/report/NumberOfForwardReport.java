@@ -21,6 +21,7 @@ import java.util.Map;
  * @author Afra Rian
  */
 public class NumberOfForwardReport extends Report implements MessageListener, UpdateListener {
+    private static final long serialVersionUID = 42L;
 
     public static final String totalContact_Interval = "perTotalContact";
     public static final int DEFAULT_CONTACT_COUNT = 3600;
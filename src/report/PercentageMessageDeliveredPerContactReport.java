@@ -18,6 +18,7 @@ import java.util.Map;
  * @author Afra Rian
  */
 public class PercentageMessageDeliveredPerContactReport extends Report implements MessageListener, ConnectionListener {
+    private static final long serialVersionUID = 42L;
 
     public static final String TOTAL_CONTACT_INTERVAL = "perTotalContact";
     public static final int DEFAULT_CONTACT_COUNT = 500;
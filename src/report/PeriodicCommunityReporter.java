@@ -15,7 +15,8 @@ import java.util.Set;
  *
  * @author narwa
  */
-public class PeriodicCommunityReporter extends ContactTimesReport implements UpdateListener {
+public class PeriodicCommunityReporter extends ContactTimesReport implements SampledUpdateListener {
+	private static final long serialVersionUID = 42L;
 
 	public static final String UPDATE_INTERVAL_S = "updateInterval";
 	public static final int DEFAULT_UPDATE_INTERVAL = 2000;
@@ -85,6 +86,15 @@ public class PeriodicCommunityReporter extends ContactTimesReport implements Upd
 //		}
 	}
 
+	/**
+	 * The communities are recorded per contact interval in
+	 * {@link #hostsConnected(DTNHost, DTNHost)}, so no updates are needed.
+	 */
+	@Override
+	public double getNextUpdateTime() {
+		return Double.POSITIVE_INFINITY;
+	}
+
 	private void updateReportPerInterval() {
 		final List<DTNHost> hosts = SimScenario.getInstance().getHosts();
 		final List<Set<DTNHost>> currentCommunities = new LinkedList<>();
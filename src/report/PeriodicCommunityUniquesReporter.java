@@ -17,6 +17,7 @@ import java.util.Set;
  * @author narwa
  */
 public class PeriodicCommunityUniquesReporter extends Report {
+	private static final long serialVersionUID = 42L;
 
 	public static final String UPDATE_INTERVAL_S = "windowInterval";
 	public static final int DEFAULT_UPDATE_INTERVAL = 24 * 60 * 60; // 24 hours
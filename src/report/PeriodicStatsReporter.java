@@ -15,6 +15,7 @@ import java.util.*;
  */
 @SuppressWarnings("DuplicatedCode")
 public class PeriodicStatsReporter extends ContactTimesReport implements MessageListener {
+	private static final long serialVersionUID = 42L;
 
 	private static final String SEPARATOR = ";";
 	public static final String UPDATE_INTERVAL_S = "updateInterval";
@@ -12,6 +12,8 @@ import java.io.IOException;
  * Author Bryan (HaiPigGi)
  */
 public class RankingTotal extends Report {
+    private static final long serialVersionUID = 42L;
+
     Map<DTNHost, Integer> totalTeman = new HashMap<>();
 
     public RankingTotal() {
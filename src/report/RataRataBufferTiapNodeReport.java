@@ -24,6 +24,7 @@ import core.SimClock;
 import core.UpdateListener;
 
 public class RataRataBufferTiapNodeReport extends Report implements UpdateListener {
+    private static final long serialVersionUID = 42L;
 
     /**
      * Record occupancy every nth second -setting id ({@value}). Defines the
@@ -7,7 +7,11 @@ package report;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -26,7 +30,9 @@ import core.SimScenario;
  * the reports implement warm up feature ({@link #WARMUP_S}) but the
  * implementations are always report specific.
  */
-public abstract class Report {
+public abstract class Report implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** Name space of the settings that are common to all reports ({@value}). */ 
 	public static final String REPORT_NS = "Report";
 	/** The interval (simulated seconds) of creating new settings files 
@@ -54,7 +60,7 @@ public abstract class Report {
 	/** Suffix for reports that are created on n second intervals */
 	public static final String INTERVALLED_FORMAT ="%04d" + OUT_SUFFIX; 
 	/** The print writer used to write output. See {@link #write(String)} */
-	protected PrintWriter out;
+	protected transient PrintWriter out;
 	/** String value for values that could not be calculated */
 	public static final String NAN = "NaN";
 	private String prefix = "";
@@ -67,6 +73,10 @@ public abstract class Report {
 	private double outputInterval;
 	private double lastReportTime;
 	private String outFileName;
+	/** Name of the file {@link #out} writes to */
+	private String currentOutFile;
+	/** Length of the output file when the report was serialized (or -1) */
+	private long currentOutLength = -1;
 	private String scenarioName;
 	
 	/**
@@ -164,7 +174,8 @@ public abstract class Report {
 			if (!createDirs(directory.getParentFile())) {
 				return false;
 			}
-			if (!directory.mkdir()) {
+			/* parallel runs may create the same directory */
+			if (!directory.mkdir() && !directory.isDirectory()) {
 				return false;
 			} else {
 				return true;
@@ -195,6 +206,7 @@ public abstract class Report {
 	private void createOutput(String outFileName) {
 		try {
 			this.out = new PrintWriter(new FileWriter(outFileName));
+			this.currentOutFile = outFileName;
 		} catch (IOException e) {
 			throw new SimError("Couldn't open file '" + outFileName + 
 					"' for report output\n" + e.getMessage(), e);
@@ -337,6 +349,37 @@ public abstract class Report {
 		}
 	}
 	
+	/**
+	 * Writes the report and the length of its output so far. Continuing a
+	 * restored report discards anything written after this.
+	 */
+	private void writeObject(ObjectOutputStream stream) throws IOException {
+		this.currentOutLength = -1;
+		if (out != null) {
+			out.flush();
+			this.currentOutLength = new File(currentOutFile).length();
+		}
+		stream.defaultWriteObject();
+	}
+
+	/**
+	 * Reads the report and reopens its output file for appending
+	 */
+	private void readObject(ObjectInputStream stream)
+		throws IOException, ClassNotFoundException {
+		stream.defaultReadObject();
+		if (this.currentOutLength < 0) {
+			return; // no output file open
+		}
+		RandomAccessFile file = new RandomAccessFile(currentOutFile, "rw");
+		try {
+			file.setLength(this.currentOutLength);
+		} finally {
+			file.close();
+		}
+		this.out = new PrintWriter(new FileWriter(currentOutFile, true));
+	}
+
 	/**
 	 * Returns the average of double values stored in a List or "NaN" for
 	 * empty lists.
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import core.SettingsError;
+import core.SimProfiler;
+import core.SimScenario;
+
+/**
+ * Reports where the simulation's wall clock time and allocations went:
+ * one line per simulation phase and class (e.g., router updates of a
+ * router class or the calls of a report acting as a message listener),
+ * sorted by the time spent in the section itself (excluding nested
+ * sections). Requires the built-in profiler to be enabled with the
+ * <CODE>Profiler.enabled</CODE> setting (see {@link SimProfiler}). Syntax:
+ * <br>
+ * <code>phase class calls total_ms self_ms self_% self_alloc_MB</code>
+ * <br>
+ * The time that is not part of any section (<CODE>other_ms</CODE>) is
+ * spent in the simulator's update loop, the user interface and in the
+ * profiler's own measurements.
+ */
+public class SimulationProfileReport extends Report {
+	private static final long serialVersionUID = 42L;
+
+	/** Header of the section lines */
+	public static final String HEADER = "# phase class calls total_ms " +
+		"self_ms self_% self_alloc_MB";
+
+	private SimProfiler profiler;
+
+	/**
+	 * Constructor.
+	 */
+	public SimulationProfileReport() {
+		this.profiler = SimScenario.getInstance().getProfiler();
+		if (this.profiler == null) {
+			throw new SettingsError(getClass().getSimpleName() + " requires " +
+					SimProfiler.PROFILER_NS + "." + SimProfiler.ENABLED_S +
+					" = true");
+		}
+	}
+
+	@Override
+	public void done() {
+		double runMs = profiler.getRunNanos() / 1e6;
+		List<SimProfiler.Section> sections =
+			new ArrayList<SimProfiler.Section>(profiler.getSections());
+		Collections.sort(sections, new Comparator<SimProfiler.Section>() {
+			public int compare(SimProfiler.Section s1, SimProfiler.Section s2) {
+				return Long.compare(s2.getSelfNanos(), s1.getSelfNanos());
+			}
+		});
+
+		write("Simulation profile for scenario " + getScenarioName() +
+				"\nsim_time: " + format(getSimTime()) +
+				"\nwall_time_ms: " + format(runMs) +
+				"\nallocations_measured: " +
+				profiler.isMeasuringAllocations());
+		write(HEADER);
+		double profiledMs = 0;
+		for (SimProfiler.Section s : sections) {
+			if (s.getCalls() == 0) {
+				continue; // e.g., a listener that was never called
+			}
+			double selfMs = s.getSelfNanos() / 1e6;
+			profiledMs += selfMs;
+			write(s.getPhase() + " " + s.getOwner().getName() + " " +
+					s.getCalls() + " " + format(s.getNanos() / 1e6) + " " +
+					format(selfMs) + " " + format(percent(selfMs, runMs)) +
+					" " + format(s.getSelfBytes() / (1024.0 * 1024)));
+		}
+		write("other_ms: " + format(runMs - profiledMs) +
+				"\nother_%: " + format(percent(runMs - profiledMs, runMs)));
+		super.done();
+	}
+
+	/**
+	 * Returns the share of a value of the total in percents
+	 */
+	private static double percent(double value, double total) {
+		return total > 0 ? 100 * value / total : 0;
+	}
+}
@@ -32,6 +32,8 @@ import routing.community.Duration;
  * double values and zero for integer median(s).
  */
 public class TestingReport extends Report {
+	private static final long serialVersionUID = 42L;
+
 	// private Map<String, Double> creationTimes;
 	// private List<Double> latencies;
 	// private List<Integer> hopCounts;
@@ -7,7 +7,7 @@ package report;
 import java.util.List;
 
 import core.DTNHost;
-import core.UpdateListener;
+import core.SampledUpdateListener;
 
 /**
  * Report for total amount of contact times among hosts. Reports how long all
@@ -18,7 +18,8 @@ import core.UpdateListener;
  * warmup period are ignored.
  */
 public class TotalContactTimeReport extends ContactTimesReport implements
-		UpdateListener {
+		SampledUpdateListener {
+	private static final long serialVersionUID = 42L;
 	
 	/** The header of every report file */
 	public static final String HEADER = "# time totalContactTime";
@@ -76,4 +77,12 @@ public class TotalContactTimeReport extends ContactTimesReport implements
 		write(format(simTime) + " " + format(totalTime));
 		lastReportedTime = totalTime;
 	}
+
+	/**
+	 * Returns the time when the total contact time is reported next
+	 * @return The time of the next report line
+	 */
+	public double getNextUpdateTime() {
+		return lastWrite + granularity;
+	}
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.util.List;
+
+import core.DTNHost;
+import core.SimScenario;
+import routing.DecisionEngineRouter;
+import routing.MessageRouter;
+import routing.RoutingDecisionEngine;
+import routing.util.UtilityCache;
+import routing.util.UtilityCacheEngine;
+
+/**
+ * Reports the hits and misses of the routing utility caches of the nodes
+ * when the simulation is done. Only nodes whose router is a
+ * DecisionEngineRouter and whose RoutingDecisionEngine implements
+ * {@link UtilityCacheEngine} are reported. The last line has the totals of
+ * all the reported nodes.
+ */
+public class UtilityCacheReport extends Report {
+	private static final long serialVersionUID = 42L;
+
+	/** Header of the report */
+	public static final String HEADER = "# node hits misses hitRatio";
+
+	public UtilityCacheReport() {
+		init();
+	}
+
+	@Override
+	public void done() {
+		List<DTNHost> nodes = SimScenario.getInstance().getHosts();
+		long totalHits = 0;
+		long totalMisses = 0;
+
+		write(HEADER);
+		for (DTNHost h : nodes) {
+			MessageRouter r = h.getRouter();
+			if (!(r instanceof DecisionEngineRouter der))
+				continue;
+			RoutingDecisionEngine de = der.getDecisionEngine();
+			if (!(de instanceof UtilityCacheEngine uce))
+				continue;
+
+			UtilityCache cache = uce.getUtilityCache();
+			write(h + " " + cache.getHits() + " " + cache.getMisses() + " " +
+					hitRatio(cache.getHits(), cache.getMisses()));
+			totalHits += cache.getHits();
+			totalMisses += cache.getMisses();
+		}
+
+		write("total " + totalHits + " " + totalMisses + " " +
+				hitRatio(totalHits, totalMisses));
+		super.done();
+	}
+
+	private String hitRatio(long hits, long misses) {
+		if (hits + misses == 0) {
+			return NAN;
+		}
+		return format((double)hits / (hits + misses));
+	}
+}
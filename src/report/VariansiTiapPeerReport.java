@@ -24,6 +24,7 @@ import routing.community.VarianceDecisionEngine;
  * @author jarkom
  */
 public class VariansiTiapPeerReport extends Report{
+    private static final long serialVersionUID = 42L;
     
     public static final String NODE_ID = "closenessToNodeID";
     private int nodeAddress;
@@ -4,10 +4,15 @@
  */
 package routing;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import core.Connection;
@@ -24,6 +29,8 @@ import core.Tuple;
  * {@link #update()}).
  */
 public abstract class ActiveRouter extends MessageRouter {
+	private static final long serialVersionUID = 42L;
+
 	/**
 	 * Delete delivered messages -setting id ({@value}). Boolean valued.
 	 * If set to true and final recipient of a message rejects it because it
@@ -52,6 +59,10 @@ public abstract class ActiveRouter extends MessageRouter {
 	 * sim time when the last TTL check was done
 	 */
 	private double lastTtlCheck;
+	/**
+	 * cached lists of the messages the peers of connections lack
+	 */
+	private Map<Connection, PeerLacks> peerLacks;
 
 
 	/**
@@ -85,6 +96,7 @@ public abstract class ActiveRouter extends MessageRouter {
 		super.init(host, mListeners);
 		this.sendingConnections = new ArrayList<Connection>(1);
 		this.lastTtlCheck = 0;
+		this.peerLacks = new HashMap<Connection, PeerLacks>();
 	}
 
 	/**
@@ -226,7 +238,7 @@ public abstract class ActiveRouter extends MessageRouter {
 			return TRY_LATER_BUSY; // only one connection at a time
 		}
 
-		if (hasMessage(m.getId()) || isDeliveredMessage(m)) {
+		if (hasMessage(m.getIdKey()) || isDeliveredMessage(m)) {
 			return DENIED_OLD; // already seen this message -> reject it
 		}
 
@@ -315,7 +327,7 @@ public abstract class ActiveRouter extends MessageRouter {
 		Message oldest = null;
 		for (Message m : messages) {
 
-			if (excludeMsgBeingSent && isSending(m.getId())) {
+			if (excludeMsgBeingSent && isSending(m.getIdKey())) {
 				continue; // skip the message(s) that router is sending
 			}
 
@@ -488,6 +500,87 @@ public abstract class ActiveRouter extends MessageRouter {
 	}
 
 
+	/**
+	 * Returns the messages this router has but the peer of a connection
+	 * doesn't have. The list is computed from the summary vectors
+	 * (see {@link MessageRouter#getSummaryVector()}) of the routers and
+	 * cached per connection until either of the routers' buffers changes.
+	 * The messages are in ID key (i.e., creation) order.
+	 *
+	 * @param con The connection to the peer
+	 * @return An unmodifiable list of the messages the peer lacks
+	 */
+	protected List<Message> getMessagesPeerLacks(Connection con) {
+		MessageRouter peerRouter = con.getOtherNode(getHost()).getRouter();
+		PeerLacks lacks = peerLacks.get(con);
+
+		if (lacks == null || lacks.version != getSummaryVersion() ||
+				lacks.peerVersion != peerRouter.getSummaryVersion()) {
+			BitSet diff = (BitSet)getSummaryVector().clone();
+			diff.andNot(peerRouter.getSummaryVector());
+			List<Message> messages = new ArrayList<Message>(diff.cardinality());
+			for (int k = diff.nextSetBit(0); k >= 0;
+					k = diff.nextSetBit(k + 1)) {
+				messages.add(getMessage(k));
+			}
+
+			if (lacks == null) {
+				lacks = new PeerLacks();
+				peerLacks.put(con, lacks);
+				if (peerLacks.size() > getConnections().size()) {
+					removeDownConnectionLacks();
+				}
+			}
+			lacks.version = getSummaryVersion();
+			lacks.peerVersion = peerRouter.getSummaryVersion();
+			lacks.messages = Collections.unmodifiableList(messages);
+		}
+
+		return lacks.messages;
+	}
+
+	/**
+	 * Removes the cached lists of the connections that are down
+	 */
+	private void removeDownConnectionLacks() {
+		for (Iterator<Connection> i = peerLacks.keySet().iterator();
+				i.hasNext(); ) {
+			if (!i.next().isUp()) {
+				i.remove();
+			}
+		}
+	}
+
+	/**
+	 * Tries to send the messages that the peers lack to all connections
+	 * this node has. For every connection, the messages are ordered using
+	 * {@link MessageRouter#sortByQueueMode(List)} and tried in that order
+	 * until one is accepted. Equivalent to
+	 * {@link #tryAllMessagesToAllConnections()} except that messages the
+	 * peers already have are not offered to them.
+	 *
+	 * @return The connection that started a transfer or null if no
+	 * connection accepted a message.
+	 */
+	protected Connection tryLackedMessagesToAllConnections() {
+		List<Connection> connections = getConnections();
+		if (connections.size() == 0 || this.getNrofMessages() == 0) {
+			return null;
+		}
+
+		for (int i = 0, n = connections.size(); i < n; i++) {
+			Connection con = connections.get(i);
+			List<Message> messages =
+				new ArrayList<Message>(getMessagesPeerLacks(con));
+			this.sortByQueueMode(messages);
+			if (tryAllMessages(con, messages) != null) {
+				return con;
+			}
+		}
+
+		return null;
+	}
+
 	/**
 	 * Shuffles a messages list so the messages are in random order.
 	 *
@@ -547,11 +640,23 @@ public abstract class ActiveRouter extends MessageRouter {
 	 * @return True if the message is being sent false if not
 	 */
 	public boolean isSending(String msgId) {
-		for (Connection con : this.sendingConnections) {
-			if (con.getMessage() == null) {
+		return isSending(Message.getKeyForId(msgId));
+	}
+
+	/**
+	 * Returns true if this router is currently sending a message with
+	 * the given ID key.
+	 *
+	 * @param idKey The ID key of the message (see {@link Message#getIdKey()})
+	 * @return True if the message is being sent false if not
+	 */
+	public boolean isSending(int idKey) {
+		for (int i = 0, n = this.sendingConnections.size(); i < n; i++) {
+			Message m = this.sendingConnections.get(i).getMessage();
+			if (m == null) {
 				continue; // transmission is finalized
 			}
-			if (con.getMessage().getId().equals(msgId)) {
+			if (m.getIdKey() == idKey) {
 				return true;
 			}
 		}
@@ -633,4 +738,16 @@ public abstract class ActiveRouter extends MessageRouter {
 	protected void transferDone(Connection con) {
 	}
 
+
+	/**
+	 * Messages a peer lacks and the summary vector versions they were
+	 * computed from
+	 */
+	private static class PeerLacks implements Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private int version;
+		private int peerVersion;
+		private List<Message> messages;
+	}
 }
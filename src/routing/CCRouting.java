@@ -6,6 +6,8 @@ import routing.community.Duration;
 // import reinforcement.qlearn.QLearner;
 
 public class CCRouting extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
+
 	// private QLearner tessss;
 	private Map<DTNHost, Map<List<Duration>, Integer>> amountDataPerDuration;
 
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import routing.schedule.ContactPlan;
+import routing.schedule.EarliestArrival;
+import core.Connection;
+import core.DTNHost;
+import core.DTNSim;
+import core.IntObjectMap;
+import core.Message;
+import core.Settings;
+import core.SimClock;
+import core.Tuple;
+
+/**
+ * Single-copy router with an oracle that knows all future contacts. Every
+ * message is forwarded along the earliest-arrival journey computed from a
+ * {@link ContactPlan} that is loaded from the same connection trace that
+ * drives the simulation. This gives an optimal delivery baseline for trace
+ * based scenarios. Node addresses in the trace must match host addresses.
+ */
+public class ContactPlanOracleRouter extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
+
+	/** ContactPlanOracleRouter's settings name space ({@value})*/
+	public static final String CONTACT_PLAN_NS = "ContactPlanOracleRouter";
+	/** Path of the (external events) file where the contacts are read
+	 * -setting id ({@value}) */
+	public static final String CONTACT_FILE_S = "contactFile";
+	/** Time it takes to forward a message over a contact -setting id
+	 * ({@value}). Default = 0 */
+	public static final String HOP_TIME_S = "hopTime";
+
+	/** Contact plans by file path (shared by all routers) */
+	private static Map<String, ContactPlan> plans;
+	/** Earliest-arrival search engine (shared by all routers) */
+	private static EarliestArrival search;
+
+	private ContactPlan plan;
+	private double hopTime;
+	/** Planned next hops by message ID key */
+	private IntObjectMap<PlannedHop> plannedHops;
+
+	static {
+		DTNSim.registerForReset(
+				ContactPlanOracleRouter.class.getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * Constructor. Creates a new message router based on the settings in
+	 * the given Settings object.
+	 * @param s The settings object
+	 */
+	public ContactPlanOracleRouter(Settings s) {
+		super(s);
+		Settings cpSettings = new Settings(CONTACT_PLAN_NS);
+		String contactFile = cpSettings.getSetting(CONTACT_FILE_S);
+		this.hopTime = cpSettings.contains(HOP_TIME_S) ?
+				cpSettings.getDouble(HOP_TIME_S) : 0;
+
+		this.plan = plans.get(contactFile);
+		if (this.plan == null) {
+			this.plan = ContactPlan.fromEventsFile(contactFile);
+			plans.put(contactFile, this.plan);
+		}
+	}
+
+	/**
+	 * Copy constructor.
+	 * @param r The router prototype where setting values are copied from
+	 */
+	protected ContactPlanOracleRouter(ContactPlanOracleRouter r) {
+		super(r);
+		this.plan = r.plan;
+		this.hopTime = r.hopTime;
+		this.plannedHops = new IntObjectMap<PlannedHop>();
+	}
+
+	@Override
+	protected int checkReceiving(Message m) {
+		int recvCheck = super.checkReceiving(m);
+
+		if (recvCheck == RCV_OK) {
+			/* don't accept a message that has already traversed this node */
+			if (m.getHops().contains(getHost())) {
+				recvCheck = DENIED_OLD;
+			}
+		}
+
+		return recvCheck;
+	}
+
+	@Override
+	public void update() {
+		super.update();
+		if (isTransferring() || !canStartTransfer()) {
+			return;
+		}
+
+		if (exchangeDeliverableMessages() != null) {
+			return;
+		}
+
+		List<Tuple<Message, Connection>> forwards =
+			new ArrayList<Tuple<Message, Connection>>();
+		for (Message m : getMessageCollection()) {
+			int nextHop = getNextHop(m);
+			if (nextHop < 0) {
+				continue;
+			}
+			for (Connection c : getConnections()) {
+				if (c.getOtherNode(getHost()).getAddress() == nextHop) {
+					forwards.add(new Tuple<Message, Connection>(m, c));
+					break;
+				}
+			}
+		}
+
+		tryMessagesForConnected(forwards);
+	}
+
+	/**
+	 * Returns the next hop of a message on its earliest-arrival journey.
+	 * The journey is searched again only when the first contact of the
+	 * previously planned journey has ended.
+	 * @param m The message
+	 * @return Address of the next hop or -1 if the destination can't be
+	 * reached anymore
+	 */
+	private int getNextHop(Message m) {
+		double now = SimClock.getTime();
+		PlannedHop hop = plannedHops.get(m.getIdKey());
+
+		if (hop == null || hop.validUntil < now) {
+			DTNHost to = m.getTo();
+			search.setPlan(plan, hopTime);
+			search.search(getHost().getAddress(), to.getAddress(), now);
+			hop = new PlannedHop(search.getNextHop(),
+					search.getFirstContactEnd());
+			plannedHops.put(m.getIdKey(), hop);
+		}
+
+		return hop.nextHop;
+	}
+
+	@Override
+	protected Message removeFromMessages(String id) {
+		Message m = super.removeFromMessages(id);
+		if (m != null) {
+			plannedHops.remove(m.getIdKey());
+		}
+		return m;
+	}
+
+	@Override
+	protected void transferDone(Connection con) {
+		/* don't leave a copy for the sender */
+		this.deleteMessage(con.getMessage().getId(), false);
+	}
+
+	@Override
+	public ContactPlanOracleRouter replicate() {
+		return new ContactPlanOracleRouter(this);
+	}
+
+	/**
+	 * Resets the shared contact plans
+	 */
+	public static void reset() {
+		plans = new HashMap<String, ContactPlan>();
+		search = new EarliestArrival(null, 0);
+	}
+
+	/**
+	 * Next hop of a message and the time until which it's valid
+	 */
+	private static class PlannedHop implements Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private final int nextHop;
+		private final double validUntil;
+
+		private PlannedHop(int nextHop, double validUntil) {
+			this.nextHop = nextHop;
+			this.validUntil = validUntil;
+		}
+	}
+}
@@ -2,6 +2,8 @@ package routing;
 
 import java.util.*;
 
+import routing.util.OutgoingMessageIndex;
+
 import core.*;
 
 /**
@@ -80,6 +82,7 @@ import core.*;
  * @author PJ Dillon, University of Pittsburgh
  */
 public class DecisionEngineRouter extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
 
 	public static final String PUBSUB_NS = "DecisionEngineRouter";
 	public static final String ENGINE_SETTING = "decisionEngine";
@@ -89,7 +92,8 @@ public class DecisionEngineRouter extends ActiveRouter {
 
 	protected boolean tombstoning;
 	protected RoutingDecisionEngine decider;
-	protected List<Tuple<Message, Connection>> outgoingMessages;
+	/** Messages waiting to be sent, indexed by connection and message */
+	protected OutgoingMessageIndex outgoingMessages;
 
 	protected Set<String> tombstones;
 
@@ -104,7 +108,7 @@ public class DecisionEngineRouter extends ActiveRouter {
 
 		Settings routeSettings = new Settings(PUBSUB_NS);
 
-		outgoingMessages = new LinkedList<Tuple<Message, Connection>>();
+		outgoingMessages = new OutgoingMessageIndex();
 
 		decider = (RoutingDecisionEngine) routeSettings.createIntializedObject(
 			"routing." + routeSettings.getSetting(ENGINE_SETTING));
@@ -123,7 +127,7 @@ public class DecisionEngineRouter extends ActiveRouter {
 
 	public DecisionEngineRouter(DecisionEngineRouter r) {
 		super(r);
-		outgoingMessages = new LinkedList<Tuple<Message, Connection>>();
+		outgoingMessages = new OutgoingMessageIndex();
 		decider = r.decider.replicate();
 		tombstoning = r.tombstoning;
 
@@ -187,12 +191,15 @@ public class DecisionEngineRouter extends ActiveRouter {
 
 			/*
 			 * Once we have new information computed for the peer, we figure out if
-			 * there are any messages that should get sent to this peer.
+			 * there are any messages that should get sent to this peer. Messages
+			 * the peer already has are skipped unless deleteDelivered is set, in
+			 * which case the peer's DENIED_OLD answer may delete our copy.
 			 */
-			Collection<Message> msgs = getMessageCollection();
+			Collection<Message> msgs = deleteDelivered ?
+				getMessageCollection() : getMessagesPeerLacks(con);
 			for (Message m : msgs) {
 				if (decider.shouldSendMessageToHost(m, otherNode, this.getHost())) {
-					outgoingMessages.add(new Tuple<Message, Connection>(m, con));
+					outgoingMessages.add(m, con);
 				}
 			}
 		} else {
@@ -204,13 +211,7 @@ public class DecisionEngineRouter extends ActiveRouter {
 			 * If we  were trying to send message to this peer, we need to remove them
 			 * from the outgoing List.
 			 */
-			for (Iterator<Tuple<Message, Connection>> i = outgoingMessages.iterator();
-				 i.hasNext(); ) {
-				Tuple<Message, Connection> t = i.next();
-				if (t.getValue() == con) {
-					i.remove();
-				}
-			}
+			outgoingMessages.removeConnection(con);
 		}
 	}
 
@@ -301,30 +302,20 @@ public class DecisionEngineRouter extends ActiveRouter {
 		}
 
 		if (isFirstDelivery) {
-			this.deliveredMessages.put(id, aMessage);
+			this.deliveredMessages.set(aMessage.getIdKey());
 		}
 
-		for (MessageListener ml : this.mListeners) {
-			ml.messageTransferred(aMessage, from, getHost(),
-				isFirstDelivery);
-		}
+		this.mEvents.messageTransferred(aMessage, from, getHost(),
+			isFirstDelivery);
 
 		return aMessage;
 	}
 
 	@Override
 	protected void transferDone(Connection con) {
-		Message transferred = this.getMessage(con.getMessage().getId());
-
-		for (Iterator<Tuple<Message, Connection>> i = outgoingMessages.iterator();
-			 i.hasNext(); ) {
-			Tuple<Message, Connection> t = i.next();
-			if (t.getKey().getId().equals(transferred.getId())
-				&& t.getValue().equals(con)) {
-				i.remove();
-				break;
-			}
-		}
+		Message transferred = this.getMessage(con.getMessage().getIdKey());
+
+		outgoingMessages.remove(con.getMessage().getIdKey(), con);
 
 		if (decider.shouldDeleteSentMessage(transferred, con.getOtherNode(getHost()))) {
 //			if(transferred.getId().equals("M14"))
@@ -343,16 +334,12 @@ public class DecisionEngineRouter extends ActiveRouter {
 	}
 
 	@Override
-	public void deleteMessage(String id, boolean drop) {
-		super.deleteMessage(id, drop);
-
-		for (Iterator<Tuple<Message, Connection>> i = outgoingMessages.iterator();
-			 i.hasNext(); ) {
-			Tuple<Message, Connection> t = i.next();
-			if (t.getKey().getId().equals(id)) {
-				i.remove();
-			}
+	protected Message removeFromMessages(String id) {
+		Message removed = super.removeFromMessages(id);
+		if (removed != null) {
+			outgoingMessages.removeMessage(removed.getIdKey());
 		}
+		return removed;
 	}
 
 	@Override
@@ -366,15 +353,23 @@ public class DecisionEngineRouter extends ActiveRouter {
 			return;
 		}
 
-		tryMessagesForConnected(outgoingMessages);
+		/* messages leave the outgoing index when they leave the buffer */
+		tryOutgoingMessages();
+	}
 
-		for (Iterator<Tuple<Message, Connection>> i = outgoingMessages.iterator();
-			 i.hasNext(); ) {
-			Tuple<Message, Connection> t = i.next();
-			if (!this.hasMessage(t.getKey().getId())) {
-				i.remove();
+	/**
+	 * Tries to send the outgoing messages in queue order until one of the
+	 * connections starts transferring or all of them have been tried.
+	 *
+	 * @return The message-connection pair whose transfer was started or null
+	 */
+	protected Tuple<Message, Connection> tryOutgoingMessages() {
+		for (Tuple<Message, Connection> t : outgoingMessages) {
+			if (startTransfer(t.getKey(), t.getValue()) == RCV_OK) {
+				return t;
 			}
 		}
+		return null;
 	}
 
 	public RoutingDecisionEngine getDecisionEngine() {
@@ -390,7 +385,7 @@ public class DecisionEngineRouter extends ActiveRouter {
 		for (Connection c : getConnections()) {
 			DTNHost other = c.getOtherNode(getHost());
 			if (other != from && decider.shouldSendMessageToHost(m, other, this.getHost())) {
-				outgoingMessages.add(new Tuple<Message, Connection>(m, c));
+				outgoingMessages.add(m, c);
 			}
 		}
 	}
@@ -7,6 +7,8 @@ package routing;
 
 import java.util.*;
 
+import routing.util.OutgoingMessageIndex;
+
 import core.*;
 import static routing.MessageRouter.DENIED_DELIVERED;
 import static routing.MessageRouter.DENIED_OLD;
@@ -18,6 +20,7 @@ import static routing.MessageRouter.TRY_LATER_BUSY;
  * @author Jarkom
  */
 public class DecisionEngineRouterImproved extends ActiveRouter {
+    private static final long serialVersionUID = 42L;
 
     public static final String PUBSUB_NS = "DecisionEngineRouterImproved";
     public static final String ENGINE_SETTING = "decisionEngineImproved";
@@ -26,7 +29,10 @@ public class DecisionEngineRouterImproved extends ActiveRouter {
 
     protected boolean tombstoning;
     protected RoutingDecisionEngineImproved decider;
-    protected List<Tuple<Message, Connection>> outgoingMessages;
+    /**
+     * Messages waiting to be sent, indexed by connection and message
+     */
+    protected OutgoingMessageIndex outgoingMessages;
 
     protected Set<String> tombstones;
 
@@ -37,7 +43,7 @@ public class DecisionEngineRouterImproved extends ActiveRouter {
 
         Settings routeSettings = new Settings(PUBSUB_NS);
 
-        outgoingMessages = new LinkedList<Tuple<Message, Connection>>();
+        outgoingMessages = new OutgoingMessageIndex();
 
         decider = (RoutingDecisionEngineImproved) routeSettings.createIntializedObject(
                 "routing." + routeSettings.getSetting(ENGINE_SETTING));
@@ -56,7 +62,7 @@ public class DecisionEngineRouterImproved extends ActiveRouter {
 
     public DecisionEngineRouterImproved(DecisionEngineRouterImproved r) {
         super(r);
-        outgoingMessages = new LinkedList<Tuple<Message, Connection>>();
+        outgoingMessages = new OutgoingMessageIndex();
         decider = r.decider.replicate();
         tombstoning = r.tombstoning;
 
@@ -97,10 +103,12 @@ public class DecisionEngineRouterImproved extends ActiveRouter {
                 otherRouter.didExchange(con);
             }
 
-            Collection<Message> msgs = getMessageCollection();
+            /* skip messages the peer has unless deleteDelivered is set */
+            Collection<Message> msgs = deleteDelivered
+                    ? getMessageCollection() : getMessagesPeerLacks(con);
             for (Message m : msgs) {
                 if (decider.shouldSendMessageToHost(m, otherNode)) {
-                    outgoingMessages.add(new Tuple<Message, Connection>(m, con));
+                    outgoingMessages.add(m, con);
                 }
             }
         } else {
@@ -108,13 +116,7 @@ public class DecisionEngineRouterImproved extends ActiveRouter {
 
             conStates.remove(con);
 
-            for (Iterator<Tuple<Message, Connection>> i = outgoingMessages.iterator();
-                    i.hasNext();) {
-                Tuple<Message, Connection> t = i.next();
-                if (t.getValue() == con) {
-                    i.remove();
-                }
-            }
+            outgoingMessages.removeConnection(con);
         }
     }
 
@@ -194,30 +196,20 @@ public class DecisionEngineRouterImproved extends ActiveRouter {
         }
 
         if (isFirstDelivery) {
-            this.deliveredMessages.put(id, aMessage);
+            this.deliveredMessages.set(aMessage.getIdKey());
         }
 
-        for (MessageListener ml : this.mListeners) {
-            ml.messageTransferred(aMessage, from, getHost(),
-                    isFirstDelivery);
-        }
+        this.mEvents.messageTransferred(aMessage, from, getHost(),
+                isFirstDelivery);
 
         return aMessage;
     }
 
     @Override
     protected void transferDone(Connection con) {
-        Message transferred = this.getMessage(con.getMessage().getId());
-
-        for (Iterator<Tuple<Message, Connection>> i = outgoingMessages.iterator();
-                i.hasNext();) {
-            Tuple<Message, Connection> t = i.next();
-            if (t.getKey().getId().equals(transferred.getId())
-                    && t.getValue().equals(con)) {
-                i.remove();
-                break;
-            }
-        }
+        Message transferred = this.getMessage(con.getMessage().getIdKey());
+
+        outgoingMessages.remove(con.getMessage().getIdKey(), con);
 
         if (decider.shouldDeleteSentMessage(transferred, con.getOtherNode(getHost()))) {
             this.deleteMessage(transferred.getId(), false);
@@ -226,16 +218,12 @@ public class DecisionEngineRouterImproved extends ActiveRouter {
     }
 
     @Override
-    public void deleteMessage(String id, boolean drop) {
-        super.deleteMessage(id, drop);
-
-        for (Iterator<Tuple<Message, Connection>> i = outgoingMessages.iterator();
-                i.hasNext();) {
-            Tuple<Message, Connection> t = i.next();
-            if (t.getKey().getId().equals(id)) {
-                i.remove();
-            }
+    protected Message removeFromMessages(String id) {
+        Message removed = super.removeFromMessages(id);
+        if (removed != null) {
+            outgoingMessages.removeMessage(removed.getIdKey());
         }
+        return removed;
     }
 
     @Override
@@ -247,15 +235,23 @@ public class DecisionEngineRouterImproved extends ActiveRouter {
             return; // nothing to transfer or is currently transferring
         }
 
-        tryMessagesForConnected(outgoingMessages);
+        /* messages leave the outgoing index when they leave the buffer */
+        tryOutgoingMessages();
+    }
 
-        for (Iterator<Tuple<Message, Connection>> i = outgoingMessages.iterator();
-                i.hasNext();) {
-            Tuple<Message, Connection> t = i.next();
-            if (!this.hasMessage(t.getKey().getId())) {
-                i.remove();
+    /**
+     * Tries to send the outgoing messages in queue order until one of the
+     * connections starts transferring or all of them have been tried.
+     *
+     * @return The message-connection pair whose transfer was started or null
+     */
+    protected Tuple<Message, Connection> tryOutgoingMessages() {
+        for (Tuple<Message, Connection> t : outgoingMessages) {
+            if (startTransfer(t.getKey(), t.getValue()) == RCV_OK) {
+                return t;
             }
         }
+        return null;
     }
 
     public RoutingDecisionEngineImproved getDecisionEngine() {
@@ -271,7 +267,7 @@ public class DecisionEngineRouterImproved extends ActiveRouter {
         for (Connection c : getConnections()) {
             DTNHost other = c.getOtherNode(getHost());
             if (other != from && decider.shouldSendMessageToHost(m, other)) {
-                outgoingMessages.add(new Tuple<Message, Connection>(m, c));
+                outgoingMessages.add(m, c);
             }
         }
     }
@@ -10,6 +10,7 @@ import core.Settings;
  * Router that will deliver messages only to the final recipient.
  */
 public class DirectDeliveryRouter extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
 
 	public DirectDeliveryRouter(Settings s) {
 		super(s);
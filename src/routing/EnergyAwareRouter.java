@@ -4,14 +4,22 @@
  */
 package routing;
 
+import java.util.List;
 import java.util.Random;
 import core.*;
+import routing.util.EnergyModel;
 
 /**
- * Energy level-aware variant of Epidemic router.
+ * Energy level-aware variant of Epidemic router. The energy levels of all
+ * the hosts are kept in a shared {@link EnergyModel} that charges the
+ * scanning, transmitting and idle costs analytically between the changes of
+ * the sending state; the router schedules an extra update for the exact
+ * time its host runs out of energy and turns the radio off then.
  */
 public class EnergyAwareRouter extends ActiveRouter 
 		implements ModuleCommunicationListener{
+	private static final long serialVersionUID = 42L;
+
 	/** Initial units of energy -setting id ({@value}). Can be either a 
 	 * single value, or a range of two values. In the latter case, the used
 	 * value is a uniformly distributed random value between the two values. */
@@ -20,6 +28,9 @@ public class EnergyAwareRouter extends ActiveRouter
 	public static final String SCAN_ENERGY_S = "scanEnergy";
 	/** Energy usage per second when sending -setting id ({@value}). */
 	public static final String TRANSMIT_ENERGY_S = "transmitEnergy";
+	/** Energy usage per second regardless of the activity -setting id
+	 * ({@value}). Default value = 0. */
+	public static final String IDLE_ENERGY_S = "idleEnergy";
 	/** Energy update warmup period -setting id ({@value}). Defines the 
 	 * simulation time after which the energy level starts to decrease due to 
 	 * scanning, transmissions, etc. Default value = 0. If value of "-1" is 
@@ -29,20 +40,38 @@ public class EnergyAwareRouter extends ActiveRouter
 	public static final String WARMUP_S = "energyWarmup";
 
 	/** {@link ModuleCommunicationBus} identifier for the "current amount of 
-	 * energy left" variable. Value type: double */
+	 * energy left" variable. The value is refreshed when the sending state
+	 * changes and when the energy runs out; setting it from other modules
+	 * sets the energy level. Value type: double */
 	public static final String ENERGY_VALUE_ID = "Energy.value";
+	/** Resolved {@link ModuleCommunicationBus} key of {@link #ENERGY_VALUE_ID} */
+	public static final ModuleCommunicationBus.Key ENERGY_VALUE_KEY =
+		ModuleCommunicationBus.getKey(ENERGY_VALUE_ID);
 	
 	private final double[] initEnergy;
 	private double warmupTime;
-	private double currentEnergy;
+	/** energy level the host starts with */
+	private double startEnergy;
 	/** energy usage per scan */
 	private double scanEnergy;
 	private double transmitEnergy;
-	private double lastScanUpdate;
-	private double lastUpdate;
+	private double idleEnergy;
 	private double scanInterval;	
 	private ModuleCommunicationBus comBus;
+	/** Depletion time an extra update has been scheduled for */
+	private double scheduledDepletion;
+	/** Has the radio been turned off because of no energy */
+	private boolean radioOff;
+	/** Is the router itself updating the energy value of the comBus */
+	private boolean updatingBus;
 	private static Random rng = null;
+	/** Energy levels of all the hosts */
+	private static EnergyModel energyModel;
+	
+	static {
+		DTNSim.registerForReset(EnergyAwareRouter.class.getCanonicalName());
+		reset();
+	}
 
 	/**
 	 * Constructor. Creates a new message router based on the settings in
@@ -60,6 +89,12 @@ public class EnergyAwareRouter extends ActiveRouter
 		
 		this.scanEnergy = s.getDouble(SCAN_ENERGY_S);
 		this.transmitEnergy = s.getDouble(TRANSMIT_ENERGY_S);
+		if (s.contains(IDLE_ENERGY_S)) {
+			this.idleEnergy = s.getDouble(IDLE_ENERGY_S);
+		}
+		else {
+			this.idleEnergy = 0;
+		}
 		this.scanInterval  = s.getDouble(SimScenario.SCAN_INTERVAL_S);
 		
 		if (s.contains(WARMUP_S)) {
@@ -75,20 +110,20 @@ public class EnergyAwareRouter extends ActiveRouter
 	}
 	
 	/**
-	 * Sets the current energy level into the given range using uniform 
+	 * Sets the starting energy level into the given range using uniform 
 	 * random distribution.
 	 * @param range The min and max values of the range, or if only one value
 	 * is given, that is used as the energy level
 	 */
 	protected void setEnergy(double range[]) {
 		if (range.length == 1) {
-			this.currentEnergy = range[0];
+			this.startEnergy = range[0];
 		}
 		else {
 			if (rng == null) {
 				rng = new Random((int)(range[0] + range[1]));
 			}
-			this.currentEnergy = range[0] + 
+			this.startEnergy = range[0] + 
 				rng.nextDouble() * (range[1] - range[0]);
 		}
 	}
@@ -103,16 +138,47 @@ public class EnergyAwareRouter extends ActiveRouter
 		setEnergy(this.initEnergy);
 		this.scanEnergy = r.scanEnergy;
 		this.transmitEnergy = r.transmitEnergy;
+		this.idleEnergy = r.idleEnergy;
 		this.scanInterval = r.scanInterval;
 		this.warmupTime  = r.warmupTime;
 		this.comBus = null;
-		this.lastScanUpdate = 0;
-		this.lastUpdate = 0;
+	}
+	
+	/**
+	 * Resets the energy levels of all the hosts
+	 */
+	public static void reset() {
+		energyModel = new EnergyModel();
+	}
+	
+	/**
+	 * Returns the model that has the energy levels of the hosts using this
+	 * router
+	 * @return The energy model
+	 */
+	public static EnergyModel getEnergyModel() {
+		return energyModel;
+	}
+	
+	@Override
+	public void init(DTNHost host, List<MessageListener> mListeners) {
+		super.init(host, mListeners);
+		double interval = this.scanInterval > 0 ? this.scanInterval :
+			SimScenario.getInstance().getUpdateInterval();
+		energyModel.register(host.getAddress(), this.startEnergy,
+				this.scanEnergy, interval, this.transmitEnergy,
+				this.idleEnergy, this.warmupTime, SimClock.getTime());
+		this.scheduledDepletion = -1;
+		this.radioOff = false;
+		
+		this.comBus = host.getComBus();
+		this.comBus.addProperty(ENERGY_VALUE_KEY, this.startEnergy);
+		this.comBus.subscribe(ENERGY_VALUE_KEY, this);
 	}
 	
 	@Override
 	protected int checkReceiving(Message m) {
-		if (this.currentEnergy < 0) {
+		if (getEnergy() <= 0) {
 			return DENIED_UNSPECIFIED;
 		}
 		else {
@@ -121,58 +187,63 @@ public class EnergyAwareRouter extends ActiveRouter
 	}
 	
 	/**
-	 * Updates the current energy so that the given amount is reduced from it.
-	 * If the energy level goes below zero, sets the level to zero.
-	 * Does nothing if the warmup time has not passed.
-	 * @param amount The amount of energy to reduce
+	 * Returns the current energy level of the host
+	 * @return The energy level
 	 */
-	protected void reduceEnergy(double amount) {
-		if (SimClock.getTime() < this.warmupTime) {
-			return;
-		}
-		
-		comBus.updateDouble(ENERGY_VALUE_ID, -amount);
-		if (this.currentEnergy < 0) {
-			comBus.updateProperty(ENERGY_VALUE_ID, 0.0);
-		}
+	protected double getEnergy() {
+		return energyModel.getEnergy(getHost().getAddress(),
+				SimClock.getTime());
 	}
 	
 	/**
-	 * Reduces the energy reserve for the amount that is used by sending data
-	 * and scanning for the other nodes. 
+	 * Tells the energy model whether the host is sending data, schedules an
+	 * update for the time the energy runs out and turns the radio off when
+	 * it has run out.
 	 */
-	protected void reduceSendingAndScanningEnergy() {
+	protected void updateEnergy() {
 		double simTime = SimClock.getTime();
+		int address = getHost().getAddress();
 		
-		if (this.comBus == null) {
-			this.comBus = getHost().getComBus();
-			this.comBus.addProperty(ENERGY_VALUE_ID, this.currentEnergy);
-			this.comBus.subscribe(ENERGY_VALUE_ID, this);
-		}
-		
-		if (this.currentEnergy <= 0) {
-			/* turn radio off */
-			this.comBus.updateProperty(NetworkInterface.RANGE_ID, 0.0);
+		if (this.radioOff) {
 			return; /* no more energy to start new transfers */
 		}
 		
-		if (simTime > this.lastUpdate && sendingConnections.size() > 0) {
-			/* sending data */
-			reduceEnergy((simTime - this.lastUpdate) * this.transmitEnergy);
+		boolean sending = sendingConnections.size() > 0;
+		if (sending != energyModel.isTransmitting(address)) {
+			energyModel.setTransmitting(address, sending, simTime);
+			setBusEnergy(energyModel.getEnergy(address, simTime));
 		}
-		this.lastUpdate = simTime;
 		
-		if (simTime > this.lastScanUpdate + this.scanInterval) {
-			/* scanning at this update round */
-			reduceEnergy(this.scanEnergy);
-			this.lastScanUpdate = simTime;
+		double depletion = energyModel.getDepletionTime(address);
+		if (simTime >= depletion) {
+			/* turn radio off */
+			this.radioOff = true;
+			setBusEnergy(0.0);
+			this.comBus.setDouble(NetworkInterface.RANGE_KEY, 0.0);
 		}
+		else if (depletion != this.scheduledDepletion && depletion <= 
+				simTime + SimScenario.getInstance().getUpdateInterval()) {
+			/* runs out before the next update round; update exactly then */
+			SimScenario.getInstance().getWorld().scheduleUpdate(depletion);
+			this.scheduledDepletion = depletion;
+		}
+	}
+	
+	/**
+	 * Sets the energy value of the comBus without feeding it back to the
+	 * energy model
+	 * @param value The energy value
+	 */
+	private void setBusEnergy(double value) {
+		this.updatingBus = true;
+		this.comBus.setDouble(ENERGY_VALUE_KEY, value);
+		this.updatingBus = false;
 	}
 	
 	@Override
 	public void update() {
 		super.update();
-		reduceSendingAndScanningEnergy();
+		updateEnergy();
 				
 		if (isTransferring() || !canStartTransfer()) {
 			return; // transferring, don't try other connections yet
@@ -197,12 +268,24 @@ public class EnergyAwareRouter extends ActiveRouter
 	 * @param newValue The new energy value
 	 */
 	public void moduleValueChanged(String key, Object newValue) {
-		this.currentEnergy = (Double)newValue;
+		if (this.updatingBus) {
+			return;
+		}
+		energyModel.setEnergy(getHost().getAddress(), (Double)newValue,
+				SimClock.getTime());
+		this.radioOff = false;
+		this.scheduledDepletion = -1;
 	}
 
 	
 	@Override
 	public String toString() {
-		return super.toString() + " energy level = " + this.currentEnergy;
+		if (getHost() == null) {
+			// a prototype router has no host and thus no energy level
+			return getClass().getSimpleName() + " with initial energy " +
+				(initEnergy.length == 1 ? "" + initEnergy[0] :
+				initEnergy[0] + "-" + initEnergy[1]);
+		}
+		return super.toString() + " energy level = " + getEnergy();
 	}	
 }
\ No newline at end of file
@@ -65,7 +65,7 @@ public class EpidemicDecisionRouter implements RoutingDecisionEngine{
 
     @Override
     public boolean shouldSaveReceivedMessage(Message m, DTNHost thisHost) {
-        return !thisHost.getRouter().hasMessage(m.getId());
+        return !thisHost.getRouter().hasMessage(m.getIdKey());
     }
 
     @Override
@@ -5,8 +5,10 @@
 package routing;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
+import routing.util.MessageHolderIndex;
 import core.*;
 
 /**
@@ -15,12 +17,19 @@ import core.*;
  * and that message is then removed from all nodes that use this routing module.
  * This router also <B>ignores message size and all messages are delivered 
  * immediately</B>.</P><P>
+ * A global {@link MessageHolderIndex} tracks which nodes hold which messages
+ * so delivered messages are removed only from the nodes that hold them and
+ * the messages to exchange on a new connection are found by set difference.
+ * </P><P>
  * <B>Note:</B> This router module also bypasses ActiveRouter.update()
  */
 public class EpidemicOracleRouter extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
 	
-	/** List of all routers in this node group */
-	private static List<EpidemicOracleRouter> allRouters;
+	/** All routers using this routing module by host address */
+	private static IntObjectMap<EpidemicOracleRouter> allRouters;
+	/** Which routers hold which messages */
+	private static MessageHolderIndex holderIndex;
 
 	static {
 		DTNSim.registerForReset(EpidemicOracleRouter.class.getCanonicalName());
@@ -42,7 +51,12 @@ public class EpidemicOracleRouter extends ActiveRouter {
 	 */
 	protected EpidemicOracleRouter(EpidemicOracleRouter r) {
 		super(r);
-		allRouters.add(this);
+	}
+	
+	@Override
+	public void init(DTNHost host, List<MessageListener> mListeners) {
+		super.init(host, mListeners);
+		allRouters.put(host.getAddress(), this);
 	}
 	
 	@Override
@@ -51,11 +65,22 @@ public class EpidemicOracleRouter extends ActiveRouter {
 			DTNHost peer = con.getOtherNode(getHost());
 			List<Message> newMessages = new ArrayList<Message>();
 			
-			for (Message m : peer.getMessageCollection()) {
-				if (!this.hasMessage(m.getId())) {
-					newMessages.add(m);
+			if (peer.getRouter() instanceof EpidemicOracleRouter) {
+				MessageRouter peerRouter = peer.getRouter();
+				BitSet diff = holderIndex.getDifference(peer.getAddress(),
+						getHost().getAddress());
+				for (int k = diff.nextSetBit(0); k >= 0;
+						k = diff.nextSetBit(k + 1)) {
+					newMessages.add(peerRouter.getMessage(k));
+				}
+			} else { /* peer's messages aren't in the holder index */
+				for (Message m : peer.getMessageCollection()) {
+					if (!this.hasMessage(m.getIdKey())) {
+						newMessages.add(m);
+					}
 				}
 			}
+			
 			for (Message m : newMessages) {
 				/* try to start transfer from peer */
 				if (con.startTransfer(peer, m) == RCV_OK) {
@@ -110,10 +135,12 @@ public class EpidemicOracleRouter extends ActiveRouter {
 		Message m = super.messageTransferred(id, from);
 
 		if (m.getTo() == this.getHost()) {
-			for (EpidemicOracleRouter r : allRouters) {
-				if (r != this && r != from.getRouter()) {
-					r.removeDeliveredMessage(id);
-				}
+			BitSet holders = holderIndex.getHolders(m.getIdKey());
+			holders.clear(getHost().getAddress());
+			holders.clear(from.getAddress());
+			for (int a = holders.nextSetBit(0); a >= 0;
+					a = holders.nextSetBit(a + 1)) {
+				allRouters.get(a).removeDeliveredMessage(id);
 			}
 		} else {
 			sendMessageToConnected(m);
@@ -123,7 +150,7 @@ public class EpidemicOracleRouter extends ActiveRouter {
 	}
 	
 	protected int checkReceiving(Message m) {
-		if ( isIncomingMessage(m.getId()) || hasMessage(m.getId()) || 
+		if ( isIncomingMessage(m.getIdKey()) || hasMessage(m.getIdKey()) || 
 				isDeliveredMessage(m) ){
 			return DENIED_OLD; // already seen this message -> reject it
 		}
@@ -156,6 +183,21 @@ public class EpidemicOracleRouter extends ActiveRouter {
 		}
 	}
 	
+	@Override
+	protected void addToMessages(Message m, boolean newMessage) {
+		super.addToMessages(m, newMessage);
+		holderIndex.add(m.getIdKey(), getHost().getAddress());
+	}
+	
+	@Override
+	protected Message removeFromMessages(String id) {
+		Message m = super.removeFromMessages(id);
+		if (m != null) {
+			holderIndex.remove(m.getIdKey(), getHost().getAddress());
+		}
+		return m;
+	}
+	
 	@Override
 	public void update() {
 		/* nothing to do; all transfers are started only when new connections
@@ -170,10 +212,11 @@ public class EpidemicOracleRouter extends ActiveRouter {
 	}
 	
 	/**
-	 * Resets the static router list
+	 * Resets the static router map and the message holder index
 	 */
 	public static void reset() {
-		allRouters = new ArrayList<EpidemicOracleRouter>();
+		allRouters = new IntObjectMap<EpidemicOracleRouter>();
+		holderIndex = new MessageHolderIndex();
 	}
 
 }
\ No newline at end of file
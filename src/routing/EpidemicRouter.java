@@ -11,6 +11,7 @@ import core.Settings;
  * connections at a time.
  */
 public class EpidemicRouter extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
 	
 	/**
 	 * Constructor. Creates a new message router based on the settings in
@@ -43,8 +44,8 @@ public class EpidemicRouter extends ActiveRouter {
 			return; // started a transfer, don't try others (yet)
 		}
 		
-		// then try any/all message to any/all connection
-		this.tryAllMessagesToAllConnections();
+		// then try the messages each peer lacks to any/all connection
+		this.tryLackedMessagesToAllConnections();
 	}
 	
 	
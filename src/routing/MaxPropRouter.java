@@ -14,6 +14,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import routing.maxprop.HopCountIndex;
 import routing.maxprop.MaxPropDijkstra;
 import routing.maxprop.MeetingProbabilitySet;
 import core.Connection;
@@ -35,6 +36,8 @@ import core.Tuple;
  * Protocols</I> Chants, 2008 
  */
 public class MaxPropRouter extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
+
     /** Router's setting namespace ({@value})*/
 	public static final String MAXPROP_NS = "MaxPropRouter";
 	/**
@@ -60,6 +63,8 @@ public class MaxPropRouter extends ActiveRouter {
 	private Map<Integer, Double> costsForMessages;
 	/** From host of the last cost calculation */
 	private DTNHost lastCostFrom;
+	/** total sizes of the buffered messages by hop count */
+	private HopCountIndex hopCounts;
 		
 	/** Over how many samples the "average number of bytes transferred per
 	 * transfer opportunity" is taken */
@@ -113,6 +118,7 @@ public class MaxPropRouter extends ActiveRouter {
 		this.dijkstra = new MaxPropDijkstra(this.allProbs);
 		this.ackedMessageIds = new HashSet<String>();
 		this.avgSamples = new int[BYTES_TRANSFERRED_AVG_SAMPLES];
+		this.hopCounts = new HopCountIndex();
 	}	
 
 	@Override
@@ -183,6 +189,25 @@ public class MaxPropRouter extends ActiveRouter {
 		}
 	}
 	
+	@Override
+	protected void addToMessages(Message m, boolean newMessage) {
+		Message old = getMessage(m.getIdKey());
+		if (old != null) { // replaced
+			hopCounts.remove(old.getHopCount(), old.getSize());
+		}
+		super.addToMessages(m, newMessage);
+		hopCounts.add(m.getHopCount(), m.getSize());
+	}
+
+	@Override
+	protected Message removeFromMessages(String id) {
+		Message m = super.removeFromMessages(id);
+		if (m != null) {
+			hopCounts.remove(m.getHopCount(), m.getSize());
+		}
+		return m;
+	}
+
 	@Override
 	public Message messageTransferred(String id, DTNHost from) {
 		this.costsForMessages = null; // new message -> invalidate costs
@@ -241,7 +266,7 @@ public class MaxPropRouter extends ActiveRouter {
 	
 	/**
 	 * Returns the next message that should be dropped, according to MaxProp's
-	 * message ordering scheme (see {@link MaxPropTupleComparator}). 
+	 * message ordering scheme (see {@link MaxPropComparator}). 
 	 * @param excludeMsgBeingSent If true, excludes message(s) that are
 	 * being sent from the next-to-be-dropped check (i.e., if next message to
 	 * drop is being sent, the following message is returned)
@@ -252,19 +277,19 @@ public class MaxPropRouter extends ActiveRouter {
     @Override
 	protected Message getOldestMessage(boolean excludeMsgBeingSent) {
 		Collection<Message> messages = this.getMessageCollection();
-		List<Message> validMessages = new ArrayList<Message>();
+		List<CostTuple> validMessages = new ArrayList<CostTuple>();
 
 		for (Message m : messages) {	
-			if (excludeMsgBeingSent && isSending(m.getId())) {
+			if (excludeMsgBeingSent && isSending(m.getIdKey())) {
 				continue; // skip the message(s) that router is sending
 			}
-			validMessages.add(m);
+			validMessages.add(new CostTuple(m, null, getHost()));
 		}
 		
-		Collections.sort(validMessages, 
-				new MaxPropComparator(this.calcThreshold())); 
+		sortByPriority(validMessages, this.calcThreshold());
 		
-		return validMessages.get(validMessages.size()-1); // return last message
+		// return last message
+		return validMessages.get(validMessages.size()-1).getKey();
 	}
 	
 	@Override
@@ -325,11 +350,8 @@ public class MaxPropRouter extends ActiveRouter {
 	 * @return The return value of {@link #tryMessagesForConnected(List)}
 	 */
 	private Tuple<Message, Connection> tryOtherMessages() {
-		List<Tuple<Message, Connection>> messages = 
-			new ArrayList<Tuple<Message, Connection>>(); 
+		List<CostTuple> tuples = new ArrayList<CostTuple>(); 
 	
-		Collection<Message> msgCollection = getMessageCollection();
-		
 		/* for all connected hosts that are not transferring at the moment,
 		 * collect all the messages that could be sent */
 		for (Connection con : getConnections()) {
@@ -340,27 +362,61 @@ public class MaxPropRouter extends ActiveRouter {
 				continue; // skip hosts that are transferring
 			}
 			
-			for (Message m : msgCollection) {
-				/* skip messages that the other host has or that have
-				 * passed the other host */
-				if (othRouter.hasMessage(m.getId()) ||
-						m.getHops().contains(other)) {
+			for (Message m : getMessagesPeerLacks(con)) {
+				/* skip messages that have passed the other host */
+				if (m.getHops().contains(other)) {
 					continue; 
 				}
-				messages.add(new Tuple<Message, Connection>(m,con));
+				tuples.add(new CostTuple(m, con, other));
 			}			
 		}
 		
-		if (messages.size() == 0) {
+		if (tuples.size() == 0) {
 			return null;
 		}
 		
 		/* sort the message-connection tuples according to the criteria
-		 * defined in MaxPropTupleComparator */ 
-		Collections.sort(messages, new MaxPropTupleComparator(calcThreshold()));
+		 * defined in MaxPropComparator */ 
+		sortByPriority(tuples, calcThreshold());
+		List<Tuple<Message, Connection>> messages = 
+			new ArrayList<Tuple<Message, Connection>>(tuples); 
 		return tryMessagesForConnected(messages);	
 	}
 	
+	/**
+	 * Sorts tuples according to the criteria defined in
+	 * {@link MaxPropComparator}. The path costs are looked up once per tuple,
+	 * and only if the order of at least two different messages depends on
+	 * their costs.
+	 * @param tuples The tuples to sort
+	 * @param threshold The hop count threshold of the buffer's split
+	 */
+	private void sortByPriority(List<CostTuple> tuples, int threshold) {
+		Message costOrdered = null;
+		boolean needCosts = false;
+		for (CostTuple t : tuples) {
+			if (t.hopCount < threshold) {
+				continue;
+			}
+			if (costOrdered == null) {
+				costOrdered = t.getKey();
+			}
+			else if (costOrdered != t.getKey()) {
+				needCosts = true;
+				break;
+			}
+		}
+		
+		if (needCosts) {
+			for (CostTuple t : tuples) {
+				if (t.hopCount >= threshold) {
+					t.cost = getCost(t.from, t.getKey().getTo());
+				}
+			}
+		}
+		Collections.sort(tuples, new MaxPropComparator(threshold));
+	}
+	
 	/**
 	 * Calculates and returns the current threshold value for the buffer's split
 	 * based on the average number of bytes transferred per transfer opportunity
@@ -390,70 +446,61 @@ public class MaxPropRouter extends ActiveRouter {
 			return 0; // no need for the threshold 
 		}
 		
-		/* creates a copy of the messages list, sorted by hop count */
-		ArrayList<Message> msgs = new ArrayList<Message>();
-		msgs.addAll(getMessageCollection());
-		if (msgs.size() == 0) {
+		if (hopCounts.size() == 0) {
 			return 0; // no messages -> no need for threshold
 		}
-		/* anonymous comparator class for hop count comparison */
-		Comparator<Message> hopCountComparator = new Comparator<Message>() {
-			public int compare(Message m1, Message m2) {
-				return m1.getHopCount() - m2.getHopCount();
-			}
-		};
-		Collections.sort(msgs, hopCountComparator);
 
-		/* finds the first message that is beyond the calculated portion */
-		int i=0;
-		for (int n=msgs.size(); i<n && p>0; i++) {
-			p -= msgs.get(i).getSize();
-		}
-		
-		i--; // the last round moved i one index too far 
-		if (i < 0) {
-			return 0;
-		}
-		
-		/* now i points to the first packet that exceeds portion p; 
-		 * the threshold is that packet's hop count + 1 (so that packet and
-		 * perhaps some more are included in the priority part) */
-		return msgs.get(i).getHopCount() + 1;
+		/* finds the hop count of the first message (in hop count order)
+		 * that exceeds portion p; the threshold is that hop count + 1 (so
+		 * that packet and perhaps some more are included in the priority
+		 * part). If all messages fit in p, the largest hop count is used. */
+		return hopCounts.getHopCountFor(p) + 1;
 	}
 	
 	/**
-	 * Message comparator for the MaxProp routing module. 
-	 * Messages that have a hop count smaller than the given
-	 * threshold are given priority and they are ordered by their hop count.
-	 * Other messages are ordered by their delivery cost.
+	 * Message-Connection tuple with the message's hop count and the cost of
+	 * the message's path (set by {@link #sortByPriority(List, int)}) so that
+	 * the comparator doesn't need to look them up.
 	 */
-	private class MaxPropComparator implements Comparator<Message> {
-		private int threshold;
-		private DTNHost from1;
-		private DTNHost from2;
-		
+	private static class CostTuple extends Tuple<Message, Connection> {
+		private static final long serialVersionUID = 42L;
+
+		private final int hopCount;
+		/** The host where the cost of the message is calculated from */
+		private final DTNHost from;
+		private double cost;
+
 		/**
-		 * Constructor. Assumes that the host where all the costs are calculated
-		 * from is this router's host.
-		 * @param treshold Messages with the hop count smaller than this
-		 * value are transferred first (and ordered by the hop count)
+		 * Constructor.
+		 * @param m The message
+		 * @param con The connection (or null if not used)
+		 * @param from The host where the cost of the message is calculated
+		 * from
 		 */
-		public MaxPropComparator(int treshold) {
-			this.threshold = treshold;
-			this.from1 = this.from2 = getHost();
+		public CostTuple(Message m, Connection con, DTNHost from) {
+			super(m, con);
+			this.hopCount = m.getHopCount();
+			this.from = from;
 		}
+	}
 
+	/**
+	 * Comparator for the MaxProp routing module's messages (and 
+	 * message-connection tuples). Messages that have a hop count smaller than
+	 * the given threshold are given priority and they are ordered by their
+	 * hop count. Other messages are ordered by their delivery cost (from the
+	 * host given for the tuple).
+	 */
+	private class MaxPropComparator implements Comparator<CostTuple> {
+		private int threshold;
+		
 		/**
-		 * Constructor. 
+		 * Constructor.
 		 * @param treshold Messages with the hop count smaller than this
 		 * value are transferred first (and ordered by the hop count)
-		 * @param from1 The host where the cost of msg1 is calculated from
-		 * @param from2 The host where the cost of msg2 is calculated from 
 		 */
-		public MaxPropComparator(int treshold, DTNHost from1, DTNHost from2) {
+		public MaxPropComparator(int treshold) {
 			this.threshold = treshold;
-			this.from1 = from1;
-			this.from2 = from2;
 		}
 
 		/**
@@ -466,10 +513,12 @@ public class MaxPropRouter extends ActiveRouter {
 		 * with smaller cost (determined by 
 		 * {@link MaxPropRouter#getCost(DTNHost, DTNHost)}) is first. 
 		 */
-		public int compare(Message msg1, Message msg2) {
+		public int compare(CostTuple tuple1, CostTuple tuple2) {
 			double p1, p2;
-			int hopc1 = msg1.getHopCount();
-			int hopc2 = msg2.getHopCount();
+			Message msg1 = tuple1.getKey();
+			Message msg2 = tuple2.getKey();
+			int hopc1 = tuple1.hopCount;
+			int hopc2 = tuple2.hopCount;
 
 			if (msg1 == msg2) {
 				return 0;
@@ -492,8 +541,8 @@ public class MaxPropRouter extends ActiveRouter {
 			
 			/* both messages have more than threshold hops -> cost of the
 			 * message path is used for ordering */
-			p1 = getCost(from1, msg1.getTo());
-			p2 = getCost(from2, msg2.getTo());
+			p1 = tuple1.cost;
+			p2 = tuple2.cost;
 			
 			/* the one with lower cost should be sent first */
 			if (p1-p2 == 0) {
@@ -515,36 +564,6 @@ public class MaxPropRouter extends ActiveRouter {
 		}		
 	}
 	
-	/**
-	 * Message-Connection tuple comparator for the MaxProp routing 
-	 * module. Uses {@link MaxPropComparator} on the messages of the tuples
-	 * setting the "from" host for that message to be the one in the connection
-	 * tuple (i.e., path is calculated starting from the host on the other end 
-	 * of the connection).
-	 */
-	private class MaxPropTupleComparator 
-			implements Comparator <Tuple<Message, Connection>>  {
-		private int threshold;
-		
-		public MaxPropTupleComparator(int threshold) {
-			this.threshold = threshold;
-		}
-		
-		/**
-		 * Compares two message-connection tuples using the 
-		 * {@link MaxPropComparator#compare(Message, Message)}.
-		 */
-		public int compare(Tuple<Message, Connection> tuple1,
-				Tuple<Message, Connection> tuple2) {
-			MaxPropComparator comp;
-			DTNHost from1 = tuple1.getValue().getOtherNode(getHost());
-			DTNHost from2 = tuple2.getValue().getOtherNode(getHost());
-			
-			comp = new MaxPropComparator(threshold, from1, from2);
-			return comp.compare(tuple1.getKey(), tuple2.getKey());
-		}
-	}
-	
 	
 	@Override
 	public RoutingInfo getRoutingInfo() {
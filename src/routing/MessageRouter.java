@@ -4,6 +4,8 @@
  */
 package routing;
 
+import java.io.Serializable;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -15,8 +17,10 @@ import java.util.Random;
 import core.Application;
 import core.Connection;
 import core.DTNHost;
+import core.IntObjectMap;
 import core.Message;
 import core.MessageListener;
+import core.MessageListenerList;
 import core.Settings;
 import core.SettingsError;
 import core.SimClock;
@@ -26,7 +30,8 @@ import core.Tuple;
 /**
  * Superclass for message routers.
  */
-public abstract class MessageRouter {
+public abstract class MessageRouter implements Serializable {
+    private static final long serialVersionUID = 42L;
 
     /**
      * Message buffer size -setting id ({@value}). Integer value in bytes.
@@ -91,18 +96,32 @@ public abstract class MessageRouter {
     public static final int DENIED_UNSPECIFIED = -999;
     public static final int DENIED_DELIVERED = -4;
     protected List<MessageListener> mListeners;
+    /** Dispatches the message events to the listeners of {@link #mListeners} */
+    protected MessageListener mEvents;
     /**
-     * The messages being transferred with msgID_hostName keys
+     * The messages being transferred keyed by the message ID key and the
+     * address of the host they are from
      */
-    private HashMap<String, Message> incomingMessages;
+    private IntObjectMap<IntObjectMap<Message>> incomingMessages;
     /**
-     * The messages this router is carrying
+     * The messages this router is carrying keyed by message ID key
      */
-    private HashMap<String, Message> messages;
+    private IntObjectMap<Message> messages;
+    /** Total size of the messages in the buffer */
+    private int bufferOccupancy;
     /**
-     * The messages this router has received as the final recipient
+     * ID keys of the messages this router has received as the final
+     * recipient
      */
-    protected HashMap<String, Message> deliveredMessages;
+    protected BitSet deliveredMessages;
+    /**
+     * Summary vector: ID keys of the messages this router is carrying
+     */
+    private BitSet summaryVector;
+    /**
+     * Version of the summary vector; incremented on every buffer change
+     */
+    private int summaryVersion;
     /**
      * Host where this router belongs to
      */
@@ -170,10 +189,14 @@ public abstract class MessageRouter {
      * @param mListeners The message listeners
      */
     public void init(DTNHost host, List<MessageListener> mListeners) {
-        this.incomingMessages = new HashMap<String, Message>();
-        this.messages = new HashMap<String, Message>();
-        this.deliveredMessages = new HashMap<String, Message>();
+        this.incomingMessages = new IntObjectMap<IntObjectMap<Message>>();
+        this.messages = new IntObjectMap<Message>();
+        this.bufferOccupancy = 0;
+        this.deliveredMessages = new BitSet();
+        this.summaryVector = new BitSet();
+        this.summaryVersion = 0;
         this.mListeners = mListeners;
+        this.mEvents = MessageListenerList.dispatcherFor(mListeners);
         this.host = host;
 //        Random rnd = new Random();
 //        for (int i = 0; i < 5; i++) {
@@ -231,7 +254,17 @@ public abstract class MessageRouter {
      * @return The message
      */
     protected Message getMessage(String id) {
-        return this.messages.get(id);
+        return this.messages.get(Message.getKeyForId(id));
+    }
+
+    /**
+     * Returns a message by the ID key.
+     *
+     * @param idKey ID key of the message (see {@link Message#getIdKey()})
+     * @return The message or null if there's no such message in the buffer
+     */
+    protected Message getMessage(int idKey) {
+        return this.messages.get(idKey);
     }
 
     /**
@@ -241,7 +274,17 @@ public abstract class MessageRouter {
      * @return True if the router has message with this id, false if not
      */
     protected boolean hasMessage(String id) {
-        return this.messages.containsKey(id);
+        return this.messages.containsKey(Message.getKeyForId(id));
+    }
+
+    /**
+     * Checks if this router has a message with certain ID key buffered.
+     *
+     * @param idKey ID key of the message (see {@link Message#getIdKey()})
+     * @return True if the router has message with this key, false if not
+     */
+    protected boolean hasMessage(int idKey) {
+        return this.messages.containsKey(idKey);
     }
 
     /**
@@ -254,7 +297,7 @@ public abstract class MessageRouter {
      * as the final recipient.
      */
     protected boolean isDeliveredMessage(Message m) {
-        return (this.deliveredMessages.containsKey(m.getId()));
+        return this.deliveredMessages.get(m.getIdKey());
     }
 
     /**
@@ -270,6 +313,28 @@ public abstract class MessageRouter {
         return this.messages.values();
     }
 
+    /**
+     * Returns the summary vector of this router, i.e., a set of the ID keys
+     * (see {@link Message#getIdKey()}) of the messages this router is
+     * carrying. The returned set is backed by the router and must not be
+     * modified.
+     *
+     * @return The summary vector
+     */
+    public BitSet getSummaryVector() {
+        return this.summaryVector;
+    }
+
+    /**
+     * Returns the version of the summary vector. The version changes every
+     * time a message is added to or removed from the buffer.
+     *
+     * @return The version of the summary vector
+     */
+    public int getSummaryVersion() {
+        return this.summaryVersion;
+    }
+
     /**
      * Returns the number of messages this router has
      *
@@ -297,17 +362,11 @@ public abstract class MessageRouter {
      * isn't defined)
      */
     public int getFreeBufferSize() {
-        int occupancy = 0;
-
         if (this.getBufferSize() == Integer.MAX_VALUE) {
             return Integer.MAX_VALUE;
         }
 
-        for (Message m : getMessageCollection()) {
-            occupancy += m.getSize();
-        }
-
-        return this.getBufferSize() - occupancy;
+        return this.getBufferSize() - this.bufferOccupancy;
     }
 
     /**
@@ -363,9 +422,7 @@ public abstract class MessageRouter {
         this.putToIncomingBuffer(newMessage, from);
         newMessage.addNodeOnPath(this.host);
 
-        for (MessageListener ml : this.mListeners) {
-            ml.messageTransferStarted(newMessage, from, getHost());
-        }
+        this.mEvents.messageTransferStarted(newMessage, from, getHost());
 
         return RCV_OK; // superclass always accepts messages
     }
@@ -414,13 +471,11 @@ public abstract class MessageRouter {
             // -> put to buffer
             addToMessages(aMessage, false);
         } else if (isFirstDelivery) {
-            this.deliveredMessages.put(id, aMessage);
+            this.deliveredMessages.set(aMessage.getIdKey());
         }
 
-        for (MessageListener ml : this.mListeners) {
-            ml.messageTransferred(aMessage, from, this.host,
-                    isFirstDelivery);
-        }
+        this.mEvents.messageTransferred(aMessage, from, this.host,
+                isFirstDelivery);
 
         return aMessage;
     }
@@ -433,7 +488,12 @@ public abstract class MessageRouter {
      * @param from Who the message was from (previous hop).
      */
     protected void putToIncomingBuffer(Message m, DTNHost from) {
-        this.incomingMessages.put(m.getId() + "_" + from.toString(), m);
+        IntObjectMap<Message> senders = this.incomingMessages.get(m.getIdKey());
+        if (senders == null) {
+            senders = new IntObjectMap<Message>(1);
+            this.incomingMessages.put(m.getIdKey(), senders);
+        }
+        senders.put(from.getAddress(), m);
     }
 
     /**
@@ -445,7 +505,16 @@ public abstract class MessageRouter {
      * @return The found message or null if such message wasn't found
      */
     protected Message removeFromIncomingBuffer(String id, DTNHost from) {
-        return this.incomingMessages.remove(id + "_" + from.toString());
+        int idKey = Message.getKeyForId(id);
+        IntObjectMap<Message> senders = this.incomingMessages.get(idKey);
+        if (senders == null) {
+            return null;
+        }
+        Message m = senders.remove(from.getAddress());
+        if (senders.isEmpty()) {
+            this.incomingMessages.remove(idKey);
+        }
+        return m;
     }
 
     /**
@@ -456,7 +525,18 @@ public abstract class MessageRouter {
      * @return True if such message is incoming right now
      */
     protected boolean isIncomingMessage(String id) {
-        return this.incomingMessages.containsKey(id);
+        return isIncomingMessage(Message.getKeyForId(id));
+    }
+
+    /**
+     * Returns true if a message with the given ID key is one of the currently
+     * incoming messages, false if not
+     *
+     * @param idKey ID key of the message
+     * @return True if such message is incoming right now
+     */
+    protected boolean isIncomingMessage(int idKey) {
+        return this.incomingMessages.containsKey(idKey);
     }
 
     /**
@@ -468,12 +548,16 @@ public abstract class MessageRouter {
      * message, if false, nothing is informed.
      */
     protected void addToMessages(Message m, boolean newMessage) {
-        this.messages.put(m.getId(), m);
+        Message old = this.messages.put(m.getIdKey(), m);
+        if (old != null) {
+            this.bufferOccupancy -= old.getSize();
+        }
+        this.bufferOccupancy += m.getSize();
+        this.summaryVector.set(m.getIdKey());
+        this.summaryVersion++;
 
         if (newMessage) {
-            for (MessageListener ml : this.mListeners) {
-                ml.newMessage(m);
-            }
+            this.mEvents.newMessage(m);
         }
     }
 
@@ -484,7 +568,12 @@ public abstract class MessageRouter {
      * @return The removed message or null if message for the ID wasn't found
      */
     protected Message removeFromMessages(String id) {
-        Message m = this.messages.remove(id);
+        Message m = this.messages.remove(Message.getKeyForId(id));
+        if (m != null) {
+            this.bufferOccupancy -= m.getSize();
+            this.summaryVector.clear(m.getIdKey());
+            this.summaryVersion++;
+        }
         return m;
     }
 
@@ -504,9 +593,7 @@ public abstract class MessageRouter {
                     + " to abort in " + this.host);
         }
 
-        for (MessageListener ml : this.mListeners) {
-            ml.messageTransferAborted(incoming, from, this.host);
-        }
+        this.mEvents.messageTransferAborted(incoming, from, this.host);
     }
 
     /**
@@ -538,9 +625,7 @@ public abstract class MessageRouter {
                     + id + " to remove at " + this.host);
         }
 
-        for (MessageListener ml : this.mListeners) {
-            ml.messageDeleted(removed, this.host, drop);
-        }
+        this.mEvents.messageDeleted(removed, this.host, drop);
     }
 
     /**
@@ -628,10 +713,14 @@ public abstract class MessageRouter {
      */
     public RoutingInfo getRoutingInfo() {
         RoutingInfo ri = new RoutingInfo(this);
-        RoutingInfo incoming = new RoutingInfo(this.incomingMessages.size()
+        int nrofIncoming = 0;
+        for (IntObjectMap<Message> senders : this.incomingMessages.values()) {
+            nrofIncoming += senders.size();
+        }
+        RoutingInfo incoming = new RoutingInfo(nrofIncoming
                 + " incoming message(s)");
-        RoutingInfo delivered = new RoutingInfo(this.deliveredMessages.size()
-                + " delivered message(s)");
+        RoutingInfo delivered = new RoutingInfo(
+                this.deliveredMessages.cardinality() + " delivered message(s)");
 
         RoutingInfo cons = new RoutingInfo(host.getConnections().size()
                 + " connection(s)");
@@ -640,12 +729,15 @@ public abstract class MessageRouter {
         ri.addMoreInfo(delivered);
         ri.addMoreInfo(cons);
 
-        for (Message m : this.incomingMessages.values()) {
-            incoming.addMoreInfo(new RoutingInfo(m));
+        for (IntObjectMap<Message> senders : this.incomingMessages.values()) {
+            for (Message m : senders.values()) {
+                incoming.addMoreInfo(new RoutingInfo(m));
+            }
         }
 
-        for (Message m : this.deliveredMessages.values()) {
-            delivered.addMoreInfo(new RoutingInfo(m + " path:" + m.getHops()));
+        for (int k = this.deliveredMessages.nextSetBit(0); k >= 0;
+                k = this.deliveredMessages.nextSetBit(k + 1)) {
+            delivered.addMoreInfo(new RoutingInfo(Message.getIdForKey(k)));
         }
 
         for (Connection c : host.getConnections()) {
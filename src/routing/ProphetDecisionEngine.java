@@ -9,8 +9,10 @@ import core.*;
 import routing.DecisionEngineRouter;
 import routing.MessageRouter;
 import routing.RoutingDecisionEngine;
+import routing.util.UtilityCache;
+import routing.util.UtilityCacheEngine;
 
-public class ProphetDecisionEngine implements RoutingDecisionEngine {
+public class ProphetDecisionEngine implements RoutingDecisionEngine, UtilityCacheEngine {
 
 	protected final static String BETA_SETTING = "beta";
 	protected final static String P_INIT_SETTING = "initial_p";
@@ -34,6 +36,10 @@ public class ProphetDecisionEngine implements RoutingDecisionEngine {
 	 * delivery predictabilities
 	 */
 	private Map<DTNHost, Double> preds;
+	/**
+	 * cached (aged) delivery predictabilities by host address
+	 */
+	private UtilityCache predCache;
 
 	public ProphetDecisionEngine(Settings s) {
 		if (s.contains(BETA_SETTING)) {
@@ -67,6 +73,7 @@ public class ProphetDecisionEngine implements RoutingDecisionEngine {
 		relayed = new HashMap<>();
 		preds = new HashMap<DTNHost, Double>();
 		this.lastAgeUpdate = de.lastAgeUpdate;
+		predCache = new UtilityCache(true);
 	}
 
 	public RoutingDecisionEngine replicate() {
@@ -117,6 +124,9 @@ public class ProphetDecisionEngine implements RoutingDecisionEngine {
 				de.preds.put(h, peerOldValue + (1 - peerOldValue) * peerPforMe * myOldValue * beta);
 			}
 		}
+
+		this.predCache.invalidate();
+		de.predCache.invalidate();
 	}
 
 	public boolean newMessage(Message m) {
@@ -146,7 +156,7 @@ public class ProphetDecisionEngine implements RoutingDecisionEngine {
 		if (msgStamp.contains(m)) {
 			relayed.put(meHost, !relayed.containsKey(meHost) ? 1 : relayed.get(meHost) + 1);
 		}
-		return de.getPredFor(m.getTo()) > this.getPredFor(m.getTo());
+		return de.getCachedPredFor(m.getTo()) > this.getCachedPredFor(m.getTo());
 	}
 
 
@@ -231,6 +241,30 @@ public class ProphetDecisionEngine implements RoutingDecisionEngine {
 		}
 	}
 
+	/**
+	 * Returns the P value for a host like {@link #getPredFor(DTNHost)} but
+	 * uses the value cached during the same time step if the preds haven't
+	 * changed since.
+	 *
+	 * @param host The host to look the P for
+	 * @return the current P value
+	 */
+	private double getCachedPredFor(DTNHost host) {
+		double cached;
+		if (predCache.contains(host.getAddress())) {
+			cached = predCache.get(host.getAddress());
+		}
+		else {
+			cached = predCache.put(host.getAddress(), getPredFor(host));
+		}
+		return cached;
+	}
+
+	@Override
+	public UtilityCache getUtilityCache() {
+		return predCache;
+	}
+
 	@Override
 	public void update(DTNHost thisHost) {
 	}
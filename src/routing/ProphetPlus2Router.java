@@ -16,6 +16,8 @@ import java.util.*;
  * @see <a href="https://www.mdpi.com/2076-3417/8/11/2215">An Efficient Routing Protocol Using the History of Delivery Predictability in Opportunistic Networks</a>
  */
 public class ProphetPlus2Router extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
+
 	/**
 	 * delivery predictability initialization constant
 	 */
@@ -236,7 +238,6 @@ public class ProphetPlus2Router extends ActiveRouter {
 	 * @author narwa
 	 */
 	protected Tuple<Message, Connection> tryOtherMessages() {
-		Collection<Message> msgCollection = getMessageCollection();
 		List<Tuple<Message, Connection>> messages = new ArrayList<>();
 
 		for (Connection con : getConnections()) {
@@ -248,12 +249,7 @@ public class ProphetPlus2Router extends ActiveRouter {
 				continue;
 			}
 
-			for (Message m : msgCollection) {
-				// if peer has the message, skip it
-				if (peerRouter.hasMessage(m.getId())) {
-					continue;
-				}
-
+			for (Message m : getMessagesPeerLacks(con)) {
 				if (peer == m.getTo()) {
 					messages.add(new Tuple<>(m, con));
 
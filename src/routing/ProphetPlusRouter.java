@@ -14,6 +14,7 @@ import java.util.*;
  * @see <a href="https://www.mdpi.com/2076-3417/8/11/2215">An Efficient Routing Protocol Using the History of Delivery Predictability in Opportunistic Networks</a>
  */
 public class ProphetPlusRouter extends ProphetRouter {
+	private static final long serialVersionUID = 42L;
 
 	/**
 	 * To store previous probability of deliverance value for the proposed algorithm.
@@ -101,7 +102,6 @@ public class ProphetPlusRouter extends ProphetRouter {
 	 * */
 	@Override
 	protected Tuple<Message, Connection> tryOtherMessages() {
-		Collection<Message> msgCollection = getMessageCollection();
 		List<Tuple<Message, Connection>> messages = new ArrayList<>();
 
 		for (Connection con : getConnections()) {
@@ -113,12 +113,7 @@ public class ProphetPlusRouter extends ProphetRouter {
 				continue;
 			}
 
-			for (Message m : msgCollection) {
-				// if peer has the message, skip it
-				if (peerRouter.hasMessage(m.getId())) {
-					continue;
-				}
-
+			for (Message m : getMessagesPeerLacks(con)) {
 				if (peer == m.getTo()) {
 					messages.add(new Tuple<>(m, con));
 
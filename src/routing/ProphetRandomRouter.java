@@ -14,6 +14,8 @@ import java.util.*;
  * @see <a href="https://www.mdpi.com/2076-3417/8/11/2215">An Efficient Routing Protocol Using the History of Delivery Predictability in Opportunistic Networks</a>
  */
 public class ProphetRandomRouter extends ProphetRouter {
+	private static final long serialVersionUID = 42L;
+
 	/**
 	 * Prophet router's setting namespace ({@value})
 	 */
@@ -22,6 +24,11 @@ public class ProphetRandomRouter extends ProphetRouter {
 	public static Integer RNG_SEED;
 	public static Random randomizer;
 
+	static {
+		Checkpoint.registerStaticState(
+				ProphetRandomRouter.class.getCanonicalName());
+	}
+
 	public ProphetRandomRouter(Settings s) {
 		super(s);
 		Settings prophetSettings = new Settings(PROPHET_NS);
@@ -75,7 +82,6 @@ public class ProphetRandomRouter extends ProphetRouter {
 	 * */
 	@Override
 	protected Tuple<Message, Connection> tryOtherMessages() {
-		Collection<Message> msgCollection = getMessageCollection();
 		List<Tuple<Message, Connection>> messages = new ArrayList<>();
 
 		for (Connection con : getConnections()) {
@@ -87,12 +93,7 @@ public class ProphetRandomRouter extends ProphetRouter {
 				continue;
 			}
 
-			for (Message m : msgCollection) {
-				// if peer has the message, skip it
-				if (peerRouter.hasMessage(m.getId())) {
-					continue;
-				}
-
+			for (Message m : getMessagesPeerLacks(con)) {
 //				if (peer == m.getTo()) {
 //					messages.add(new Tuple<>(m, con));
 //
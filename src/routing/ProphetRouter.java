@@ -4,8 +4,10 @@
  */
 package routing;
 
+import java.io.Serializable;
 import java.util.*;
 
+import core.Checkpoint;
 import core.Connection;
 import core.DTNHost;
 import core.Message;
@@ -19,6 +21,8 @@ import core.Tuple;
  * Anders Lindgren et al.
  */
 public class ProphetRouter extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
+
 	/**
 	 * delivery predictability initialization constant
 	 */
@@ -78,6 +82,10 @@ public class ProphetRouter extends ActiveRouter {
 
 	public static Random rng;
 
+	static {
+		Checkpoint.registerStaticState(ProphetRouter.class.getCanonicalName());
+	}
+
 	/**
 	 * the value of nrof seconds in time unit -setting
 	 */
@@ -309,8 +317,6 @@ public class ProphetRouter extends ActiveRouter {
 	protected Tuple<Message, Connection> tryOtherMessages() {
 		List<Tuple<Message, Connection>> messages = new ArrayList<>();
 
-		Collection<Message> msgCollection = getMessageCollection();
-		
 		/* for all connected hosts collect all messages that have a higher
 		   probability of delivery by the other host */
 		for (Connection con : getConnections()) {
@@ -321,11 +327,7 @@ public class ProphetRouter extends ActiveRouter {
 				continue; // skip hosts that are transferring
 			}
 
-			for (Message m : msgCollection) {
-				if (othRouter.hasMessage(m.getId())) {
-					continue; // skip messages that the other one has
-				}
-
+			for (Message m : getMessagesPeerLacks(con)) {
 				/* Randomize decision */
 				if (forwardingStrategy == ForwardingStrategy.COIN) {
 					if (rng.nextBoolean()) {
@@ -437,7 +439,7 @@ public class ProphetRouter extends ActiveRouter {
 		Message mostForward = null;
 		for (Message m : messages) {
 			// skip the message(s) that router is sending
-			if (excludeMsgBeingSent && isSending(m.getId())) {
+			if (excludeMsgBeingSent && isSending(m.getIdKey())) {
 				continue;
 			}
 
@@ -461,7 +463,7 @@ public class ProphetRouter extends ActiveRouter {
 		Message highestFP = null;
 		for (Message m : messages) {
 			// skip the message(s) that router is sending
-			if (excludeMsgBeingSent && isSending(m.getId())) {
+			if (excludeMsgBeingSent && isSending(m.getIdKey())) {
 				continue;
 			}
 
@@ -488,7 +490,7 @@ public class ProphetRouter extends ActiveRouter {
 		Message shortestLife = null;
 		for (Message m : getMessageCollection()) {
 			// skip the message(s) that router is sending
-			if (excludeMsgBeingSent && isSending(m.getId())) {
+			if (excludeMsgBeingSent && isSending(m.getIdKey())) {
 				continue;
 			}
 
@@ -513,7 +515,7 @@ public class ProphetRouter extends ActiveRouter {
 		SortedMap<Double, Message> msgPreds = new TreeMap<>();
 		for (Message message : getMessageCollection()) {
 			// skip the message(s) that router is sending
-			if (excludeMsgBeingSent && isSending(message.getId())) {
+			if (excludeMsgBeingSent && isSending(message.getIdKey())) {
 				continue;
 			}
 
@@ -638,7 +640,8 @@ public class ProphetRouter extends ActiveRouter {
 
 	// Queue Comparators
 
-	interface ForwardingComparator extends Comparator<Tuple<Message, Connection>> {
+	interface ForwardingComparator
+		extends Comparator<Tuple<Message, Connection>>, Serializable {
 		@Override
 		int compare(Tuple<Message, Connection> tuple1, Tuple<Message, Connection> tuple2);
 	}
@@ -649,6 +652,7 @@ public class ProphetRouter extends ActiveRouter {
 	 * connection.
 	 */
 	private class GRTRMaxTupleComparator implements ForwardingComparator {
+		private static final long serialVersionUID = 42L;
 
 		public int compare(Tuple<Message, Connection> tuple1, Tuple<Message, Connection> tuple2) {
 			// delivery probability of tuple1's message with tuple1's connection
@@ -678,6 +682,7 @@ public class ProphetRouter extends ActiveRouter {
 	 * @author Trustacean
 	 */
 	private class GRTRSortTupleComparator implements ForwardingComparator {
+		private static final long serialVersionUID = 42L;
 
 		public int compare(Tuple<Message, Connection> tuple1, Tuple<Message, Connection> tuple2) {
 			ProphetRouter otherRouter1 = (ProphetRouter) tuple1.getValue().
@@ -717,6 +722,7 @@ public class ProphetRouter extends ActiveRouter {
 	 * @author Trustacean
 	 */
 	private class GRTRTupleComparator implements ForwardingComparator {
+		private static final long serialVersionUID = 42L;
 
 		public int compare(Tuple<Message, Connection> tuple1, Tuple<Message, Connection> tuple2) {
 			return compareByQueueMode(tuple1.getKey(), tuple2.getKey());
@@ -103,7 +103,7 @@ public class SelfishWithCommunityRouter implements RoutingDecisionEngine {
     public boolean shouldSaveReceivedMessage(Message m, DTNHost thisHost) {
         for (LinkedList<String> community : communityGlobal) {
             if (community.contains(thisHost.toString()) && community.contains(m.getTo().toString())) {
-                return !thisHost.getRouter().hasMessage(m.getId());
+                return !thisHost.getRouter().hasMessage(m.getIdKey());
             }
         }
         return false;
@@ -1,6 +1,7 @@
 package routing;
 
 import core.*;
+import routing.util.SprayEngine;
 
 public class SnWDecisionEngineRouting implements RoutingDecisionEngine { // Deklarasi kelas SnWDecisionEngineRouting
                                                                          // yang mengimplementasikan
@@ -10,7 +11,6 @@ public class SnWDecisionEngineRouting implements RoutingDecisionEngine { // Dekl
     public static final String numberOfCopies = "nrofCopies"; // Variabel final untuk jumlah salinan
     public static final String binaryMode = "binaryMode"; // Variabel final untuk mode biner
     public static final String SprayAndWait_nm = "SnWDE"; // Nama ruang nama untuk Spray and Wait
-    public static final String msg_count_property = SprayAndWait_nm + "." + "copies"; // Properti untuk jumlah pesan
 
     public int initalNumberOfCopies; // Jumlah awal salinan
     public boolean isBinary; // Apakah mode biner atau tidak
@@ -55,16 +55,14 @@ public class SnWDecisionEngineRouting implements RoutingDecisionEngine { // Dekl
 
     @Override
     public boolean isFinalDest(Message m, DTNHost host) { // Menentukan apakah tujuan akhir pesan
-        Integer nrofCopies = (Integer) m.getProperty(msg_count_property); // Mendapatkan jumlah salinan pesan
-        nrofCopies = (int) Math.ceil(nrofCopies / 2.0); // Mengurangi jumlah salinan menjadi setengah
-        m.updateProperty(msg_count_property, nrofCopies); // Memperbarui properti jumlah pesan
+        m.setCopies(SprayEngine.receiverShare(m.getCopies())); // Mengurangi jumlah salinan menjadi setengah
 
         return m.getTo() == host; // Mengembalikan apakah tujuan akhir adalah host saat ini
     }
 
     @Override
     public boolean newMessage(Message m) { // Menentukan apakah pesan baru
-        m.addProperty(msg_count_property, initalNumberOfCopies); // Menambahkan properti jumlah pesan ke pesan
+        m.setCopies(initalNumberOfCopies); // Menetapkan jumlah salinan awal pesan
         return true; // Mengembalikan true karena pesan baru ditambahkan
     }
 
@@ -75,7 +73,7 @@ public class SnWDecisionEngineRouting implements RoutingDecisionEngine { // Dekl
         if (m.getTo() == otherHost) // Jika tujuan pesan adalah host lain
             return true; // Mengembalikan true
 
-        int numberOfCopies = (Integer) m.getProperty(msg_count_property); // Mendapatkan jumlah salinan pesan
+        int numberOfCopies = m.getCopies(); // Mendapatkan jumlah salinan pesan
 
         SnWDecisionEngineRouting de = this.getOtherSnWDecisionEngine(otherHost); // Mendapatkan SnWDecisionEngineRouting
                                                                                  // dari host lain
@@ -101,14 +99,14 @@ public class SnWDecisionEngineRouting implements RoutingDecisionEngine { // Dekl
                                                                       // dihapus
         int nrofCopies;
 
-        nrofCopies = (Integer) m.getProperty(msg_count_property); // Mendapatkan jumlah salinan pesan
+        nrofCopies = m.getCopies(); // Mendapatkan jumlah salinan pesan
 
         if (nrofCopies > 1) // Jika jumlah salinan lebih dari 1
             nrofCopies /= 2; // Mengurangi jumlah salinan menjadi setengah
         else
             return true; // Jika jumlah salinan adalah 1, maka kembalikan true
 
-        m.updateProperty(msg_count_property, nrofCopies); // Memperbarui properti jumlah pesan
+        m.setCopies(nrofCopies); // Memperbarui jumlah salinan pesan
 
         return false; // Mengembalikan false karena pesan tidak perlu dihapus
     }
@@ -2,6 +2,9 @@ package routing;
 
 import core.*;
 import routing.community.Duration;
+import routing.util.SprayEngine;
+import routing.util.UtilityCache;
+import routing.util.UtilityCacheEngine;
 
 import java.util.*;
 
@@ -10,7 +13,7 @@ import java.util.*;
  *
  * @author narwa
  */
-public class SprayAndFocusDERouter implements RoutingDecisionEngine {
+public class SprayAndFocusDERouter implements RoutingDecisionEngine, UtilityCacheEngine {
 	/**
 	 * identifier for the initial number of copies setting ({@value})
 	 */
@@ -27,17 +30,12 @@ public class SprayAndFocusDERouter implements RoutingDecisionEngine {
 	 * SprayAndWait router's settings name space ({@value})
 	 */
 	public static final String SPRAYANDFOCUS_NS = "SprayAndFocusDERouter";
-	/**
-	 * Message property key
-	 */
-	public static final String MSG_COUNT_PROP = SPRAYANDFOCUS_NS + "." + "copies";
 
 //	/* Focus router properties */
 //	protected static final double DEFAULT_TRANSITIVITY_THRESHOLD = 1.0;
 
 	/* Spray And Focus router properties */
-	protected int initialNrofCopies;
-	protected boolean isBinary;
+	protected SprayEngine spray;
 	protected double transitivityTimerThreshold;
 
 	/* Holds the contacts between this host and other hosts */
@@ -51,6 +49,11 @@ public class SprayAndFocusDERouter implements RoutingDecisionEngine {
 	 * handle multiple connections at the same time.
 	 */
 	protected Map<DTNHost, Double> ongoingStartTimes;
+	/**
+	 * Cached average inter-connectivities by host address. Valid until the
+	 * connection history changes.
+	 */
+	private UtilityCache interConnectivities;
 
 	/**
 	 * Settings constructor.
@@ -60,8 +63,8 @@ public class SprayAndFocusDERouter implements RoutingDecisionEngine {
 			s = new Settings(SPRAYANDFOCUS_NS);
 		}
 
-		initialNrofCopies = s.getInt(NROF_COPIES);
-		isBinary = s.getBoolean(BINARY_MODE);
+		spray = new SprayEngine(s.getInt(NROF_COPIES),
+				s.getBoolean(BINARY_MODE));
 
 //		if (s.contains(TRANSITIVITY_THRESHOLD)) {
 //			transitivityTimerThreshold = s.getDouble(TRANSITIVITY_THRESHOLD);
@@ -78,13 +81,13 @@ public class SprayAndFocusDERouter implements RoutingDecisionEngine {
 	 * Copy constructor.
 	 */
 	public SprayAndFocusDERouter(SprayAndFocusDERouter r) {
-		this.initialNrofCopies = r.initialNrofCopies;
-		this.isBinary = r.isBinary;
+		this.spray = r.spray;
 //		this.transitivityTimerThreshold = r.transitivityTimerThreshold;
 
 		this.localEncounters = new HashMap<>(r.localEncounters);
 		this.connectionHistory = new HashMap<>(r.connectionHistory);
 		this.ongoingStartTimes = new HashMap<>(r.ongoingStartTimes);
+		this.interConnectivities = new UtilityCache(false);
 	}
 
 	@Override
@@ -108,6 +111,7 @@ public class SprayAndFocusDERouter implements RoutingDecisionEngine {
 			connectionHistory.put(peer, durations);
 		}
 		durations.add(Duration.from(startTime, endTime));
+		interConnectivities.invalidate();
 	}
 
 	/**
@@ -160,7 +164,7 @@ public class SprayAndFocusDERouter implements RoutingDecisionEngine {
 	@Override
 	public boolean newMessage(Message m) {
 		// adding spray and wait spray special property
-		m.addProperty(MSG_COUNT_PROP, initialNrofCopies);
+		spray.init(m);
 
 		// message creation is always allowed
 		return true;
@@ -193,16 +197,13 @@ public class SprayAndFocusDERouter implements RoutingDecisionEngine {
 		if (!m.getTo().equals(thisHost)) {
 
 			// Upon receiving the message, split it//decrement it
-//			System.out.printf("shouldSaveReceivedMessage: %s, has copies of %d\n", m.toString(), (int) m.getProperty(MSG_COUNT_PROPERTY));
-			int nrofCopies = (int) m.getProperty(MSG_COUNT_PROP);
-			if (isBinary) {
+			int nrofCopies = m.getCopies();
+			if (spray.isBinary()) {
 				// use ceil (upper bound) on the receiving end
-				nrofCopies = (int) Math.ceil(nrofCopies / 2.0);
-				m.updateProperty(MSG_COUNT_PROP, nrofCopies);
+				m.setCopies(SprayEngine.receiverShare(nrofCopies));
 			} else {
-				m.updateProperty(MSG_COUNT_PROP, --nrofCopies);
+				m.setCopies(nrofCopies - 1);
 			}
-//			System.out.printf("shouldSaveReceivedMessage: %s, has copies of %d\n", m.toString(), (int) m.getProperty(MSG_COUNT_PROPERTY));
 			return true;
 		}
 
@@ -229,7 +230,7 @@ public class SprayAndFocusDERouter implements RoutingDecisionEngine {
 		}
 
 		// not within the focus phase, give remaining copies
-		if (((int) m.getProperty(MSG_COUNT_PROP) > 1) && (otherHost != null)) {
+		if (SprayEngine.hasCopiesLeft(m) && (otherHost != null)) {
 			return true;
 		}
 
@@ -242,8 +243,8 @@ public class SprayAndFocusDERouter implements RoutingDecisionEngine {
 
 		// USING AVERAGE INTERCONTACT TIME TO DETERMINE SENDING TO THE OTHER HOST
 
-		final double peerAvgInterConnectivity = calculateAverageInterconnectivity(peerRouter.connectionHistory.get(destination));
-		final double selfAvgInterConnectivity = calculateAverageInterconnectivity(peerRouter.connectionHistory.get(thisHost));
+		final double peerAvgInterConnectivity = peerRouter.getAverageInterconnectivity(destination);
+		final double selfAvgInterConnectivity = peerRouter.getAverageInterconnectivity(thisHost);
 
 		if (peerAvgInterConnectivity <= selfAvgInterConnectivity) {
 			return true;
@@ -276,12 +277,9 @@ public class SprayAndFocusDERouter implements RoutingDecisionEngine {
 	 */
 	@Override
 	public boolean shouldDeleteSentMessage(Message m, DTNHost otherHost) {
-		// gather determining property
-		int nrofCopies = (int) m.getProperty(MSG_COUNT_PROP);
-
 		// message does not have any more copies to share, delete it.
 		// this may indicate that the message has been received by its destination
-		if (nrofCopies <= 1) {
+		if (m.getCopies() <= 1) {
 			return true;
 		}
 
@@ -290,15 +288,9 @@ public class SprayAndFocusDERouter implements RoutingDecisionEngine {
 		Message copy is decremented in this method as it's being executed in #transferDone()
 		*/
 
-		// check if the current SnW uses binary mode to decrement
-		if (isBinary) {
-			// use floor (lower bound) on the sending end
-			nrofCopies = (int) Math.floor(nrofCopies / 2.0);
-		} else {
-			nrofCopies--;
-		}
-
-		m.updateProperty(MSG_COUNT_PROP, nrofCopies);
+		// floor (lower bound) on the sending end in binary mode, decrement
+		// otherwise
+		spray.sent(m);
 
 		return false;
 	}
@@ -313,7 +305,7 @@ public class SprayAndFocusDERouter implements RoutingDecisionEngine {
 	 */
 	@Override
 	public boolean shouldDeleteOldMessage(Message m, DTNHost hostReportingOld) {
-		return m.getTtl() < 1 || (int) m.getProperty(MSG_COUNT_PROP) < 1 || m.getTo().equals(hostReportingOld);
+		return m.getTtl() < 1 || m.getCopies() < 1 || m.getTo().equals(hostReportingOld);
 	}
 
 	@Override
@@ -345,6 +337,30 @@ public class SprayAndFocusDERouter implements RoutingDecisionEngine {
 		throw new IllegalStateException("This router only works with another SprayAndWaitDERouter routing");
 	}
 
+	@Override
+	public UtilityCache getUtilityCache() {
+		return interConnectivities;
+	}
+
+	/**
+	 * Returns the average interconnectivity of this host with another host.
+	 * The value is calculated from the connection history only if the history
+	 * has changed since the value was last calculated.
+	 *
+	 * @return the average of interconnectivity, or zero if the hosts have never met.
+	 */
+	private double getAverageInterconnectivity(DTNHost host) {
+		double cached;
+		if (interConnectivities.contains(host.getAddress())) {
+			cached = interConnectivities.get(host.getAddress());
+		}
+		else {
+			cached = interConnectivities.put(host.getAddress(),
+					calculateAverageInterconnectivity(connectionHistory.get(host)));
+		}
+		return cached;
+	}
+
 	/**
 	 * <b>Calculates the interconnectivity average of a duration:</b>
 	 * <p>A[start,end] ~ B[start,end] ~ C[start,end] ~ D[start,end] ~ E[start,end]</p>
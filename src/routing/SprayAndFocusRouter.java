@@ -1,7 +1,9 @@
 package routing;
 
 import core.*;
+import routing.util.SprayEngine;
 
+import java.io.Serializable;
 import java.util.*;
 
 /**
@@ -13,27 +15,32 @@ import java.util.*;
  */
 public class SprayAndFocusRouter extends ActiveRouter 
 {
+	private static final long serialVersionUID = 42L;
+
 	/** SprayAndFocus router's settings name space ({@value})*/ 
 	public static final String SPRAYANDFOCUS_NS = "SprayAndFocusRouter";
 	/** identifier for the initial number of copies setting ({@value})*/ 
 	public static final String NROF_COPIES_S = "nrofCopies";
 	/** identifier for the difference in timer values needed to forward on a message copy */
 	public static final String TIMER_THRESHOLD_S = "transitivityTimerThreshold";
-	/** Message property key for the remaining available copies of a message */
-	public static final String MSG_COUNT_PROP = "SprayAndFocus.copies";
 	/** Message property key for summary vector messages exchanged between direct peers */
 	public static final String SUMMARY_XCHG_PROP = "SprayAndFocus.protoXchg";
 	
 	protected static final String SUMMARY_XCHG_IDPREFIX = "summary";
 	protected static final double defaultTransitivityThreshold = 60.0;
 	protected static int protocolMsgIdx = 0;
+
+	static {
+		Checkpoint.registerStaticState(
+				SprayAndFocusRouter.class.getCanonicalName());
+	}
 	
 	protected int initialNrofCopies;
 	protected double transitivityTimerThreshold;
 	
 	/** Stores information about nodes with which this host has come in contact */
-	protected Map<DTNHost, EncounterInfo> recentEncounters;
-	protected Map<DTNHost, Map<DTNHost, EncounterInfo>> neighborEncounters;
+	protected EncounterTimes recentEncounters;
+	protected Map<DTNHost, EncounterTimes> neighborEncounters;
 	
 	public SprayAndFocusRouter(Settings s)
 	{
@@ -46,8 +53,8 @@ public class SprayAndFocusRouter extends ActiveRouter
 		else
 			transitivityTimerThreshold = defaultTransitivityThreshold;
 		
-		recentEncounters = new HashMap<DTNHost, EncounterInfo>();
-		neighborEncounters = new HashMap<DTNHost, Map<DTNHost, EncounterInfo>>();
+		recentEncounters = new EncounterTimes();
+		neighborEncounters = new HashMap<DTNHost, EncounterTimes>();
 	}
 	
 	/**
@@ -60,8 +67,8 @@ public class SprayAndFocusRouter extends ActiveRouter
 		super(r);
 		this.initialNrofCopies = r.initialNrofCopies;
 		
-		recentEncounters = new HashMap<DTNHost, EncounterInfo>();
-		neighborEncounters = new HashMap<DTNHost, Map<DTNHost, EncounterInfo>>();
+		recentEncounters = new EncounterTimes();
+		neighborEncounters = new HashMap<DTNHost, EncounterTimes>();
 	}
 	
 	@Override
@@ -91,15 +98,7 @@ public class SprayAndFocusRouter extends ActiveRouter
 		DTNHost peer = con.getOtherNode(thisHost);
 		
 		//do this when con is up and goes down (might have been up for awhile)
-		if(recentEncounters.containsKey(peer))
-		{ 
-			EncounterInfo info = recentEncounters.get(peer);
-			info.updateEncounterTime(SimClock.getTime());
-		}
-		else
-		{
-			recentEncounters.put(peer, new EncounterInfo(SimClock.getTime()));
-		}
+		recentEncounters.set(peer.getAddress(), SimClock.getTime());
 		
 		if(!con.isUp())
 		{
@@ -109,12 +108,12 @@ public class SprayAndFocusRouter extends ActiveRouter
 		
 		/*
 		 * For this simulator, we just need a way to give the other node in this connection
-		 * access to the peers we recently encountered; so we duplicate the recentEncounters
-		 * Map and attach it to a message.
+		 * access to the peers we recently encountered; so we attach the recentEncounters
+		 * to a message.
 		 */
 		int msgSize = recentEncounters.size() * 64 + getMessageCollection().size() * 8;
 		Message newMsg = new Message(thisHost, peer, SUMMARY_XCHG_IDPREFIX + protocolMsgIdx++, msgSize);
-		newMsg.addProperty(SUMMARY_XCHG_PROP, /*new HashMap<DTNHost, EncounterInfo>(*/recentEncounters);
+		newMsg.addProperty(SUMMARY_XCHG_PROP, recentEncounters);
 		
 		createNewMessage(newMsg);
 	}
@@ -124,7 +123,7 @@ public class SprayAndFocusRouter extends ActiveRouter
 	{
 		makeRoomForNewMessage(m.getSize());
 
-		m.addProperty(MSG_COUNT_PROP, new Integer(initialNrofCopies));
+		m.setCopies(initialNrofCopies);
 		addToMessages(m, true);
 		return true;
 	}
@@ -138,7 +137,7 @@ public class SprayAndFocusRouter extends ActiveRouter
 		 * Here we update our last encounter times based on the information sent
 		 * from our peer. 
 		 */
-		Map<DTNHost, EncounterInfo> peerEncounters = (Map<DTNHost, EncounterInfo>)m.getProperty(SUMMARY_XCHG_PROP);
+		EncounterTimes peerEncounters = (EncounterTimes)m.getProperty(SUMMARY_XCHG_PROP);
 		if(isDeliveredMessage(m) && peerEncounters != null)
 		{
 			double distTo = getHost().getLocation().distance(from.getLocation());
@@ -154,13 +153,12 @@ public class SprayAndFocusRouter extends ActiveRouter
 			 */
 			neighborEncounters.put(from, peerEncounters); 
 			
-			for(Map.Entry<DTNHost, EncounterInfo> entry : peerEncounters.entrySet())
+			int self = getHost().getAddress();
+			for(int h = 0, n = peerEncounters.getCapacity(); h < n; h++)
 			{
-				DTNHost h = entry.getKey();
-				if(h == getHost()) continue;
+				if(h == self || !peerEncounters.contains(h)) continue;
 				
-				EncounterInfo peerEncounter = entry.getValue();
-				EncounterInfo info = recentEncounters.get(h);
+				double peerLastSeen = peerEncounters.get(h);
 				
 				/*
 				 * We set our timestamp for some node, h, with whom our peer has come in contact
@@ -170,18 +168,16 @@ public class SprayAndFocusRouter extends ActiveRouter
 				 * fixed timestamps here to accomplish the same effect, but the computations
 				 * here are consequently a little different from the paper. 
 				 */
-				if(!recentEncounters.containsKey(h))
+				if(!recentEncounters.contains(h))
 				{
-					info = new EncounterInfo(peerEncounter.getLastSeenTime() - timediff);
-					recentEncounters.put(h, info);
+					recentEncounters.set(h, peerLastSeen - timediff);
 					continue;
 				}
 				
 				
-				if(info.getLastSeenTime() + timediff < peerEncounter.getLastSeenTime())
+				if(recentEncounters.get(h) + timediff < peerLastSeen)
 				{
-					recentEncounters.get(h).updateEncounterTime(peerEncounter.getLastSeenTime() - 
-							timediff);
+					recentEncounters.set(h, peerLastSeen - timediff);
 				}
 			}
 			return m;
@@ -189,11 +185,7 @@ public class SprayAndFocusRouter extends ActiveRouter
 		
 		//Normal message beyond here
 		
-		Integer nrofCopies = (Integer)m.getProperty(MSG_COUNT_PROP);
-		
-		nrofCopies = (int)Math.ceil(nrofCopies/2.0);
-		
-		m.updateProperty(MSG_COUNT_PROP, nrofCopies);
+		m.setCopies(SprayEngine.receiverShare(m.getCopies()));
 		
 		return m;
 	}
@@ -201,7 +193,7 @@ public class SprayAndFocusRouter extends ActiveRouter
 	@Override
 	protected void transferDone(Connection con) 
 	{
-		Integer nrofCopies;
+		int nrofCopies;
 		String msgId = con.getMessage().getId();
 		/* get this router's copy of the message */
 		Message msg = getMessage(msgId);
@@ -221,13 +213,13 @@ public class SprayAndFocusRouter extends ActiveRouter
 		 * we apparently just transferred the msg (focus phase), then we should
 		 * delete it. 
 		 */
-		nrofCopies = (Integer)msg.getProperty(MSG_COUNT_PROP);
+		nrofCopies = msg.getCopies();
 		if(nrofCopies > 1)
-			nrofCopies /= 2;
+			nrofCopies = SprayEngine.senderShare(nrofCopies);
 		else
 			deleteMessage(msgId, false);
 		
-		msg.updateProperty(MSG_COUNT_PROP, nrofCopies);
+		msg.setCopies(nrofCopies);
 	}
 	
 	
@@ -252,10 +244,7 @@ public class SprayAndFocusRouter extends ActiveRouter
 		{
 			if(m.getProperty(SUMMARY_XCHG_PROP) != null) continue;
 			
-			Integer nrofCopies = (Integer)m.getProperty(MSG_COUNT_PROP);
-			assert nrofCopies != null : "SnF message " + m + " didn't have " + 
-				"nrof copies property!";
-			if (nrofCopies > 1)
+			if (SprayEngine.hasCopiesLeft(m))
 			{
 				spraylist.add(m);
 			}
@@ -273,16 +262,17 @@ public class SprayAndFocusRouter extends ActiveRouter
 				
 				//Get the timestamp of the last time this Host saw the destination
 				double thisLastSeen = getLastEncounterTimeForHost(dest);
+				int destAddr = dest.getAddress();
 				
 //				for(Connection c : getHost())
 				for(Connection c : getConnections())
 				{
 					DTNHost peer = c.getOtherNode(getHost());
-					Map<DTNHost, EncounterInfo> peerEncounters = neighborEncounters.get(peer);
+					EncounterTimes peerEncounters = neighborEncounters.get(peer);
 					double peerLastSeen = 0.0;
 					
-					if(peerEncounters != null && peerEncounters.containsKey(dest))
-						peerLastSeen = neighborEncounters.get(peer).get(dest).getLastSeenTime();
+					if(peerEncounters != null && peerEncounters.contains(destAddr))
+						peerLastSeen = peerEncounters.get(destAddr);
 					
 					/*
 					 * We need to pick only one peer to send the copy on to; so lets find the
@@ -306,41 +296,85 @@ public class SprayAndFocusRouter extends ActiveRouter
 
 	protected double getLastEncounterTimeForHost(DTNHost host)
 	{
-		if(recentEncounters.containsKey(host))
-			return recentEncounters.get(host).getLastSeenTime();
+		if(recentEncounters.contains(host.getAddress()))
+			return recentEncounters.get(host.getAddress());
 		else
 			return 0.0;
 	}
 	
 	/**
-	 * Stores all necessary info about encounters made by this host to some other host.
+	 * Stores all necessary info about encounters made by this host to other hosts.
 	 * At the moment, all that's needed is the timestamp of the last time these two hosts
-	 * met.
+	 * met, which is kept in a primitive array indexed by the other host's address.
 	 * 
 	 * @author PJ Dillon, University of Pittsburgh
 	 */
-	protected class EncounterInfo
+	protected static class EncounterTimes implements Serializable
 	{
-		protected double seenAtTime;
+		private static final long serialVersionUID = 42L;
+
+		/** Marks the hosts that haven't been encountered */
+		private static final double NEVER = Double.NEGATIVE_INFINITY;
+		private static final int INIT_CAPACITY = 16;
+		
+		protected double[] seenAtTimes;
+		protected int nrofEncountered;
+		
+		public EncounterTimes()
+		{
+			this.seenAtTimes = new double[INIT_CAPACITY];
+			Arrays.fill(this.seenAtTimes, NEVER);
+			this.nrofEncountered = 0;
+		}
+		
+		/**
+		 * Returns true if the host with the given address has been encountered
+		 */
+		public boolean contains(int address)
+		{
+			return address < seenAtTimes.length && seenAtTimes[address] != NEVER;
+		}
 		
-		public EncounterInfo(double atTime)
+		/**
+		 * Returns the last seen time of an encountered host
+		 */
+		public double get(int address)
 		{
-			this.seenAtTime = atTime;
+			return seenAtTimes[address];
 		}
 		
-		public void updateEncounterTime(double atTime)
+		/**
+		 * Sets the last seen time of a host
+		 */
+		public void set(int address, double atTime)
 		{
-			this.seenAtTime = atTime;
+			if (address >= seenAtTimes.length)
+			{
+				int oldLength = seenAtTimes.length;
+				seenAtTimes = Arrays.copyOf(seenAtTimes,
+						Math.max(address + 1, oldLength * 2));
+				Arrays.fill(seenAtTimes, oldLength, seenAtTimes.length, NEVER);
+			}
+			if (seenAtTimes[address] == NEVER)
+				nrofEncountered++;
+			seenAtTimes[address] = atTime;
 		}
 		
-		public double getLastSeenTime()
+		/**
+		 * Returns the number of encountered hosts
+		 */
+		public int size()
 		{
-			return seenAtTime;
+			return nrofEncountered;
 		}
 		
-		public void updateLastSeenTime(double atTime)
+		/**
+		 * Returns the (exclusive) upper bound of the addresses of the
+		 * encountered hosts
+		 */
+		public int getCapacity()
 		{
-			this.seenAtTime = atTime;
+			return seenAtTimes.length;
 		}
 	}
-}
\ No newline at end of file
+}
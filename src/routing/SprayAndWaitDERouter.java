@@ -4,6 +4,7 @@ import core.Connection;
 import core.DTNHost;
 import core.Message;
 import core.Settings;
+import routing.util.SprayEngine;
 
 /**
  * Decision Engine implementation for Spray And Wait algorithm.
@@ -23,13 +24,9 @@ public class SprayAndWaitDERouter implements RoutingDecisionEngine {
 	 * SprayAndWait router's settings name space ({@value})
 	 */
 	public static final String SPRAYANDWAIT_NS = "SprayAndWaitDERouter";
-	/**
-	 * Message property key
-	 */
-	public static final String MSG_COUNT_PROPERTY = SPRAYANDWAIT_NS + "." + "copies";
 
-	protected int initialNrofCopies;
-	protected boolean isBinary;
+	/** Copy accounting of the messages */
+	protected SprayEngine spray;
 
 	/**
 	 * Settings constructor.
@@ -39,16 +36,15 @@ public class SprayAndWaitDERouter implements RoutingDecisionEngine {
 			s = new Settings(SPRAYANDWAIT_NS);
 		}
 
-		initialNrofCopies = s.getInt(NROF_COPIES);
-		isBinary = s.getBoolean(BINARY_MODE);
+		spray = new SprayEngine(s.getInt(NROF_COPIES),
+				s.getBoolean(BINARY_MODE));
 	}
 
 	/**
 	 * Copy constructor.
 	 */
 	public SprayAndWaitDERouter(SprayAndWaitDERouter r) {
-		this.initialNrofCopies = r.initialNrofCopies;
-		this.isBinary = r.isBinary;
+		this.spray = r.spray;
 	}
 
 	@Override
@@ -69,7 +65,7 @@ public class SprayAndWaitDERouter implements RoutingDecisionEngine {
 	@Override
 	public boolean newMessage(Message m) {
 		// adding spray and wait spray special property
-		m.addProperty(MSG_COUNT_PROPERTY, initialNrofCopies);
+		spray.init(m);
 
 		// message creation is always allowed
 		return true;
@@ -101,16 +97,13 @@ public class SprayAndWaitDERouter implements RoutingDecisionEngine {
 		// saving this message to be further routed.
 		if (!m.getTo().equals(thisHost)) {
 			// Upon receiving the message, split it//decrement it
-//			System.out.printf("shouldSaveReceivedMessage: %s, has copies of %d\n", m.toString(), (int) m.getProperty(MSG_COUNT_PROPERTY));
-			int nrofCopies = (int) m.getProperty(MSG_COUNT_PROPERTY);
-			if (isBinary) {
+			int nrofCopies = m.getCopies();
+			if (spray.isBinary()) {
 				// use ceil (upper bound) on the receiving end
-				nrofCopies = (int) Math.ceil(nrofCopies / 2.0);
-				m.updateProperty(MSG_COUNT_PROPERTY, nrofCopies);
+				m.setCopies(SprayEngine.receiverShare(nrofCopies));
 			} else {
-				m.updateProperty(MSG_COUNT_PROPERTY, --nrofCopies);
+				m.setCopies(nrofCopies - 1);
 			}
-//			System.out.printf("shouldSaveReceivedMessage: %s, has copies of %d\n", m.toString(), (int) m.getProperty(MSG_COUNT_PROPERTY));
 			return true;
 		}
 
@@ -136,7 +129,7 @@ public class SprayAndWaitDERouter implements RoutingDecisionEngine {
 			return true;
 		}
 
-		return ((int) m.getProperty(MSG_COUNT_PROPERTY) > 1) && (otherHost != null);
+		return SprayEngine.hasCopiesLeft(m) && (otherHost != null);
 	}
 
 	/**
@@ -148,12 +141,9 @@ public class SprayAndWaitDERouter implements RoutingDecisionEngine {
 	 */
 	@Override
 	public boolean shouldDeleteSentMessage(Message m, DTNHost otherHost) {
-		// gather determining property
-		int nrofCopies = (int) m.getProperty(MSG_COUNT_PROPERTY);
-
 		// message does not have any more copies to share, delete it.
 		// this may indicate that the message has been received by its destination
-		if (nrofCopies <= 1) {
+		if (m.getCopies() <= 1) {
 			return true;
 		}
 
@@ -162,15 +152,9 @@ public class SprayAndWaitDERouter implements RoutingDecisionEngine {
 		Message copy is decremented in this method as it's being executed in #transferDone()
 		*/
 
-		// check if the current SnW uses binary mode to decrement
-		if (isBinary) {
-			// use floor (lower bound) on the sending end
-			nrofCopies = (int) Math.floor(nrofCopies / 2.0);
-		} else {
-			nrofCopies--;
-		}
-
-		m.updateProperty(MSG_COUNT_PROPERTY, nrofCopies);
+		// floor (lower bound) on the sending end in binary mode, decrement
+		// otherwise
+		spray.sent(m);
 
 		return false;
 	}
@@ -185,7 +169,7 @@ public class SprayAndWaitDERouter implements RoutingDecisionEngine {
 	 */
 	@Override
 	public boolean shouldDeleteOldMessage(Message m, DTNHost hostReportingOld) {
-		return m.getTtl() < 1 || (int) m.getProperty(MSG_COUNT_PROPERTY) < 1 || m.getTo().equals(hostReportingOld);
+		return m.getTtl() < 1 || m.getCopies() < 1 || m.getTo().equals(hostReportingOld);
 	}
 
 	@Override
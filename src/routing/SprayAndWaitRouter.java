@@ -11,6 +11,7 @@ import core.Connection;
 import core.DTNHost;
 import core.Message;
 import core.Settings;
+import routing.util.SprayEngine;
 
 /**
  * Implementation of Spray and wait router as depicted in 
@@ -19,24 +20,24 @@ import core.Settings;
  *
  */
 public class SprayAndWaitRouter extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
+
 	/** identifier for the initial number of copies setting ({@value})*/ 
 	public static final String NROF_COPIES = "nrofCopies";
 	/** identifier for the binary-mode setting ({@value})*/ 
 	public static final String BINARY_MODE = "binaryMode";
 	/** SprayAndWait router's settings name space ({@value})*/ 
 	public static final String SPRAYANDWAIT_NS = "SprayAndWaitRouter";
-	/** Message property key */
-	public static final String MSG_COUNT_PROPERTY = SPRAYANDWAIT_NS + "." + "copies";
 	
-	protected int initialNrofCopies;
-	protected boolean isBinary;
+	/** Copy accounting of the messages */
+	protected SprayEngine spray;
 
 	public SprayAndWaitRouter(Settings s) {
 		super(s);
 		Settings snwSettings = new Settings(SPRAYANDWAIT_NS);
 		
-		initialNrofCopies = snwSettings.getInt(NROF_COPIES);
-		isBinary = snwSettings.getBoolean( BINARY_MODE);
+		spray = new SprayEngine(snwSettings.getInt(NROF_COPIES),
+				snwSettings.getBoolean(BINARY_MODE));
 	}
 	
 	/**
@@ -45,8 +46,7 @@ public class SprayAndWaitRouter extends ActiveRouter {
 	 */
 	protected SprayAndWaitRouter(SprayAndWaitRouter r) {
 		super(r);
-		this.initialNrofCopies = r.initialNrofCopies;
-		this.isBinary = r.isBinary;
+		this.spray = r.spray;
 	}
 	
 	@Override
@@ -57,20 +57,9 @@ public class SprayAndWaitRouter extends ActiveRouter {
 	@Override
 	public Message messageTransferred(String id, DTNHost from) {
 		Message msg = super.messageTransferred(id, from);
-		Integer nrofCopies = (Integer)msg.getProperty(MSG_COUNT_PROPERTY);
-		
-		assert nrofCopies != null : "Not a SnW message: " + msg;
-		
-		if (isBinary) {
-			/* in binary S'n'W the receiving node gets ceil(n/2) copies */
-			nrofCopies = (int)Math.ceil(nrofCopies/2.0);
-		}
-		else {
-			/* in standard S'n'W the receiving node gets only single copy */
-			nrofCopies = 1;
-		}
-		
-		msg.updateProperty(MSG_COUNT_PROPERTY, nrofCopies);
+		/* in binary S'n'W the receiving node gets ceil(n/2) copies, in
+		   standard S'n'W only a single copy */
+		spray.received(msg);
 		return msg;
 	}
 	
@@ -79,7 +68,7 @@ public class SprayAndWaitRouter extends ActiveRouter {
 		makeRoomForNewMessage(msg.getSize());
 
 		msg.setTtl(this.msgTtl);
-		msg.addProperty(MSG_COUNT_PROPERTY, new Integer(initialNrofCopies));
+		spray.init(msg);
 		addToMessages(msg, true);
 		return true;
 	}
@@ -115,10 +104,7 @@ public class SprayAndWaitRouter extends ActiveRouter {
 		List<Message> list = new ArrayList<Message>();
 
 		for (Message m : getMessageCollection()) {
-			Integer nrofCopies = (Integer)m.getProperty(MSG_COUNT_PROPERTY);
-			assert nrofCopies != null : "SnW message " + m + " didn't have " + 
-				"nrof copies property!";
-			if (nrofCopies > 1) {
+			if (SprayEngine.hasCopiesLeft(m)) {
 				list.add(m);
 			}
 		}
@@ -135,7 +121,6 @@ public class SprayAndWaitRouter extends ActiveRouter {
 	 */
 	@Override
 	protected void transferDone(Connection con) {
-		Integer nrofCopies;
 		String msgId = con.getMessage().getId();
 		/* get this router's copy of the message */
 		Message msg = getMessage(msgId);
@@ -145,14 +130,7 @@ public class SprayAndWaitRouter extends ActiveRouter {
 		}
 		
 		/* reduce the amount of copies left */
-		nrofCopies = (Integer)msg.getProperty(MSG_COUNT_PROPERTY);
-		if (isBinary) { 
-			nrofCopies /= 2;
-		}
-		else {
-			nrofCopies--;
-		}
-		msg.updateProperty(MSG_COUNT_PROPERTY, nrofCopies);
+		spray.sent(msg);
 	}
 	
 	@Override
@@ -3,15 +3,15 @@ package routing;
 import java.util.*;
 
 import core.*;
+import routing.util.SprayEngine;
 
 public class SprayAndWaitRouterUpdateForward extends ActiveRouter {
+    private static final long serialVersionUID = 42L;
+
     /** SprayAndFocus Router settings name space ({@value}) */
     public static final String SPRAYANDWAIT_NS = "SprayAndWaitRouter";
     /** Identifier for the initial number of copies setting ({@value}) */
     public static final String NROF_COPIES_S = "nrofCopies";
-    /** Message property key */
-    public static final String MSG_COUNT_PROP = SPRAYANDWAIT_NS + "." +
-            "copies";
 
     /** delivery predictability initialization constant */
     public static final double P_INIT = 0.75;
@@ -170,7 +170,7 @@ public class SprayAndWaitRouterUpdateForward extends ActiveRouter {
         makeRoomForMessage(m.getSize());
 
         m.setTtl(this.msgTtl);
-        m.addProperty(MSG_COUNT_PROP, new Integer(initialNrofCopies));
+        m.setCopies(initialNrofCopies);
         addToMessages(m, true);
         return true;
     }
@@ -178,13 +178,12 @@ public class SprayAndWaitRouterUpdateForward extends ActiveRouter {
     @Override
     public Message messageTransferred(String id, DTNHost from) {
         Message msg = super.messageTransferred(id, from);
-        Integer nrofCopies = (Integer) msg.getProperty(MSG_COUNT_PROP);
+        int nrofCopies = msg.getCopies();
         SprayAndWaitRouterUpdateForward other = (SprayAndWaitRouterUpdateForward) from.getRouter();
-        assert nrofCopies != null : "Not a SnW Message: " + msg;
 
         if (nrofCopies > 1) { // is binary
 
-            nrofCopies = (int) Math.ceil(nrofCopies / 2.0);
+            nrofCopies = SprayEngine.receiverShare(nrofCopies);
         } else { // if its 1 goes with forwarding prophet algorithm
             // check preds jika per lebih bagus maka kirim
             if (other.getPredsFor(msg.getTo()) > getPredsFor(msg.getTo())) {
@@ -192,7 +191,7 @@ public class SprayAndWaitRouterUpdateForward extends ActiveRouter {
             }
         }
 
-        msg.updateProperty(MSG_COUNT_PROP, nrofCopies);
+        msg.setCopies(nrofCopies);
         return msg;
     }
 
@@ -205,7 +204,7 @@ public class SprayAndWaitRouterUpdateForward extends ActiveRouter {
      */
     @Override
     protected void transferDone(Connection con) {
-        Integer nrofCopies;
+        int nrofCopies;
         String msgId = con.getMessage().getId();
         /* get this router's copy of the message */
         Message msg = getMessage(msgId);
@@ -219,13 +218,13 @@ public class SprayAndWaitRouterUpdateForward extends ActiveRouter {
          * we apparently just transferred the msg (focus phase), then we should
          * delete it.
          */
-        nrofCopies = (Integer) msg.getProperty(MSG_COUNT_PROP);
+        nrofCopies = msg.getCopies();
         if (nrofCopies > 1) { // jika lebih dari 1 (Binary Spray)
-            nrofCopies = (int) Math.floor(nrofCopies/2.0); // Binary Spray
+            nrofCopies = SprayEngine.senderShare(nrofCopies); // Binary Spray
         } else {
             nrofCopies--;
         }
-        msg.updateProperty(MSG_COUNT_PROP, nrofCopies);
+        msg.setCopies(nrofCopies);
     }
 
     /**
@@ -238,10 +237,7 @@ public class SprayAndWaitRouterUpdateForward extends ActiveRouter {
         List<Message> list = new ArrayList<Message>();
 
         for (Message m : getMessageCollection()) {
-            Integer nrofCopies = (Integer) m.getProperty(MSG_COUNT_PROP);
-            assert nrofCopies != null : "SnW message " + m + " didn't have " +
-                    "nrof copies property!";
-            if (nrofCopies > 1) {
+            if (SprayEngine.hasCopiesLeft(m)) {
                 list.add(m);
             }
         }
@@ -273,7 +269,7 @@ public class SprayAndWaitRouterUpdateForward extends ActiveRouter {
             }
 
             for (Message m : msgCollection) {
-                if (othRouter.hasMessage(m.getId())) {
+                if (othRouter.hasMessage(m.getIdKey())) {
                     continue; // skip messages that the other one has
                 }
                 tryAllMessagesToAllConnections();
@@ -15,6 +15,7 @@ import core.Settings;
  * @author jarkom
  */
 public class TesterRouter extends ActiveRouter {
+    private static final long serialVersionUID = 42L;
 
     public static final String LABEL_PROPERTY = "label";
     private String label;
@@ -12,6 +12,8 @@ import core.*;
 import routing.DecisionEngineRouter;
 import routing.MessageRouter;
 import routing.RoutingDecisionEngine;
+import routing.util.UtilityCache;
+import routing.util.UtilityCacheEngine;
 
 /**
  * <p>Implements the Distributed BubbleRap Routing Algorithm from Hui et al.
@@ -54,7 +56,7 @@ import routing.RoutingDecisionEngine;
  *
  * @author PJ Dillon, University of Pittsburgh
  */
-public class DistributedBubbleRap implements RoutingDecisionEngine, CommunityDetectionEngine, WindowDetectionEngine {
+public class DistributedBubbleRap implements RoutingDecisionEngine, CommunityDetectionEngine, WindowDetectionEngine, UtilityCacheEngine {
 	/**
 	 * Community Detection Algorithm to employ -setting id {@value}
 	 */
@@ -64,6 +66,12 @@ public class DistributedBubbleRap implements RoutingDecisionEngine, CommunityDet
 	 */
 	public static final String CENTRALITY_ALG_SETTING = "centralityAlg";
 
+	/* utility cache keys; community membership of host h is at h's
+	 * address + COMMUNITY_KEY */
+	private static final int LOCAL_CENTRALITY_KEY = 0;
+	private static final int GLOBAL_CENTRALITY_KEY = 1;
+	private static final int COMMUNITY_KEY = 2;
+
 	protected Map<DTNHost, Double> startTimestamps;
 	protected Map<DTNHost, List<Duration>> connHistory;
 
@@ -77,6 +85,9 @@ public class DistributedBubbleRap implements RoutingDecisionEngine, CommunityDet
 
 	protected CommunityDetection community;
 	protected Centrality centrality;
+	/** Cached centralities and community memberships. Time dependent since
+	 * the centralities may depend on the simulation time */
+	private UtilityCache utilities;
 
 	/**
 	 * Constructs a DistributedBubbleRap Decision Engine based upon the settings
@@ -117,9 +128,11 @@ public class DistributedBubbleRap implements RoutingDecisionEngine, CommunityDet
 		interval = 24 * 60 * 60;
 		periodicEncounters = new ArrayList<>();
 		periodicEncounters.add(new HashSet<>());
+		utilities = new UtilityCache(true);
 	}
 
 	public void connectionUp(DTNHost thisHost, DTNHost peer) {
+		utilities.invalidate();
 	}
 
 	/**
@@ -136,6 +149,8 @@ public class DistributedBubbleRap implements RoutingDecisionEngine, CommunityDet
 		de.startTimestamps.put(myHost, SimClock.getTime());
 
 		this.community.newConnection(myHost, peer, de.community);
+		this.utilities.invalidate();
+		de.utilities.invalidate();
 	}
 
 	public void connectionDown(DTNHost thisHost, DTNHost peer) {
@@ -155,11 +170,14 @@ public class DistributedBubbleRap implements RoutingDecisionEngine, CommunityDet
 		if (etime - time > 0)
 			history.add(new Duration(time, etime));
 
-		CommunityDetection peerCD = this.getOtherDecisionEngine(peer).community;
+		DistributedBubbleRap peerDe = this.getOtherDecisionEngine(peer);
+		CommunityDetection peerCD = peerDe.community;
 
 		// inform the community detection object that a connection was lost.
 		// The object might need the whole connection history at this point.
 		community.connectionLost(thisHost, peer, peerCD, history);
+		utilities.invalidate();
+		peerDe.utilities.invalidate();
 
 		startTimestamps.remove(peer);
 
@@ -243,15 +261,43 @@ public class DistributedBubbleRap implements RoutingDecisionEngine, CommunityDet
 	}
 
 	protected boolean commumesWithHost(DTNHost h) {
-		return community.isHostInCommunity(h);
+		int key = h.getAddress() + COMMUNITY_KEY;
+		double cached;
+		if (utilities.contains(key)) {
+			cached = utilities.get(key);
+		}
+		else {
+			cached = utilities.put(key, community.isHostInCommunity(h) ? 1 : 0);
+		}
+		return cached != 0;
 	}
 
 	protected double getLocalCentrality() {
-		return this.centrality.getLocalCentrality(connHistory, community);
+		double cached;
+		if (utilities.contains(LOCAL_CENTRALITY_KEY)) {
+			cached = utilities.get(LOCAL_CENTRALITY_KEY);
+		}
+		else {
+			cached = utilities.put(LOCAL_CENTRALITY_KEY,
+				this.centrality.getLocalCentrality(connHistory, community));
+		}
+		return cached;
 	}
 
 	protected double getGlobalCentrality() {
-		return this.centrality.getGlobalCentrality(connHistory);
+		double cached;
+		if (utilities.contains(GLOBAL_CENTRALITY_KEY)) {
+			cached = utilities.get(GLOBAL_CENTRALITY_KEY);
+		}
+		else {
+			cached = utilities.put(GLOBAL_CENTRALITY_KEY,
+				this.centrality.getGlobalCentrality(connHistory));
+		}
+		return cached;
+	}
+
+	public UtilityCache getUtilityCache() {
+		return this.utilities;
 	}
 
 	/**
@@ -1,5 +1,7 @@
 package routing.community;
 
+import java.io.Serializable;
+
 /**
  * A helper class for the community package that stores a start and end value
  * for some abstract duration. Generally, in this package, the duration being
@@ -7,8 +9,9 @@ package routing.community;
  * 
  * @author PJ Dillon, University of Pittsburgh
  */
-public class Duration
-{
+public class Duration implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** The start value */
 	public double start;
 	
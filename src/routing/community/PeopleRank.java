@@ -49,7 +49,7 @@ import routing.util.*;;
  * 
  */
 
-public class PeopleRank implements RoutingDecisionEngine, RankingNodeValue {
+public class PeopleRank implements RoutingDecisionEngine, RankingNodeValue, UtilityCacheEngine {
     /** Initialitation variable Dumping Factor to employ -setting id */
     public static final String DUMPING_FACTOR_SETTING = "dumpingFactor";
     public static final String TRESHOLD_SETTING = "threshold";
@@ -66,6 +66,8 @@ public class PeopleRank implements RoutingDecisionEngine, RankingNodeValue {
     // Community detection and damping factor
     protected double dumpingFactor; // Damping factor used in the PeopleRank algorithm
     protected double treshold; // Threshold for considering connections
+    /** Cached PeopleRank values by host address; valid until per changes */
+    private UtilityCache perCache;
 
     /**
      * Constructor for PeopleRank based on the specified settings.
@@ -102,6 +104,7 @@ public class PeopleRank implements RoutingDecisionEngine, RankingNodeValue {
         this.connHistory = new HashMap<DTNHost, List<Duration>>();
         this.thisHostSet = new HashSet<DTNHost>();
         this.per = new HashMap<>();
+        this.perCache = new UtilityCache(false);
     }
 
     @Override
@@ -177,6 +180,7 @@ public class PeopleRank implements RoutingDecisionEngine, RankingNodeValue {
             // Update the tuple in the per map for the host
             per.put(host, tuple);
         }
+        perCache.invalidate();
     }
 
     /**
@@ -248,8 +252,8 @@ public class PeopleRank implements RoutingDecisionEngine, RankingNodeValue {
             return true; // Message should be sent directly to the destination
         }
         // Calculate PeopleRank for this host and other host
-        double perThisHost = calculatePer(thisHost);
-        double perOtherHost = calculatePer(otherHost);
+        double perThisHost = getCachedPer(thisHost);
+        double perOtherHost = getCachedPer(otherHost);
 
         // Initialize F(i) as the set of friends of i
         Set<DTNHost> Fi = new HashSet<>(connHistory.keySet());
@@ -333,6 +337,29 @@ public class PeopleRank implements RoutingDecisionEngine, RankingNodeValue {
         return (1 - dampingFactor) + dampingFactor * sum;
     }
 
+    /**
+     * Returns the PeopleRank of a host from the cache or calculates it if
+     * the ranks have changed since it was last calculated.
+     *
+     * @param host The host for which to get the PeopleRank.
+     * @return The PeopleRank for the specified host.
+     */
+    private double getCachedPer(DTNHost host) {
+        double cached;
+        if (perCache.contains(host.getAddress())) {
+            cached = perCache.get(host.getAddress());
+        }
+        else {
+            cached = perCache.put(host.getAddress(), calculatePer(host));
+        }
+        return cached;
+    }
+
+    @Override
+    public UtilityCache getUtilityCache() {
+        return this.perCache;
+    }
+
     private PeopleRank getOtherDecisionEngine(DTNHost h) {
         MessageRouter otherRouter = h.getRouter();
         assert otherRouter instanceof DecisionEngineRouter : "This router only works "
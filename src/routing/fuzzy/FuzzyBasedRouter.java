@@ -22,12 +22,14 @@ import routing.MessageRouter;
 import routing.RoutingDecisionEngine;
 import routing.community.Duration;
 import routing.DecisionEngineRouter;
+import routing.util.UtilityCache;
+import routing.util.UtilityCacheEngine;
 
 /**
  * 
  * @author Afra Rian Yudianto, Sanata Dharma University
  */
-public class FuzzyBasedRouter implements RoutingDecisionEngine{
+public class FuzzyBasedRouter implements RoutingDecisionEngine, UtilityCacheEngine {
 
     public static final String FCL_SIMILARITY = "fclSimilarity";
     public static final String CLOSENESS = "closeness";
@@ -37,6 +39,8 @@ public class FuzzyBasedRouter implements RoutingDecisionEngine{
     private FIS fclSimilarity;
     protected Map<DTNHost, Double> startTimestamps;
     protected Map<DTNHost, List<Duration>> connHistory;
+    /** Defuzzified similarities by host address; valid until connHistory changes */
+    private UtilityCache similarities;
         
     public FuzzyBasedRouter(Settings s) {
         String fclString = s.getSetting(FCL_SIMILARITY);
@@ -47,6 +51,7 @@ public class FuzzyBasedRouter implements RoutingDecisionEngine{
         this.fclSimilarity = t.fclSimilarity;
         startTimestamps = new HashMap<>();
         connHistory = new HashMap<>();
+        similarities = new UtilityCache(false);
     }
 
     @Override
@@ -75,6 +80,7 @@ public class FuzzyBasedRouter implements RoutingDecisionEngine{
         }
         connHistory.put(peer, history);
         this.startTimestamps.remove(peer);
+        similarities.invalidate();
         
         
     }
@@ -111,10 +117,26 @@ public class FuzzyBasedRouter implements RoutingDecisionEngine{
         
         DTNHost dest = m.getTo();
         FuzzyBasedRouter de = getOtherDecisionEngine(otherHost);
-        double me = this.Defuzzification(dest);
-        double peer = de.Defuzzification(dest);
+        double me = this.getSimilarity(dest);
+        double peer = de.getSimilarity(dest);
         return me > peer;
     }
+
+    private double getSimilarity(DTNHost nodes) {
+        double cached;
+        if (similarities.contains(nodes.getAddress())) {
+        	cached = similarities.get(nodes.getAddress());
+        }
+        else {
+            cached = similarities.put(nodes.getAddress(), Defuzzification(nodes));
+        }
+        return cached;
+    }
+
+    @Override
+    public UtilityCache getUtilityCache() {
+        return similarities;
+    }
     
     
     private double Defuzzification(DTNHost nodes) {
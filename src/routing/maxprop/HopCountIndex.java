@@ -0,0 +1,139 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.maxprop;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Total sizes of a router's buffered messages by hop count. The sizes are
+ * kept in a binary indexed (Fenwick) tree over the hop counts, so the hop
+ * count where the prefix sum of message sizes (smallest hop counts first)
+ * reaches a given amount of bytes can be found with a binary search instead
+ * of sorting the buffer. Used for MaxProp's buffer split threshold.
+ */
+public class HopCountIndex implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	/** Initial number of hop counts (must be a power of two) */
+	private static final int INIT_CAPACITY = 16;
+
+	/** Fenwick tree of the sizes; index of hop count h is h+1 */
+	private long[] tree;
+	/** Total size of the messages by hop count */
+	private long[] bytes;
+	/** Number of messages by hop count */
+	private int[] counts;
+	private int nrofMessages;
+
+	/**
+	 * Creates a new, empty index
+	 */
+	public HopCountIndex() {
+		this.tree = new long[INIT_CAPACITY + 1];
+		this.bytes = new long[INIT_CAPACITY];
+		this.counts = new int[INIT_CAPACITY];
+	}
+
+	/**
+	 * Adds a message to the index
+	 * @param hopCount Hop count of the message
+	 * @param size Size of the message
+	 */
+	public void add(int hopCount, int size) {
+		if (hopCount >= counts.length) {
+			grow(hopCount + 1);
+		}
+		counts[hopCount]++;
+		bytes[hopCount] += size;
+		nrofMessages++;
+		update(hopCount, size);
+	}
+
+	/**
+	 * Removes a message from the index
+	 * @param hopCount Hop count of the message
+	 * @param size Size of the message
+	 */
+	public void remove(int hopCount, int size) {
+		assert hopCount < counts.length && counts[hopCount] > 0 :
+			"No message with hop count " + hopCount + " in the index";
+		counts[hopCount]--;
+		bytes[hopCount] -= size;
+		nrofMessages--;
+		update(hopCount, -size);
+	}
+
+	/**
+	 * Returns the number of messages in the index
+	 * @return the number of messages
+	 */
+	public int size() {
+		return this.nrofMessages;
+	}
+
+	/**
+	 * Returns the smallest hop count for which the messages with at most
+	 * that many hops have a total size of at least the given amount of bytes.
+	 * If all the messages together are smaller, the largest hop count of the
+	 * messages is returned.
+	 * @param amount The amount of bytes (more than zero)
+	 * @return The hop count or -1 if there are no messages
+	 */
+	public int getHopCountFor(long amount) {
+		if (nrofMessages == 0) {
+			return -1;
+		}
+
+		/* binary search for the last index whose prefix sum is < amount */
+		int capacity = counts.length;
+		int pos = 0;
+		long remaining = amount;
+		for (int step = capacity; step > 0; step >>= 1) {
+			int next = pos + step;
+			if (next <= capacity && tree[next] < remaining) {
+				pos = next;
+				remaining -= tree[next];
+			}
+		}
+		if (pos < capacity) {
+			return pos; // tree index pos+1 -> hop count pos
+		}
+
+		/* all messages fit; the largest hop count in the buffer */
+		int hop = capacity - 1;
+		while (counts[hop] == 0) {
+			hop--;
+		}
+		return hop;
+	}
+
+	/**
+	 * Adds a value to a hop count's node and its ancestors in the tree
+	 */
+	private void update(int hopCount, long value) {
+		for (int i = hopCount + 1; i < tree.length; i += i & -i) {
+			tree[i] += value;
+		}
+	}
+
+	/**
+	 * Grows the index to fit at least the given number of hop counts
+	 */
+	private void grow(int minCapacity) {
+		int capacity = counts.length;
+		while (capacity < minCapacity) {
+			capacity *= 2;
+		}
+		this.counts = Arrays.copyOf(counts, capacity);
+		this.bytes = Arrays.copyOf(bytes, capacity);
+		this.tree = new long[capacity + 1];
+		for (int hop = 0; hop < capacity; hop++) {
+			if (bytes[hop] != 0) {
+				update(hop, bytes[hop]);
+			}
+		}
+	}
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.schedule;
+
+import input.BinaryEventsReader;
+import input.ConnectionEvent;
+import input.ExternalEvent;
+import input.ExternalEventsReader;
+import input.StandardEventsReader;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import core.SettingsError;
+
+/**
+ * Time-indexed plan of all the contacts between nodes. Contacts are stored
+ * per node in primitive arrays sorted by the contact start time so that the
+ * contacts usable at some time can be found with a binary search. Contacts
+ * are symmetric, i.e., a contact between nodes A and B is usable in both
+ * directions.
+ * <P>
+ * A plan is built by adding contacts (or connection events) to it; it's
+ * compiled to the lookup arrays automatically on the first query. Adding
+ * contacts after that recompiles the plan on the next query.
+ * </P>
+ * @see EarliestArrival
+ */
+public class ContactPlan implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	/** Initial capacity of the contact arrays */
+	private static final int INIT_CAPACITY = 64;
+	/** Number of events read from an events file at a time */
+	private static final int READ_CHUNK = 10000;
+
+	/* contacts as added, in parallel arrays */
+	private int[] nodeA;
+	private int[] nodeB;
+	private double[] startTimes;
+	private double[] endTimes;
+	private int nrofContacts;
+	/** Start times of open contacts (connection up without down yet) */
+	private Map<Long, Integer> openContacts;
+
+	/* per node lookup arrays; valid only if compiled is true */
+	private boolean compiled;
+	/** Peers of the contacts of every node */
+	private int[][] peers;
+	/** Start times of the contacts of every node (sorted) */
+	private double[][] starts;
+	/** End times of the contacts of every node */
+	private double[][] ends;
+	/** Running maximum of the end times of every node's contacts */
+	private double[][] maxEnds;
+
+	/**
+	 * Creates a new, empty, contact plan
+	 */
+	public ContactPlan() {
+		this.nodeA = new int[INIT_CAPACITY];
+		this.nodeB = new int[INIT_CAPACITY];
+		this.startTimes = new double[INIT_CAPACITY];
+		this.endTimes = new double[INIT_CAPACITY];
+		this.openContacts = new HashMap<Long, Integer>();
+	}
+
+	/**
+	 * Creates a contact plan from the connection events of an external
+	 * events file. Other events of the file are ignored. Binary events files
+	 * (see {@link BinaryEventsReader}) are supported too.
+	 * @param eventsFilePath Path to the events file
+	 * @return The contact plan
+	 * @throws SettingsError if the file doesn't exist
+	 */
+	public static ContactPlan fromEventsFile(String eventsFilePath) {
+		File eventsFile = new File(eventsFilePath);
+		if (!eventsFile.isFile()) {
+			throw new SettingsError("Couldn't find contact plan events file " +
+					eventsFile.getAbsolutePath());
+		}
+
+		ExternalEventsReader reader;
+		if (BinaryEventsReader.isBinaryEeFile(eventsFile)) {
+			reader = new BinaryEventsReader(eventsFile);
+		} else {
+			reader = new StandardEventsReader(eventsFile);
+		}
+
+		ContactPlan plan = new ContactPlan();
+		List<ExternalEvent> events = reader.readEvents(READ_CHUNK);
+		while (events.size() > 0) {
+			for (ExternalEvent ee : events) {
+				if (ee instanceof ConnectionEvent) {
+					plan.addConnectionEvent((ConnectionEvent)ee);
+				}
+			}
+			events = reader.readEvents(READ_CHUNK);
+		}
+		reader.close();
+
+		return plan;
+	}
+
+	/**
+	 * Adds a connection up or down event to the plan. Connection up starts
+	 * a contact that lasts until a connection down event of the same node
+	 * pair. Contacts that are never closed last forever. Repeated up and
+	 * unmatched down events are ignored. Events must be added in time order.
+	 * @param ce The connection event
+	 */
+	public void addConnectionEvent(ConnectionEvent ce) {
+		int a = Math.min(ce.getFromAddr(), ce.getToAddr());
+		int b = Math.max(ce.getFromAddr(), ce.getToAddr());
+		Long pair = ((long)a << 32) | b;
+		Integer open = openContacts.get(pair);
+
+		if (ce.isUp()) {
+			if (open == null) {
+				addContact(a, b, ce.getTime(), Double.MAX_VALUE);
+				openContacts.put(pair, nrofContacts - 1);
+			}
+		} else if (open != null) {
+			endTimes[open] = ce.getTime();
+			openContacts.remove(pair);
+			compiled = false;
+		}
+	}
+
+	/**
+	 * Adds a contact between two nodes to the plan
+	 * @param a Address of the first node
+	 * @param b Address of the second node
+	 * @param start Start time of the contact
+	 * @param end End time of the contact
+	 */
+	public void addContact(int a, int b, double start, double end) {
+		assert a >= 0 && b >= 0 && a != b : "Invalid contact " + a + "-" + b;
+		if (nrofContacts == nodeA.length) {
+			int capacity = nodeA.length * 2;
+			nodeA = Arrays.copyOf(nodeA, capacity);
+			nodeB = Arrays.copyOf(nodeB, capacity);
+			startTimes = Arrays.copyOf(startTimes, capacity);
+			endTimes = Arrays.copyOf(endTimes, capacity);
+		}
+
+		nodeA[nrofContacts] = a;
+		nodeB[nrofContacts] = b;
+		startTimes[nrofContacts] = start;
+		endTimes[nrofContacts] = end;
+		nrofContacts++;
+		compiled = false;
+	}
+
+	/**
+	 * Returns the number of contacts in the plan
+	 * @return the number of contacts in the plan
+	 */
+	public int getNrofContacts() {
+		return this.nrofContacts;
+	}
+
+	/**
+	 * Returns the number of nodes in the plan, i.e., the biggest node
+	 * address in any contact plus one
+	 * @return the number of nodes in the plan
+	 */
+	public int getNrofNodes() {
+		compile();
+		return peers.length;
+	}
+
+	/**
+	 * Returns the index of the first contact of a node that may still be
+	 * up at the given time. All contacts before the index have ended
+	 * before the time; contacts after it still need to be checked.
+	 * @param node Address of the node
+	 * @param time The time
+	 * @return Index of the first contact or the number of contacts of the
+	 * node if all contacts have ended
+	 */
+	int firstContact(int node, double time) {
+		double[] me = maxEnds[node];
+		int low = 0;
+		int high = me.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (me[mid] < time) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the peers of the contacts of a node (in start time order).
+	 * The array is shared and must not be modified.
+	 * @param node Address of the node
+	 * @return the peers of the contacts of the node
+	 */
+	int[] getPeers(int node) {
+		return peers[node];
+	}
+
+	/**
+	 * Returns the start times of the contacts of a node (sorted).
+	 * The array is shared and must not be modified.
+	 * @param node Address of the node
+	 * @return the start times of the contacts of the node
+	 */
+	double[] getStarts(int node) {
+		return starts[node];
+	}
+
+	/**
+	 * Returns the end times of the contacts of a node (in start time order).
+	 * The array is shared and must not be modified.
+	 * @param node Address of the node
+	 * @return the end times of the contacts of the node
+	 */
+	double[] getEnds(int node) {
+		return ends[node];
+	}
+
+	/**
+	 * Builds the per node lookup arrays if the plan has changed
+	 */
+	void compile() {
+		if (compiled) {
+			return;
+		}
+
+		int nrofNodes = 0;
+		int[] degree = new int[0];
+		for (int i = 0; i < nrofContacts; i++) {
+			nrofNodes = Math.max(nrofNodes,
+					Math.max(nodeA[i], nodeB[i]) + 1);
+			if (degree.length < nrofNodes) {
+				degree = Arrays.copyOf(degree,
+						Math.max(nrofNodes, degree.length * 2));
+			}
+			degree[nodeA[i]]++;
+			degree[nodeB[i]]++;
+		}
+
+		peers = new int[nrofNodes][];
+		starts = new double[nrofNodes][];
+		ends = new double[nrofNodes][];
+		maxEnds = new double[nrofNodes][];
+		int[][] contactIds = new int[nrofNodes][];
+		for (int n = 0; n < nrofNodes; n++) {
+			contactIds[n] = new int[degree[n]];
+			degree[n] = 0; // reused as fill position
+		}
+		for (int i = 0; i < nrofContacts; i++) {
+			contactIds[nodeA[i]][degree[nodeA[i]]++] = i;
+			contactIds[nodeB[i]][degree[nodeB[i]]++] = i;
+		}
+
+		for (int n = 0; n < nrofNodes; n++) {
+			int[] ids = sortByStart(contactIds[n]);
+			peers[n] = new int[ids.length];
+			starts[n] = new double[ids.length];
+			ends[n] = new double[ids.length];
+			maxEnds[n] = new double[ids.length];
+			double maxEnd = Double.NEGATIVE_INFINITY;
+			for (int j = 0; j < ids.length; j++) {
+				int c = ids[j];
+				peers[n][j] = nodeA[c] == n ? nodeB[c] : nodeA[c];
+				starts[n][j] = startTimes[c];
+				ends[n][j] = endTimes[c];
+				maxEnd = Math.max(maxEnd, endTimes[c]);
+				maxEnds[n][j] = maxEnd;
+			}
+		}
+
+		compiled = true;
+	}
+
+	/**
+	 * Sorts contact IDs by the start times of the contacts. Contacts read
+	 * from a time ordered trace are already sorted so sorting is skipped
+	 * for them.
+	 * @param ids The contact IDs
+	 * @return The sorted contact IDs
+	 */
+	private int[] sortByStart(int[] ids) {
+		boolean sorted = true;
+		for (int i = 1; i < ids.length && sorted; i++) {
+			sorted = startTimes[ids[i-1]] <= startTimes[ids[i]];
+		}
+		if (sorted) {
+			return ids;
+		}
+
+		Integer[] boxed = new Integer[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			boxed[i] = ids[i];
+		}
+		Arrays.sort(boxed, new Comparator<Integer>() {
+			public int compare(Integer c1, Integer c2) {
+				return Double.compare(startTimes[c1], startTimes[c2]);
+			}
+		});
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = boxed[i];
+		}
+		return ids;
+	}
+}
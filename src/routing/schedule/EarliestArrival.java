@@ -0,0 +1,271 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.schedule;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Earliest-arrival (contact graph) routing on a {@link ContactPlan}. Finds
+ * the journey that gets a message from a source node to a destination
+ * node as early as possible when the message can be forwarded over any
+ * contact of the plan. Uses a label setting (Dijkstra) search where the
+ * label of a node is the earliest time the message can be there. All
+ * search state is kept in primitive arrays that are reused between
+ * queries, so one object should not be used by multiple threads.
+ */
+public class EarliestArrival implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	/** Value for infinite arrival time */
+	public static final double INFINITY = Double.MAX_VALUE;
+
+	private ContactPlan plan;
+	/** Time it takes to forward a message over one contact */
+	private double hopTime;
+
+	/** Earliest known arrival times by node */
+	private double[] arrival;
+	/** Previous node on the earliest journey by node */
+	private int[] prevNode;
+	/** Departure time from the previous node by node */
+	private double[] prevDeparture;
+	/** End time of the contact used from the previous node by node */
+	private double[] prevContactEnd;
+	/** Is the earliest arrival time of the node final */
+	private boolean[] settled;
+	/** Binary heap of nodes ordered by arrival time */
+	private int[] heap;
+	/** Positions of the nodes in the heap (-1 if not in the heap) */
+	private int[] heapPos;
+	private int heapSize;
+
+	/* parameters of the latest search */
+	private int source;
+	private int target;
+
+	/**
+	 * Constructor.
+	 * @param plan The contact plan to search journeys from
+	 * @param hopTime Time it takes to forward a message over a contact. The
+	 * contact must be up for the whole time.
+	 */
+	public EarliestArrival(ContactPlan plan, double hopTime) {
+		this.plan = plan;
+		this.hopTime = hopTime;
+		this.source = -1;
+		this.target = -1;
+	}
+
+	/**
+	 * Sets the contact plan and hop time used in the following searches
+	 * @param plan The contact plan to search journeys from
+	 * @param hopTime Time it takes to forward a message over a contact
+	 */
+	public void setPlan(ContactPlan plan, double hopTime) {
+		this.plan = plan;
+		this.hopTime = hopTime;
+	}
+
+	/**
+	 * Searches the earliest journey from a node to another
+	 * @param from Address of the source node
+	 * @param to Address of the destination node
+	 * @param time The time when the journey can start
+	 * @return The earliest arrival time at the destination or
+	 * {@link #INFINITY} if the destination can't be reached
+	 */
+	public double search(int from, int to, double time) {
+		plan.compile();
+		int nrofNodes = plan.getNrofNodes();
+		init(nrofNodes);
+		this.source = from;
+		this.target = to;
+
+		if (from == to) {
+			return time;
+		}
+		if (from >= nrofNodes || to >= nrofNodes) {
+			this.source = -1; // no route
+			return INFINITY; // node(s) without any contacts
+		}
+
+		arrival[from] = time;
+		heapUpdate(from);
+
+		while (heapSize > 0) {
+			int node = heapPoll();
+			if (node == to) {
+				break;
+			}
+			settled[node] = true;
+			relax(node);
+		}
+
+		return arrival[to];
+	}
+
+	/**
+	 * Updates the arrival times of the peers of a node
+	 * @param node The node whose contacts are used
+	 */
+	private void relax(int node) {
+		double now = arrival[node];
+		double bound = arrival[target];
+		int[] peers = plan.getPeers(node);
+		double[] starts = plan.getStarts(node);
+		double[] ends = plan.getEnds(node);
+
+		for (int i = plan.firstContact(node, now + hopTime);
+				i < peers.length; i++) {
+			if (starts[i] + hopTime >= bound) {
+				break; // can't improve the arrival to the destination
+			}
+			int peer = peers[i];
+			if (settled[peer]) {
+				continue;
+			}
+			double departure = Math.max(starts[i], now);
+			double arrivalTime = departure + hopTime;
+			if (arrivalTime > ends[i] || arrivalTime >= arrival[peer]) {
+				continue;
+			}
+
+			arrival[peer] = arrivalTime;
+			prevNode[peer] = node;
+			prevDeparture[peer] = departure;
+			prevContactEnd[peer] = ends[i];
+			heapUpdate(peer);
+		}
+	}
+
+	/**
+	 * Returns the nodes on the earliest journey found by the latest
+	 * {@link #search(int, int, double)}
+	 * @return The nodes of the journey from the source to the destination
+	 * (including both) or an empty array if there's no such journey
+	 */
+	public int[] getRoute() {
+		if (source < 0 || (source != target && arrival[target] == INFINITY)) {
+			return new int[0];
+		}
+
+		int length = 1;
+		for (int n = target; n != source; n = prevNode[n]) {
+			length++;
+		}
+		int[] route = new int[length];
+		for (int n = target, i = length - 1; i >= 0; n = prevNode[n], i--) {
+			route[i] = n;
+			if (n == source) {
+				break;
+			}
+		}
+		return route;
+	}
+
+	/**
+	 * Returns the first hop of the journey found by the latest search
+	 * @return Address of the next hop or -1 if there's no journey or the
+	 * source is the destination
+	 */
+	public int getNextHop() {
+		int[] route = getRoute();
+		return route.length > 1 ? route[1] : -1;
+	}
+
+	/**
+	 * Returns the time when the message should leave the source on the
+	 * journey found by the latest search
+	 * @return The departure time or {@link #INFINITY} if there's no journey
+	 */
+	public double getDepartureTime() {
+		int next = getNextHop();
+		return next < 0 ? INFINITY : prevDeparture[next];
+	}
+
+	/**
+	 * Returns the end time of the first contact of the journey found by
+	 * the latest search
+	 * @return The end time or {@link #INFINITY} if there's no journey
+	 */
+	public double getFirstContactEnd() {
+		int next = getNextHop();
+		return next < 0 ? INFINITY : prevContactEnd[next];
+	}
+
+	/**
+	 * Initializes the search state for a number of nodes
+	 */
+	private void init(int nrofNodes) {
+		if (arrival == null || arrival.length != nrofNodes) {
+			arrival = new double[nrofNodes];
+			prevNode = new int[nrofNodes];
+			prevDeparture = new double[nrofNodes];
+			prevContactEnd = new double[nrofNodes];
+			settled = new boolean[nrofNodes];
+			heap = new int[nrofNodes];
+			heapPos = new int[nrofNodes];
+		}
+		Arrays.fill(arrival, INFINITY);
+		Arrays.fill(prevNode, -1);
+		Arrays.fill(settled, false);
+		Arrays.fill(heapPos, -1);
+		heapSize = 0;
+	}
+
+	/**
+	 * Adds a node to the heap or moves it up after its arrival time
+	 * has decreased
+	 */
+	private void heapUpdate(int node) {
+		int i = heapPos[node];
+		if (i < 0) {
+			i = heapSize++;
+		}
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (arrival[heap[parent]] <= arrival[node]) {
+				break;
+			}
+			heap[i] = heap[parent];
+			heapPos[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = node;
+		heapPos[node] = i;
+	}
+
+	/**
+	 * Removes and returns the node with the smallest arrival time
+	 */
+	private int heapPoll() {
+		int first = heap[0];
+		heapPos[first] = -1;
+		int last = heap[--heapSize];
+		if (heapSize > 0) {
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= heapSize) {
+					break;
+				}
+				if (child + 1 < heapSize &&
+						arrival[heap[child + 1]] < arrival[heap[child]]) {
+					child++;
+				}
+				if (arrival[heap[child]] >= arrival[last]) {
+					break;
+				}
+				heap[i] = heap[child];
+				heapPos[heap[i]] = i;
+				i = child;
+			}
+			heap[i] = last;
+			heapPos[last] = i;
+		}
+		return first;
+	}
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Energy levels of hosts. The levels are stored in primitive arrays by host
+ * address and are not updated on every simulation round. Instead, every
+ * host has an energy level at a settling time and a constant drain rate
+ * (idle cost plus transmit cost when transmitting) and periodic scanning
+ * cost, so the level at any later time (and the time when the energy runs
+ * out) can be computed analytically. The level needs to be settled only
+ * when the drain rate changes, i.e., when a host starts or stops
+ * transmitting.
+ * <P>
+ * Scans happen every scan interval starting from time zero. No energy is
+ * used before the host's warmup time and the energy level never goes
+ * below zero.
+ * </P>
+ */
+public class EnergyModel implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	/** Value for "never" (e.g., depletion time of a host with no drain) */
+	public static final double NEVER = Double.MAX_VALUE;
+	/** Initial size of the per host arrays */
+	private static final int INIT_CAPACITY = 16;
+
+	/** Energy levels at the settling times */
+	private double[] energy;
+	/** Times when the energy levels were last settled */
+	private double[] settledAt;
+	/** Is the host currently transmitting */
+	private boolean[] transmitting;
+	/** Times when the hosts run out of energy */
+	private double[] depletionTime;
+	private boolean[] registered;
+
+	/* per host parameters */
+	private double[] scanEnergy;
+	private double[] scanInterval;
+	private double[] transmitEnergy;
+	private double[] idleEnergy;
+	private double[] warmup;
+
+	/**
+	 * Creates a new energy model without any hosts
+	 */
+	public EnergyModel() {
+		this.energy = new double[INIT_CAPACITY];
+		this.settledAt = new double[INIT_CAPACITY];
+		this.transmitting = new boolean[INIT_CAPACITY];
+		this.depletionTime = new double[INIT_CAPACITY];
+		this.registered = new boolean[INIT_CAPACITY];
+		this.scanEnergy = new double[INIT_CAPACITY];
+		this.scanInterval = new double[INIT_CAPACITY];
+		this.transmitEnergy = new double[INIT_CAPACITY];
+		this.idleEnergy = new double[INIT_CAPACITY];
+		this.warmup = new double[INIT_CAPACITY];
+	}
+
+	/**
+	 * Adds a host to the model (or resets an existing host)
+	 * @param address Address of the host
+	 * @param initEnergy Initial energy level
+	 * @param scanEnergy Energy used per scan
+	 * @param scanInterval Time between scans (must be positive)
+	 * @param transmitEnergy Energy used per second when transmitting
+	 * @param idleEnergy Energy used per second all the time
+	 * @param warmup Time before which no energy is used
+	 * @param time Current simulation time
+	 */
+	public void register(int address, double initEnergy, double scanEnergy,
+			double scanInterval, double transmitEnergy, double idleEnergy,
+			double warmup, double time) {
+		assert scanInterval > 0 : "Invalid scan interval " + scanInterval;
+		ensureCapacity(address + 1);
+		this.energy[address] = Math.max(0, initEnergy);
+		this.settledAt[address] = time;
+		this.transmitting[address] = false;
+		this.registered[address] = true;
+		this.scanEnergy[address] = scanEnergy;
+		this.scanInterval[address] = scanInterval;
+		this.transmitEnergy[address] = transmitEnergy;
+		this.idleEnergy[address] = idleEnergy;
+		this.warmup[address] = warmup;
+		this.depletionTime[address] = computeDepletionTime(address);
+	}
+
+	/**
+	 * Returns true if a host has been added to the model
+	 * @param address Address of the host
+	 * @return true if the host is in the model
+	 */
+	public boolean isRegistered(int address) {
+		return address < registered.length && registered[address];
+	}
+
+	/**
+	 * Returns the energy level of a host at some time
+	 * @param address Address of the host
+	 * @param time The time (not before the latest settling time)
+	 * @return The energy level
+	 */
+	public double getEnergy(int address, double time) {
+		if (time >= depletionTime[address]) {
+			return 0;
+		}
+		return Math.max(0, energy[address] - usage(address,
+				settledAt[address], time));
+	}
+
+	/**
+	 * Returns the time when a host runs out of energy
+	 * @param address Address of the host
+	 * @return The depletion time or {@link #NEVER}
+	 */
+	public double getDepletionTime(int address) {
+		return depletionTime[address];
+	}
+
+	/**
+	 * Returns true if the host is transmitting (as far as the model knows)
+	 * @param address Address of the host
+	 * @return true if the host is transmitting
+	 */
+	public boolean isTransmitting(int address) {
+		return transmitting[address];
+	}
+
+	/**
+	 * Sets the transmitting state of a host. Settles the energy level and
+	 * recomputes the depletion time if the state changes.
+	 * @param address Address of the host
+	 * @param transmitting Is the host transmitting from now on
+	 * @param time Current simulation time
+	 */
+	public void setTransmitting(int address, boolean transmitting,
+			double time) {
+		if (this.transmitting[address] == transmitting) {
+			return;
+		}
+		settle(address, time);
+		this.transmitting[address] = transmitting;
+		this.depletionTime[address] = computeDepletionTime(address);
+	}
+
+	/**
+	 * Sets the energy level of a host (e.g., when the host is recharged)
+	 * @param address Address of the host
+	 * @param value The new energy level
+	 * @param time Current simulation time
+	 */
+	public void setEnergy(int address, double value, double time) {
+		this.energy[address] = Math.max(0, value);
+		this.settledAt[address] = time;
+		this.depletionTime[address] = computeDepletionTime(address);
+	}
+
+	/**
+	 * Charges the energy used until the given time
+	 */
+	private void settle(int address, double time) {
+		energy[address] = getEnergy(address, time);
+		settledAt[address] = time;
+	}
+
+	/**
+	 * Returns the drain rate (energy per second) of a host
+	 */
+	private double rate(int address) {
+		return idleEnergy[address] +
+			(transmitting[address] ? transmitEnergy[address] : 0);
+	}
+
+	/**
+	 * Returns the time of the first scan (after warmup) that is after the
+	 * given time
+	 */
+	private double nextScan(int address, double time) {
+		double start = Math.max(time, warmup[address]);
+		double si = scanInterval[address];
+		double next = (Math.floor(start / si) + 1) * si;
+		if (next - si >= warmup[address] && next - si > time) {
+			next -= si; // start itself is a scan time after the given time
+		}
+		return next;
+	}
+
+	/**
+	 * Returns the energy a host uses between two times with the current
+	 * drain rate
+	 */
+	private double usage(int address, double from, double to) {
+		double start = Math.max(from, warmup[address]);
+		double continuous = to > start ? (to - start) * rate(address) : 0;
+		double si = scanInterval[address];
+		double firstScan = nextScan(address, from);
+		long scans = firstScan > to ? 0 :
+			(long)Math.floor((to - firstScan) / si) + 1;
+		return continuous + scans * scanEnergy[address];
+	}
+
+	/**
+	 * Computes the time when a host runs out of energy with the current
+	 * drain rate
+	 */
+	private double computeDepletionTime(int address) {
+		double e = energy[address];
+		double t0 = Math.max(settledAt[address], warmup[address]);
+		if (e <= 0) {
+			return settledAt[address];
+		}
+
+		double r = rate(address);
+		double si = scanInterval[address];
+		double se = scanEnergy[address];
+		double ts = nextScan(address, settledAt[address]);
+
+		/* until the first scan */
+		double beforeScan = e - r * (ts - t0);
+		if (beforeScan <= 0) {
+			return t0 + e / r;
+		}
+		e = beforeScan - se;
+		if (e <= 0) {
+			return ts;
+		}
+
+		/* full scan intervals (continuous drain and a scan) */
+		double perInterval = r * si + se;
+		if (perInterval <= 0) {
+			return NEVER;
+		}
+		double k = Math.floor(e / perInterval);
+		e -= k * perInterval;
+		double start = ts + k * si;
+		if (e <= 0) { // ran out exactly at a scan
+			return start;
+		}
+		if (e - r * si <= 0) {
+			return start + e / r;
+		}
+		return start + si;
+	}
+
+	/**
+	 * Makes sure the per host arrays have room for the given number of hosts
+	 */
+	private void ensureCapacity(int size) {
+		if (size <= energy.length) {
+			return;
+		}
+		int capacity = Math.max(size, energy.length * 2);
+		energy = Arrays.copyOf(energy, capacity);
+		settledAt = Arrays.copyOf(settledAt, capacity);
+		transmitting = Arrays.copyOf(transmitting, capacity);
+		depletionTime = Arrays.copyOf(depletionTime, capacity);
+		registered = Arrays.copyOf(registered, capacity);
+		scanEnergy = Arrays.copyOf(scanEnergy, capacity);
+		scanInterval = Arrays.copyOf(scanInterval, capacity);
+		transmitEnergy = Arrays.copyOf(transmitEnergy, capacity);
+		idleEnergy = Arrays.copyOf(idleEnergy, capacity);
+		warmup = Arrays.copyOf(warmup, capacity);
+	}
+}
@@ -0,0 +1,107 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package routing.util;
+
+import java.io.Serializable;
+import java.util.BitSet;
+
+import core.IntObjectMap;
+
+/**
+ * Global index of which hosts hold which messages. Messages are identified
+ * by their ID keys (see {@link core.Message#getIdKey()}) and hosts by their
+ * addresses. The index is kept in both directions as bitsets so that the
+ * holders of a message and the messages one host has but another one
+ * doesn't can be found without going through all hosts or messages.
+ */
+public class MessageHolderIndex implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	/** holders (host addresses) by message ID key */
+	private IntObjectMap<BitSet> holders;
+	/** held messages (ID keys) by host address */
+	private IntObjectMap<BitSet> held;
+	
+	/**
+	 * Creates a new empty index
+	 */
+	public MessageHolderIndex() {
+		this.holders = new IntObjectMap<BitSet>();
+		this.held = new IntObjectMap<BitSet>();
+	}
+	
+	/**
+	 * Marks a host as a holder of a message
+	 * @param idKey ID key of the message
+	 * @param address Address of the host
+	 */
+	public void add(int idKey, int address) {
+		bitsOf(holders, idKey).set(address);
+		bitsOf(held, address).set(idKey);
+	}
+	
+	/**
+	 * Removes a host from the holders of a message
+	 * @param idKey ID key of the message
+	 * @param address Address of the host
+	 */
+	public void remove(int idKey, int address) {
+		BitSet h = holders.get(idKey);
+		if (h != null) {
+			h.clear(address);
+			if (h.isEmpty()) {
+				holders.remove(idKey);
+			}
+		}
+		BitSet m = held.get(address);
+		if (m != null) {
+			m.clear(idKey);
+		}
+	}
+	
+	/**
+	 * Returns the addresses of the hosts that hold a message. The returned
+	 * set is a copy that can be modified and that isn't affected by later
+	 * changes of the index.
+	 * @param idKey ID key of the message
+	 * @return The addresses of the holders (empty if there are none)
+	 */
+	public BitSet getHolders(int idKey) {
+		BitSet h = holders.get(idKey);
+		return h == null ? new BitSet() : (BitSet)h.clone();
+	}
+	
+	/**
+	 * Returns the ID keys of the messages that one host holds but another
+	 * host doesn't.
+	 * @param from Address of the host whose messages are returned
+	 * @param to Address of the host whose messages are excluded
+	 * @return ID keys of the messages (a new set)
+	 */
+	public BitSet getDifference(int from, int to) {
+		BitSet m = held.get(from);
+		if (m == null) {
+			return new BitSet();
+		}
+		BitSet diff = (BitSet)m.clone();
+		BitSet toMessages = held.get(to);
+		if (toMessages != null) {
+			diff.andNot(toMessages);
+		}
+		return diff;
+	}
+	
+	/**
+	 * Returns the bitset mapped to a key, creating it if needed
+	 */
+	private static BitSet bitsOf(IntObjectMap<BitSet> map, int key) {
+		BitSet bits = map.get(key);
+		if (bits == null) {
+			bits = new BitSet();
+			map.put(key, bits);
+		}
+		return bits;
+	}
+}
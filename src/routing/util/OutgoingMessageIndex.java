@@ -0,0 +1,227 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import core.Connection;
+import core.IntObjectMap;
+import core.Message;
+import core.Tuple;
+
+/**
+ * Queue of message-connection pairs waiting to be sent. The pairs are kept
+ * in the order they were added and are also indexed by the connection and
+ * by the message ID key (see {@link Message#getIdKey()}). Every pair is a
+ * linked entry in all three lists so removing the pairs of a connection or
+ * a message costs only as much as there are such pairs.
+ * <P>
+ * Iteration is weakly consistent: pairs can be removed during iteration
+ * (also by other code than the iterator) and removed pairs are never
+ * returned.
+ * </P>
+ */
+public class OutgoingMessageIndex
+		implements Iterable<Tuple<Message, Connection>>, Serializable {
+	private static final long serialVersionUID = 42L;
+
+	/** Sentinel of the queue (insertion) order list */
+	private final Entry head;
+	/** First entries of the per-connection lists */
+	private final Map<Connection, Entry> byConnection;
+	/** First entries of the per-message lists */
+	private final IntObjectMap<Entry> byMessage;
+	private int size;
+
+	/**
+	 * Creates a new empty index
+	 */
+	public OutgoingMessageIndex() {
+		this.head = new Entry(null, null);
+		this.head.next = this.head.prev = this.head;
+		this.byConnection = new HashMap<Connection, Entry>();
+		this.byMessage = new IntObjectMap<Entry>();
+	}
+
+	/**
+	 * Adds a message-connection pair to the end of the queue
+	 * @param m The message
+	 * @param con The connection
+	 */
+	public void add(Message m, Connection con) {
+		Entry e = new Entry(m, con);
+
+		e.prev = head.prev;
+		e.next = head;
+		head.prev.next = e;
+		head.prev = e;
+
+		e.nextOfCon = byConnection.put(con, e);
+		if (e.nextOfCon != null) {
+			e.nextOfCon.prevOfCon = e;
+		}
+		e.nextOfMsg = byMessage.put(m.getIdKey(), e);
+		if (e.nextOfMsg != null) {
+			e.nextOfMsg.prevOfMsg = e;
+		}
+		size++;
+	}
+
+	/**
+	 * Removes all pairs of a connection
+	 * @param con The connection
+	 */
+	public void removeConnection(Connection con) {
+		for (Entry e = byConnection.get(con); e != null; e = e.nextOfCon) {
+			unlink(e);
+		}
+	}
+
+	/**
+	 * Removes all pairs of a message
+	 * @param idKey ID key of the message
+	 */
+	public void removeMessage(int idKey) {
+		for (Entry e = byMessage.get(idKey); e != null; e = e.nextOfMsg) {
+			unlink(e);
+		}
+	}
+
+	/**
+	 * Removes the first pair of a message and a connection
+	 * @param idKey ID key of the message
+	 * @param con The connection
+	 * @return true if such pair was found and removed
+	 */
+	public boolean remove(int idKey, Connection con) {
+		Entry found = null;
+		/* per-message list is in reverse insertion order */
+		for (Entry e = byMessage.get(idKey); e != null; e = e.nextOfMsg) {
+			if (e.getValue() == con) {
+				found = e;
+			}
+		}
+		if (found == null) {
+			return false;
+		}
+		unlink(found);
+		return true;
+	}
+
+	/**
+	 * Returns the number of pairs in the queue
+	 * @return the number of pairs in the queue
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns true if the queue is empty
+	 * @return true if the queue is empty
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Removes an entry from all the lists. The queue order link to the next
+	 * entry is kept so that iterators positioned at the entry can continue.
+	 */
+	private void unlink(Entry e) {
+		if (e.removed) {
+			return;
+		}
+		e.removed = true;
+		e.prev.next = e.next;
+		e.next.prev = e.prev;
+
+		if (e.prevOfCon != null) {
+			e.prevOfCon.nextOfCon = e.nextOfCon;
+		} else if (e.nextOfCon != null) {
+			byConnection.put(e.getValue(), e.nextOfCon);
+		} else {
+			byConnection.remove(e.getValue());
+		}
+		if (e.nextOfCon != null) {
+			e.nextOfCon.prevOfCon = e.prevOfCon;
+		}
+
+		int idKey = e.getKey().getIdKey();
+		if (e.prevOfMsg != null) {
+			e.prevOfMsg.nextOfMsg = e.nextOfMsg;
+		} else if (e.nextOfMsg != null) {
+			byMessage.put(idKey, e.nextOfMsg);
+		} else {
+			byMessage.remove(idKey);
+		}
+		if (e.nextOfMsg != null) {
+			e.nextOfMsg.prevOfMsg = e.prevOfMsg;
+		}
+		size--;
+	}
+
+	/**
+	 * Returns an iterator over the pairs in queue order
+	 * @return an iterator over the pairs
+	 */
+	public Iterator<Tuple<Message, Connection>> iterator() {
+		return new Iterator<Tuple<Message, Connection>>() {
+			private Entry current = head;
+
+			private Entry nextLive() {
+				Entry e = current.next;
+				while (e.removed) {
+					e = e.next;
+				}
+				return e;
+			}
+
+			public boolean hasNext() {
+				return nextLive() != head;
+			}
+
+			public Tuple<Message, Connection> next() {
+				Entry e = nextLive();
+				if (e == head) {
+					throw new NoSuchElementException();
+				}
+				current = e;
+				return e;
+			}
+
+			public void remove() {
+				if (current == head || current.removed) {
+					throw new IllegalStateException();
+				}
+				unlink(current);
+			}
+		};
+	}
+
+	/**
+	 * Message-connection pair linked to the queue order list and to the
+	 * per-connection and per-message lists
+	 */
+	private static class Entry extends Tuple<Message, Connection> {
+		private static final long serialVersionUID = 42L;
+
+		private Entry prev;
+		private Entry next;
+		private Entry prevOfCon;
+		private Entry nextOfCon;
+		private Entry prevOfMsg;
+		private Entry nextOfMsg;
+		private boolean removed;
+
+		private Entry(Message m, Connection con) {
+			super(m, con);
+		}
+	}
+}
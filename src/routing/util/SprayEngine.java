@@ -0,0 +1,112 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import java.io.Serializable;
+
+import core.Message;
+
+/**
+ * Copy accounting of the Spray and Wait family of routers. The number of
+ * copies a replicate of a message may still hand out is kept in the
+ * message's primitive copy field ({@link Message#getCopies()}), so reading
+ * and splitting the copies are constant time operations without any
+ * property map lookups or boxing.
+ * <P>
+ * In binary mode the copies are split in half on every hand-off: the
+ * receiver gets ceil(n/2) and the sender keeps floor(n/2) copies. In
+ * standard mode the receiver gets a single copy and the sender's copies
+ * are decremented by one.
+ * </P>
+ */
+public class SprayEngine implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	private final int initialCopies;
+	private final boolean binary;
+
+	/**
+	 * Constructor.
+	 * @param initialCopies Number of copies a new message starts with
+	 * @param binary Is binary mode used
+	 */
+	public SprayEngine(int initialCopies, boolean binary) {
+		this.initialCopies = initialCopies;
+		this.binary = binary;
+	}
+
+	/**
+	 * Returns the number of copies a new message starts with
+	 * @return The initial number of copies
+	 */
+	public int getInitialCopies() {
+		return this.initialCopies;
+	}
+
+	/**
+	 * Returns true if binary mode is used
+	 * @return True for binary mode
+	 */
+	public boolean isBinary() {
+		return this.binary;
+	}
+
+	/**
+	 * Gives a new message its initial number of copies
+	 * @param m The new message
+	 */
+	public void init(Message m) {
+		m.setCopies(this.initialCopies);
+	}
+
+	/**
+	 * Returns true if the message has copies left to spray (i.e., more
+	 * than one copy)
+	 * @param m The message
+	 * @return True if the message is in the spray phase
+	 */
+	public static boolean hasCopiesLeft(Message m) {
+		return m.getCopies() > 1;
+	}
+
+	/**
+	 * Sets the copies of a received replicate of a message: half of the
+	 * sender's copies (rounded up) in binary mode, one copy in standard
+	 * mode
+	 * @param m The received message
+	 */
+	public void received(Message m) {
+		m.setCopies(this.binary ? receiverShare(m.getCopies()) : 1);
+	}
+
+	/**
+	 * Reduces the copies of the sender's replicate after a hand-off: half
+	 * of the copies (rounded down) are left in binary mode, one copy less in
+	 * standard mode
+	 * @param m The sender's replicate of the message
+	 */
+	public void sent(Message m) {
+		int copies = m.getCopies();
+		m.setCopies(this.binary ? senderShare(copies) : copies - 1);
+	}
+
+	/**
+	 * Returns the receiver's share of copies in a binary split
+	 * @param copies The copies before the split
+	 * @return ceil(copies/2)
+	 */
+	public static int receiverShare(int copies) {
+		return -(-copies >> 1);
+	}
+
+	/**
+	 * Returns the sender's share of copies in a binary split
+	 * @param copies The copies before the split
+	 * @return floor(copies/2)
+	 */
+	public static int senderShare(int copies) {
+		return copies >> 1;
+	}
+}
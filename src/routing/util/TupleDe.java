@@ -1,6 +1,10 @@
 package routing.util;
 
-public class TupleDe<A, B> {
+import java.io.Serializable;
+
+public class TupleDe<A, B> implements Serializable {
+    private static final long serialVersionUID = 42L;
+
     private A first;
     private B second;
 
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import core.SimClock;
+import core.SimError;
+
+/**
+ * Cache of routing utility values (e.g., delivery predictabilities or
+ * centralities) of a decision engine. Values are stored by a non-negative
+ * integer key, usually the address of the destination host, and stamped
+ * with the current epoch. The owner of the cache must call
+ * {@link #invalidate()} whenever the state the values are computed from
+ * changes (e.g., when a connection goes up or down or information is
+ * exchanged with a peer); that starts a new epoch and all the values of
+ * the earlier epochs are misses. The validity of the values is tracked
+ * with the epoch stamps only, so any value (also NaN) can be cached.
+ * <P>
+ * Values of time dependent utilities (e.g., aged predictabilities) are
+ * also stamped with the simulation time and are valid only during the same
+ * time step they were computed in.
+ * </P>
+ */
+public class UtilityCache implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	/** Initial number of keys the cache has room for */
+	private static final int INIT_CAPACITY = 16;
+
+	private final boolean timeDependent;
+	private double[] values;
+	private int[] epochs;
+	private double[] times;
+	/** Current epoch; epoch 0 marks empty slots */
+	private int epoch;
+
+	private long hits;
+	private long misses;
+
+	/**
+	 * Constructor.
+	 * @param timeDependent If true, the cached values are valid only during
+	 * the simulation time step they were stored in
+	 */
+	public UtilityCache(boolean timeDependent) {
+		this.timeDependent = timeDependent;
+		this.values = new double[INIT_CAPACITY];
+		this.epochs = new int[INIT_CAPACITY];
+		this.times = timeDependent ? new double[INIT_CAPACITY] : null;
+		this.epoch = 1;
+	}
+
+	/**
+	 * Returns true if the cache has a valid value for a key. Any value,
+	 * including NaN, can be cached.
+	 * @param key The key
+	 * @return True if the value is in the cache and it is still valid
+	 */
+	public boolean contains(int key) {
+		if (isValid(key)) {
+			hits++;
+			return true;
+		}
+		misses++;
+		return false;
+	}
+
+	/**
+	 * Returns the cached value of a key
+	 * @param key The key
+	 * @return The value
+	 * @throws SimError if the cache has no valid value for the key (see
+	 * {@link #contains(int)})
+	 */
+	public double get(int key) {
+		if (!isValid(key)) {
+			throw new SimError("No valid cached value for key " + key);
+		}
+		return values[key];
+	}
+
+	private boolean isValid(int key) {
+		return key < epochs.length && epochs[key] == epoch &&
+			(!timeDependent || times[key] == SimClock.getTime());
+	}
+
+	/**
+	 * Stores a value to the cache for the current epoch
+	 * @param key The key
+	 * @param value The value
+	 * @return The value (for convenience)
+	 */
+	public double put(int key, double value) {
+		if (key >= epochs.length) {
+			int capacity = Math.max(key + 1, epochs.length * 2);
+			values = Arrays.copyOf(values, capacity);
+			epochs = Arrays.copyOf(epochs, capacity);
+			if (timeDependent) {
+				times = Arrays.copyOf(times, capacity);
+			}
+		}
+		values[key] = value;
+		epochs[key] = epoch;
+		if (timeDependent) {
+			times[key] = SimClock.getTime();
+		}
+		return value;
+	}
+
+	/**
+	 * Invalidates all the cached values
+	 */
+	public void invalidate() {
+		epoch++;
+		if (epoch == 0) { // wrapped around; clear the stale stamps
+			Arrays.fill(epochs, 0);
+			epoch = 1;
+		}
+	}
+
+	/**
+	 * Returns the number of lookups that found a valid value
+	 * @return the number of cache hits
+	 */
+	public long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * Returns the number of lookups that didn't find a valid value
+	 * @return the number of cache misses
+	 */
+	public long getMisses() {
+		return this.misses;
+	}
+}
@@ -0,0 +1,19 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+/**
+ * Declares a routing decision engine to cache its routing utility values
+ * in a {@link UtilityCache}. Needed by the reports that show how well the
+ * caches work.
+ */
+public interface UtilityCacheEngine {
+
+	/**
+	 * Returns the utility cache of the engine
+	 * @return the utility cache
+	 */
+	public UtilityCache getUtilityCache();
+}
@@ -46,9 +46,23 @@ public class AllTests {
 		suite.addTestSuite(ActivenessHandlerTest.class);
 		suite.addTestSuite(MaxPropDijkstraTest.class);
 		suite.addTestSuite(MaxPropRouterTest.class);
+		suite.addTestSuite(HopCountIndexTest.class);
 		suite.addTestSuite(ScheduledUpdatesQueueTest.class);
 		suite.addTestSuite(MessageTest.class);
 		suite.addTestSuite(ModuleCommunicationBusTest.class);
+		suite.addTestSuite(IntObjectMapTest.class);
+		suite.addTestSuite(EarliestArrivalTest.class);
+		suite.addTestSuite(EventRingTest.class);
+		suite.addTestSuite(EnergyModelTest.class);
+		suite.addTestSuite(SparseConnectivityGridTest.class);
+		suite.addTestSuite(ContactTraceTest.class);
+		suite.addTestSuite(SimProfilerTest.class);
+		suite.addTestSuite(CheckpointTest.class);
+		suite.addTestSuite(ListenerListTest.class);
+		suite.addTestSuite(HostConnectivityTest.class);
+		suite.addTestSuite(UtilityCacheTest.class);
+		suite.addTestSuite(PlayFieldTest.class);
+		suite.addTestSuite(WarmupForkTest.class);
 		//$JUnit-END$
 		return suite;
 	}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import core.Checkpoint;
+import core.SimClock;
+import core.SimError;
+import core.SimScenario;
+import interfaces.ConnectivityGrid;
+import interfaces.SparseConnectivityGrid;
+import movement.ExternalMovement;
+import routing.ContactPlanOracleRouter;
+import routing.EpidemicOracleRouter;
+
+/**
+ * Tests for writing and restoring simulation snapshots
+ */
+public class CheckpointTest extends TestCase {
+	private File file;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.file = File.createTempFile("checkpoint", ".ckpt");
+		SimClock.reset();
+		/* static state the other tests leave behind */
+		SimScenario.reset();
+		ConnectivityGrid.reset();
+		SparseConnectivityGrid.reset();
+		ExternalMovement.reset();
+		EpidemicOracleRouter.reset();
+		ContactPlanOracleRouter.reset();
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		file.delete();
+		SimClock.reset();
+	}
+
+	public void testWriteAndRestore() {
+		List<Serializable> reports = new ArrayList<Serializable>();
+		reports.add("report");
+		reports.add(Integer.valueOf(42));
+		SimClock.getInstance().setTime(123.5);
+		Checkpoint.write(file, reports);
+		assertFalse(new File(file.getPath() + ".tmp").exists());
+
+		SimClock.getInstance().setTime(200);
+		List<Serializable> restored = Checkpoint.restore(file);
+		assertEquals(reports, restored);
+		assertEquals(123.5, SimClock.getTime());
+	}
+
+	public void testNotSerializable() {
+		List<Serializable> reports = new ArrayList<Serializable>();
+		reports.add(new NotSerializableState());
+		try {
+			Checkpoint.write(file, reports);
+			fail("Writing non-serializable state should throw SimError");
+		} catch (SimError e) {
+			assertTrue(e.getMessage().contains(Object.class.getName()));
+		}
+		assertFalse(new File(file.getPath() + ".tmp").exists());
+	}
+
+	private static class NotSerializableState implements Serializable {
+		private static final long serialVersionUID = 42L;
+
+		@SuppressWarnings("unused")
+		private Object state = new Object();
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.ContactTraceQueue;
+import input.ContactTraceReader;
+import input.ContactTraceRecorder;
+import input.ExternalEvent;
+import interfaces.SimpleBroadcastInterface;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import routing.PassiveRouter;
+import core.ConnectionListenerList;
+import core.Coord;
+import core.DTNHost;
+import core.ModuleCommunicationBus;
+import core.NetworkInterface;
+import core.Settings;
+import core.SimClock;
+import core.SimError;
+
+/**
+ * Tests for recording, reading and verifying contact traces
+ */
+public class ContactTraceTest extends TestCase {
+	private File tmpFile;
+	private List<DTNHost> hosts;
+	private SimClock clock;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		this.clock = SimClock.getInstance();
+		this.tmpFile = File.createTempFile("CTTest", "ctr");
+		this.tmpFile.deleteOnExit();
+
+		TestUtils utils = new TestUtils(null, null, new TestSettings());
+		this.hosts = new ArrayList<DTNHost>();
+		for (int i = 0; i < 3; i++) {
+			hosts.add(utils.createHost(new Coord(i, 0)));
+		}
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		SimClock.reset();
+	}
+
+	/**
+	 * Feeds the same connection events to a recorder (or verifier)
+	 */
+	private void runEvents(ContactTraceRecorder r) {
+		clock.setTime(1);
+		r.hostsConnected(hosts.get(0), hosts.get(1));
+		r.hostsConnected(hosts.get(2), hosts.get(1));
+		clock.setTime(5);
+		r.hostsDisconnected(hosts.get(1), hosts.get(0));
+		r.done();
+	}
+
+	private void record() {
+		runEvents(new ContactTraceRecorder(tmpFile, hosts, false));
+	}
+
+	public void testRecordAndRead() {
+		record();
+		ContactTraceReader reader = new ContactTraceReader(tmpFile);
+		assertEquals(3, reader.getNrofHosts());
+		assertEquals(1, reader.getNrofInterfaceTypes());
+
+		assertTrue(reader.next());
+		assertEquals(1.0, reader.getTime());
+		assertEquals(hosts.get(0).getAddress(), reader.getFrom());
+		assertEquals(hosts.get(1).getAddress(), reader.getTo());
+		assertTrue(reader.isUp());
+		assertTrue(reader.next());
+		assertEquals(hosts.get(2).getAddress(), reader.getFrom());
+		assertTrue(reader.next());
+		assertEquals(5.0, reader.getTime());
+		assertFalse(reader.isUp());
+		assertFalse(reader.next());
+		assertFalse(reader.hasEvent());
+	}
+
+	public void testQueueBatchesEvents() {
+		record();
+		ContactTraceQueue queue = new ContactTraceQueue(tmpFile, hosts.size());
+		assertEquals(1.0, queue.nextEventsTime());
+		ExternalEvent ee = queue.nextEvent();
+		assertEquals(1.0, ee.getTime());
+		assertEquals(5.0, queue.nextEventsTime());
+		assertEquals(5.0, queue.nextEvent().getTime());
+		assertEquals(Double.MAX_VALUE, queue.nextEventsTime());
+		assertEquals(Double.MAX_VALUE, queue.nextEvent().getTime());
+	}
+
+	public void testVerify() {
+		record();
+		ContactTraceRecorder verifier =
+			new ContactTraceRecorder(tmpFile, hosts, true);
+		runEvents(verifier);
+		assertTrue(verifier.isVerified());
+		assertEquals(3, verifier.getNrofEvents());
+
+		verifier = new ContactTraceRecorder(tmpFile, hosts, true);
+		clock.setTime(1);
+		verifier.hostsConnected(hosts.get(0), hosts.get(1));
+		try {
+			verifier.hostsConnected(hosts.get(0), hosts.get(2));
+			fail("Different event should not verify");
+		} catch (SimError e) {
+			// expected
+		}
+		assertFalse(verifier.isVerified());
+	}
+
+	public void testMissingEvents() {
+		record();
+		ContactTraceRecorder verifier =
+			new ContactTraceRecorder(tmpFile, hosts, true);
+		clock.setTime(10);
+		try {
+			verifier.done();
+			fail("Trace events missing from the run should not verify");
+		} catch (SimError e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Records the contacts of hosts that have two interfaces and are
+	 * connected with both of them
+	 */
+	public void testRecordInterfaceTypes() {
+		TestSettings ts = new TestSettings();
+		ts.putSetting("wlan.transmitRange", "10");
+		ts.putSetting("wlan.transmitSpeed", "10M");
+		ts.putSetting("bt.transmitRange", "10");
+		ts.putSetting("bt.transmitSpeed", "1M");
+
+		ConnectionListenerList cl = new ConnectionListenerList();
+		List<NetworkInterface> li = new ArrayList<NetworkInterface>();
+		li.add(new SimpleBroadcastInterface(new Settings("wlan")));
+		li.add(new SimpleBroadcastInterface(new Settings("bt")));
+		for (NetworkInterface ni : li) {
+			ni.setClisteners(cl);
+		}
+		List<DTNHost> twoIfHosts = new ArrayList<DTNHost>();
+		for (int i = 0; i < 2; i++) {
+			twoIfHosts.add(new DTNHost(null, null, "h", li,
+					new ModuleCommunicationBus(),
+					new StationaryMovement(new Coord(i, 0)),
+					new PassiveRouter(ts)));
+		}
+		ContactTraceRecorder r =
+			new ContactTraceRecorder(tmpFile, twoIfHosts, false);
+		cl.add(r);
+
+		NetworkInterface wlan0 = twoIfHosts.get(0).getInterfaces().get(0);
+		NetworkInterface wlan1 = twoIfHosts.get(1).getInterfaces().get(0);
+		NetworkInterface bt0 = twoIfHosts.get(0).getInterfaces().get(1);
+		NetworkInterface bt1 = twoIfHosts.get(1).getInterfaces().get(1);
+		clock.setTime(1);
+		wlan0.connect(wlan1);
+		clock.setTime(2);
+		bt1.connect(bt0);
+		clock.setTime(3);
+		bt0.destroyConnection(bt1);
+		r.done();
+
+		ContactTraceReader reader = new ContactTraceReader(tmpFile);
+		assertEquals(2, reader.getNrofInterfaceTypes());
+		String[] expected = {"wlan", "bt", "bt"};
+		for (String type : expected) {
+			assertTrue(reader.next());
+			assertEquals(type,
+					reader.getInterfaceType(reader.getInterfaceIndex()));
+		}
+		assertFalse(reader.isUp());
+		assertFalse(reader.next());
+	}
+}
@@ -0,0 +1,101 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import input.ConnectionEvent;
+import junit.framework.TestCase;
+import routing.schedule.ContactPlan;
+import routing.schedule.EarliestArrival;
+
+/**
+ * Tests for the contact plan and earliest-arrival search
+ */
+public class EarliestArrivalTest extends TestCase {
+	private ContactPlan plan;
+	private EarliestArrival ea;
+	
+	protected void setUp() throws Exception {
+		super.setUp();
+		plan = new ContactPlan();
+		ea = new EarliestArrival(plan, 0);
+		
+		plan.addContact(1, 2, 10, 20);
+		plan.addContact(1, 3, 20, 30);
+		plan.addContact(1, 4, 20, 30);
+		plan.addContact(1, 5, 30, 40);
+	}
+	
+	private void assertRoute(int[] expected) {
+		int[] route = ea.getRoute();
+		assertEquals(expected.length, route.length);
+		for (int i=0; i<expected.length; i++) {
+			assertEquals(expected[i], route[i]);
+		}
+	}
+	
+	public void testSimpleRoutes() {
+		assertEquals(EarliestArrival.INFINITY, ea.search(1, 10, 0));
+		assertRoute(new int[0]);
+		assertEquals(-1, ea.getNextHop());
+		
+		plan.addContact(2, 10, 55, 60); /* route via 2 */
+		assertEquals(55.0, ea.search(1, 10, 0));
+		assertRoute(new int[] {1, 2, 10});
+		assertEquals(10.0, ea.getDepartureTime());
+		assertEquals(20.0, ea.getFirstContactEnd());
+		
+		plan.addContact(3, 10, 15, 19); /* ends before we're at 3 */
+		assertEquals(55.0, ea.search(1, 10, 0));
+		assertRoute(new int[] {1, 2, 10});
+		
+		plan.addContact(10, 3, 25, 50); /* reverse direction works too */
+		assertEquals(25.0, ea.search(1, 10, 0));
+		assertRoute(new int[] {1, 3, 10});
+		
+		/* contact with 2 has ended when starting at 21 */
+		assertEquals(25.0, ea.search(1, 10, 21));
+		assertRoute(new int[] {1, 3, 10});
+		assertEquals(EarliestArrival.INFINITY, ea.search(1, 10, 31));
+		
+		assertEquals(5.0, ea.search(4, 4, 5));
+		assertRoute(new int[] {4});
+		assertEquals(EarliestArrival.INFINITY, ea.search(1, 100, 0));
+		assertRoute(new int[0]);
+	}
+	
+	public void testMultipleHops() {
+		plan.addContact(3, 10, 40, 45);
+		plan.addContact(3, 11, 35, 45);
+		plan.addContact(10, 20, 60, 70);
+		plan.addContact(11, 20, 50, 51);
+		plan.addContact(1, 20, 100, 110);
+		
+		assertEquals(50.0, ea.search(1, 20, 0));
+		assertRoute(new int[] {1, 3, 11, 20});
+		
+		/* with 2 seconds per hop the short contact 11-20 can't be used */
+		EarliestArrival slow = new EarliestArrival(plan, 2);
+		assertEquals(62.0, slow.search(1, 20, 0));
+		int[] route = slow.getRoute();
+		assertEquals(4, route.length);
+		assertEquals(10, route[2]);
+	}
+	
+	public void testConnectionEvents() {
+		ContactPlan p = new ContactPlan();
+		p.addConnectionEvent(new ConnectionEvent(1, 2, null, true, 10));
+		p.addConnectionEvent(new ConnectionEvent(2, 1, null, true, 12));
+		p.addConnectionEvent(new ConnectionEvent(2, 1, null, false, 20));
+		p.addConnectionEvent(new ConnectionEvent(2, 3, null, true, 30));
+		assertEquals(2, p.getNrofContacts());
+		
+		EarliestArrival e = new EarliestArrival(p, 0);
+		assertEquals(30.0, e.search(1, 3, 0));
+		/* contact 1-2 ended at 20 */
+		assertEquals(EarliestArrival.INFINITY, e.search(1, 3, 21));
+		/* contact 2-3 is never closed */
+		assertEquals(1000.0, e.search(3, 2, 1000));
+	}
+}
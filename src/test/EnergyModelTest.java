@@ -0,0 +1,69 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import junit.framework.TestCase;
+import routing.util.EnergyModel;
+
+/**
+ * Tests for the analytic energy model
+ */
+public class EnergyModelTest extends TestCase {
+	private static final double DELTA = 0.00001;
+	private EnergyModel model;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		model = new EnergyModel();
+	}
+
+	public void testScanning() {
+		model.register(3, 10, 1, 10, 0.5, 0, 0, 0);
+		assertTrue(model.isRegistered(3));
+		assertFalse(model.isRegistered(2));
+		assertFalse(model.isRegistered(100));
+
+		assertEquals(10, model.getEnergy(3, 9.9), DELTA);
+		assertEquals(9, model.getEnergy(3, 10), DELTA);
+		assertEquals(8, model.getEnergy(3, 25), DELTA);
+		assertEquals(100, model.getDepletionTime(3), DELTA);
+		assertEquals(0, model.getEnergy(3, 150), DELTA);
+	}
+
+	public void testTransmitting() {
+		model.register(0, 10, 1, 10, 0.5, 0, 0, 0);
+		model.setTransmitting(0, true, 5);
+		assertTrue(model.isTransmitting(0));
+
+		assertEquals(10, model.getEnergy(0, 5), DELTA);
+		assertEquals(0.25, model.getEnergy(0, 20.5), DELTA);
+		assertEquals(21, model.getDepletionTime(0), DELTA);
+
+		model.setTransmitting(0, false, 15);
+		assertEquals(4.0, model.getEnergy(0, 15), DELTA);
+		assertEquals(3.0, model.getEnergy(0, 20), DELTA);
+		assertEquals(50, model.getDepletionTime(0), DELTA);
+	}
+
+	public void testWarmupAndIdle() {
+		model.register(0, 10, 1, 10, 0, 0.1, 50, 0);
+		assertEquals(10, model.getEnergy(0, 45), DELTA);
+		assertEquals(9, model.getEnergy(0, 50), DELTA);
+		assertEquals(7, model.getEnergy(0, 60), DELTA);
+
+		model.setEnergy(0, 1, 60);
+		assertEquals(1, model.getEnergy(0, 60), DELTA);
+		assertEquals(70, model.getDepletionTime(0), DELTA);
+	}
+
+	public void testNoDrain() {
+		model.register(0, 10, 0, 10, 1, 0, 0, 0);
+		assertEquals(EnergyModel.NEVER, model.getDepletionTime(0));
+		assertEquals(10, model.getEnergy(0, 1000), DELTA);
+
+		model.register(1, 0, 1, 10, 1, 0, 0, 0);
+		assertEquals(0, model.getDepletionTime(1), DELTA);
+	}
+}
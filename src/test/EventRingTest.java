@@ -0,0 +1,68 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import gui.EventRing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the GUI's event ring
+ */
+public class EventRingTest extends TestCase {
+	
+	public void testCapacity() {
+		assertEquals(8, new EventRing<Integer>(8).getCapacity());
+		assertEquals(8, new EventRing<Integer>(5).getCapacity());
+		assertEquals(1, new EventRing<Integer>(1).getCapacity());
+	}
+	
+	public void testRead() {
+		EventRing<Integer> ring = new EventRing<Integer>(4);
+		List<Integer> read = new ArrayList<Integer>();
+		
+		assertEquals(0, ring.read(0, read));
+		assertEquals(0, read.size());
+		
+		ring.add(1);
+		ring.add(2);
+		assertEquals(2, ring.getHead());
+		long next = ring.read(0, read);
+		assertEquals(2, next);
+		assertEquals(2, read.size());
+		assertEquals(1, (int)read.get(0));
+		assertEquals(2, (int)read.get(1));
+		
+		ring.add(3);
+		read.clear();
+		assertEquals(3, ring.read(next, read));
+		assertEquals(1, read.size());
+		assertEquals(3, (int)read.get(0));
+	}
+	
+	public void testOverwrite() {
+		EventRing<Integer> ring = new EventRing<Integer>(4);
+		List<Integer> read = new ArrayList<Integer>();
+		
+		for (int i = 0; i < 10; i++) {
+			ring.add(i);
+		}
+		
+		// only the latest four are left
+		assertEquals(10, ring.read(0, read));
+		assertEquals(4, read.size());
+		for (int i = 0; i < 4; i++) {
+			assertEquals(6 + i, (int)read.get(i));
+		}
+		
+		read.clear();
+		assertEquals(10, ring.read(8, read));
+		assertEquals(2, read.size());
+		assertEquals(8, (int)read.get(0));
+	}
+}
@@ -4,7 +4,9 @@
  */
 package test;
 
+import input.BinaryMovementReader;
 import input.ExternalMovementReader;
+import input.MovementStepReader;
 
 import java.io.File;
 import java.io.PrintWriter;
@@ -12,10 +14,12 @@ import java.util.List;
 
 import junit.framework.TestCase;
 import core.Coord;
+import core.SettingsError;
 import core.Tuple;
 
 public class ExternalMovementReaderTest extends TestCase {
 	private ExternalMovementReader r;
+	private File tmpFile;
 	private static final String INPUT = 
 		"0 0 0 0 0 0\n"+
 		"10 1 10 10\n"+ 
@@ -39,7 +43,7 @@ public class ExternalMovementReaderTest extends TestCase {
 	protected void setUp() throws Exception {
 		super.setUp();
 		
-		File tmpFile = File.createTempFile("EMRTest","tmp");
+		tmpFile = File.createTempFile("EMRTest","tmp");
 		tmpFile.deleteOnExit();
 		
 		PrintWriter pw = new PrintWriter(tmpFile);
@@ -62,6 +66,48 @@ public class ExternalMovementReaderTest extends TestCase {
 		assertEquals(0, list.size());
 	}
 
+	public void testBinaryReader() throws Exception {
+		File binFile = File.createTempFile("EMRTest", 
+				BinaryMovementReader.BINARY_EXT);
+		binFile.deleteOnExit();
+		BinaryMovementReader.storeToBinaryFile(tmpFile.getAbsolutePath(),
+				binFile.getAbsolutePath());
+		
+		MovementStepReader br = 
+			new BinaryMovementReader(binFile.getAbsolutePath());
+		
+		for (int i=0; i<times.length; i++) {
+			assertEquals(ids.length, br.readNextStep());
+			assertEquals(times[i], br.getLastTimeStamp());
+			for (int j=0; j<ids.length; j++) {
+				assertEquals(ids[j], br.getId(br.getStepIds()[j]));
+				assertEquals(coords[i][j], new Coord(br.getStepXs()[j],
+						br.getStepYs()[j]));
+			}
+		}
+		
+		assertEquals(0, br.readNextStep());
+	}
+
+	public void testBinaryConversionRequiresSortedInput() throws Exception {
+		File unsorted = File.createTempFile("EMRTest", "tmp");
+		unsorted.deleteOnExit();
+		PrintWriter pw = new PrintWriter(unsorted);
+		pw.println("0 0 0 0 0 0\n20 1 10 10\n10 1 20 20");
+		pw.close();
+		File binFile = File.createTempFile("EMRTest",
+				BinaryMovementReader.BINARY_EXT);
+		binFile.deleteOnExit();
+
+		try {
+			BinaryMovementReader.storeToBinaryFile(
+					unsorted.getAbsolutePath(), binFile.getAbsolutePath());
+			fail("Unsorted input should not be converted");
+		} catch (SettingsError e) {
+			// expected
+		}
+	}
+
 	private void checkTuples(List<Tuple<String, Coord>> list, String[] ids,
 			Coord[] coords) {
 		
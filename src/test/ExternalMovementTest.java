@@ -7,6 +7,7 @@ package test;
 import java.io.File;
 import java.io.PrintWriter;
 
+import input.BinaryMovementReader;
 import junit.framework.TestCase;
 import movement.ExternalMovement;
 import movement.MovementModel;
@@ -49,6 +50,11 @@ public class ExternalMovementTest extends TestCase {
 	private SimClock clock;
 	
 	protected void setUpUsing(String[] input) throws Exception {
+		setUpUsing(input, false);
+	}
+	
+	protected void setUpUsing(String[] input, boolean binary) 
+			throws Exception {
 		super.setUp();
 		ExternalMovement.reset();
 		TestSettings ts = new TestSettings();
@@ -64,6 +70,15 @@ public class ExternalMovementTest extends TestCase {
 		
 		pw.close();
 		
+		if (binary) {
+			File binFile = File.createTempFile("eMovementTest",
+					BinaryMovementReader.BINARY_EXT);
+			binFile.deleteOnExit();
+			BinaryMovementReader.storeToBinaryFile(outFile.getAbsolutePath(),
+					binFile.getAbsolutePath());
+			outFile = binFile;
+		}
+		
 		ts.putSetting(ExternalMovement.EXTERNAL_MOVEMENT_NS + "." +
 				ExternalMovement.MOVEMENT_FILE_S, outFile.getAbsolutePath());
 		
@@ -80,7 +95,15 @@ public class ExternalMovementTest extends TestCase {
 	
 	public void testMovement() throws Exception {
 		setUpUsing(INPUT);
-
+		checkMovement();
+	}
+	
+	public void testBinaryMovement() throws Exception {
+		setUpUsing(INPUT, true);
+		checkMovement();
+	}
+	
+	private void checkMovement() {
 		// h3 should not get any fancy coordinates
 		assertEquals(c0, h3.getLocation());
 		assertFalse(h3.isActive());
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import routing.maxprop.HopCountIndex;
+
+/**
+ * Tests for the MaxProp hop count index
+ */
+public class HopCountIndexTest extends TestCase {
+	private static final int MAX_HOPS = 30;
+	private HopCountIndex index;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.index = new HopCountIndex();
+	}
+
+	public void testHopCountFor() {
+		assertEquals(-1, index.getHopCountFor(1));
+		index.add(2, 100);
+		index.add(0, 50);
+		index.add(5, 10);
+		assertEquals(3, index.size());
+
+		assertEquals(0, index.getHopCountFor(1));
+		assertEquals(0, index.getHopCountFor(50));
+		assertEquals(2, index.getHopCountFor(51));
+		assertEquals(2, index.getHopCountFor(150));
+		assertEquals(5, index.getHopCountFor(160));
+		assertEquals(5, index.getHopCountFor(1000)); // all fit -> largest
+
+		index.remove(5, 10);
+		assertEquals(2, index.getHopCountFor(1000));
+		index.add(40, 0); // grows the index
+		assertEquals(40, index.getHopCountFor(1000));
+		assertEquals(2, index.getHopCountFor(150));
+	}
+
+	public void testRandomContents() {
+		Random rng = new Random(1);
+		List<int[]> msgs = new ArrayList<int[]>();
+		for (int round = 0; round < 500; round++) {
+			if (msgs.isEmpty() || rng.nextInt(3) > 0) {
+				int[] m = {rng.nextInt(MAX_HOPS + 1), rng.nextInt(1000)};
+				msgs.add(m);
+				index.add(m[0], m[1]);
+			}
+			else {
+				int[] m = msgs.remove(rng.nextInt(msgs.size()));
+				index.remove(m[0], m[1]);
+			}
+			long amount = 1 + rng.nextInt(20000);
+			assertEquals(bruteForce(msgs, amount), index.getHopCountFor(amount));
+		}
+	}
+
+	/**
+	 * Returns the hop count of the first message (in hop count order)
+	 * where the sum of sizes reaches the amount, like MaxProp used to
+	 */
+	private int bruteForce(List<int[]> msgs, long amount) {
+		int last = -1;
+		for (int hop = 0; hop <= MAX_HOPS; hop++) {
+			for (int[] m : msgs) {
+				if (m[0] == hop) {
+					amount -= m[1];
+					last = hop;
+				}
+			}
+			if (last == hop && amount <= 0) {
+				return hop;
+			}
+		}
+		return last;
+	}
+}
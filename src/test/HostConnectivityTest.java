@@ -0,0 +1,133 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import interfaces.ConnectivityGrid;
+import interfaces.SimpleBroadcastInterface;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import routing.PassiveRouter;
+import core.Connection;
+import core.Coord;
+import core.DTNHost;
+import core.HostConnectivity;
+import core.ModuleCommunicationBus;
+import core.NetworkInterface;
+import core.Settings;
+import core.SimClock;
+import core.World;
+
+/**
+ * Tests for the shared neighbour query of multi-interface hosts
+ */
+public class HostConnectivityTest extends TestCase {
+	private static final int NROF_HOSTS = 100;
+	private static final int NROF_ROUNDS = 30;
+	private TestSettings ts;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.ts = new TestSettings();
+		ts.putSetting("bt.transmitRange", "10");
+		ts.putSetting("bt.transmitSpeed", "250k");
+		ts.putSetting("wlan.transmitRange", "40");
+		ts.putSetting("wlan.transmitSpeed", "10M");
+		SimClock.reset();
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		HostConnectivity.reset();
+		ConnectivityGrid.reset();
+	}
+
+	/**
+	 * Creates hosts at random locations
+	 * @param shared Should the hosts use the shared query
+	 * @param btOnly Index of a host that has only the short range interface
+	 * or -1 for none
+	 */
+	private List<DTNHost> createHosts(boolean shared, int btOnly) {
+		ts.putSetting(World.SETTINGS_NS + "." +
+				HostConnectivity.SHARED_QUERY_S, "" + shared);
+		HostConnectivity.reset();
+		ConnectivityGrid.reset();
+
+		List<NetworkInterface> both = new ArrayList<NetworkInterface>();
+		both.add(new SimpleBroadcastInterface(new Settings("bt")));
+		both.add(new SimpleBroadcastInterface(new Settings("wlan")));
+		List<NetworkInterface> bt = both.subList(0, 1);
+
+		Random rng = new Random(1);
+		List<DTNHost> hosts = new ArrayList<DTNHost>();
+		for (int i = 0; i < NROF_HOSTS; i++) {
+			Coord loc = new Coord(rng.nextDouble() * 200,
+					rng.nextDouble() * 200);
+			hosts.add(new DTNHost(null, null, "h", i == btOnly ? bt : both,
+					new ModuleCommunicationBus(), new StationaryMovement(loc),
+					new PassiveRouter(ts)));
+		}
+		return hosts;
+	}
+
+	/**
+	 * Moves the hosts randomly, updates them and returns the connected
+	 * host pairs (by index) of every round and interface type
+	 */
+	private List<Set<String>> simulate(List<DTNHost> hosts) {
+		Random rng = new Random(2);
+		List<Set<String>> rounds = new ArrayList<Set<String>>();
+		for (int round = 0; round < NROF_ROUNDS; round++) {
+			for (DTNHost h : hosts) {
+				Coord c = h.getLocation();
+				h.setLocation(new Coord(
+						Math.max(0, c.getX() + rng.nextDouble() * 20 - 10),
+						Math.max(0, c.getY() + rng.nextDouble() * 20 - 10)));
+			}
+			for (DTNHost h : hosts) {
+				h.update(true);
+			}
+
+			Set<String> connected = new HashSet<String>();
+			for (int i = 0; i < hosts.size(); i++) {
+				for (NetworkInterface ni : hosts.get(i).getInterfaces()) {
+					for (Connection con : ni.getConnections()) {
+						DTNHost other = con.getOtherNode(hosts.get(i));
+						connected.add(ni.getInterfaceType() + ":" + i + "-" +
+								hosts.indexOf(other));
+					}
+				}
+			}
+			rounds.add(connected);
+		}
+		return rounds;
+	}
+
+	public void testSameConnections() {
+		List<Set<String>> separate = simulate(createHosts(false, -1));
+		List<Set<String>> shared = simulate(createHosts(true, -1));
+		assertEquals(separate, shared);
+
+		boolean btConnected = false;
+		for (String pair : shared.get(NROF_ROUNDS - 1)) {
+			btConnected |= pair.startsWith("bt:");
+		}
+		assertTrue(btConnected);
+	}
+
+	public void testSingleInterfaceHost() {
+		List<DTNHost> hosts = createHosts(false, 0);
+		List<Set<String>> separate = simulate(hosts);
+		hosts = createHosts(true, 0);
+		List<Set<String>> shared = simulate(hosts);
+		assertEquals(separate, shared);
+	}
+}
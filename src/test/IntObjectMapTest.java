@@ -0,0 +1,56 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import core.IntObjectMap;
+
+public class IntObjectMapTest extends TestCase {
+
+	@Test
+	public void testPutGetRemove() {
+		IntObjectMap<String> map = new IntObjectMap<String>();
+		assertNull(map.get(1));
+		assertNull(map.put(1, "a"));
+		assertEquals("a", map.put(1, "b"));
+		assertEquals("b", map.get(1));
+		assertTrue(map.containsKey(1));
+		assertFalse(map.containsKey(-1));
+		assertEquals(1, map.size());
+		assertEquals("b", map.remove(1));
+		assertNull(map.remove(1));
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void testAgainstHashMap() {
+		IntObjectMap<Integer> map = new IntObjectMap<Integer>(2);
+		HashMap<Integer, Integer> ref = new HashMap<Integer, Integer>();
+		Random rng = new Random(1);
+
+		for (int i = 0; i < 20000; i++) {
+			int key = rng.nextInt(500);
+			if (rng.nextBoolean()) {
+				assertEquals(ref.put(key, i), map.put(key, i));
+			} else {
+				assertEquals(ref.remove(key), map.remove(key));
+			}
+			assertEquals(ref.size(), map.size());
+		}
+
+		for (int key = 0; key < 500; key++) {
+			assertEquals(ref.get(key), map.get(key));
+		}
+		assertEquals(new HashSet<Integer>(ref.values()),
+				new HashSet<Integer>(map.values()));
+	}
+}
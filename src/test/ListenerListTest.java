@@ -0,0 +1,199 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import core.AsyncDelivery;
+import core.ConnectionListener;
+import core.ConnectionListenerList;
+import core.DTNHost;
+import core.ListenerList;
+import core.Message;
+import core.MessageListener;
+import core.MessageListenerList;
+import core.PassiveListener;
+import core.SampledUpdateListener;
+import core.SelectiveListener;
+import core.SimClock;
+import core.SimProfiler;
+import core.UpdateListenerList;
+import core.World;
+
+/**
+ * Tests for the per event type listener dispatch of {@link ListenerList}s
+ */
+public class ListenerListTest extends TestCase {
+
+	public void testMessageDispatch() {
+		MessageListenerList list = new MessageListenerList();
+		NewMessageListener nl = new NewMessageListener();
+		AllEventsListener al = new AllEventsListener();
+		list.add(nl);
+		list.add(al);
+		assertEquals(2, list.size());
+
+		list.newMessage(null);
+		list.messageTransferStarted(null, null, null);
+		list.messageDeleted(null, null, false);
+		list.messageTransferAborted(null, null, null);
+		list.messageTransferred(null, null, null, true);
+		assertEquals(1, nl.nrofEvents);
+		assertEquals(5, al.nrofEvents);
+
+		list.remove(al);
+		list.newMessage(null);
+		assertEquals(2, nl.nrofEvents);
+		assertEquals(5, al.nrofEvents);
+	}
+
+	public void testConnectionDispatch() {
+		ConnectionListenerList list = new ConnectionListenerList();
+		ConnectedListener cl = new ConnectedListener();
+		list.add(cl);
+
+		list.hostsConnected(null, null);
+		list.hostsDisconnected(null, null);
+		assertEquals(1, cl.nrofEvents);
+	}
+
+	public void testSampledUpdateDispatch() {
+		UpdateListenerList list = new UpdateListenerList();
+		SampledListener sl = new SampledListener();
+		list.add(sl);
+
+		for (int i = 0; i <= 10; i++) {
+			SimClock.getInstance().setTime(i);
+			list.updated(null);
+		}
+		assertEquals(3, sl.nrofUpdates); // at 0, 5 and 10
+		SimClock.reset();
+	}
+
+	public void testProfiledDispatch() {
+		TestSettings ts = new TestSettings();
+		ts.putSetting(SimProfiler.PROFILER_NS + "." + SimProfiler.ENABLED_S,
+				"true");
+		ts.putSetting(World.SETTINGS_NS + "." +
+				AsyncDelivery.ASYNC_LISTENERS_S, "true");
+		AsyncDelivery.reset();
+		SimProfiler profiler = SimProfiler.createIfEnabled();
+		assertNotNull(profiler);
+
+		try {
+			MessageListenerList list = new MessageListenerList();
+			NewMessageListener nl = new NewMessageListener();
+			PassiveListenerImpl pl = new PassiveListenerImpl();
+			list.add(profiler.profile(nl));
+			list.add(profiler.profile(pl));
+
+			list.newMessage(null);
+			list.messageDeleted(null, null, false);
+			AsyncDelivery.drain();
+
+			/* the selective listener is still left out of the deletions */
+			assertEquals(1, nl.nrofEvents);
+			/* the passive listener still gets its events asynchronously */
+			assertEquals(2, pl.nrofEvents);
+			assertNotSame(Thread.currentThread(), pl.thread);
+
+			int nrofCalls = 0;
+			for (SimProfiler.Section s : profiler.getSections()) {
+				nrofCalls += s.getCalls();
+			}
+			assertEquals(3, nrofCalls);
+		} finally {
+			AsyncDelivery.reset();
+			new TestSettings();
+		}
+	}
+
+	public void testProfiledSampledUpdateDispatch() {
+		UpdateListenerList list = new UpdateListenerList();
+		SampledListener sl = new SampledListener();
+		list.add(new SimProfiler(false).profile(sl));
+
+		for (int i = 0; i <= 10; i++) {
+			SimClock.getInstance().setTime(i);
+			list.updated(null);
+		}
+		assertEquals(3, sl.nrofUpdates);
+		SimClock.reset();
+	}
+
+	public void testPlainListDispatch() {
+		List<MessageListener> list = new ArrayList<MessageListener>();
+		MessageListener dispatcher = MessageListenerList.dispatcherFor(list);
+		AllEventsListener al = new AllEventsListener();
+		list.add(al); // added after the dispatcher was created
+		dispatcher.newMessage(null);
+		assertEquals(1, al.nrofEvents);
+	}
+
+	/** Counts all events but handles only new messages */
+	private static class NewMessageListener extends AllEventsListener
+			implements SelectiveListener {
+		public boolean handles(Event event) {
+			return event == Event.NEW_MESSAGE;
+		}
+	}
+
+	private static class AllEventsListener implements MessageListener {
+		int nrofEvents;
+		public void newMessage(Message m) {
+			nrofEvents++;
+		}
+		public void messageTransferStarted(Message m, DTNHost f, DTNHost t) {
+			nrofEvents++;
+		}
+		public void messageDeleted(Message m, DTNHost w, boolean dropped) {
+			nrofEvents++;
+		}
+		public void messageTransferAborted(Message m, DTNHost f, DTNHost t) {
+			nrofEvents++;
+		}
+		public void messageTransferred(Message m, DTNHost f, DTNHost t,
+				boolean firstDelivery) {
+			nrofEvents++;
+		}
+	}
+
+	private static class PassiveListenerImpl extends AllEventsListener
+			implements PassiveListener {
+		private volatile Thread thread;
+		public void newMessage(Message m) {
+			super.newMessage(m);
+			thread = Thread.currentThread();
+		}
+	}
+
+	private static class SampledListener implements SampledUpdateListener {
+		private int nrofUpdates;
+		private double lastUpdate = -5;
+		public void updated(List<DTNHost> hosts) {
+			nrofUpdates++;
+			lastUpdate = SimClock.getTime();
+		}
+		public double getNextUpdateTime() {
+			return lastUpdate + 5;
+		}
+	}
+
+	private static class ConnectedListener implements ConnectionListener,
+			SelectiveListener {
+		private int nrofEvents;
+		public void hostsConnected(DTNHost host1, DTNHost host2) {
+			nrofEvents++;
+		}
+		public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+			nrofEvents++;
+		}
+		public boolean handles(Event event) {
+			return event == Event.HOSTS_CONNECTED;
+		}
+	}
+}
@@ -12,6 +12,7 @@ import org.junit.Test;
 import core.DTNHost;
 import core.Message;
 import core.SimClock;
+import routing.util.SprayEngine;
 
 public class MessageTest extends TestCase {
 
@@ -60,5 +61,28 @@ public class MessageTest extends TestCase {
 		assertEquals(value2, msg.getProperty("bar"));
 	}
 
+	@Test
+	public void testSprayCopies() {
+		SprayEngine binary = new SprayEngine(7, true);
+		binary.init(msg);
+		assertEquals(7, msg.getCopies());
+		assertTrue(SprayEngine.hasCopiesLeft(msg));
+
+		Message received = msg.replicate();
+		binary.received(received);
+		binary.sent(msg);
+		assertEquals(4, received.getCopies());
+		assertEquals(3, msg.getCopies());
+
+		SprayEngine standard = new SprayEngine(2, false);
+		standard.init(msg);
+		received = msg.replicate();
+		standard.received(received);
+		standard.sent(msg);
+		assertEquals(1, received.getCopies());
+		assertEquals(1, msg.getCopies());
+		assertFalse(SprayEngine.hasCopiesLeft(msg));
+	}
+
 
 }
@@ -4,6 +4,12 @@
  */
 package test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
 import junit.framework.TestCase;
 
 import org.junit.Before;
@@ -11,6 +17,7 @@ import org.junit.Test;
 
 import core.ModuleCommunicationBus;
 import core.ModuleCommunicationListener;
+import core.SimError;
 
 public class ModuleCommunicationBusTest extends TestCase {
 
@@ -103,4 +110,112 @@ public class ModuleCommunicationBusTest extends TestCase {
 		assertEquals(-16.7, b.getDouble(key, -1.0));
 	}	
 
+	@Test
+	public void testKeys() {
+		ModuleCommunicationBus.Key key = ModuleCommunicationBus.getKey("keytst");
+		assertSame(key, ModuleCommunicationBus.getKey("keytst"));
+		assertNotSame(key, ModuleCommunicationBus.getKey("keytst2"));
+		assertEquals("keytst", key.getName());
+		
+		b.addProperty(key, TST_VAL);
+		assertEquals(TST_VAL, b.getProperty("keytst"));
+		b.updateProperty("keytst", "value2");
+		assertEquals("value2", b.getProperty(key));
+		
+		try {
+			b.addProperty("keytst", "value3");
+			fail("Adding an existing value should throw SimError");
+		} catch (SimError e) {
+			// expected
+		}
+	}
+	
+	@Test
+	public void testPrimitiveValues() {
+		ModuleCommunicationBus.Key dKey = ModuleCommunicationBus.getKey("dtst");
+		ModuleCommunicationBus.Key iKey = ModuleCommunicationBus.getKey("itst");
+		
+		assertEquals(-1.0, b.getDouble(dKey, -1.0));
+		assertEquals(-1, b.getInt(iKey, -1));
+		
+		b.setDouble(dKey, 2.5);
+		b.setInt(iKey, 7);
+		assertEquals(2.5, b.getDouble(dKey, -1.0));
+		assertEquals(2.5, b.getDouble("dtst", -1.0));
+		assertEquals(2.5, b.getProperty("dtst"));
+		assertEquals(7, b.getInt("itst", -1));
+		assertEquals(7, b.getProperty(iKey));
+		
+		b.updateProperty("itst", 8);
+		assertEquals(8, b.getInt(iKey, -1));
+		assertEquals(3.5, b.updateDouble(dKey, 1.0));
+		
+		try {
+			b.getInt(dKey, -1);
+			fail("Reading a double as an integer should throw SimError");
+		} catch (SimError e) {
+			// expected
+		}
+	}
+	
+	@Test
+	public void testKeyNotifications() {
+		ModuleCommunicationBus.Key key = ModuleCommunicationBus.getKey("ntst");
+		b.subscribe(key, mcl);
+		b.setDouble(key, 1.5);
+		assertEquals("ntst", notifyKey);
+		assertEquals(1.5, notifyValue);
+		
+		b.updateProperty("ntst", 2.5);
+		assertEquals(2.5, notifyValue);
+		
+		b.unsubscribe("ntst", mcl);
+		b.setDouble(key, 3.5);
+		assertEquals(2.5, notifyValue);
+		assertEquals(3.5, b.getDouble(key, -1));
+	}
+	
+	@Test
+	public void testSerialization() throws Exception {
+		ModuleCommunicationBus.Key dKey = ModuleCommunicationBus.getKey("sdtst");
+		ModuleCommunicationBus.Key oKey = ModuleCommunicationBus.getKey("sotst");
+		RecordingListener listener = new RecordingListener();
+		b.setDouble(dKey, 1.5);
+		b.setInt(ModuleCommunicationBus.getKey("sitst"), 3);
+		b.addProperty(oKey, TST_VAL);
+		b.subscribe(dKey, listener);
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(b);
+		out.writeObject(dKey);
+		out.close();
+		ObjectInputStream in = new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray()));
+		ModuleCommunicationBus copy = (ModuleCommunicationBus)in.readObject();
+		assertSame(dKey, in.readObject());
+		
+		assertEquals(1.5, copy.getDouble(dKey, -1));
+		assertEquals(3, copy.getInt("sitst", -1));
+		assertEquals(TST_VAL, copy.getProperty(oKey));
+		assertNull(copy.getProperty("sntst"));
+		
+		/* the listener of the copy is a copy of the listener */
+		copy.setDouble(dKey, 2.5);
+		assertNull(listener.value);
+		b.setDouble(dKey, 3.5);
+		assertEquals(3.5, listener.value);
+	}
+	
+	private static class RecordingListener
+		implements ModuleCommunicationListener, Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private Object value;
+		
+		public void moduleValueChanged(String key, Object newValue) {
+			this.value = newValue;
+		}
+	}
+
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import gui.playfield.PlayField;
+import input.EventQueue;
+import interfaces.ConnectivityGrid;
+import interfaces.SimpleBroadcastInterface;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import routing.PassiveRouter;
+import core.Coord;
+import core.DTNHost;
+import core.ModuleCommunicationBus;
+import core.NetworkInterface;
+import core.Settings;
+import core.SimClock;
+import core.UpdateListener;
+import core.World;
+
+/**
+ * Smoke test for drawing the play field while the simulation is running
+ */
+public class PlayFieldTest extends TestCase {
+	private static final int NROF_HOSTS = 200;
+	private static final int NROF_ROUNDS = 2000;
+	private static final int WORLD_SIZE = 300;
+
+	private World world;
+	private List<DTNHost> hosts;
+	private volatile Throwable paintError;
+	private volatile boolean done;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		TestSettings ts = new TestSettings();
+		ts.putSetting("wlan.transmitRange", "30");
+		ts.putSetting("wlan.transmitSpeed", "10M");
+		SimClock.reset();
+		ConnectivityGrid.reset();
+
+		List<NetworkInterface> li = new ArrayList<NetworkInterface>();
+		li.add(new SimpleBroadcastInterface(new Settings("wlan")));
+		Random rng = new Random(1);
+		this.hosts = new ArrayList<DTNHost>();
+		for (int i = 0; i < NROF_HOSTS; i++) {
+			Coord loc = new Coord(rng.nextDouble() * WORLD_SIZE,
+					rng.nextDouble() * WORLD_SIZE);
+			hosts.add(new DTNHost(null, null, "h", li,
+					new ModuleCommunicationBus(), new StationaryMovement(loc),
+					new PassiveRouter(ts)));
+		}
+		this.world = new World(hosts, WORLD_SIZE, WORLD_SIZE, 1.0,
+				new ArrayList<UpdateListener>(), true,
+				new ArrayList<EventQueue>());
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		ConnectivityGrid.reset();
+	}
+
+	/**
+	 * Paints the field over and over in another thread while the hosts
+	 * move, connect and disconnect
+	 */
+	public void testPaintWhileSimulating() throws Exception {
+		final PlayField field = new PlayField(world);
+		field.setSize(WORLD_SIZE, WORLD_SIZE);
+		field.setShowNodePathTrace(true);
+		field.setLevelOfDetail(false);
+
+		Thread painter = new Thread() {
+			public void run() {
+				BufferedImage img = new BufferedImage(WORLD_SIZE, WORLD_SIZE,
+						BufferedImage.TYPE_INT_RGB);
+				try {
+					while (!done) {
+						Graphics2D g2 = img.createGraphics();
+						field.paint(g2);
+						g2.dispose();
+					}
+				} catch (Throwable t) {
+					paintError = t;
+				}
+			}
+		};
+		painter.start();
+
+		Random rng = new Random(2);
+		try {
+			for (int round = 0; round < NROF_ROUNDS; round++) {
+				for (DTNHost h : hosts) {
+					Coord c = h.getLocation();
+					h.setLocation(new Coord(
+						Math.min(WORLD_SIZE, Math.max(0,
+								c.getX() + rng.nextDouble() * 20 - 10)),
+						Math.min(WORLD_SIZE, Math.max(0,
+								c.getY() + rng.nextDouble() * 20 - 10))));
+				}
+				world.update();
+				if (round % 10 == 0) {
+					field.updateFrame();
+				}
+			}
+		} finally {
+			done = true;
+			painter.join();
+		}
+
+		if (paintError != null) {
+			throw new AssertionError("Painting failed: " + paintError,
+					paintError);
+		}
+	}
+}
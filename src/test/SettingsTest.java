@@ -208,6 +208,20 @@ public class SettingsTest extends TestCase {
 		assertEquals("[val1 ; val2",s.getSetting(IRS_S));
 	}
 	
+	/**
+	 * Tests that cached values are not shared with callers and that
+	 * added settings override the cached values
+	 */
+	public void testCachedValues() {
+		int[] csv = s.getCsvInts("csvInts", 3);
+		csv[0] = 42;
+		assertEquals(1, s.getCsvInts("csvInts", 3)[0]);
+		assertEquals(1.1, s.getDouble("double"));
+		
+		Settings.addSetting("double", "2.2");
+		assertEquals(2.2, s.getDouble("double"));
+	}
+	
 	/**
 	 * Tests disabled run-specific variables
 	 */
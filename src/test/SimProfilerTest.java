@@ -0,0 +1,71 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import junit.framework.TestCase;
+import core.ConnectionListener;
+import core.DTNHost;
+import core.SimProfiler;
+
+/**
+ * Tests for the simulation profiler
+ */
+public class SimProfilerTest extends TestCase {
+	private SimProfiler profiler;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.profiler = new SimProfiler(false);
+	}
+
+	public void testNestedSections() throws Exception {
+		SimProfiler.Section outer = profiler.getSection(SimProfiler.ROUTERS,
+				String.class);
+		SimProfiler.Section inner = profiler.getSection(
+				SimProfiler.MESSAGE_LISTENERS, Integer.class);
+		assertSame(outer, profiler.getSection(SimProfiler.ROUTERS,
+				String.class));
+
+		for (int i = 0; i < 2; i++) {
+			profiler.begin(SimProfiler.ROUTERS, "owner");
+			profiler.begin(inner);
+			Thread.sleep(20);
+			profiler.end();
+			profiler.end();
+		}
+
+		assertEquals(2, outer.getCalls());
+		assertEquals(2, inner.getCalls());
+		assertTrue(inner.getNanos() >= 40 * 1000000L);
+		assertTrue(outer.getNanos() >= inner.getNanos());
+		assertEquals(inner.getNanos(), inner.getSelfNanos());
+		/* the sleep belongs to the nested section only */
+		assertEquals(outer.getNanos() - inner.getNanos(),
+				outer.getSelfNanos());
+		assertTrue(outer.getSelfNanos() < inner.getSelfNanos());
+		assertEquals(2, profiler.getSections().size());
+	}
+
+	public void testProfiledListener() {
+		final int[] calls = {0, 0};
+		ConnectionListener cl = profiler.profile(new ConnectionListener() {
+			public void hostsConnected(DTNHost host1, DTNHost host2) {
+				calls[0]++;
+			}
+			public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+				calls[1]++;
+			}
+		});
+		cl.hostsConnected(null, null);
+		cl.hostsConnected(null, null);
+		cl.hostsDisconnected(null, null);
+
+		assertEquals(2, calls[0]);
+		assertEquals(1, calls[1]);
+		SimProfiler.Section s = profiler.getSections().iterator().next();
+		assertEquals(SimProfiler.CONNECTION_LISTENERS, s.getPhase());
+		assertEquals(3, s.getCalls());
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import interfaces.SparseConnectivityGrid;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import core.Coord;
+import core.DTNHost;
+import core.NetworkInterface;
+
+/**
+ * Tests for the sparse connectivity grid
+ */
+public class SparseConnectivityGridTest extends TestCase {
+	private static final int CELL_SIZE = 10;
+	private TestUtils utils;
+	private SparseConnectivityGrid grid;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.utils = new TestUtils(null, null, new TestSettings());
+		this.grid = new SparseConnectivityGrid(CELL_SIZE);
+	}
+
+	private NetworkInterface add(double x, double y) {
+		DTNHost h = utils.createHost(new Coord(x, y));
+		NetworkInterface ni = h.getInterfaces().get(0);
+		grid.addInterface(ni);
+		return ni;
+	}
+
+	public void testNearInterfaces() {
+		NetworkInterface a = add(5, 5);
+		NetworkInterface b = add(15, 15);
+		NetworkInterface c = add(35, 5);
+		NetworkInterface d = add(-5, -5);
+		assertEquals(4, grid.getNrofCells());
+
+		Collection<NetworkInterface> near = grid.getNearInterfaces(a);
+		assertEquals(3, near.size());
+		assertTrue(near.contains(a));
+		assertTrue(near.contains(b));
+		assertTrue(near.contains(d));
+
+		near = grid.getNearInterfaces(c);
+		assertEquals(1, near.size());
+		assertTrue(near.contains(c));
+	}
+
+	public void testMoveAndRemove() {
+		NetworkInterface a = add(5, 5);
+		NetworkInterface b = add(45, 5);
+		assertFalse(grid.getNearInterfaces(a).contains(b));
+
+		a.getHost().setLocation(new Coord(36, 5));
+		grid.updateLocation(a);
+		assertEquals(2, grid.getNrofCells());
+		assertTrue(grid.getNearInterfaces(a).contains(b));
+		assertTrue(grid.getNearInterfaces(b).contains(a));
+
+		a.getHost().setLocation(new Coord(41, 9));
+		grid.updateLocation(a);
+		assertEquals(1, grid.getNrofCells());
+
+		grid.removeInterface(b);
+		assertEquals(1, grid.getNearInterfaces(a).size());
+		assertEquals(1, grid.getAllInterfaces().size());
+	}
+
+	public void testRandomMoves() {
+		Random rng = new Random(1);
+		List<NetworkInterface> all = new ArrayList<NetworkInterface>();
+		for (int i = 0; i < 200; i++) {
+			all.add(add(rng.nextDouble() * 500, rng.nextDouble() * 500));
+		}
+
+		for (int round = 0; round < 20; round++) {
+			for (NetworkInterface ni : all) {
+				ni.getHost().setLocation(new Coord(rng.nextDouble() * 500,
+						rng.nextDouble() * 500));
+				grid.updateLocation(ni);
+			}
+
+			for (NetworkInterface ni : all) {
+				HashSet<NetworkInterface> near =
+					new HashSet<NetworkInterface>(grid.getNearInterfaces(ni));
+				for (NetworkInterface other : all) {
+					assertEquals(sameOrNeighborCell(ni, other),
+							near.contains(other));
+				}
+			}
+		}
+	}
+
+	private boolean sameOrNeighborCell(NetworkInterface a, NetworkInterface b) {
+		Coord ca = a.getLocation();
+		Coord cb = b.getLocation();
+		int dRow = (int)Math.floor(ca.getY() / CELL_SIZE) -
+			(int)Math.floor(cb.getY() / CELL_SIZE);
+		int dCol = (int)Math.floor(ca.getX() / CELL_SIZE) -
+			(int)Math.floor(cb.getX() / CELL_SIZE);
+		return Math.abs(dRow) <= 1 && Math.abs(dCol) <= 1;
+	}
+}
@@ -10,6 +10,7 @@ import core.DTNHost;
 import core.NetworkInterface;
 
 public class TestInterface extends NetworkInterface {
+	private static final long serialVersionUID = 42L;
 	
 	public TestInterface(double range, int speed) {
 		transmitRange = range;
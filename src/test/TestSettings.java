@@ -17,6 +17,7 @@ import core.SimScenario;
  *
  */
 public class TestSettings extends core.Settings {
+	private static final long serialVersionUID = 42L;
 	
 	public TestSettings() {
 		init(null);
@@ -60,7 +61,7 @@ public class TestSettings extends core.Settings {
 				System.exit(-1);
 			}
 		}
-		props.put(key, value);
+		addSetting(key, value);
 	}	
 
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import junit.framework.TestCase;
+import routing.util.UtilityCache;
+import core.SimClock;
+
+/**
+ * Tests for the epoch stamped utility cache
+ */
+public class UtilityCacheTest extends TestCase {
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+	}
+
+	public void testEpochs() {
+		UtilityCache cache = new UtilityCache(false);
+		assertFalse(cache.contains(3));
+		cache.put(3, 0.5);
+		assertTrue(cache.contains(3));
+		assertEquals(0.5, cache.get(3));
+
+		cache.put(100, 1.0); // grows the cache
+		assertTrue(cache.contains(3));
+		assertTrue(cache.contains(100));
+
+		cache.invalidate();
+		assertFalse(cache.contains(3));
+		assertFalse(cache.contains(100));
+		assertEquals(3, cache.getMisses());
+		assertEquals(3, cache.getHits());
+	}
+
+	public void testNaNIsCached() {
+		UtilityCache cache = new UtilityCache(false);
+		cache.put(1, 0.0 / 0.0);
+		assertTrue(cache.contains(1));
+		assertTrue(Double.isNaN(cache.get(1)));
+	}
+
+	public void testTimeDependentValues() {
+		UtilityCache cache = new UtilityCache(true);
+		cache.put(0, 2.0);
+		assertTrue(cache.contains(0));
+		SimClock.getInstance().advance(1);
+		assertFalse(cache.contains(0));
+	}
+}
@@ -12,12 +12,15 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import junit.framework.TestCase;
 import movement.map.MapNode;
 import movement.map.SimMap;
+import movement.map.SimMapCache;
 import core.Coord;
 
 public class WKTReaderTest extends TestCase {
@@ -237,6 +240,50 @@ public class WKTReaderTest extends TestCase {
 		assertFalse(map.getNodeByCoord(n11c).isType(2));
 	}
 	
+	public void testCompiledMapCache() throws Exception {
+		File wktFile = File.createTempFile("WKTReaderTest","tmp");
+		wktFile.deleteOnExit();
+		PrintWriter pw = new PrintWriter(wktFile);
+		pw.println(TST_TOPOLOGY);
+		pw.close();
+		
+		WKTMapReader reader = new WKTMapReader(true);
+		reader.addPaths(wktFile, 1);
+		SimMap map = reader.getMap();
+		map.mirror();
+		map.translate(-1, 3);
+		
+		List<String> files = Arrays.asList(wktFile.getPath());
+		long key = SimMapCache.computeKey(files, true, true, true);
+		File cacheFile = SimMapCache.getCacheFile(files, key);
+		cacheFile.deleteOnExit();
+		
+		assertEquals(key, SimMapCache.computeKey(files, true, true, true));
+		assertFalse(key == SimMapCache.computeKey(files, false, true, true));
+		assertFalse(key == SimMapCache.computeKey(files, true, false, true));
+		assertFalse(key == SimMapCache.computeKey(files, true, true, false));
+		
+		assertNull(SimMapCache.load(cacheFile, key, 1));
+		SimMapCache.save(map, cacheFile, key, 1);
+		assertNull(SimMapCache.load(cacheFile, key + 1, 1));
+		SimMap loaded = SimMapCache.load(cacheFile, key, 1);
+		
+		assertNotNull(loaded);
+		assertTrue(loaded.isMirrored());
+		assertEquals(map.getOffset(), loaded.getOffset());
+		assertEquals(map.getNodes().size(), loaded.getNodes().size());
+		for (int i = 0; i < map.getNodes().size(); i++) {
+			MapNode n = map.getNodes().get(i);
+			MapNode l = loaded.getNodes().get(i);
+			assertEquals(n.getLocation(), l.getLocation());
+			assertTrue(l.isType(1));
+			assertEquals(n.getNeighbors().toString(), 
+					l.getNeighbors().toString());
+		}
+		assertSame(loaded.getNodes().get(0), 
+				loaded.getNodeByCoord(map.getNodes().get(0).getLocation()));
+	}
+	
 	private void basicNodesTests(WKTMapReader reader) {
 		Collection<MapNode> col = reader.getNodes();
 		
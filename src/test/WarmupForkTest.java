@@ -0,0 +1,101 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import core.DTNSim;
+import core.WarmupFork;
+
+/**
+ * Tests for batch runs forked from a shared warm-up. The batches are
+ * simulated in separate Java processes, like from the command line.
+ */
+public class WarmupForkTest extends TestCase {
+	private static final String[] RUN_NAMES = {"forkA", "forkB"};
+	private File dir;
+	private File conf;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.dir = Files.createTempDirectory("fork").toFile();
+		this.conf = new File(dir, "fork.txt");
+		PrintWriter out = new PrintWriter(conf);
+		out.println("Scenario.name = [" + RUN_NAMES[0] + "; " +
+				RUN_NAMES[1] + "]");
+		out.println("Scenario.endTime = 5000");
+		out.println("MovementModel.warmup = 1000");
+		out.println("Group.router = ProphetRouter");
+		out.println("ProphetRouter.secondsInTimeUnit = 30");
+		out.println("Report.nrofReports = 1");
+		out.println("Report.report1 = MessageStatsReport");
+		out.println(WarmupFork.FORK_NS + "." + WarmupFork.ENABLED_S +
+				" = true");
+		out.close();
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		delete(dir);
+	}
+
+	private void delete(File f) {
+		File[] files = f.listFiles();
+		if (files != null) {
+			for (File child : files) {
+				delete(child);
+			}
+		}
+		f.delete();
+	}
+
+	/**
+	 * Simulates the batch with the given number of parallel processes
+	 * @return The directory of the reports
+	 */
+	private File runBatch(int nrofProcesses) throws Exception {
+		File reportDir = new File(dir, "reports" + nrofProcesses);
+		List<String> cmd = new ArrayList<String>();
+		cmd.add(System.getProperty("java.home") + File.separator + "bin" +
+				File.separator + "java");
+		cmd.add("-cp");
+		cmd.add(System.getProperty("java.class.path"));
+		cmd.add(DTNSim.class.getName());
+		cmd.add(DTNSim.BATCH_MODE_FLAG);
+		cmd.add("" + RUN_NAMES.length);
+		cmd.add(DTNSim.SETTING_DEF_FLAG);
+		cmd.add("Report.reportDir=" + reportDir.getAbsolutePath() +
+				DTNSim.CMD_SETTING_DELIMITER + WarmupFork.FORK_NS + "." +
+				WarmupFork.NROF_PROCESSES_S + "=" + nrofProcesses);
+		cmd.add(conf.getAbsolutePath());
+
+		ProcessBuilder pb = new ProcessBuilder(cmd);
+		pb.redirectErrorStream(true);
+		pb.redirectOutput(new File(dir, "out" + nrofProcesses + ".txt"));
+		assertEquals(0, pb.start().waitFor());
+		return reportDir;
+	}
+
+	private String readReport(File reportDir, String runName)
+			throws IOException {
+		File f = new File(reportDir, runName + "_MessageStatsReport.txt");
+		return new String(Files.readAllBytes(f.toPath()), "UTF-8");
+	}
+
+	public void testSameResultsSequentialAndParallel() throws Exception {
+		File sequential = runBatch(1);
+		File parallel = runBatch(2);
+		for (String name : RUN_NAMES) {
+			assertEquals("Different results for " + name,
+					readReport(parallel, name), readReport(sequential, name));
+		}
+	}
+}
@@ -27,6 +27,9 @@ public class DTNSimTextUI extends DTNSimUI {
 		while (simTime < endTime && !simCancelled){
 			try {
 				world.update();
+				if (checkpoint != null) {
+					checkpoint.update(reports);
+				}
 			} catch (AssertionError e) {
 				e.printStackTrace();
 				done();
@@ -4,11 +4,16 @@
  */
 package ui;
 
+import java.io.File;
+import java.io.Serializable;
 import java.util.Vector;
 
 import report.Report;
 import core.ApplicationListener;
+import core.AsyncDelivery;
+import core.Checkpoint;
 import core.ConnectionListener;
+import core.DTNSim;
 import core.MessageListener;
 import core.MovementListener;
 import core.Settings;
@@ -17,6 +22,7 @@ import core.SimClock;
 import core.SimError;
 import core.SimScenario;
 import core.UpdateListener;
+import core.WarmupFork;
 import core.World;
 
 /**
@@ -58,6 +64,8 @@ public abstract class DTNSimUI {
 	protected SimScenario scen;
 	/** simtime of last UI update */
 	protected double lastUpdate;
+	/** Writer of the simulation snapshots (or null if not enabled) */
+	protected Checkpoint checkpoint;
 	
 	/**
 	 * Constructor.
@@ -89,15 +97,20 @@ public abstract class DTNSimUI {
 		Settings settings = null;
 				
 		try {
+			File restoreFile = Checkpoint.getRestoreFile();
+			if (restoreFile != null) {
+				restoreModel(restoreFile);
+				return;
+			}
+			File forkFile = WarmupFork.getSnapshotFile();
+			if (forkFile != null) {
+				forkModel(forkFile);
+				return;
+			}
+
 			settings = new Settings();
 			this.scen = SimScenario.getInstance();
-
-			// add reports
-			for (int i=1, n = settings.getInt(NROF_REPORT_S); i<=n; i++){
-				String reportClass = settings.getSetting(REPORT_S + i);
-				addReport((Report)settings.createObject(REPORT_PAC + 
-						reportClass));	
-			}
+			addReports(settings);
 
 			double warmupTime = 0;
 			if (settings.contains(MM_WARMUP_S)) {
@@ -110,6 +123,7 @@ public abstract class DTNSimUI {
 
 			this.world = this.scen.getWorld();
 			world.warmupMovementModel(warmupTime);
+			this.checkpoint = Checkpoint.createIfEnabled(scen);
 		}
 		catch (SettingsError se) {
 			System.err.println("Can't start: error in configuration file(s)");
@@ -123,13 +137,63 @@ public abstract class DTNSimUI {
 		}		
 	}
 	
+	/**
+	 * Initializes the simulator model from a snapshot of a simulation
+	 * @param file The snapshot file
+	 * @see Checkpoint
+	 */
+	private void restoreModel(File file) {
+		System.out.println("Resuming simulation from " + file);
+		for (Serializable r : Checkpoint.restore(file)) {
+			this.reports.add((Report)r);
+		}
+		this.scen = SimScenario.getInstance();
+		scen.readResumeSettings();
+		this.world = this.scen.getWorld();
+		this.checkpoint = Checkpoint.createIfEnabled(scen);
+	}
+
+	/**
+	 * Initializes the simulator model from a shared warm-up snapshot. The
+	 * routers and the reports are created from the current settings.
+	 * @param file The snapshot file
+	 * @see WarmupFork
+	 */
+	private void forkModel(File file) {
+		System.out.println("Forking simulation from " + file);
+		Checkpoint.restore(file);
+		this.scen = SimScenario.getInstance();
+		scen.fork();
+		addReports(new Settings());
+		this.world = this.scen.getWorld();
+		this.checkpoint = Checkpoint.createIfEnabled(scen);
+	}
+
+	/**
+	 * Creates and adds the reports defined in the settings
+	 * @param settings The settings to read the reports from
+	 */
+	private void addReports(Settings settings) {
+		for (int i=1, n = settings.getInt(NROF_REPORT_S); i<=n; i++){
+			String reportClass = settings.getSetting(REPORT_S + i);
+			addReport((Report)settings.createObject(REPORT_PAC + 
+					reportClass));	
+		}
+	}
+
 	/**
 	 * Runs maintenance jobs that are needed before exiting.
 	 */
 	public void done() {
+		AsyncDelivery.drain();
 		for (Report r : this.reports) {
 			r.done();
 		}
+		this.scen.done();
+		if (scen.getNrofVerifiedEvents() >= 0) {
+			DTNSim.print("Contact trace verified: " +
+					scen.getNrofVerifiedEvents() + " connection events match");
+		}
 	}
 	
 	/**